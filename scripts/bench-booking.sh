@@ -0,0 +1,62 @@
+#!/bin/bash
+# 下单吞吐对比：用相同请求分别压测 POST /api/orders/book?mode=procedure（sp_create_rental_order）与 mode=java（Java 实现），
+# 输出每种模式的每秒成功下单数。过程路径只在 MySQL 上可用，H2 上只测 java。
+# 会真实写入订单（每种模式 预热数 + 请求数 条），请在测试库上运行。
+#
+# 用法：scripts/bench-booking.sh <客户ID> <车辆ID> <门店ID> [请求数=2000] [并发数=8] [服务地址=http://localhost:8080]
+#       车辆需在库且电量 ≥ 20%；下单不改变车辆状态，同一辆车可反复预订
+#       压测前应以 --rental.rate-limit.enabled=false 启动应用，否则超出 /api 分组限额的请求返回 429
+set -euo pipefail
+
+if [ $# -lt 3 ]; then
+    sed -n '2,9p' "$0"
+    exit 1
+fi
+CUSTOMER=$1
+VEHICLE=$2
+STORE=$3
+COUNT=${4:-2000}
+CONCURRENCY=${5:-8}
+BASE=${6:-http://localhost:8080}
+WARMUP=$(( COUNT / 10 > 200 ? 200 : COUNT / 10 + 1 ))
+
+WORK=$(mktemp -d)
+trap 'rm -rf "$WORK"' EXIT
+
+cat > "$WORK/body.json" <<EOF
+{"customerId": $CUSTOMER, "vehicleId": $VEHICLE, "pickupStoreId": $STORE, "returnStoreId": $STORE,
+ "rentStart": "$(date -d '+1 day' '+%Y-%m-%d %H:%M:%S')", "rentEnd": "$(date -d '+3 day' '+%Y-%m-%d %H:%M:%S')"}
+EOF
+
+# 生成 curl 配置：每个请求一段，--parallel 下复用最多 $CONCURRENCY 条连接
+requests() {
+    local mode=$1 n=$2
+    for i in $(seq "$n"); do
+        [ "$i" -gt 1 ] && echo next
+        printf 'url = "%s/api/orders/book?mode=%s"\nheader = "Content-Type: application/json"\ndata-binary = "@%s"\noutput = "/dev/null"\nwrite-out = "%%{http_code}\\n"\n' \
+            "$BASE" "$mode" "$WORK/body.json"
+    done
+}
+
+run() {
+    curl -s --no-progress-meter --parallel --parallel-immediate --parallel-max "$CONCURRENCY" -K "$1"
+}
+
+printf '%-10s %8s %8s %10s %12s\n' mode requests ok seconds bookings/s
+for MODE in procedure java; do
+    status=$(curl -s -o "$WORK/check" -w '%{http_code}' -H 'Content-Type: application/json' \
+        --data-binary "@$WORK/body.json" "$BASE/api/orders/book?mode=$MODE")
+    if [ "$status" != 201 ]; then
+        printf '%-10s skipped: HTTP %s %s\n' "$MODE" "$status" "$(cat "$WORK/check")"
+        continue
+    fi
+    requests "$MODE" "$WARMUP" > "$WORK/warmup.cfg"
+    run "$WORK/warmup.cfg" > /dev/null
+    requests "$MODE" "$COUNT" > "$WORK/bench.cfg"
+    start=$(date +%s%N)
+    run "$WORK/bench.cfg" > "$WORK/codes"
+    end=$(date +%s%N)
+    ok=$(grep -c '^201$' "$WORK/codes" || true)
+    awk -v mode="$MODE" -v n="$COUNT" -v ok="$ok" -v ns=$(( end - start )) \
+        'BEGIN { s = ns / 1e9; printf "%-10s %8d %8d %10.2f %12.1f\n", mode, n, ok, s, ok / s }'
+done
@@ -0,0 +1,121 @@
+#!/bin/bash
+# 客户批量 upsert 吞吐：在全新的 H2 文件库中生成 <已有客户数> 个客户，启动应用后依次测量
+#   1. 单行接口 POST /api/customers 串行写入 <单行次数> 个新客户（同一连接，逐个请求）；
+#   2. POST /api/customers/bulk 每次 <每请求行数> 个新手机号（全部新增），共 <请求数> 次；
+#   3. POST /api/customers/bulk 每次 <每请求行数> 个已有手机号（全部更新姓名与驾照号），共 <请求数> 次；
+# 输出每秒行数（批量接口同时给出响应中的 rowsPerSecond，即不含 JSON 解析与传输的服务端写入吞吐）。不影响已有数据。
+#
+# 用法：scripts/bench-customer-upsert.sh [已有客户数=1000000] [每请求行数=50000] [请求数=3] [单行次数=1000] [jar=target/rental-0.0.1-SNAPSHOT.jar] [端口=18089]
+set -euo pipefail
+
+EXISTING=${1:-1000000}
+ROWS=${2:-50000}
+REQUESTS=${3:-3}
+SINGLE=${4:-1000}
+JAR=${5:-target/rental-0.0.1-SNAPSHOT.jar}
+PORT=${6:-18089}
+BASE=http://localhost:$PORT
+H2_JAR=${H2_JAR:-$(ls ~/.m2/repository/com/h2database/h2/*/h2-*.jar 2>/dev/null | tail -1)}
+
+if [ ! -f "$JAR" ]; then
+    echo "jar not found: $JAR (run mvn package first)" >&2
+    exit 1
+fi
+if [ ! -f "$H2_JAR" ]; then
+    echo "h2 jar not found, set H2_JAR" >&2
+    exit 1
+fi
+if [ $(( ROWS * REQUESTS )) -gt "$EXISTING" ]; then
+    echo "rows x requests must not exceed the existing customers (the update pass reuses their phones)" >&2
+    exit 1
+fi
+
+WORK=$(mktemp -d)
+URL="jdbc:h2:file:$WORK/customers;MODE=MySQL;AUTO_SERVER=TRUE"
+APP_PID=
+cleanup() {
+    [ -n "$APP_PID" ] && kill "$APP_PID" 2>/dev/null && wait "$APP_PID" 2>/dev/null || true
+    rm -rf "$WORK"
+}
+trap cleanup EXIT
+
+start_app() {
+    java -jar "$JAR" --server.port="$PORT" \
+        --spring.datasource.url="$URL" --spring.datasource.username=sa --spring.datasource.password= \
+        --spring.datasource.driver-class-name=org.h2.Driver --spring.jpa.properties.hibernate.dialect=org.hibernate.dialect.H2Dialect \
+        --rental.rate-limit.enabled=false > "$WORK/app.log" 2>&1 &
+    APP_PID=$!
+    for _ in $(seq 1 300); do
+        curl -sf -o /dev/null "$BASE/api/stores" && return 0
+        kill -0 "$APP_PID" 2>/dev/null || break
+        sleep 1
+    done
+    echo "application failed to start, see log:" >&2
+    tail -20 "$WORK/app.log" >&2
+    exit 1
+}
+
+stop_app() {
+    kill "$APP_PID"
+    wait "$APP_PID" 2>/dev/null || true
+    APP_PID=
+}
+
+sql() {
+    java -cp "$H2_JAR" org.h2.tools.Shell -url "$URL" -user sa -password "" -sql "$1" > /dev/null
+}
+
+# 首次启动建表，停止后直接写入数据
+start_app
+stop_app
+
+echo "generating $EXISTING customers ..."
+started=$(date +%s%N)
+# 已有客户手机号 139 + 8 位序号；新增的单行客户用 137、批量客户用 138 开头
+sql "INSERT INTO customer (customer_id, name, phone, id_card, driver_license)
+     SELECT X, 'bench' || X, '139' || LPAD(X, 8, '0'), '3101011990' || LPAD(X, 8, '0'), 'D' || X FROM SYSTEM_RANGE(1, $EXISTING);
+     ALTER TABLE customer ALTER COLUMN customer_id RESTART WITH $(( EXISTING + 1 ))"
+echo "generated in $(( ($(date +%s%N) - started) / 1000000 )) ms"
+
+start_app
+
+# 生成一个 JSON 数组请求体：前缀 + 从 first 起的 n 个序号
+body() {
+    awk -v prefix="$1" -v first="$2" -v n="$3" -v tag="$4" 'BEGIN {
+        printf "[";
+        for (i = 0; i < n; i++) {
+            printf "%s{\"phone\":\"%s%08d\",\"name\":\"%s%d\",\"driverLicense\":\"%s%d\"}",
+                i ? "," : "", prefix, first + i, tag, first + i, tag, first + i;
+        }
+        printf "]";
+    }'
+}
+
+echo "== single-row POST /api/customers, $SINGLE new customers"
+for i in $(seq "$SINGLE"); do
+    [ "$i" -gt 1 ] && echo next
+    printf 'url = "%s/api/customers"\nheader = "Content-Type: application/json"\ndata = "{\\"phone\\":\\"137%08d\\",\\"name\\":\\"single%d\\"}"\noutput = "/dev/null"\nwrite-out = "%%{http_code}\\n"\n' \
+        "$BASE" "$i" "$i"
+done > "$WORK/single.cfg"
+started=$(date +%s%N)
+curl -s --no-progress-meter -K "$WORK/single.cfg" > "$WORK/codes"
+elapsed=$(( ($(date +%s%N) - started) / 1000000 ))
+echo "$(grep -c '^200$' "$WORK/codes" || true)/$SINGLE ok" \
+    "$(awk -v n="$SINGLE" -v ms="$elapsed" 'BEGIN { printf "in %.1f s: %.0f rows/s", ms / 1000, n * 1000 / ms }')"
+
+# $1 = 名称，$2 = 手机号前缀，$3 = 姓名/驾照标记
+bulk() {
+    echo "== bulk $1, $REQUESTS x $ROWS rows"
+    for r in $(seq 0 $(( REQUESTS - 1 ))); do
+        body "$2" $(( r * ROWS + 1 )) "$ROWS" "$3" > "$WORK/bulk.json"
+        started=$(date +%s%N)
+        curl -sf -H 'Content-Type: application/json' --data-binary "@$WORK/bulk.json" "$BASE/api/customers/bulk" > "$WORK/bulk-result.json"
+        elapsed=$(( ($(date +%s%N) - started) / 1000000 ))
+        summary=$(grep -o '"total":[0-9]*,"inserted":[0-9]*,"updated":[0-9]*,"failed":[0-9]*,"elapsedMillis":[0-9]*,"rowsPerSecond":[0-9]*' \
+            "$WORK/bulk-result.json")
+        echo "request $(( r + 1 )): $summary; wall clock $elapsed ms, $(( ROWS * 1000 / elapsed )) rows/s"
+    done
+}
+
+bulk insert 138 new
+bulk update 139 upd
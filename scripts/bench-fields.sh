@@ -0,0 +1,102 @@
+#!/bin/bash
+# 列表响应体积：在全新的 H2 文件库中生成 4 个车型与 <车辆数> 辆车，启动应用后用 curl 请求 GET /api/vehicles 全量列表，
+# 分别测量 JSON / CBOR（Accept: application/cbor）、是否 gzip（Accept-Encoding: gzip，curl 不解压，统计的是线上字节数）
+# 以及 ?fields= 只取 5 个字段的组合，每种 <次数> 次，输出线上字节数与耗时的中位数。不影响已有数据。
+#
+# 用法：scripts/bench-fields.sh [车辆数=50000] [次数=15] [jar=target/rental-0.0.1-SNAPSHOT.jar] [端口=18089]
+set -euo pipefail
+
+VEHICLES=${1:-50000}
+REPEAT=${2:-15}
+JAR=${3:-target/rental-0.0.1-SNAPSHOT.jar}
+PORT=${4:-18089}
+BASE=http://localhost:$PORT
+FIELDS=vehicleId,plateNo,status,currentSoc,carModelName
+H2_JAR=${H2_JAR:-$(ls ~/.m2/repository/com/h2database/h2/*/h2-*.jar 2>/dev/null | tail -1)}
+
+if [ ! -f "$JAR" ]; then
+    echo "jar not found: $JAR (run mvn package first)" >&2
+    exit 1
+fi
+if [ ! -f "$H2_JAR" ]; then
+    echo "h2 jar not found, set H2_JAR" >&2
+    exit 1
+fi
+
+WORK=$(mktemp -d)
+URL="jdbc:h2:file:$WORK/fields;MODE=MySQL;AUTO_SERVER=TRUE"
+APP_PID=
+cleanup() {
+    [ -n "$APP_PID" ] && kill "$APP_PID" 2>/dev/null && wait "$APP_PID" 2>/dev/null || true
+    rm -rf "$WORK"
+}
+trap cleanup EXIT
+
+start_app() {
+    java -jar "$JAR" --server.port="$PORT" \
+        --spring.datasource.url="$URL" --spring.datasource.username=sa --spring.datasource.password= \
+        --spring.datasource.driver-class-name=org.h2.Driver --spring.jpa.properties.hibernate.dialect=org.hibernate.dialect.H2Dialect \
+        --rental.rate-limit.enabled=false > "$WORK/app.log" 2>&1 &
+    APP_PID=$!
+    for _ in $(seq 1 120); do
+        curl -sf -o /dev/null "$BASE/api/stores" && return 0
+        kill -0 "$APP_PID" 2>/dev/null || break
+        sleep 1
+    done
+    echo "application failed to start, see log:" >&2
+    tail -20 "$WORK/app.log" >&2
+    exit 1
+}
+
+stop_app() {
+    kill "$APP_PID"
+    wait "$APP_PID" 2>/dev/null || true
+    APP_PID=
+}
+
+sql() {
+    java -cp "$H2_JAR" org.h2.tools.Shell -url "$URL" -user sa -password "" -sql "$1" > /dev/null
+}
+
+# 状态值用 Unicode 转义，避免命令行编码问题：在库 / 在租
+IN_STOCK="U&'\\5728\\5E93'"
+RENTED="U&'\\5728\\79DF'"
+
+# 首次启动建表（并写入一家默认门店），停止后直接写入数据，车辆都停在默认门店
+start_app
+stop_app
+sql "INSERT INTO car_model (model_id, name, seat_count, battery_capacity, daily_rate) VALUES
+        (1, 'Model 3', 5, 60.0, 299.00), (2, 'Model Y', 5, 78.4, 349.00), (3, 'Model S', 5, 100.0, 699.00), (4, 'Model X', 7, 100.0, 799.00);
+     INSERT INTO vehicle (vehicle_id, plate_no, model_id, store_id, status, current_soc, current_mileage)
+     SELECT X, 'BENCH' || X, MOD(X, 4) + 1, 1, CASEWHEN(MOD(X, 3) = 0, $RENTED, $IN_STOCK),
+        20.0 + MOD(X * 37, 800) / 10.0, MOD(X * 7919, 100000) + 0.5 FROM SYSTEM_RANGE(1, $VEHICLES)"
+start_app
+
+# $1 = 名称，$2 = 查询串，其余为请求头
+measure() {
+    local name=$1 query=$2
+    shift 2
+    local headers=()
+    for header in "$@"; do
+        headers+=(-H "$header")
+    done
+    # 预热
+    for _ in 1 2 3; do
+        curl -sf -o /dev/null "${headers[@]}" "$BASE/api/vehicles$query"
+    done
+    for _ in $(seq "$REPEAT"); do
+        curl -sf -o /dev/null "${headers[@]}" -w '%{size_download} %{time_total}\n' "$BASE/api/vehicles$query"
+    done > "$WORK/samples"
+    sort -n -k1 "$WORK/samples" | awk -v name="$name" '{ size[NR] = $1 } END { m = int((NR + 1) / 2); printf "%-18s %12d %10.1f", name, size[m], size[m] / 1024 }'
+    sort -n -k2 "$WORK/samples" | awk '{ t[NR] = $2 } END { printf " %10.0f\n", t[int((NR + 1) / 2)] * 1000 }'
+}
+
+echo "== GET /api/vehicles with $VEHICLES vehicles, median of $REPEAT; fields=$FIELDS"
+printf '%-18s %12s %10s %10s\n' variant bytes KB ms
+measure json ""
+measure json+gzip "" "Accept-Encoding: gzip"
+measure cbor "" "Accept: application/cbor"
+measure cbor+gzip "" "Accept: application/cbor" "Accept-Encoding: gzip"
+measure fields "?fields=$FIELDS"
+measure fields+gzip "?fields=$FIELDS" "Accept-Encoding: gzip"
+measure fields+cbor+gzip "?fields=$FIELDS" "Accept: application/cbor" "Accept-Encoding: gzip"
@@ -0,0 +1,131 @@
+#!/bin/bash
+# 订单事件重放耗时：在全新的 H2 文件库中直接生成 <订单数> 个订单及每单 4 条事件（下单、取车、还车、结算），
+# 启动应用后依次调用 POST /api/orders/projection/rebuild?mode=events（从第一条事件重放）、
+# POST /api/orders/projection/snapshot（全量生成快照），再通过接口修改部分订单产生快照之后的事件、直接改坏部分 rental_order 行，
+# 分别以 mode=events 与 mode=snapshot 重建，输出各步耗时与修正的订单数（第一次重建含 JIT 预热与冷缓存）。不影响已有数据。
+#
+# 用法：scripts/bench-order-replay.sh [订单数=250000] [快照后修改的订单数=500] [jar=target/rental-0.0.1-SNAPSHOT.jar] [端口=18089]
+set -euo pipefail
+
+ORDERS=${1:-250000}
+CHANGED=${2:-500}
+JAR=${3:-target/rental-0.0.1-SNAPSHOT.jar}
+PORT=${4:-18089}
+BASE=http://localhost:$PORT
+H2_JAR=${H2_JAR:-$(ls ~/.m2/repository/com/h2database/h2/*/h2-*.jar 2>/dev/null | tail -1)}
+
+if [ ! -f "$JAR" ]; then
+    echo "jar not found: $JAR (run mvn package first)" >&2
+    exit 1
+fi
+if [ ! -f "$H2_JAR" ]; then
+    echo "h2 jar not found, set H2_JAR" >&2
+    exit 1
+fi
+
+WORK=$(mktemp -d)
+URL="jdbc:h2:file:$WORK/replay;MODE=MySQL;AUTO_SERVER=TRUE"
+APP_PID=
+cleanup() {
+    [ -n "$APP_PID" ] && kill "$APP_PID" 2>/dev/null && wait "$APP_PID" 2>/dev/null
+    rm -rf "$WORK"
+}
+trap cleanup EXIT
+
+start_app() {
+    java -jar "$JAR" --server.port="$PORT" \
+        --spring.datasource.url="$URL" --spring.datasource.username=sa --spring.datasource.password= \
+        --spring.datasource.driver-class-name=org.h2.Driver --spring.jpa.properties.hibernate.dialect=org.hibernate.dialect.H2Dialect \
+        --rental.rate-limit.enabled=false --rental.order-events.snapshot-enabled=false \
+        --rental.order-events.snapshot-lag-seconds=0 > "$WORK/app.log" 2>&1 &
+    APP_PID=$!
+    for _ in $(seq 1 120); do
+        curl -sf -o /dev/null "$BASE/api/stores" && return 0
+        kill -0 "$APP_PID" 2>/dev/null || break
+        sleep 1
+    done
+    echo "application failed to start, see log:" >&2
+    tail -20 "$WORK/app.log" >&2
+    exit 1
+}
+
+stop_app() {
+    kill "$APP_PID"
+    wait "$APP_PID" 2>/dev/null || true
+    APP_PID=
+}
+
+sql() {
+    java -cp "$H2_JAR" org.h2.tools.Shell -url "$URL" -user sa -password "" -sql "$1" > /dev/null
+}
+
+# 状态值与角色名用 Unicode 转义，避免命令行编码问题：已支付 / 在租 / 已还 / 结算 / 管理员
+PAID="U&'\\5DF2\\652F\\4ED8'"
+RENTED="U&'\\5728\\79DF'"
+RETURNED="U&'\\5DF2\\8FD8'"
+SETTLED="U&'\\7ED3\\7B97'"
+ADMIN_ROLE="U&'\\7BA1\\7406\\5458'"
+
+# 首次启动建表（含 order_event 等迁移），停止后直接写入数据
+start_app
+stop_app
+
+echo "generating $ORDERS orders, $(( ORDERS * 4 )) events ..."
+started=$(date +%s%N)
+sql "INSERT INTO rental_order (order_id, rent_start, rent_end, actual_pickup_time, actual_return_time, pickup_mileage,
+        return_mileage, pickup_soc, return_soc, total_amount, status, customer_id, vehicle_id, pickup_store_id, return_store_id)
+     SELECT X, TIMESTAMP '2025-01-01 10:00:00' + X * INTERVAL '1' MINUTE, TIMESTAMP '2025-01-03 10:00:00' + X * INTERVAL '1' MINUTE,
+        TIMESTAMP '2025-01-01 10:05:00' + X * INTERVAL '1' MINUTE, TIMESTAMP '2025-01-03 09:55:00' + X * INTERVAL '1' MINUTE,
+        X * 10.0, X * 10.0 + 300, 90.0, 60.0, 600.00, $SETTLED, MOD(X, 1000) + 1, MOD(X, 200) + 1, MOD(X, 8) + 1, MOD(X, 8) + 1
+     FROM SYSTEM_RANGE(1, $ORDERS);
+     ALTER TABLE rental_order ALTER COLUMN order_id RESTART WITH $(( ORDERS + 1 ));
+     INSERT INTO order_event (order_id, seq, event_type, rent_start, rent_end, actual_pickup_time, actual_return_time,
+        pickup_mileage, return_mileage, pickup_soc, return_soc, total_amount, status, customer_id, vehicle_id,
+        pickup_store_id, return_store_id, vehicle_status, recorded_at)
+     SELECT o.X, s.X, CASEWHEN(s.X = 1, 'CREATED', CASEWHEN(s.X = 2, 'PICKED_UP', CASEWHEN(s.X = 3, 'RETURNED', 'SETTLED'))),
+        CASEWHEN(s.X = 1, TIMESTAMP '2025-01-01 10:00:00' + o.X * INTERVAL '1' MINUTE, NULL),
+        CASEWHEN(s.X = 1, TIMESTAMP '2025-01-03 10:00:00' + o.X * INTERVAL '1' MINUTE, NULL),
+        CASEWHEN(s.X = 2, TIMESTAMP '2025-01-01 10:05:00' + o.X * INTERVAL '1' MINUTE, NULL),
+        CASEWHEN(s.X = 3, TIMESTAMP '2025-01-03 09:55:00' + o.X * INTERVAL '1' MINUTE, NULL),
+        CASEWHEN(s.X = 2, o.X * 10.0, NULL), CASEWHEN(s.X = 3, o.X * 10.0 + 300, NULL),
+        CASEWHEN(s.X = 2, 90.0, NULL), CASEWHEN(s.X = 3, 60.0, NULL), CASEWHEN(s.X = 1, 600.00, NULL),
+        CASEWHEN(s.X = 1, $PAID, CASEWHEN(s.X = 2, $RENTED, CASEWHEN(s.X = 3, $RETURNED, $SETTLED))),
+        CASEWHEN(s.X = 1, MOD(o.X, 1000) + 1, NULL), CASEWHEN(s.X = 1, MOD(o.X, 200) + 1, NULL),
+        CASEWHEN(s.X = 1, MOD(o.X, 8) + 1, NULL), CASEWHEN(s.X = 1, MOD(o.X, 8) + 1, NULL), NULL,
+        TIMESTAMP '2025-01-01 10:00:00' + o.X * INTERVAL '1' MINUTE + s.X * INTERVAL '1' SECOND
+     FROM SYSTEM_RANGE(1, $ORDERS) o, SYSTEM_RANGE(1, 4) s ORDER BY o.X, s.X"
+echo "generated in $(( ($(date +%s%N) - started) / 1000000 )) ms"
+# 重建与快照接口需管理员角色
+sql "INSERT INTO sys_role (role_name) VALUES ($ADMIN_ROLE)"
+
+start_app
+curl -sf -o /dev/null -H 'Content-Type: application/json' -d '{"username":"bench","password":"bench123","role":["管理员"]}' \
+    "$BASE/api/auth/signup"
+TOKEN=$(curl -sf -H 'Content-Type: application/json' -d '{"username":"bench","password":"bench123"}' "$BASE/api/auth/signin" \
+    | sed -n 's/.*"token":"\([^"]*\)".*/\1/p')
+AUTH="Authorization: Bearer $TOKEN"
+
+rebuild() {
+    curl -sf -X POST -H "$AUTH" "$BASE/api/orders/projection/rebuild?mode=$1"
+    echo
+}
+
+echo "== rebuild from events (projection already consistent)"
+rebuild events
+echo "== full snapshot"
+curl -sf -X POST -H "$AUTH" "$BASE/api/orders/projection/snapshot"
+echo
+
+# 快照之后：通过接口修改订单金额（追加 AMENDED 事件），再直接改坏同样数量的 rental_order 行
+for i in $(seq 1 "$CHANGED"); do
+    id=$(( (i * 7919) % ORDERS + 1 ))
+    curl -sf -o /dev/null -X PUT -H 'Content-Type: application/json' -d "{\"totalAmount\": $(( 600 + i ))}" \
+        "$BASE/api/orders/$id"
+done
+sql "UPDATE rental_order SET total_amount = 0 WHERE MOD(order_id, $(( ORDERS / CHANGED > 0 ? ORDERS / CHANGED : 1 ))) = 0"
+
+echo "== rebuild from snapshot + $CHANGED newer event(s)"
+rebuild snapshot
+sql "UPDATE rental_order SET total_amount = 0 WHERE MOD(order_id, $(( ORDERS / CHANGED > 0 ? ORDERS / CHANGED : 1 ))) = 0"
+echo "== rebuild from events"
+rebuild events
@@ -0,0 +1,111 @@
+#!/bin/bash
+# 批量报价吞吐：在全新的 H2 文件库中生成 4 个车型（带日租金）与 <车辆数> 辆车，启动应用后由一个串行客户端
+# 反复调用 POST /api/quotes，每次请求 <每批报价数> 个 车辆 x 租期（1-30 天，部分异地还车）组合，
+# 输出每个请求的平均耗时与每秒报价数（含 JSON 解析与序列化，首批请求用于预热不计入）。不影响已有数据。
+#
+# 用法：scripts/bench-quotes.sh [每批报价数=500] [请求数=200] [车辆数=20000] [jar=target/rental-0.0.1-SNAPSHOT.jar] [端口=18089]
+set -euo pipefail
+
+BATCH=${1:-500}
+COUNT=${2:-200}
+VEHICLES=${3:-20000}
+JAR=${4:-target/rental-0.0.1-SNAPSHOT.jar}
+PORT=${5:-18089}
+BASE=http://localhost:$PORT
+BODIES=10
+H2_JAR=${H2_JAR:-$(ls ~/.m2/repository/com/h2database/h2/*/h2-*.jar 2>/dev/null | tail -1)}
+
+if [ ! -f "$JAR" ]; then
+    echo "jar not found: $JAR (run mvn package first)" >&2
+    exit 1
+fi
+if [ ! -f "$H2_JAR" ]; then
+    echo "h2 jar not found, set H2_JAR" >&2
+    exit 1
+fi
+
+WORK=$(mktemp -d)
+URL="jdbc:h2:file:$WORK/quotes;MODE=MySQL;AUTO_SERVER=TRUE"
+APP_PID=
+cleanup() {
+    [ -n "$APP_PID" ] && kill "$APP_PID" 2>/dev/null && wait "$APP_PID" 2>/dev/null || true
+    rm -rf "$WORK"
+}
+trap cleanup EXIT
+
+start_app() {
+    java -jar "$JAR" --server.port="$PORT" \
+        --spring.datasource.url="$URL" --spring.datasource.username=sa --spring.datasource.password= \
+        --spring.datasource.driver-class-name=org.h2.Driver --spring.jpa.properties.hibernate.dialect=org.hibernate.dialect.H2Dialect \
+        --rental.rate-limit.enabled=false > "$WORK/app.log" 2>&1 &
+    APP_PID=$!
+    for _ in $(seq 1 120); do
+        curl -sf -o /dev/null "$BASE/api/stores" && return 0
+        kill -0 "$APP_PID" 2>/dev/null || break
+        sleep 1
+    done
+    echo "application failed to start, see log:" >&2
+    tail -20 "$WORK/app.log" >&2
+    exit 1
+}
+
+stop_app() {
+    kill "$APP_PID"
+    wait "$APP_PID" 2>/dev/null || true
+    APP_PID=
+}
+
+sql() {
+    java -cp "$H2_JAR" org.h2.tools.Shell -url "$URL" -user sa -password "" -sql "$1" > /dev/null
+}
+
+# 在库（Unicode 转义，避免命令行编码问题）
+IN_STOCK="U&'\\5728\\5E93'"
+
+# 首次启动建表，停止后直接写入数据；报价车型表在启动时加载
+start_app
+stop_app
+sql "INSERT INTO car_model (model_id, name, seat_count, daily_rate) VALUES
+        (1, 'Model 3', 5, 299.00), (2, 'Model Y', 5, 349.00), (3, 'Model S', 5, 699.00), (4, 'Model X', 7, 799.00);
+     INSERT INTO vehicle (vehicle_id, plate_no, model_id, store_id, status, current_soc, current_mileage)
+     SELECT X, 'BENCH' || X, MOD(X, 4) + 1, MOD(X, 8) + 1, $IN_STOCK, 90.0, 0.0 FROM SYSTEM_RANGE(1, $VEHICLES)"
+start_app
+
+# 生成 $BODIES 个不同的请求体，请求轮流使用
+for b in $(seq "$BODIES"); do
+    awk -v n="$BATCH" -v vehicles="$VEHICLES" -v seed="$b" 'BEGIN {
+        srand(seed);
+        printf "[";
+        for (i = 0; i < n; i++) {
+            days = int(rand() * 30) + 1;
+            hour = 8 + int(rand() * 10);
+            pickup = int(rand() * 8) + 1;
+            back = rand() < 0.2 ? int(rand() * 8) + 1 : pickup;
+            printf "%s{\"vehicleId\":%d,\"rentStart\":\"2026-03-01 %02d:00:00\",\"rentEnd\":\"2026-%02d-%02d %02d:00:00\",\"pickupStoreId\":%d,\"returnStoreId\":%d}",
+                i ? "," : "", int(rand() * vehicles) + 1, hour, 3 + int(days / 31), days % 31 + 1, hour, pickup, back;
+        }
+        printf "]";
+    }' > "$WORK/body-$b.json"
+done
+
+# 生成 curl 配置：同一连接上依次发送
+requests() {
+    for i in $(seq "$1"); do
+        [ "$i" -gt 1 ] && echo next
+        printf 'url = "%s/api/quotes"\nheader = "Content-Type: application/json"\ndata-binary = "@%s"\noutput = "%s/response-%d.json"\nwrite-out = "%%{http_code}\\n"\n' \
+            "$BASE" "$WORK/body-$(( (i - 1) % BODIES + 1 )).json" "$WORK" $(( (i - 1) % BODIES + 1 ))
+    done
+}
+
+requests 20 > "$WORK/warmup.cfg"
+curl -s --no-progress-meter -K "$WORK/warmup.cfg" > /dev/null
+requests "$COUNT" > "$WORK/bench.cfg"
+start=$(date +%s%N)
+curl -s --no-progress-meter -K "$WORK/bench.cfg" > "$WORK/codes"
+end=$(date +%s%N)
+
+ok=$(grep -c '^200$' "$WORK/codes" || true)
+priced=$(cat "$WORK"/response-*.json | grep -o '"error":null' | wc -l)
+echo "successful requests: $ok/$COUNT, priced items in the last $BODIES responses: $priced/$(( BATCH * BODIES ))"
+awk -v n="$ok" -v batch="$BATCH" -v ns=$(( end - start )) \
+    'BEGIN { s = ns / 1e9; printf "%d requests x %d quotes in %.2f s: %.1f ms/request, %.0f quotes/s\n", n, batch, s, s * 1000 / n, n * batch / s }'
@@ -0,0 +1,102 @@
+#!/bin/bash
+# 限流开销：分别以关闭限流、开启限流（限额足够大，不拒绝任何请求，只计入令牌桶开销）启动应用（H2 内存库），
+# 用相同的并发请求压测 GET /api/models，输出两种配置的每秒请求数与平均耗时，以及开启后每个请求多出的耗时。
+# 交替重复多轮以减小波动；两种配置使用同一份 jar 与相同的 JVM 参数。
+#
+# 用法：scripts/bench-rate-limit.sh [请求数=20000] [并发数=8] [轮数=3] [jar=target/rental-0.0.1-SNAPSHOT.jar] [端口=18090]
+set -euo pipefail
+
+COUNT=${1:-20000}
+CONCURRENCY=${2:-8}
+ROUNDS=${3:-3}
+JAR=${4:-target/rental-0.0.1-SNAPSHOT.jar}
+PORT=${5:-18090}
+BASE=http://localhost:$PORT
+WARMUP=$(( COUNT / 4 ))
+
+if [ ! -f "$JAR" ]; then
+    echo "jar not found: $JAR (run mvn package first)" >&2
+    exit 1
+fi
+
+WORK=$(mktemp -d)
+APP_PID=
+cleanup() {
+    [ -n "$APP_PID" ] && kill "$APP_PID" 2>/dev/null && wait "$APP_PID" 2>/dev/null
+    rm -rf "$WORK"
+}
+trap cleanup EXIT
+
+start_app() {
+    java -jar "$JAR" --server.port="$PORT" \
+        --spring.datasource.url="jdbc:h2:mem:bench;MODE=MySQL" --spring.datasource.username=sa --spring.datasource.password= \
+        --spring.datasource.driver-class-name=org.h2.Driver --spring.jpa.properties.hibernate.dialect=org.hibernate.dialect.H2Dialect \
+        "$@" > "$WORK/app.log" 2>&1 &
+    APP_PID=$!
+    for _ in $(seq 1 120); do
+        curl -sf -o /dev/null "$BASE/api/models" && return 0
+        kill -0 "$APP_PID" 2>/dev/null || break
+        sleep 1
+    done
+    echo "application failed to start, see log:" >&2
+    tail -20 "$WORK/app.log" >&2
+    exit 1
+}
+
+stop_app() {
+    kill "$APP_PID"
+    wait "$APP_PID" 2>/dev/null || true
+    APP_PID=
+}
+
+# 生成 curl 配置：--parallel 下复用最多 $CONCURRENCY 条连接
+requests() {
+    for i in $(seq "$1"); do
+        [ "$i" -gt 1 ] && echo next
+        printf 'url = "%s/api/models"\noutput = "/dev/null"\nwrite-out = "%%{http_code}\\n"\n' "$BASE"
+    done
+}
+
+run() {
+    curl -s --no-progress-meter --parallel --parallel-immediate --parallel-max "$CONCURRENCY" -K "$1"
+}
+
+# 输出：成功数 耗时纳秒
+measure() {
+    local start end ok
+    run "$WORK/warmup.cfg" > /dev/null
+    start=$(date +%s%N)
+    run "$WORK/bench.cfg" > "$WORK/codes"
+    end=$(date +%s%N)
+    ok=$(grep -c '^200$' "$WORK/codes" || true)
+    echo "$ok $(( end - start ))"
+}
+
+requests "$WARMUP" > "$WORK/warmup.cfg"
+requests "$COUNT" > "$WORK/bench.cfg"
+
+declare -A OK NS
+for mode in off on; do
+    OK[$mode]=0
+    NS[$mode]=0
+done
+printf '%-6s %-9s %8s %8s %10s %12s\n' round limiter requests ok seconds requests/s
+for round in $(seq "$ROUNDS"); do
+    for mode in off on; do
+        if [ "$mode" = off ]; then
+            start_app --rental.rate-limit.enabled=false
+        else
+            start_app --rental.rate-limit.enabled=true --rental.rate-limit.routes=/api:1000000000:1000000000
+        fi
+        read -r ok ns < <(measure)
+        stop_app
+        OK[$mode]=$(( OK[$mode] + ok ))
+        NS[$mode]=$(( NS[$mode] + ns ))
+        awk -v r="$round" -v m="$mode" -v n="$COUNT" -v ok="$ok" -v ns="$ns" \
+            'BEGIN { s = ns / 1e9; printf "%-6d %-9s %8d %8d %10.2f %12.1f\n", r, m, n, ok, s, ok / s }'
+    done
+done
+awk -v c="$CONCURRENCY" -v ok_off="${OK[off]}" -v ns_off="${NS[off]}" -v ok_on="${OK[on]}" -v ns_on="${NS[on]}" 'BEGIN {
+    off = ns_off / ok_off * c / 1000; on = ns_on / ok_on * c / 1000
+    printf "mean latency: off %.1f us, on %.1f us, limiter overhead %+.1f us/request (%+.2f%%)\n", off, on, on - off, (on - off) / off * 100
+}'
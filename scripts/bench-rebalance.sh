@@ -0,0 +1,118 @@
+#!/bin/bash
+# 调拨方案求解耗时：在全新的 H2 文件库中生成 <门店数> 家门店、4 个车型共 <车辆数> 辆在库车辆，前一半门店各多放一半车、
+# 后一半门店各少放一半，目标为每店每车型平均数量，启动应用后调用 POST /api/rebalance/plan：
+#   1. 不指定门店对费用（全部按默认费用，贪心配对）；
+#   2. 另随机指定 <指定费用门店对数> 个门店对的费用（1-9，默认费用 5），走最小费用流；
+# 输出两种情况的调拨车辆数、总费用、响应中的 solveMillis 与请求耗时。不影响已有数据。
+#
+# 用法：scripts/bench-rebalance.sh [门店数=2000] [车辆数=200000] [指定费用门店对数=20000] [jar=target/rental-0.0.1-SNAPSHOT.jar] [端口=18089]
+set -euo pipefail
+
+STORES=${1:-2000}
+VEHICLES=${2:-200000}
+PAIRS=${3:-20000}
+JAR=${4:-target/rental-0.0.1-SNAPSHOT.jar}
+PORT=${5:-18089}
+BASE=http://localhost:$PORT
+H2_JAR=${H2_JAR:-$(ls ~/.m2/repository/com/h2database/h2/*/h2-*.jar 2>/dev/null | tail -1)}
+HALF=$(( STORES / 2 ))
+TARGET=$(( VEHICLES / STORES / 4 ))
+
+if [ ! -f "$JAR" ]; then
+    echo "jar not found: $JAR (run mvn package first)" >&2
+    exit 1
+fi
+if [ ! -f "$H2_JAR" ]; then
+    echo "h2 jar not found, set H2_JAR" >&2
+    exit 1
+fi
+
+WORK=$(mktemp -d)
+URL="jdbc:h2:file:$WORK/rebalance;MODE=MySQL;AUTO_SERVER=TRUE"
+APP_PID=
+cleanup() {
+    [ -n "$APP_PID" ] && kill "$APP_PID" 2>/dev/null && wait "$APP_PID" 2>/dev/null || true
+    rm -rf "$WORK"
+}
+trap cleanup EXIT
+
+start_app() {
+    java -jar "$JAR" --server.port="$PORT" \
+        --spring.datasource.url="$URL" --spring.datasource.username=sa --spring.datasource.password= \
+        --spring.datasource.driver-class-name=org.h2.Driver --spring.jpa.properties.hibernate.dialect=org.hibernate.dialect.H2Dialect \
+        --rental.rate-limit.enabled=false > "$WORK/app.log" 2>&1 &
+    APP_PID=$!
+    for _ in $(seq 1 120); do
+        curl -sf -o /dev/null "$BASE/api/stores" && return 0
+        kill -0 "$APP_PID" 2>/dev/null || break
+        sleep 1
+    done
+    echo "application failed to start, see log:" >&2
+    tail -20 "$WORK/app.log" >&2
+    exit 1
+}
+
+stop_app() {
+    kill "$APP_PID"
+    wait "$APP_PID" 2>/dev/null || true
+    APP_PID=
+}
+
+sql() {
+    java -cp "$H2_JAR" org.h2.tools.Shell -url "$URL" -user sa -password "" -sql "$1" > /dev/null
+}
+
+# 在库（Unicode 转义，避免命令行编码问题）
+IN_STOCK="U&'\\5728\\5E93'"
+
+# 首次启动建表（并写入一家默认门店），停止后删掉默认门店再直接写入数据
+start_app
+stop_app
+
+echo "generating $STORES stores and $VEHICLES vehicles ..."
+# 偶数号车辆均匀分到所有门店，奇数号车辆只分到前一半门店：前一半门店各约 1.5 倍平均数，后一半约 0.5 倍
+sql "DELETE FROM store;
+     INSERT INTO store (store_id, name, address) SELECT X, 'bench-' || X, 'bench' FROM SYSTEM_RANGE(1, $STORES);
+     INSERT INTO car_model (model_id, name, seat_count, daily_rate) VALUES
+        (1, 'Model 3', 5, 299.00), (2, 'Model Y', 5, 349.00), (3, 'Model S', 5, 699.00), (4, 'Model X', 7, 799.00);
+     INSERT INTO vehicle (vehicle_id, plate_no, model_id, store_id, status, current_soc, current_mileage)
+     SELECT X, 'BENCH' || X, MOD(X / 2, 4) + 1,
+        1 + MOD(X / 8 * 7919, CASEWHEN(MOD(X, 2) = 0, $STORES, $HALF)), $IN_STOCK, 90.0, 0.0
+     FROM SYSTEM_RANGE(1, $VEHICLES)"
+
+start_app
+
+# 请求体：每店每车型目标 $TARGET 辆；$1 = 指定费用的门店对数
+body() {
+    awk -v stores="$STORES" -v target="$TARGET" -v pairs="$1" 'BEGIN {
+        srand(7);
+        printf "{\"defaultCost\":5,\"targets\":[";
+        for (s = 1; s <= stores; s++) {
+            for (m = 1; m <= 4; m++) {
+                printf "%s{\"storeId\":%d,\"modelId\":%d,\"target\":%d}", (s == 1 && m == 1) ? "" : ",", s, m, target;
+            }
+        }
+        printf "],\"costs\":[";
+        for (i = 0; i < pairs; i++) {
+            printf "%s{\"fromStoreId\":%d,\"toStoreId\":%d,\"cost\":%d}", i ? "," : "",
+                int(rand() * stores) + 1, int(rand() * stores) + 1, int(rand() * 9) + 1;
+        }
+        printf "]}";
+    }'
+}
+
+# $1 = 名称，$2 = 指定费用的门店对数
+plan() {
+    body "$2" > "$WORK/request.json"
+    started=$(date +%s%N)
+    curl -sf -H 'Content-Type: application/json' --data-binary "@$WORK/request.json" "$BASE/api/rebalance/plan" > "$WORK/plan.json"
+    elapsed=$(( ($(date +%s%N) - started) / 1000000 ))
+    printf '%-24s transfers %6d  %s  request %d ms\n' "$1" "$(grep -o '"fromStoreId"' "$WORK/plan.json" | wc -l)" \
+        "$(grep -o '"totalVehicles":[0-9]*,"totalCost":[0-9]*,"unmetDemand":[0-9]*,"solveMillis":[0-9]*' "$WORK/plan.json")" "$elapsed"
+}
+
+echo "== POST /api/rebalance/plan, $STORES stores, target $TARGET per store and model"
+# 首次请求包含类加载等预热，不计入
+plan warm-up 0 > /dev/null
+plan "default cost only" 0
+plan "$PAIRS explicit pairs" "$PAIRS"
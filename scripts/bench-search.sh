@@ -0,0 +1,124 @@
+#!/bin/bash
+# 联想搜索耗时：在全新的 H2 文件库中生成 <客户数> 个客户（姓名 + 手机号）、<车辆数> 辆车与 50 家门店，
+# 启动应用并等待搜索索引加载完成后，对几类典型查询（1-2 字符前缀、常见/罕见子串、车牌片段、无结果）
+# 各串行调用 GET /api/search <每类次数> 次，输出索引内耗时（响应中的 tookMicros）的中位数与 p99，
+# 以及客户端看到的单次请求耗时中位数。不影响已有数据。
+#
+# 用法：scripts/bench-search.sh [客户数=1000000] [车辆数=20000] [每类次数=200] [jar=target/rental-0.0.1-SNAPSHOT.jar] [端口=18089]
+set -euo pipefail
+
+CUSTOMERS=${1:-1000000}
+VEHICLES=${2:-20000}
+REPEAT=${3:-200}
+JAR=${4:-target/rental-0.0.1-SNAPSHOT.jar}
+PORT=${5:-18089}
+BASE=http://localhost:$PORT
+H2_JAR=${H2_JAR:-$(ls ~/.m2/repository/com/h2database/h2/*/h2-*.jar 2>/dev/null | tail -1)}
+
+if [ ! -f "$JAR" ]; then
+    echo "jar not found: $JAR (run mvn package first)" >&2
+    exit 1
+fi
+if [ ! -f "$H2_JAR" ]; then
+    echo "h2 jar not found, set H2_JAR" >&2
+    exit 1
+fi
+
+WORK=$(mktemp -d)
+URL="jdbc:h2:file:$WORK/search;MODE=MySQL;AUTO_SERVER=TRUE"
+APP_PID=
+cleanup() {
+    [ -n "$APP_PID" ] && kill "$APP_PID" 2>/dev/null && wait "$APP_PID" 2>/dev/null || true
+    rm -rf "$WORK"
+}
+trap cleanup EXIT
+
+start_app() {
+    java -jar "$JAR" --server.port="$PORT" \
+        --spring.datasource.url="$URL" --spring.datasource.username=sa --spring.datasource.password= \
+        --spring.datasource.driver-class-name=org.h2.Driver --spring.jpa.properties.hibernate.dialect=org.hibernate.dialect.H2Dialect \
+        --rental.rate-limit.enabled=false > "$WORK/app.log" 2>&1 &
+    APP_PID=$!
+    for _ in $(seq 1 300); do
+        curl -sf -o /dev/null "$BASE/api/stores" && return 0
+        kill -0 "$APP_PID" 2>/dev/null || break
+        sleep 1
+    done
+    echo "application failed to start, see log:" >&2
+    tail -20 "$WORK/app.log" >&2
+    exit 1
+}
+
+stop_app() {
+    kill "$APP_PID"
+    wait "$APP_PID" 2>/dev/null || true
+    APP_PID=
+}
+
+sql() {
+    java -cp "$H2_JAR" org.h2.tools.Shell -url "$URL" -user sa -password "" -sql "$1" > /dev/null
+}
+
+# 在库（Unicode 转义，避免命令行编码问题）
+IN_STOCK="U&'\\5728\\5E93'"
+
+# 首次启动建表（并写入一家默认门店），停止后删掉默认门店再直接写入数据
+start_app
+stop_app
+
+echo "generating $CUSTOMERS customers and $VEHICLES vehicles ..."
+started=$(date +%s%N)
+# 姓名为 20 个姓（拼音）+ 两个字母，手机号为 13 开头的打乱号码，车牌为 HA/SE/ZB + 5 位（用 ASCII 避免命令行编码问题）
+sql "DELETE FROM store;
+     INSERT INTO store (store_id, name, address) SELECT X, 'store ' || X, 'bench road ' || X FROM SYSTEM_RANGE(1, 50);
+     INSERT INTO car_model (model_id, name, seat_count, daily_rate) VALUES (1, 'bench', 5, 300.00);
+     INSERT INTO vehicle (vehicle_id, plate_no, model_id, store_id, status, current_soc, current_mileage)
+     SELECT X, CASEWHEN(MOD(X, 3) = 0, 'HA', CASEWHEN(MOD(X, 3) = 1, 'SE', 'ZB')) || LPAD(MOD(X * 7919, 100000), 5, '0'),
+        1, MOD(X, 50) + 1, $IN_STOCK, 90.0, 0.0 FROM SYSTEM_RANGE(1, $VEHICLES);
+     INSERT INTO customer (customer_id, name, phone)
+     SELECT X, ARRAY_GET(ARRAY['wang','li','zhang','liu','chen','yang','huang','zhao','wu','zhou',
+                               'xu','sun','ma','zhu','hu','guo','he','lin','luo','gao'], MOD(X, 20) + 1)
+            || ' ' || CHAR(97 + MOD(X / 20, 26)) || CHAR(97 + MOD(X / 520, 26)),
+        '13' || LPAD(MOD(X * 48271, 1000000007), 9, '0') FROM SYSTEM_RANGE(1, $CUSTOMERS)"
+echo "generated in $(( ($(date +%s%N) - started) / 1000000 )) ms"
+
+started=$(date +%s%N)
+start_app
+# 索引在应用就绪后依次加载客户、车辆、门店，等到最后加载的门店数与生成的一致
+until curl -sf "$BASE/api/search/status" | grep -q '"store":50\b'; do
+    sleep 1
+done
+echo "started and indexed in $(( ($(date +%s%N) - started) / 1000000 )) ms: $(curl -sf "$BASE/api/search/status")"
+
+# 名称|查询|类型
+QUERIES=(
+    "1-char prefix|w|"
+    "2-char prefix|13|CUSTOMER"
+    "common substring|ang|"
+    "rare substring|zhao xq|CUSTOMER"
+    "phone fragment|4827|CUSTOMER"
+    "plate fragment|se123|VEHICLE"
+    "no hit|qqqq|"
+)
+
+echo "== $REPEAT requests per query, limit 10"
+printf '%-18s %-10s %6s %12s %12s %14s\n' query q hits "median(us)" "p99(us)" "client(ms)"
+for entry in "${QUERIES[@]}"; do
+    IFS='|' read -r name q types <<< "$entry"
+    url="$BASE/api/search?q=$(printf %s "$q" | sed 's/ /%20/g')&limit=10${types:+&types=$types}"
+    # 预热
+    for _ in $(seq 20); do
+        curl -sf -o /dev/null "$url"
+    done
+    : > "$WORK/took"
+    : > "$WORK/client"
+    for _ in $(seq "$REPEAT"); do
+        curl -sf -o "$WORK/response" -w '%{time_total}\n' "$url" >> "$WORK/client"
+        grep -o '"tookMicros":[0-9]*' "$WORK/response" | cut -d: -f2 >> "$WORK/took"
+    done
+    hits=$(grep -o '"type":' "$WORK/response" | wc -l || true)
+    median=$(sort -n "$WORK/took" | awk '{ v[NR] = $1 } END { print v[int((NR + 1) / 2)] }')
+    p99=$(sort -n "$WORK/took" | awk '{ v[NR] = $1 } END { i = int(NR * 0.99); print v[i < 1 ? 1 : i] }')
+    client=$(sort -n "$WORK/client" | awk '{ v[NR] = $1 } END { printf "%.2f", v[int((NR + 1) / 2)] * 1000 }')
+    printf '%-18s %-10s %6d %12d %12d %14s\n' "$name" "$q" "$hits" "$median" "$p99" "$client"
+done
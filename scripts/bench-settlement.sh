@@ -0,0 +1,120 @@
+#!/bin/bash
+# 批量结算吞吐：在全新的 H2 文件库中直接生成 <订单数> 个“已还”订单（部分逾期、超里程、低电量），其中 <带违章订单数> 个各有一条违章，
+# 启动应用后先重建汇总表，再调用 POST /api/settlement/run 并轮询 GET /api/settlement/status 直到作业结束，
+# 输出耗时与每秒结算订单数，最后用 GET /api/reports/consistency 核对汇总表与明细是否一致。不影响已有数据。
+#
+# 用法：scripts/bench-settlement.sh [订单数=200000] [带违章订单数=订单数/10] [每批订单数=1000] [jar=target/rental-0.0.1-SNAPSHOT.jar] [端口=18089]
+set -euo pipefail
+
+ORDERS=${1:-200000}
+VIOLATED=${2:-$(( ORDERS / 10 ))}
+CHUNK=${3:-1000}
+JAR=${4:-target/rental-0.0.1-SNAPSHOT.jar}
+PORT=${5:-18089}
+BASE=http://localhost:$PORT
+H2_JAR=${H2_JAR:-$(ls ~/.m2/repository/com/h2database/h2/*/h2-*.jar 2>/dev/null | tail -1)}
+STEP=$(( VIOLATED > 0 ? ORDERS / VIOLATED : ORDERS + 1 ))
+
+if [ ! -f "$JAR" ]; then
+    echo "jar not found: $JAR (run mvn package first)" >&2
+    exit 1
+fi
+if [ ! -f "$H2_JAR" ]; then
+    echo "h2 jar not found, set H2_JAR" >&2
+    exit 1
+fi
+
+WORK=$(mktemp -d)
+URL="jdbc:h2:file:$WORK/settlement;MODE=MySQL;AUTO_SERVER=TRUE"
+APP_PID=
+cleanup() {
+    [ -n "$APP_PID" ] && kill "$APP_PID" 2>/dev/null && wait "$APP_PID" 2>/dev/null || true
+    rm -rf "$WORK"
+}
+trap cleanup EXIT
+
+start_app() {
+    java -jar "$JAR" --server.port="$PORT" \
+        --spring.datasource.url="$URL" --spring.datasource.username=sa --spring.datasource.password= \
+        --spring.datasource.driver-class-name=org.h2.Driver --spring.jpa.properties.hibernate.dialect=org.hibernate.dialect.H2Dialect \
+        --rental.rate-limit.enabled=false --rental.settlement.chunk-size="$CHUNK" > "$WORK/app.log" 2>&1 &
+    APP_PID=$!
+    for _ in $(seq 1 120); do
+        curl -sf -o /dev/null "$BASE/api/stores" && return 0
+        kill -0 "$APP_PID" 2>/dev/null || break
+        sleep 1
+    done
+    echo "application failed to start, see log:" >&2
+    tail -20 "$WORK/app.log" >&2
+    exit 1
+}
+
+stop_app() {
+    kill "$APP_PID"
+    wait "$APP_PID" 2>/dev/null || true
+    APP_PID=
+}
+
+sql() {
+    java -cp "$H2_JAR" org.h2.tools.Shell -url "$URL" -user sa -password "" -sql "$1" > /dev/null
+}
+
+# 状态值与角色名用 Unicode 转义，避免命令行编码问题：已还 / 在库 / 管理员
+RETURNED="U&'\\5DF2\\8FD8'"
+IN_STOCK="U&'\\5728\\5E93'"
+ADMIN_ROLE="U&'\\7BA1\\7406\\5458'"
+
+# 首次启动建表（并写入一家默认门店），停止后删掉默认门店再直接写入数据
+start_app
+stop_app
+
+echo "generating $ORDERS returned orders, $(( VIOLATED > 0 ? ORDERS / STEP : 0 )) with a violation ..."
+started=$(date +%s%N)
+sql "DELETE FROM store;
+     INSERT INTO store (store_id, name, address) SELECT X, 'bench-' || X, 'bench' FROM SYSTEM_RANGE(1, 8);
+     INSERT INTO car_model (model_id, name, seat_count, daily_rate) VALUES (1, 'bench', 5, 300.00);
+     INSERT INTO vehicle (vehicle_id, plate_no, model_id, store_id, status, current_soc, current_mileage)
+     SELECT X, 'BENCH' || X, 1, MOD(X, 8) + 1, $IN_STOCK, 90.0, 0.0 FROM SYSTEM_RANGE(1, 200);
+     INSERT INTO customer (customer_id, name, phone) SELECT X, 'bench-' || X, '138' || LPAD(X, 8, '0') FROM SYSTEM_RANGE(1, 1000);
+     INSERT INTO rental_order (order_id, rent_start, rent_end, actual_pickup_time, actual_return_time, pickup_mileage,
+        return_mileage, pickup_soc, return_soc, total_amount, status, customer_id, vehicle_id, pickup_store_id, return_store_id)
+     SELECT X, TIMESTAMP '2025-01-01 10:00:00' + X * INTERVAL '1' MINUTE, TIMESTAMP '2025-01-03 10:00:00' + X * INTERVAL '1' MINUTE,
+        TIMESTAMP '2025-01-01 10:05:00' + X * INTERVAL '1' MINUTE,
+        TIMESTAMP '2025-01-03 09:00:00' + X * INTERVAL '1' MINUTE + MOD(X, 5) * INTERVAL '6' HOUR,
+        X * 10.0, X * 10.0 + 400 + MOD(X, 7) * 100, 90.0, 60.0 + MOD(X, 4) * 10, 600.00, $RETURNED,
+        MOD(X, 1000) + 1, MOD(X, 200) + 1, MOD(X, 8) + 1, MOD(X, 8) + 1
+     FROM SYSTEM_RANGE(1, $ORDERS);
+     ALTER TABLE rental_order ALTER COLUMN order_id RESTART WITH $(( ORDERS + 1 ));
+     INSERT INTO violation (order_id, vehicle_id, violation_time, location, fine_amount)
+     SELECT X * $STEP, MOD(X * $STEP, 200) + 1, TIMESTAMP '2025-01-02 10:00:00' + X * $STEP * INTERVAL '1' MINUTE, 'bench', 200.00
+     FROM SYSTEM_RANGE(1, $(( VIOLATED > 0 ? ORDERS / STEP : 0 )));
+     INSERT INTO sys_role (role_name) VALUES ($ADMIN_ROLE)"
+echo "generated in $(( ($(date +%s%N) - started) / 1000000 )) ms"
+
+start_app
+# 结算与汇总表重建接口需管理员角色
+curl -sf -o /dev/null -H 'Content-Type: application/json' -d '{"username":"bench","password":"bench123","role":["管理员"]}' \
+    "$BASE/api/auth/signup"
+TOKEN=$(curl -sf -H 'Content-Type: application/json' -d '{"username":"bench","password":"bench123"}' "$BASE/api/auth/signin" \
+    | sed -n 's/.*"token":"\([^"]*\)".*/\1/p')
+AUTH="Authorization: Bearer $TOKEN"
+
+# 直接写入的数据不经过变更事件，先按明细重建汇总表，结算过程中的增量更新才可核对
+curl -sf -o /dev/null -X POST -H "$AUTH" "$BASE/api/reports/rebuild"
+
+echo "== settlement, chunk size $CHUNK"
+curl -sf -o /dev/null -X POST -H "$AUTH" "$BASE/api/settlement/run"
+started=$(date +%s%N)
+while curl -sf "$BASE/api/settlement/status" | grep -q '"running":true'; do
+    sleep 1
+done
+elapsed=$(( ($(date +%s%N) - started) / 1000000 ))
+status=$(curl -sf "$BASE/api/settlement/status")
+echo "$status"
+processed=$(echo "$status" | sed -n 's/.*"processedThisRun":\([0-9]*\).*/\1/p')
+awk -v n="$processed" -v ms="$elapsed" \
+    'BEGIN { printf "settled %d orders in %.1f s (polled): %.0f orders/s, %d orders would take %.1f min\n", n, ms / 1000, n * 1000 / ms, 1000000, 1000000 / (n * 1000 / ms) / 60 }'
+
+echo "== rollup consistency"
+curl -sf "$BASE/api/reports/consistency"
+echo
@@ -0,0 +1,114 @@
+#!/bin/bash
+# 订单分片下单吞吐：分别以 1 / 2 / 4 个分片（H2 文件库，主库 + 分片库）启动应用，
+# 通过 REST 接口准备门店、每店一辆车和一个客户，再并发调用 POST /api/orders/book?mode=java 轮流在各门店下单，
+# 输出每种分片数的每秒成功下单数。每轮使用全新的临时库，不影响已有数据。
+#
+# 用法：scripts/bench-sharding.sh [门店数=8] [请求数=2000] [并发数=8] [jar=target/rental-0.0.1-SNAPSHOT.jar] [端口=18089]
+#       分片库与应用在同一台机器上时，吞吐受本机 CPU/磁盘限制，更能反映分片的收益的是每个分片库独立部署的环境
+set -euo pipefail
+
+STORES=${1:-8}
+COUNT=${2:-2000}
+CONCURRENCY=${3:-8}
+JAR=${4:-target/rental-0.0.1-SNAPSHOT.jar}
+PORT=${5:-18089}
+BASE=http://localhost:$PORT
+WARMUP=$(( COUNT / 10 > 200 ? 200 : COUNT / 10 + 1 ))
+
+if [ ! -f "$JAR" ]; then
+    echo "jar not found: $JAR (run mvn package first)" >&2
+    exit 1
+fi
+
+WORK=$(mktemp -d)
+APP_PID=
+cleanup() {
+    [ -n "$APP_PID" ] && kill "$APP_PID" 2>/dev/null && wait "$APP_PID" 2>/dev/null
+    rm -rf "$WORK"
+}
+trap cleanup EXIT
+
+h2() {
+    echo "jdbc:h2:file:$WORK/$1;MODE=MySQL"
+}
+
+start_app() {
+    local shards=$1 urls=""
+    for i in $(seq 1 $(( shards - 1 ))); do
+        urls="${urls:+$urls,}$(h2 "n$shards-shard$i")"
+    done
+    java -jar "$JAR" --server.port="$PORT" \
+        --spring.datasource.url="$(h2 "n$shards-primary")" --spring.datasource.username=sa --spring.datasource.password= \
+        --spring.datasource.driver-class-name=org.h2.Driver --spring.jpa.properties.hibernate.dialect=org.hibernate.dialect.H2Dialect \
+        --rental.sharding.urls="$urls" --rental.sharding.node-id=0 --rental.rate-limit.enabled=false > "$WORK/app-$shards.log" 2>&1 &
+    APP_PID=$!
+    for _ in $(seq 1 120); do
+        curl -sf -o /dev/null "$BASE/api/stores" && return 0
+        kill -0 "$APP_PID" 2>/dev/null || break
+        sleep 1
+    done
+    echo "application failed to start, see log:" >&2
+    tail -20 "$WORK/app-$shards.log" >&2
+    exit 1
+}
+
+stop_app() {
+    kill "$APP_PID"
+    wait "$APP_PID" 2>/dev/null || true
+    APP_PID=
+}
+
+post() {
+    curl -sf -H 'Content-Type: application/json' -d "$2" "$BASE$1" || { echo "POST $1 failed: $2" >&2; return 1; }
+}
+
+# 返回 JSON 中第一个 "<字段>": 数字
+id_of() {
+    sed -n "s/.*\"$1\":\([0-9]*\).*/\1/p" | head -1
+}
+
+seed() {
+    local model
+    model=$(post /api/models '{"name":"bench","seatCount":5}' | id_of modelId)
+    CUSTOMER=$(post /api/customers '{"name":"bench","phone":"13800000000","idCard":"000000000000000000","driverLicense":"bench"}' \
+        | id_of customerId)
+    for i in $(seq "$STORES"); do
+        local store vehicle
+        store=$(post /api/stores "{\"name\":\"bench-$i\",\"address\":\"bench\"}" | id_of storeId)
+        vehicle=$(post /api/vehicles "{\"plateNo\":\"BENCH$i\",\"currentSoc\":90,\"currentMileage\":0,\"status\":\"在库\",\"storeId\":$store,\"modelId\":$model}" \
+            | id_of vehicleId)
+        printf '{"customerId": %s, "vehicleId": %s, "pickupStoreId": %s, "returnStoreId": %s, "rentStart": "%s", "rentEnd": "%s"}\n' \
+            "$CUSTOMER" "$vehicle" "$store" "$store" "$(date -d '+1 day' '+%Y-%m-%d %H:%M:%S')" \
+            "$(date -d '+3 day' '+%Y-%m-%d %H:%M:%S')" > "$WORK/body-$i.json"
+    done
+}
+
+# 生成 curl 配置：请求轮流使用各门店，--parallel 下复用最多 $CONCURRENCY 条连接
+requests() {
+    for i in $(seq "$1"); do
+        [ "$i" -gt 1 ] && echo next
+        printf 'url = "%s/api/orders/book?mode=java"\nheader = "Content-Type: application/json"\ndata-binary = "@%s"\noutput = "/dev/null"\nwrite-out = "%%{http_code}\\n"\n' \
+            "$BASE" "$WORK/body-$(( (i - 1) % STORES + 1 )).json"
+    done
+}
+
+run() {
+    curl -s --no-progress-meter --parallel --parallel-immediate --parallel-max "$CONCURRENCY" -K "$1"
+}
+
+printf '%-7s %8s %8s %10s %12s  %s\n' shards requests ok seconds bookings/s orders-per-shard
+for SHARDS in 1 2 4; do
+    start_app "$SHARDS"
+    seed
+    requests "$WARMUP" > "$WORK/warmup.cfg"
+    run "$WORK/warmup.cfg" > /dev/null
+    requests "$COUNT" > "$WORK/bench.cfg"
+    start=$(date +%s%N)
+    run "$WORK/bench.cfg" > "$WORK/codes"
+    end=$(date +%s%N)
+    ok=$(grep -c '^201$' "$WORK/codes" || true)
+    spread=$(curl -sf "$BASE/api/reports/shards" | grep -o '"orders":[0-9]*' | cut -d: -f2 | paste -sd/)
+    awk -v shards="$SHARDS" -v n="$COUNT" -v ok="$ok" -v ns=$(( end - start )) -v spread="$spread" \
+        'BEGIN { s = ns / 1e9; printf "%-7d %8d %8d %10.2f %12.1f  %s\n", shards, n, ok, s, ok / s, spread }'
+    stop_app
+done
@@ -0,0 +1,128 @@
+#!/bin/bash
+# 启动耗时：在全新的 H2 文件库中生成 <订单数> 个订单（默认配置首次启动建表，prod 配置的迁移在后续启动时补齐），
+# 然后依次以 默认配置 / prod / prod + CDS / prod + CDS + AOT 启动应用各 <次数> 次，
+# 记录从启动进程到首个请求（GET /api/models）返回 200 的时间，以及日志中 Started 行报告的时间，输出中位数。
+# CDS 归档由 scripts/build-cds.sh 生成到临时目录；AOT 需要另行以 -Paot 打包的 jar，未提供时跳过该项。不影响已有数据。
+#
+# 用法：scripts/bench-startup.sh [订单数=200000] [次数=5] [jar=target/rental-0.0.1-SNAPSHOT.jar] [aot jar=] [端口=18089]
+#       例：./mvnw -q clean package -Paot -DskipTests && cp target/rental-0.0.1-SNAPSHOT.jar /tmp/rental-aot.jar
+#           ./mvnw -q clean package -DskipTests && scripts/bench-startup.sh 200000 5 target/rental-0.0.1-SNAPSHOT.jar /tmp/rental-aot.jar
+set -euo pipefail
+
+ORDERS=${1:-200000}
+RUNS=${2:-5}
+JAR=${3:-target/rental-0.0.1-SNAPSHOT.jar}
+AOT_JAR=${4:-}
+PORT=${5:-18089}
+BASE=http://localhost:$PORT
+SCRIPTS=$(cd "$(dirname "$0")" && pwd)
+H2_JAR=${H2_JAR:-$(ls ~/.m2/repository/com/h2database/h2/*/h2-*.jar 2>/dev/null | tail -1)}
+
+if [ ! -f "$JAR" ]; then
+    echo "jar not found: $JAR (run mvn package first)" >&2
+    exit 1
+fi
+if [ -n "$AOT_JAR" ] && [ ! -f "$AOT_JAR" ]; then
+    echo "aot jar not found: $AOT_JAR (run mvn package -Paot first)" >&2
+    exit 1
+fi
+if [ ! -f "$H2_JAR" ]; then
+    echo "h2 jar not found, set H2_JAR" >&2
+    exit 1
+fi
+
+WORK=$(mktemp -d)
+URL="jdbc:h2:file:$WORK/startup;MODE=MySQL;AUTO_SERVER=TRUE"
+H2_ARGS=(--server.port="$PORT"
+    --spring.datasource.url="$URL" --spring.datasource.username=sa --spring.datasource.password=
+    --spring.datasource.driver-class-name=org.h2.Driver --spring.jpa.properties.hibernate.dialect=org.hibernate.dialect.H2Dialect
+    --rental.rate-limit.enabled=false)
+APP_PID=
+cleanup() {
+    [ -n "$APP_PID" ] && kill "$APP_PID" 2>/dev/null && wait "$APP_PID" 2>/dev/null || true
+    rm -rf "$WORK"
+}
+trap cleanup EXIT
+
+stop_app() {
+    kill "$APP_PID"
+    wait "$APP_PID" 2>/dev/null || true
+    APP_PID=
+}
+
+sql() {
+    java -cp "$H2_JAR" org.h2.tools.Shell -url "$URL" -user sa -password "" -sql "$1" > /dev/null
+}
+
+# 启动一次并等到首个请求返回：$1 = 工作目录，$2 = jar，其余为 JVM 参数；输出 “首个请求毫秒 Started秒”
+boot() {
+    local dir=$1 jar=$2
+    shift 2
+    local started
+    started=$(date +%s%N)
+    (cd "$dir" && exec java "$@" -jar "$jar" "${H2_ARGS[@]}" ${PROFILE_ARGS[@]+"${PROFILE_ARGS[@]}"}) > "$WORK/app.log" 2>&1 &
+    APP_PID=$!
+    until curl -sf -o /dev/null "$BASE/api/models"; do
+        if ! kill -0 "$APP_PID" 2>/dev/null; then
+            echo "application failed to start, see log:" >&2
+            tail -20 "$WORK/app.log" >&2
+            exit 1
+        fi
+        sleep 0.05
+    done
+    local first=$(( ($(date +%s%N) - started) / 1000000 ))
+    stop_app
+    echo "$first $(sed -n 's/.* Started .* in \([0-9.]*\) seconds.*/\1/p' "$WORK/app.log" | head -1)"
+}
+
+# $1 = 名称，其余同 boot；输出两列中位数
+measure() {
+    local name=$1
+    shift
+    : > "$WORK/samples"
+    for _ in $(seq "$RUNS"); do
+        boot "$@" >> "$WORK/samples"
+    done
+    sort -n -k1 "$WORK/samples" | awk -v name="$name" '{ t[NR] = $1 } END { printf "%-18s %10.1f", name, t[int((NR + 1) / 2)] / 1000 }'
+    sort -n -k2 "$WORK/samples" | awk '{ t[NR] = $2 } END { printf " %10.1f\n", t[int((NR + 1) / 2)] }'
+}
+
+# 状态值用 Unicode 转义，避免命令行编码问题：已还 / 在库
+RETURNED="U&'\\5DF2\\8FD8'"
+IN_STOCK="U&'\\5728\\5E93'"
+
+# 默认配置首次启动建表（并写入一家默认门店），停止后直接写入数据
+PROFILE_ARGS=()
+boot . "$(cd "$(dirname "$JAR")" && pwd)/$(basename "$JAR")" > /dev/null
+echo "generating $ORDERS orders ..."
+sql "INSERT INTO car_model (model_id, name, seat_count, daily_rate) VALUES (1, 'Model 3', 5, 299.00), (2, 'Model Y', 5, 349.00);
+     INSERT INTO vehicle (vehicle_id, plate_no, model_id, store_id, status, current_soc, current_mileage)
+     SELECT X, 'BENCH' || X, MOD(X, 2) + 1, 1, $IN_STOCK, 90.0, 0.0 FROM SYSTEM_RANGE(1, 2000);
+     INSERT INTO customer (customer_id, name, phone) SELECT X, 'bench-' || X, '138' || LPAD(X, 8, '0') FROM SYSTEM_RANGE(1, 10000);
+     INSERT INTO rental_order (order_id, rent_start, rent_end, actual_pickup_time, actual_return_time, pickup_mileage,
+        return_mileage, pickup_soc, return_soc, total_amount, status, customer_id, vehicle_id, pickup_store_id, return_store_id)
+     SELECT X, TIMESTAMP '2025-01-01 10:00:00' + X * INTERVAL '1' MINUTE, TIMESTAMP '2025-01-03 10:00:00' + X * INTERVAL '1' MINUTE,
+        TIMESTAMP '2025-01-01 10:05:00' + X * INTERVAL '1' MINUTE, TIMESTAMP '2025-01-03 09:00:00' + X * INTERVAL '1' MINUTE,
+        0.0, 300.0, 90.0, 60.0, 600.00, $RETURNED, MOD(X, 10000) + 1, MOD(X, 2000) + 1, 1, 1
+     FROM SYSTEM_RANGE(1, $ORDERS);
+     ALTER TABLE rental_order ALTER COLUMN order_id RESTART WITH $(( ORDERS + 1 ))"
+
+# 生成 CDS 归档，训练启动连接同一个测试库
+echo "building CDS archives ..."
+"$SCRIPTS/build-cds.sh" "$JAR" "$WORK/cds" "${H2_ARGS[@]}" > "$WORK/cds.log" 2>&1
+if [ -n "$AOT_JAR" ]; then
+    JAVA_OPTS=-Dspring.aot.enabled=true "$SCRIPTS/build-cds.sh" "$AOT_JAR" "$WORK/cds-aot" "${H2_ARGS[@]}" > "$WORK/cds-aot.log" 2>&1
+fi
+
+echo "== time to first GET /api/models, median of $RUNS runs"
+printf '%-18s %10s %10s\n' config "first(s)" "Started(s)"
+PROFILE_ARGS=()
+measure default "$WORK/cds" rental.jar
+PROFILE_ARGS=(--spring.profiles.active=prod)
+measure prod "$WORK/cds" rental.jar
+measure prod+CDS "$WORK/cds" rental.jar -XX:SharedArchiveFile=application.jsa
+if [ -n "$AOT_JAR" ]; then
+    measure prod+CDS+AOT "$WORK/cds-aot" rental.jar -Dspring.aot.enabled=true -XX:SharedArchiveFile=application.jsa
+else
+    echo "prod+CDS+AOT       skipped (no -Paot jar given)"
+fi
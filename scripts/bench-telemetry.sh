@@ -0,0 +1,128 @@
+#!/bin/bash
+# 遥测上报吞吐：在全新的 H2 文件库中生成 <车辆数> 辆车，启动应用后由一个串行客户端反复调用 POST /api/telemetry，
+# 每次上报 <每批读数> 条随机车辆的电量/里程读数（10 个不同请求体轮流使用，涉及的车辆至多 10 x 每批读数 辆），共 <请求数> 次；输出上报的每秒读数，
+# 再等待后台刷新把合并后的读数全部写回 vehicle 表，输出合并比例、最后一次刷新耗时与从上报结束到全部落库的时间。不影响已有数据。
+#
+# 用法：scripts/bench-telemetry.sh [每批读数=1000] [请求数=500] [车辆数=50000] [jar=target/rental-0.0.1-SNAPSHOT.jar] [端口=18089]
+set -euo pipefail
+
+BATCH=${1:-1000}
+COUNT=${2:-500}
+VEHICLES=${3:-50000}
+JAR=${4:-target/rental-0.0.1-SNAPSHOT.jar}
+PORT=${5:-18089}
+BASE=http://localhost:$PORT
+BODIES=10
+H2_JAR=${H2_JAR:-$(ls ~/.m2/repository/com/h2database/h2/*/h2-*.jar 2>/dev/null | tail -1)}
+
+if [ ! -f "$JAR" ]; then
+    echo "jar not found: $JAR (run mvn package first)" >&2
+    exit 1
+fi
+if [ ! -f "$H2_JAR" ]; then
+    echo "h2 jar not found, set H2_JAR" >&2
+    exit 1
+fi
+
+WORK=$(mktemp -d)
+URL="jdbc:h2:file:$WORK/telemetry;MODE=MySQL;AUTO_SERVER=TRUE"
+APP_PID=
+cleanup() {
+    [ -n "$APP_PID" ] && kill "$APP_PID" 2>/dev/null && wait "$APP_PID" 2>/dev/null || true
+    rm -rf "$WORK"
+}
+trap cleanup EXIT
+
+start_app() {
+    java -jar "$JAR" --server.port="$PORT" \
+        --spring.datasource.url="$URL" --spring.datasource.username=sa --spring.datasource.password= \
+        --spring.datasource.driver-class-name=org.h2.Driver --spring.jpa.properties.hibernate.dialect=org.hibernate.dialect.H2Dialect \
+        --rental.rate-limit.enabled=false > "$WORK/app.log" 2>&1 &
+    APP_PID=$!
+    for _ in $(seq 1 120); do
+        curl -sf -o /dev/null "$BASE/api/stores" && return 0
+        kill -0 "$APP_PID" 2>/dev/null || break
+        sleep 1
+    done
+    echo "application failed to start, see log:" >&2
+    tail -20 "$WORK/app.log" >&2
+    exit 1
+}
+
+stop_app() {
+    kill "$APP_PID"
+    wait "$APP_PID" 2>/dev/null || true
+    APP_PID=
+}
+
+sql() {
+    java -cp "$H2_JAR" org.h2.tools.Shell -url "$URL" -user sa -password "" -sql "$1" > /dev/null
+}
+
+# 在库（Unicode 转义，避免命令行编码问题）
+IN_STOCK="U&'\\5728\\5E93'"
+
+# 首次启动建表，停止后直接写入数据
+start_app
+stop_app
+sql "INSERT INTO car_model (model_id, name, seat_count, daily_rate) VALUES (1, 'Model 3', 5, 299.00);
+     INSERT INTO vehicle (vehicle_id, plate_no, model_id, store_id, status, current_soc, current_mileage)
+     SELECT X, 'BENCH' || X, 1, 1, $IN_STOCK, 90.0, 0.0 FROM SYSTEM_RANGE(1, $VEHICLES)"
+start_app
+
+# 生成 $BODIES 个不同的请求体，请求轮流使用；时间戳留空，按到达顺序合并
+for b in $(seq "$BODIES"); do
+    awk -v n="$BATCH" -v vehicles="$VEHICLES" -v seed="$b" 'BEGIN {
+        srand(seed);
+        printf "[";
+        for (i = 0; i < n; i++) {
+            printf "%s{\"vehicleId\":%d,\"soc\":%.1f,\"mileage\":%.1f}", i ? "," : "",
+                int(rand() * vehicles) + 1, 20 + rand() * 80, seed * 100 + rand() * 100;
+        }
+        printf "]";
+    }' > "$WORK/body-$b.json"
+done
+
+# 生成 curl 配置：同一连接上依次发送
+requests() {
+    for i in $(seq "$1"); do
+        [ "$i" -gt 1 ] && echo next
+        printf 'url = "%s/api/telemetry"\nheader = "Content-Type: application/json"\ndata-binary = "@%s"\noutput = "/dev/null"\nwrite-out = "%%{http_code}\\n"\n' \
+            "$BASE" "$WORK/body-$(( (i - 1) % BODIES + 1 )).json"
+    done
+}
+
+# 预热请求的读数也会写库，计入 received
+requests 20 > "$WORK/warmup.cfg"
+curl -s --no-progress-meter -K "$WORK/warmup.cfg" > /dev/null
+requests "$COUNT" > "$WORK/bench.cfg"
+start=$(date +%s%N)
+curl -s --no-progress-meter -K "$WORK/bench.cfg" > "$WORK/codes"
+end=$(date +%s%N)
+
+ok=$(grep -c '^202$' "$WORK/codes" || true)
+echo "accepted requests: $ok/$COUNT"
+awk -v n="$ok" -v batch="$BATCH" -v ns=$(( end - start )) \
+    'BEGIN { s = ns / 1e9; printf "%d requests x %d readings in %.2f s: %.1f ms/request, %.0f readings/s\n", n, batch, s, s * 1000 / n, n * batch / s }'
+
+# 刷新开始时即摘下全部待写读数，pendingVehicles 为 0 时可能仍在分批写入：等到待写为 0 且已写车辆数 2 秒内不再变化，
+# 以最后一次观察到已写车辆数变化的时间作为全部落库时间
+last=-1
+changed_at=$end
+while true; do
+    status=$(curl -sf "$BASE/api/telemetry/status")
+    flushed=$(echo "$status" | grep -o '"flushedVehicles":[0-9]*' | cut -d: -f2)
+    now=$(date +%s%N)
+    if [ "$flushed" != "$last" ]; then
+        last=$flushed
+        changed_at=$now
+    elif echo "$status" | grep -q '"pendingVehicles":0,' && [ $(( now - changed_at )) -ge 2000000000 ]; then
+        break
+    fi
+    sleep 0.1
+done
+touched=$(cat "$WORK"/body-*.json | grep -o '"vehicleId":[0-9]*' | sort -u | wc -l)
+echo "status: $status"
+received=$(echo "$status" | grep -o '"received":[0-9]*' | cut -d: -f2)
+awk -v r="$received" -v f="$flushed" -v t="$touched" -v ms=$(( (changed_at - end) / 1000000 )) \
+    'BEGIN { printf "%d readings for %d vehicles coalesced into %d vehicle writes (%.1f readings per write), all written %d ms after the last request\n", r, t, f, r / f, ms }'
@@ -0,0 +1,141 @@
+#!/bin/bash
+# 违章文件导入吞吐：在全新的 H2 文件库中生成 <车辆数> 辆车与 <订单数> 个“已还”订单（每辆车的订单租期首尾相接，每单 2 天），
+# 再生成 <行数> 行违章 CSV（约 1% 车牌不存在、约 1/6 违章时间落在最后一单之后、不在任何租期内、约 0.1% 格式错误），
+# 启动应用后重建汇总表，调用 POST /api/violations/import 上传整个文件，输出各类行数、耗时与每秒行数，
+# 最后用 GET /api/reports/consistency 核对汇总表与明细是否一致。不影响已有数据。
+#
+# 用法：scripts/bench-violation-import.sh [行数=1000000] [车辆数=20000] [订单数=200000] [jar=target/rental-0.0.1-SNAPSHOT.jar] [端口=18089]
+set -euo pipefail
+
+ROWS=${1:-1000000}
+VEHICLES=${2:-20000}
+ORDERS=${3:-200000}
+JAR=${4:-target/rental-0.0.1-SNAPSHOT.jar}
+PORT=${5:-18089}
+BASE=http://localhost:$PORT
+H2_JAR=${H2_JAR:-$(ls ~/.m2/repository/com/h2database/h2/*/h2-*.jar 2>/dev/null | tail -1)}
+# 每辆车的订单数，违章时间分布在这些订单的租期及其后 4 天内
+PER_VEHICLE=$(( (ORDERS + VEHICLES - 1) / VEHICLES ))
+
+if [ ! -f "$JAR" ]; then
+    echo "jar not found: $JAR (run mvn package first)" >&2
+    exit 1
+fi
+if [ ! -f "$H2_JAR" ]; then
+    echo "h2 jar not found, set H2_JAR" >&2
+    exit 1
+fi
+
+WORK=$(mktemp -d)
+URL="jdbc:h2:file:$WORK/violations;MODE=MySQL;AUTO_SERVER=TRUE"
+APP_PID=
+cleanup() {
+    [ -n "$APP_PID" ] && kill "$APP_PID" 2>/dev/null && wait "$APP_PID" 2>/dev/null || true
+    rm -rf "$WORK"
+}
+trap cleanup EXIT
+
+start_app() {
+    java -jar "$JAR" --server.port="$PORT" \
+        --spring.datasource.url="$URL" --spring.datasource.username=sa --spring.datasource.password= \
+        --spring.datasource.driver-class-name=org.h2.Driver --spring.jpa.properties.hibernate.dialect=org.hibernate.dialect.H2Dialect \
+        --rental.rate-limit.enabled=false > "$WORK/app.log" 2>&1 &
+    APP_PID=$!
+    for _ in $(seq 1 120); do
+        curl -sf -o /dev/null "$BASE/api/stores" && return 0
+        kill -0 "$APP_PID" 2>/dev/null || break
+        sleep 1
+    done
+    echo "application failed to start, see log:" >&2
+    tail -20 "$WORK/app.log" >&2
+    exit 1
+}
+
+stop_app() {
+    kill "$APP_PID"
+    wait "$APP_PID" 2>/dev/null || true
+    APP_PID=
+}
+
+sql() {
+    java -cp "$H2_JAR" org.h2.tools.Shell -url "$URL" -user sa -password "" -sql "$1" > /dev/null
+}
+
+# 状态值与角色名用 Unicode 转义，避免命令行编码问题：已还 / 在库 / 管理员
+RETURNED="U&'\\5DF2\\8FD8'"
+IN_STOCK="U&'\\5728\\5E93'"
+ADMIN_ROLE="U&'\\7BA1\\7406\\5458'"
+
+# 首次启动建表（并写入一家默认门店），停止后删掉默认门店再直接写入数据
+start_app
+stop_app
+
+echo "generating $VEHICLES vehicles and $ORDERS returned orders ..."
+started=$(date +%s%N)
+# 订单 X 属于车辆 MOD(X-1, 车辆数)+1，是该车的第 (X-1)/车辆数 单，租期从 2025-01-01 起每单 2 天
+sql "DELETE FROM store;
+     INSERT INTO store (store_id, name, address) SELECT X, 'bench-' || X, 'bench' FROM SYSTEM_RANGE(1, 8);
+     INSERT INTO car_model (model_id, name, seat_count, daily_rate) VALUES (1, 'bench', 5, 300.00);
+     INSERT INTO vehicle (vehicle_id, plate_no, model_id, store_id, status, current_soc, current_mileage)
+     SELECT X, 'BENCH' || X, 1, MOD(X, 8) + 1, $IN_STOCK, 90.0, 0.0 FROM SYSTEM_RANGE(1, $VEHICLES);
+     INSERT INTO customer (customer_id, name, phone) SELECT X, 'bench-' || X, '138' || LPAD(X, 8, '0') FROM SYSTEM_RANGE(1, 1000);
+     INSERT INTO rental_order (order_id, rent_start, rent_end, actual_pickup_time, actual_return_time, pickup_mileage,
+        return_mileage, pickup_soc, return_soc, total_amount, status, customer_id, vehicle_id, pickup_store_id, return_store_id)
+     SELECT X, TIMESTAMP '2025-01-01 00:00:00' + ((X - 1) / $VEHICLES) * INTERVAL '2' DAY,
+        TIMESTAMP '2025-01-02 23:59:59' + ((X - 1) / $VEHICLES) * INTERVAL '2' DAY,
+        TIMESTAMP '2025-01-01 00:05:00' + ((X - 1) / $VEHICLES) * INTERVAL '2' DAY,
+        TIMESTAMP '2025-01-02 23:00:00' + ((X - 1) / $VEHICLES) * INTERVAL '2' DAY,
+        0.0, 300.0, 90.0, 60.0, 600.00, $RETURNED, MOD(X, 1000) + 1, MOD(X - 1, $VEHICLES) + 1, 1, 1
+     FROM SYSTEM_RANGE(1, $ORDERS);
+     ALTER TABLE rental_order ALTER COLUMN order_id RESTART WITH $(( ORDERS + 1 ));
+     INSERT INTO sys_role (role_name) VALUES ($ADMIN_ROLE)"
+echo "generated in $(( ($(date +%s%N) - started) / 1000000 )) ms"
+
+echo "generating $ROWS violation rows ..."
+awk -v rows="$ROWS" -v vehicles="$VEHICLES" -v span=$(( PER_VEHICLE * 2 + 4 )) 'BEGIN {
+    srand(42);
+    # 2025-01-01 起的第 day 天 -> 年-月-日
+    split("31 28 31 30 31 30 31 31 30 31 30 31", days);
+    for (i = 1; i <= rows; i++) {
+        r = rand();
+        if (r < 0.001) {
+            print "BENCH1,not-a-time,bench,200";
+            continue;
+        }
+        plate = r < 0.011 ? "NOPLATE" int(rand() * vehicles) : "BENCH" (int(rand() * vehicles) + 1);
+        day = int(rand() * span);
+        year = 2025;
+        month = 1;
+        while (day >= (m = days[month] + (month == 2 && year % 4 == 0))) {
+            day -= m;
+            if (++month > 12) {
+                month = 1;
+                year++;
+            }
+        }
+        printf "%s,%04d-%02d-%02d %02d:%02d:%02d,bench road %d,%d\n", plate, year, month, day + 1,
+            int(rand() * 24), int(rand() * 60), int(rand() * 60), i % 100, 50 + int(rand() * 4) * 50;
+    }
+}' > "$WORK/violations.csv"
+ls -l "$WORK/violations.csv" | awk '{ printf "%.1f MB\n", $5 / 1e6 }'
+
+start_app
+curl -sf -o /dev/null -H 'Content-Type: application/json' -d '{"username":"bench","password":"bench123","role":["管理员"]}' \
+    "$BASE/api/auth/signup"
+TOKEN=$(curl -sf -H 'Content-Type: application/json' -d '{"username":"bench","password":"bench123"}' "$BASE/api/auth/signin" \
+    | sed -n 's/.*"token":"\([^"]*\)".*/\1/p')
+
+# 直接写入的数据不经过变更事件，先按明细重建汇总表，导入过程中的增量更新才可核对
+curl -sf -o /dev/null -X POST -H "Authorization: Bearer $TOKEN" "$BASE/api/reports/rebuild"
+
+echo "== import"
+started=$(date +%s%N)
+result=$(curl -sf -H 'Content-Type: text/csv' --data-binary "@$WORK/violations.csv" "$BASE/api/violations/import")
+elapsed=$(( ($(date +%s%N) - started) / 1000000 ))
+echo "$result" | sed 's/,"unmatched":.*/}/'
+awk -v n="$ROWS" -v ms="$elapsed" \
+    'BEGIN { printf "imported %d rows in %.1f s (wall clock incl. upload): %.0f rows/s\n", n, ms / 1000, n * 1000 / ms }'
+
+echo "== rollup consistency"
+curl -sf "$BASE/api/reports/consistency"
+echo
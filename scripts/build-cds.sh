@@ -0,0 +1,23 @@
+#!/bin/bash
+# 生成 AppCDS 类数据归档：解包 jar 后以 prod 配置做一次训练启动（容器刷新完成即退出，不处理请求），
+# JVM 退出时把加载过的类写入 application.jsa。之后用 -XX:SharedArchiveFile 启动可跳过这些类的解析与校验。
+# 训练启动会执行启动迁移（幂等过滤器等 Bean 在容器刷新时即依赖迁移服务），需要能连上数据库；其余参数原样传给应用。
+#
+# 用法：scripts/build-cds.sh [jar 路径] [输出目录] [应用参数...]
+#       例：scripts/build-cds.sh target/rental-0.0.1-SNAPSHOT.jar target/application --spring.datasource.url=jdbc:mysql://db:3306/tesla_db
+#       以 -Paot 打包的 jar 需同时启用 AOT：JAVA_OPTS=-Dspring.aot.enabled=true scripts/build-cds.sh
+# 启动：cd <输出目录> && java $JAVA_OPTS -XX:SharedArchiveFile=application.jsa -jar rental.jar --spring.profiles.active=prod
+# 归档与 JDK 版本、jar 内容一一对应，每次打包或升级 JDK 后都需重新生成。
+set -euo pipefail
+
+JAR=${1:-target/rental-0.0.1-SNAPSHOT.jar}
+OUT=${2:-target/application}
+shift $(( $# < 2 ? $# : 2 ))
+
+rm -rf "$OUT"
+java -Djarmode=tools -jar "$JAR" extract --destination "$OUT"
+cd "$OUT"
+mv "$(basename "$JAR")" rental.jar
+java ${JAVA_OPTS:-} -XX:ArchiveClassesAtExit=application.jsa -Xlog:cds=error -Dspring.context.exit=onRefresh \
+    -jar rental.jar --spring.profiles.active=prod "$@"
+echo "CDS archive: $OUT/application.jsa"
@@ -0,0 +1,84 @@
+package com.tesla.rental.config;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.JsonStreamContext;
+import com.fasterxml.jackson.databind.SerializerProvider;
+import com.fasterxml.jackson.databind.ser.PropertyWriter;
+import com.fasterxml.jackson.databind.ser.impl.SimpleBeanPropertyFilter;
+
+import java.util.HashSet;
+import java.util.IdentityHashMap;
+import java.util.Map;
+import java.util.Set;
+
+// ?fields= 稀疏字段集：按从响应根对象（列表则为每个元素）起的属性路径过滤，
+// 如 fields=vehicleId,plateNo,carModel.name；选中某个对象属性时输出其全部子属性
+public class FieldSetFilter extends SimpleBeanPropertyFilter {
+
+    public static final String ID = "fieldSet";
+
+    private final Set<String> paths = new HashSet<>();
+    private final Set<String> parents = new HashSet<>();   // 选中路径的各级上层对象，需要保留
+    // 每个请求新建过滤器，单线程使用：列表中每个元素的顶层属性判定结果相同，缓存避免重复计算
+    private final Map<PropertyWriter, Boolean> topLevel = new IdentityHashMap<>();
+
+    public FieldSetFilter(String fields) {
+        for (String field : fields.split(",")) {
+            String path = field.trim();
+            if (path.isEmpty()) {
+                continue;
+            }
+            paths.add(path);
+            for (int i = path.indexOf('.'); i > 0; i = path.indexOf('.', i + 1)) {
+                parents.add(path.substring(0, i));
+            }
+        }
+    }
+
+    @Override
+    public void serializeAsField(Object pojo, JsonGenerator gen, SerializerProvider provider, PropertyWriter writer)
+            throws Exception {
+        JsonStreamContext context = gen.getOutputContext();
+        boolean included = isTopLevel(context)
+                ? topLevel.computeIfAbsent(writer, w -> include(w.getName()))
+                : include(path(context, writer.getName()));
+        if (included) {
+            writer.serializeAsField(pojo, gen, provider);
+        } else if (!gen.canOmitFields()) {
+            writer.serializeAsOmittedField(pojo, gen, provider);
+        }
+    }
+
+    private boolean include(String path) {
+        if (paths.contains(path) || parents.contains(path)) {
+            return true;
+        }
+        for (int i = path.lastIndexOf('.'); i > 0; i = path.lastIndexOf('.', i - 1)) {
+            if (paths.contains(path.substring(0, i))) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    // 当前对象是否为响应根对象（或根数组的元素），此时路径即属性名，无需拼接
+    private static boolean isTopLevel(JsonStreamContext context) {
+        for (JsonStreamContext parent = context.getParent(); parent != null; parent = parent.getParent()) {
+            if (parent.inObject()) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    // 当前对象在外层对象中的属性名逐级向上拼接，数组层级不计入路径
+    private static String path(JsonStreamContext context, String name) {
+        String path = name;
+        for (JsonStreamContext parent = context.getParent(); parent != null; parent = parent.getParent()) {
+            if (parent.inObject() && parent.getCurrentName() != null) {
+                path = parent.getCurrentName() + "." + path;
+            }
+        }
+        return path;
+    }
+}
@@ -0,0 +1,20 @@
+package com.tesla.rental.config;
+
+import com.tesla.rental.service.IdempotencyService;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.web.servlet.FilterRegistrationBean;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+// 幂等键过滤器只挂在创建订单、支付的接口上；排在安全过滤器链之后，可按登录用户区分幂等键
+@Configuration
+public class IdempotencyConfig {
+
+    @Bean
+    public FilterRegistrationBean<IdempotencyFilter> idempotencyFilter(IdempotencyService idempotencyService,
+            @Value("${rental.idempotency.paths:/api/orders,/api/orders/book,/api/payments}") String[] paths) {
+        FilterRegistrationBean<IdempotencyFilter> registration = new FilterRegistrationBean<>(new IdempotencyFilter(idempotencyService));
+        registration.addUrlPatterns(paths);
+        return registration;
+    }
+}
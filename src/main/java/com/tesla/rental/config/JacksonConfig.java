@@ -1,9 +1,16 @@
 package com.tesla.rental.config;
 
+import com.fasterxml.jackson.annotation.JsonFilter;
 import com.fasterxml.jackson.databind.Module;
 import com.fasterxml.jackson.databind.module.SimpleModule;
+import com.fasterxml.jackson.databind.ser.impl.SimpleBeanPropertyFilter;
+import com.fasterxml.jackson.databind.ser.impl.SimpleFilterProvider;
+import com.fasterxml.jackson.dataformat.cbor.CBORFactory;
+import org.springframework.boot.autoconfigure.jackson.Jackson2ObjectMapperBuilderCustomizer;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
+import org.springframework.http.converter.cbor.MappingJackson2CborHttpMessageConverter;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
 
 import java.time.LocalDateTime;
 import com.tesla.rental.entity.LocalDateTimeDeserializer;
@@ -11,10 +18,27 @@ import com.tesla.rental.entity.LocalDateTimeDeserializer;
 @Configuration
 public class JacksonConfig {
 
+    // 所有类型挂上同一个属性过滤器：默认输出全部属性，请求带 ?fields= 时替换为 FieldSetFilter
+    @JsonFilter(FieldSetFilter.ID)
+    abstract static class FieldSetMixIn {
+    }
+
     @Bean
     public Module localDateTimeModule() {
         SimpleModule module = new SimpleModule();
         module.addDeserializer(LocalDateTime.class, new LocalDateTimeDeserializer());
         return module;
     }
+
+    @Bean
+    public Jackson2ObjectMapperBuilderCustomizer fieldSetCustomizer() {
+        return builder -> builder.mixIn(Object.class, FieldSetMixIn.class)
+                .filters(new SimpleFilterProvider().setDefaultFilter(SimpleBeanPropertyFilter.serializeAll()));
+    }
+
+    // 二进制编码（Accept: application/cbor）：与 JSON 共用同一套 Jackson 配置
+    @Bean
+    public MappingJackson2CborHttpMessageConverter cborHttpMessageConverter(Jackson2ObjectMapperBuilder builder) {
+        return new MappingJackson2CborHttpMessageConverter(builder.factory(new CBORFactory()).build());
+    }
 }
@@ -0,0 +1,45 @@
+package com.tesla.rental.config;
+
+import jakarta.annotation.PostConstruct;
+import org.springframework.boot.LazyInitializationExcludeFilter;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.event.EventListener;
+import org.springframework.core.MethodIntrospector;
+import org.springframework.core.annotation.AnnotatedElementUtils;
+import org.springframework.scheduling.annotation.Scheduled;
+
+import java.lang.reflect.Method;
+import java.util.List;
+
+// spring.main.lazy-initialization=true 时仍需在启动时创建的 Bean：
+// @Scheduled 只在 Bean 创建时注册定时任务；@EventListener 的内存索引/汇总需从启动起接收全部变更事件；
+// @PostConstruct 中做注册的 Bean（如向 Hibernate 注册实体变更监听）不创建就不会生效
+@Configuration
+public class LazyInitConfig {
+
+    private static final List<Class<? extends java.lang.annotation.Annotation>> EAGER_ANNOTATIONS =
+            List.of(Scheduled.class, EventListener.class, PostConstruct.class);
+
+    @Bean
+    static LazyInitializationExcludeFilter eagerStartupBeans() {
+        return (beanName, beanDefinition, beanType) -> beanType != null && hasEagerMethod(beanType);
+    }
+
+    private static boolean hasEagerMethod(Class<?> beanType) {
+        if (!beanType.getName().startsWith("com.tesla.rental.")) {
+            return false;
+        }
+        return !MethodIntrospector.selectMethods(beanType, (MethodIntrospector.MetadataLookup<Boolean>) method ->
+                isEager(method) ? Boolean.TRUE : null).isEmpty();
+    }
+
+    private static boolean isEager(Method method) {
+        for (Class<? extends java.lang.annotation.Annotation> annotation : EAGER_ANNOTATIONS) {
+            if (AnnotatedElementUtils.hasAnnotation(method, annotation)) {
+                return true;
+            }
+        }
+        return false;
+    }
+}
@@ -0,0 +1,68 @@
+package com.tesla.rental.controller;
+
+import com.tesla.rental.payload.AlertRule;
+import com.tesla.rental.payload.MessageResponse;
+import com.tesla.rental.service.VehicleAlertService;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import java.util.List;
+
+@RestController
+@RequestMapping("/api/alerts")
+@CrossOrigin(origins = "*")
+public class AlertController {
+
+    @Autowired
+    private VehicleAlertService alertService;
+
+    // 订阅告警推送（SSE），事件名为规则名
+    @GetMapping(value = "/stream", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    public SseEmitter stream() {
+        return alertService.subscribe();
+    }
+
+    // 低电量车辆（原查询 1.2），按电量升序
+    @GetMapping("/low-battery")
+    public List<VehicleAlertService.VehicleSnapshot> lowBattery(@RequestParam(defaultValue = "20") double below,
+                                                                @RequestParam(defaultValue = "1000") int limit) {
+        return alertService.socBelow(below, limit);
+    }
+
+    // 高里程车辆（原查询 1.3），按里程降序
+    @GetMapping("/high-mileage")
+    public List<VehicleAlertService.VehicleSnapshot> highMileage(@RequestParam(defaultValue = "50000") double above,
+                                                                 @RequestParam(defaultValue = "1000") int limit) {
+        return alertService.mileageAbove(above, limit);
+    }
+
+    @GetMapping("/rules")
+    public List<AlertRule> getRules() {
+        return alertService.getRules();
+    }
+
+    // 当前满足某条规则的车辆
+    @GetMapping("/rules/{name}/vehicles")
+    public List<VehicleAlertService.VehicleSnapshot> getMatching(@PathVariable String name,
+                                                                 @RequestParam(defaultValue = "1000") int limit) {
+        return alertService.matching(name, limit);
+    }
+
+    @PutMapping("/rules/{name}")
+    public ResponseEntity<?> saveRule(@PathVariable String name, @RequestBody AlertRule rule) {
+        rule.setName(name);
+        try {
+            return ResponseEntity.ok(alertService.saveRule(rule));
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().body(new MessageResponse(e.getMessage()));
+        }
+    }
+
+    @DeleteMapping("/rules/{name}")
+    public void deleteRule(@PathVariable String name) {
+        alertService.deleteRule(name);
+    }
+}
@@ -2,8 +2,13 @@ package com.tesla.rental.controller;
 
 import com.tesla.rental.entity.CarModel;
 import com.tesla.rental.repository.CarModelRepository;
+import com.tesla.rental.service.CollectionVersionService;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.WebRequest;
 
 import java.util.List;
 
@@ -15,10 +20,20 @@ public class CarModelController {
     @Autowired
     private CarModelRepository carModelRepository;
 
-    // 获取所有车型
+    @Autowired
+    private CollectionVersionService collectionVersions;
+
+    // 获取所有车型：If-None-Match 与当前版本一致时返回 304
     @GetMapping
-    public List<CarModel> getAllModels() {
-        return carModelRepository.findAll();
+    public ResponseEntity<List<CarModel>> getAllModels(WebRequest request) {
+        String etag = collectionVersions.etag(CarModel.class, request);
+        if (request.checkNotModified(etag)) {
+            return ResponseEntity.status(HttpStatus.NOT_MODIFIED)
+                    .cacheControl(collectionVersions.referenceCacheControl()).varyBy(HttpHeaders.ACCEPT).build();
+        }
+        return ResponseEntity.ok().eTag(etag).cacheControl(collectionVersions.referenceCacheControl())
+                .varyBy(HttpHeaders.ACCEPT)
+                .body(carModelRepository.findAll());
     }
 
     // 添加新车型
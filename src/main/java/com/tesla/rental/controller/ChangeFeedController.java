@@ -0,0 +1,38 @@
+package com.tesla.rental.controller;
+
+import com.tesla.rental.service.ChangeFeedService;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.MediaType;
+import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+
+@RestController
+@RequestMapping("/api/changes")
+@CrossOrigin(origins = "*")
+public class ChangeFeedController {
+
+    @Autowired
+    private ChangeFeedService changeFeedService;
+
+    // 订阅变更流（SSE）：ready/resume/reset 给出起始版本，changes 为一批增量（JSON 数组）。
+    // 浏览器 EventSource 重连时自动带 Last-Event-ID；其他客户端也可用 ?lastEventId= 传入
+    @GetMapping(produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    public SseEmitter stream(@RequestHeader(value = "Last-Event-ID", required = false) String lastEventIdHeader,
+                             @RequestParam(required = false) String lastEventId,
+                             @RequestParam(defaultValue = "vehicle,order,payment") String entities) {
+        Set<String> selected = new HashSet<>();
+        for (String entity : entities.split(",")) {
+            selected.add(entity.trim().toLowerCase());
+        }
+        return changeFeedService.subscribe(lastEventIdHeader != null ? lastEventIdHeader : lastEventId, selected);
+    }
+
+    @GetMapping("/status")
+    public Map<String, Object> status() {
+        return changeFeedService.status();
+    }
+}
@@ -1,8 +1,14 @@
 package com.tesla.rental.controller;
 
 import com.tesla.rental.entity.Customer;
+import com.tesla.rental.payload.CustomerUpsertResult;
+import com.tesla.rental.payload.MessageResponse;
 import com.tesla.rental.repository.CustomerRepository;
+import com.tesla.rental.service.CustomerTimelineService;
+import com.tesla.rental.service.CustomerUpsertService;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
 
 import java.util.List;
@@ -15,6 +21,12 @@ public class CustomerController {
     @Autowired
     private CustomerRepository customerRepository;
 
+    @Autowired
+    private CustomerUpsertService customerUpsertService;
+
+    @Autowired
+    private CustomerTimelineService customerTimelineService;
+
     @GetMapping
     public List<Customer> getAllCustomers() {
         return customerRepository.findAll();
@@ -37,11 +49,32 @@ public class CustomerController {
         return customerRepository.save(customer);
     }
 
+    // 批量 upsert（按手机号），返回每行的新增/更新/失败结果
+    @PostMapping("/bulk")
+    public CustomerUpsertResult bulkUpsert(@RequestBody List<Customer> customers) {
+        return customerUpsertService.upsert(customers);
+    }
+
     @GetMapping("/{id}")
     public Customer getCustomerById(@PathVariable Long id) {
         return customerRepository.findById(id).orElse(null);
     }
 
+    // 客户时间线：订单、支付、违章按时间倒序，附客户汇总；nextCursor 作为下一页的 cursor 参数
+    @GetMapping("/{id}/timeline")
+    public ResponseEntity<?> getTimeline(@PathVariable Long id,
+                                         @RequestParam(required = false) String cursor,
+                                         @RequestParam(defaultValue = "20") int limit) {
+        if (!customerRepository.existsById(id)) {
+            return ResponseEntity.status(HttpStatus.NOT_FOUND).body(new MessageResponse("客户不存在"));
+        }
+        try {
+            return ResponseEntity.ok(customerTimelineService.timeline(id, cursor, limit));
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().body(new MessageResponse(e.getMessage()));
+        }
+    }
+
     @PutMapping("/{id}")
     public Customer updateCustomer(@PathVariable Long id, @RequestBody Customer customer) {
         customer.setCustomerId(id);
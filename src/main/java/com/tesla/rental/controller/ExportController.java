@@ -0,0 +1,79 @@
+package com.tesla.rental.controller;
+
+import com.tesla.rental.service.ExportService;
+import jakarta.servlet.http.HttpServletRequest;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.async.AsyncWebRequest;
+import org.springframework.web.context.request.async.WebAsyncUtils;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+
+import java.time.LocalDateTime;
+
+@RestController
+@RequestMapping("/api/export")
+@CrossOrigin(origins = "*")
+public class ExportController {
+
+    @Autowired
+    private ExportService exportService;
+
+    // 流式导出的超时（毫秒），只作用于导出请求；0 表示不限
+    @Value("${rental.export.timeout-ms:3600000}")
+    private long timeoutMs;
+
+    // 导出订单：format=csv（默认）或 ndjson（gzip 压缩的 .ndjson.gz 文件），按租期开始时间 [from, to) 和取车门店过滤
+    @GetMapping("/orders")
+    public ResponseEntity<StreamingResponseBody> exportOrders(
+            HttpServletRequest request,
+            @RequestParam(defaultValue = "csv") String format,
+            @RequestParam(required = false) @DateTimeFormat(pattern = "yyyy-MM-dd HH:mm:ss") LocalDateTime from,
+            @RequestParam(required = false) @DateTimeFormat(pattern = "yyyy-MM-dd HH:mm:ss") LocalDateTime to,
+            @RequestParam(required = false) Long storeId) {
+        ExportService.Format exportFormat = parseFormat(format);
+        return stream(request, "orders", exportFormat,
+                out -> exportService.exportOrders(from, to, storeId, exportFormat, out));
+    }
+
+    // 导出支付记录，过滤条件作用于所属订单
+    @GetMapping("/payments")
+    public ResponseEntity<StreamingResponseBody> exportPayments(
+            HttpServletRequest request,
+            @RequestParam(defaultValue = "csv") String format,
+            @RequestParam(required = false) @DateTimeFormat(pattern = "yyyy-MM-dd HH:mm:ss") LocalDateTime from,
+            @RequestParam(required = false) @DateTimeFormat(pattern = "yyyy-MM-dd HH:mm:ss") LocalDateTime to,
+            @RequestParam(required = false) Long storeId) {
+        ExportService.Format exportFormat = parseFormat(format);
+        return stream(request, "payments", exportFormat,
+                out -> exportService.exportPayments(from, to, storeId, exportFormat, out));
+    }
+
+    private ExportService.Format parseFormat(String format) {
+        return "ndjson".equalsIgnoreCase(format) ? ExportService.Format.NDJSON : ExportService.Format.CSV;
+    }
+
+    // 导出耗时与数据量成正比，不受全局异步超时限制：在本请求的异步上下文上单独设置超时。
+    // ndjson 以 gzip 文件下载（application/gzip），不设 Content-Encoding，客户端不会自动解压，保存的文件与扩展名一致
+    private ResponseEntity<StreamingResponseBody> stream(HttpServletRequest request, String name, ExportService.Format format,
+                                                         StreamingResponseBody body) {
+        AsyncWebRequest asyncRequest = WebAsyncUtils.getAsyncManager(request).getAsyncWebRequest();
+        if (asyncRequest != null) {
+            asyncRequest.setTimeout(timeoutMs);
+        }
+        if (format == ExportService.Format.NDJSON) {
+            return ResponseEntity.ok()
+                    .header(HttpHeaders.CONTENT_DISPOSITION, "attachment; filename=\"" + name + ".ndjson.gz\"")
+                    .contentType(MediaType.parseMediaType("application/gzip"))
+                    .body(body);
+        }
+        return ResponseEntity.ok()
+                .header(HttpHeaders.CONTENT_DISPOSITION, "attachment; filename=\"" + name + ".csv\"")
+                .contentType(MediaType.parseMediaType("text/csv;charset=UTF-8"))
+                .body(body);
+    }
+}
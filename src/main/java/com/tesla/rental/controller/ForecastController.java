@@ -0,0 +1,50 @@
+package com.tesla.rental.controller;
+
+import com.tesla.rental.service.DemandForecastService;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.web.bind.annotation.*;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Map;
+
+@RestController
+@RequestMapping("/api/forecast")
+@CrossOrigin(origins = "*")
+public class ForecastController {
+
+    @Autowired
+    private DemandForecastService forecastService;
+
+    // 某门店某车型从 from（默认当前时间）起逐小时的预计取车量
+    @GetMapping("/stores/{storeId}/models/{modelId}")
+    public List<DemandForecastService.SlotForecast> hourly(
+            @PathVariable Long storeId,
+            @PathVariable Long modelId,
+            @RequestParam(required = false) @DateTimeFormat(pattern = "yyyy-MM-dd HH:mm:ss") LocalDateTime from,
+            @RequestParam(defaultValue = "24") int hours) {
+        return forecastService.hourly(storeId, modelId, from != null ? from : LocalDateTime.now(),
+                Math.min(Math.max(hours, 1), DemandForecastService.HOURS_PER_WEEK * 4));
+    }
+
+    // 各门店各车型在 [from, from + hours) 内的预计取车量合计
+    @GetMapping("/summary")
+    public List<DemandForecastService.StoreModelForecast> summary(
+            @RequestParam(required = false) @DateTimeFormat(pattern = "yyyy-MM-dd HH:mm:ss") LocalDateTime from,
+            @RequestParam(defaultValue = "24") int hours) {
+        LocalDateTime start = from != null ? from : LocalDateTime.now();
+        return forecastService.expectedPickups(start, start.plusHours(Math.max(hours, 1)));
+    }
+
+    @GetMapping("/status")
+    public Map<String, Object> status() {
+        return forecastService.status();
+    }
+
+    // 清空并从全部历史订单重算（调整平滑系数后使用）
+    @PostMapping("/rebuild")
+    public Map<String, Object> rebuild() {
+        return forecastService.rebuild();
+    }
+}
@@ -1,7 +1,11 @@
 package com.tesla.rental.controller;
 
 import com.tesla.rental.entity.Maintenance;
+import com.tesla.rental.payload.MaintenanceDue;
+import com.tesla.rental.payload.MaintenanceRegisterRequest;
+import com.tesla.rental.payload.MaintenanceRegisterResult;
 import com.tesla.rental.repository.MaintenanceRepository;
+import com.tesla.rental.service.MaintenanceScheduleService;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.web.bind.annotation.*;
 
@@ -15,6 +19,9 @@ public class MaintenanceController {
     @Autowired
     private MaintenanceRepository maintenanceRepository;
 
+    @Autowired
+    private MaintenanceScheduleService scheduleService;
+
     @GetMapping
     public List<Maintenance> getAllMaintenance() {
         return maintenanceRepository.findAll();
@@ -40,4 +47,22 @@ public class MaintenanceController {
     public void deleteMaintenance(@PathVariable Long id) {
         maintenanceRepository.deleteById(id);
     }
+
+    // 预计最早到期的前 limit 辆车（替代 vw_maintenance_pending）
+    @GetMapping("/due")
+    public List<MaintenanceDue> getDue(@RequestParam(defaultValue = "20") int limit,
+                                       @RequestParam(required = false) Integer withinDays) {
+        return scheduleService.due(Math.max(limit, 0), withinDays);
+    }
+
+    @GetMapping("/due/vehicles/{vehicleId}")
+    public MaintenanceDue getDueForVehicle(@PathVariable Long vehicleId) {
+        return scheduleService.forVehicle(vehicleId);
+    }
+
+    // 批量登记维保（规则同 sp_register_maintenance），未指定车辆时取到期队列前 limit 辆
+    @PostMapping("/due/register")
+    public List<MaintenanceRegisterResult> registerDue(@RequestBody MaintenanceRegisterRequest request) {
+        return scheduleService.register(request);
+    }
 }
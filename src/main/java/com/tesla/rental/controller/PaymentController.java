@@ -1,8 +1,11 @@
 package com.tesla.rental.controller;
 
 import com.tesla.rental.entity.Payment;
-import com.tesla.rental.repository.PaymentRepository;
+import com.tesla.rental.payload.MessageResponse;
+import com.tesla.rental.shard.ShardedOrderStore;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
 
 import java.util.List;
@@ -13,31 +16,40 @@ import java.util.List;
 public class PaymentController {
 
     @Autowired
-    private PaymentRepository paymentRepository;
+    private ShardedOrderStore orderStore;
 
     @GetMapping
     public List<Payment> getAllPayments() {
-        return paymentRepository.findAll();
+        return orderStore.findPayments();
     }
 
     @PostMapping
-    public Payment addPayment(@RequestBody Payment payment) {
-        return paymentRepository.save(payment);
+    public ResponseEntity<?> addPayment(@RequestBody Payment payment) {
+        return save(payment);
     }
 
     @GetMapping("/{id}")
     public Payment getPaymentById(@PathVariable Long id) {
-        return paymentRepository.findById(id).orElse(null);
+        return orderStore.findPayment(id);
     }
 
     @PutMapping("/{id}")
-    public Payment updatePayment(@PathVariable Long id, @RequestBody Payment payment) {
+    public ResponseEntity<?> updatePayment(@PathVariable Long id, @RequestBody Payment payment) {
         payment.setPayId(id);
-        return paymentRepository.save(payment);
+        return save(payment);
     }
 
     @DeleteMapping("/{id}")
     public void deletePayment(@PathVariable Long id) {
-        paymentRepository.deleteById(id);
+        orderStore.deletePayment(id);
+    }
+
+    // 改挂到另一分片上的订单时返回 409
+    private ResponseEntity<?> save(Payment payment) {
+        try {
+            return ResponseEntity.ok(orderStore.savePayment(payment));
+        } catch (IllegalStateException e) {
+            return ResponseEntity.status(HttpStatus.CONFLICT).body(new MessageResponse(e.getMessage()));
+        }
     }
 }
@@ -0,0 +1,24 @@
+package com.tesla.rental.controller;
+
+import com.tesla.rental.payload.QuoteRequest;
+import com.tesla.rental.payload.QuoteResponse;
+import com.tesla.rental.service.PricingService;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.web.bind.annotation.*;
+
+import java.util.List;
+
+@RestController
+@RequestMapping("/api/quotes")
+@CrossOrigin(origins = "*")
+public class QuoteController {
+
+    @Autowired
+    private PricingService pricingService;
+
+    // 批量报价：一次请求可对数百个 车辆/车型 x 租期 组合报价
+    @PostMapping
+    public List<QuoteResponse> quote(@RequestBody List<QuoteRequest> requests) {
+        return pricingService.quote(requests);
+    }
+}
@@ -0,0 +1,37 @@
+package com.tesla.rental.controller;
+
+import com.tesla.rental.payload.MessageResponse;
+import com.tesla.rental.payload.RebalanceRequest;
+import com.tesla.rental.service.RebalanceService;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+
+@RestController
+@RequestMapping("/api/rebalance")
+@CrossOrigin(origins = "*")
+public class RebalanceController {
+
+    @Autowired
+    private RebalanceService rebalanceService;
+
+    // 只计算调拨方案，不落库
+    @PostMapping("/plan")
+    public ResponseEntity<?> plan(@RequestBody RebalanceRequest request) {
+        try {
+            return ResponseEntity.ok(rebalanceService.plan(request));
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().body(new MessageResponse(e.getMessage()));
+        }
+    }
+
+    // 计算并在一个事务内批量执行调拨
+    @PostMapping("/apply")
+    public ResponseEntity<?> apply(@RequestBody RebalanceRequest request) {
+        try {
+            return ResponseEntity.ok(rebalanceService.apply(request));
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().body(new MessageResponse(e.getMessage()));
+        }
+    }
+}
@@ -1,16 +1,27 @@
 package com.tesla.rental.controller;
 
 import com.tesla.rental.entity.RentalOrder;
-import com.tesla.rental.entity.Vehicle;
 import com.tesla.rental.entity.enums.RentalOrderStatus;
 import com.tesla.rental.entity.enums.VehicleStatus;
-import com.tesla.rental.repository.RentalOrderRepository;
-import com.tesla.rental.repository.VehicleRepository;
+import com.tesla.rental.event.OrderEvent;
+import com.tesla.rental.payload.BookingResult;
+import com.tesla.rental.payload.MessageResponse;
+import com.tesla.rental.payload.OrderProjectionResult;
+import com.tesla.rental.payload.QuoteRequest;
+import com.tesla.rental.payload.QuoteResponse;
+import com.tesla.rental.service.OrderBookingService;
+import com.tesla.rental.service.OrderLifecycleService;
+import com.tesla.rental.service.OrderProjectionService;
+import com.tesla.rental.service.PricingService;
+import com.tesla.rental.shard.ShardedOrderStore;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
 
 import java.util.List;
-import java.util.Optional;
+import java.util.Map;
+import java.util.function.Supplier;
 
 @RestController
 @RequestMapping("/api/orders")
@@ -18,14 +29,24 @@ import java.util.Optional;
 public class RentalOrderController {
 
     @Autowired
-    private RentalOrderRepository orderRepository;
+    private ShardedOrderStore orderStore;
 
     @Autowired
-    private VehicleRepository vehicleRepository;
+    private OrderLifecycleService lifecycleService;
 
+    @Autowired
+    private OrderProjectionService projectionService;
+
+    @Autowired
+    private PricingService pricingService;
+
+    @Autowired
+    private OrderBookingService bookingService;
+
+    // storeId 不为空时只查该门店所在分片
     @GetMapping
-    public List<RentalOrder> getAllOrders() {
-        return orderRepository.findAll();
+    public List<RentalOrder> getAllOrders(@RequestParam(required = false) Long storeId) {
+        return orderStore.findOrders(storeId);
     }
 
     @PostMapping
@@ -33,35 +54,131 @@ public class RentalOrderController {
         if (order.getStatus() == null) {
             order.setStatus(RentalOrderStatus.PAID);
         }
-        // 保存订单
-        RentalOrder savedOrder = orderRepository.save(order);
-
-        // 更新车辆状态为"在租"
-        if (order.getVehicleId() != null) {
-            Optional<Vehicle> vehicleOpt = vehicleRepository.findById(order.getVehicleId());
-            if (vehicleOpt.isPresent()) {
-                Vehicle vehicle = vehicleOpt.get();
-                vehicle.setStatus(VehicleStatus.RENTED);
-                vehicleRepository.save(vehicle);
-            }
+        // 订单金额以服务端报价为准，无法报价时保留客户端传入的金额
+        QuoteResponse quote = pricingService.quote(toQuoteRequest(order));
+        if (quote.getError() == null) {
+            order.setTotalAmount(quote.getTotalAmount());
         }
+        // 保存订单并记录下单事件，车辆状态投影为"在租"
+        return lifecycleService.create(order, order.getVehicleId() != null ? VehicleStatus.RENTED : null);
+    }
 
-        return savedOrder;
+    // 带校验的下单（客户、车辆状态与电量、门店、租期）：mode=auto（默认，MySQL 调用 sp_create_rental_order，否则 Java 实现）/ procedure / java。
+    // 成功返回 201；校验失败按结果码返回 404/409/400
+    @PostMapping("/book")
+    public ResponseEntity<?> bookOrder(@RequestBody RentalOrder order, @RequestParam(required = false) String mode) {
+        BookingResult result;
+        try {
+            result = bookingService.book(order, mode);
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().body(new MessageResponse(e.getMessage()));
+        }
+        return ResponseEntity.status(statusOf(result.getResultCode())).body(result);
     }
 
     @GetMapping("/{id}")
     public RentalOrder getOrderById(@PathVariable Long id) {
-        return orderRepository.findById(id).orElse(null);
+        return orderStore.findOrder(id);
     }
 
+    // 修改订单信息；状态只能通过下面的取车/还车接口与结算变更（改状态返回 409）
     @PutMapping("/{id}")
-    public RentalOrder updateOrder(@PathVariable Long id, @RequestBody RentalOrder order) {
-        order.setOrderId(id);
-        return orderRepository.save(order);
+    public ResponseEntity<?> updateOrder(@PathVariable Long id, @RequestBody RentalOrder order) {
+        return command(() -> lifecycleService.amend(id, order));
     }
 
     @DeleteMapping("/{id}")
     public void deleteOrder(@PathVariable Long id) {
-        orderRepository.deleteById(id);
+        lifecycleService.delete(id);
+    }
+
+    // 确认取车：已支付 -> 在租（可传 actualPickupTime / pickupMileage / pickupSoc，缺省取当前时间与车辆当前值）
+    @PutMapping("/{id}/pickup")
+    public ResponseEntity<?> pickup(@PathVariable Long id, @RequestBody(required = false) RentalOrder request) {
+        return command(() -> lifecycleService.pickup(id, request != null ? request : new RentalOrder()));
+    }
+
+    // 申请还车：在租 -> 待验车（可传 returnStoreId）
+    @PutMapping("/{id}/apply-return")
+    public ResponseEntity<?> applyReturn(@PathVariable Long id, @RequestBody(required = false) RentalOrder request) {
+        return command(() -> lifecycleService.applyReturn(id, request != null ? request : new RentalOrder()));
+    }
+
+    // 验车还车：在租/待验车 -> 已还，车辆回到在库（可传 actualReturnTime / returnMileage / returnSoc / returnStoreId）
+    @PutMapping("/{id}/confirm-return")
+    public ResponseEntity<?> confirmReturn(@PathVariable Long id, @RequestBody(required = false) RentalOrder request) {
+        return command(() -> lifecycleService.confirmReturn(id, request != null ? request : new RentalOrder()));
+    }
+
+    // 订单的事件历史（按版本号）
+    @GetMapping("/{id}/events")
+    public List<OrderEvent> getOrderEvents(@PathVariable Long id) {
+        return lifecycleService.history(id);
+    }
+
+    // 各分片的事件数与快照检查点
+    @GetMapping("/projection")
+    public List<Map<String, Object>> getProjectionStatus() {
+        return projectionService.status();
+    }
+
+    // 从事件重建订单投影：mode=auto（默认，有快照从快照开始）/ events / snapshot，只修正不一致的订单
+    @PostMapping("/projection/rebuild")
+    public ResponseEntity<?> rebuildProjection(@RequestParam(required = false) String mode) {
+        try {
+            return ResponseEntity.ok(projectionService.rebuild(mode));
+        } catch (IllegalArgumentException | IllegalStateException e) {
+            return ResponseEntity.badRequest().body(new MessageResponse(e.getMessage()));
+        }
+    }
+
+    // 立即生成（或增量更新）订单快照
+    @PostMapping("/projection/snapshot")
+    public OrderProjectionResult snapshotProjection() {
+        return projectionService.snapshot();
+    }
+
+    // 订单不存在返回 404，状态不允许返回 409，参数无效返回 400
+    private static ResponseEntity<?> command(Supplier<RentalOrder> command) {
+        RentalOrder order;
+        try {
+            order = command.get();
+        } catch (IllegalStateException e) {
+            return ResponseEntity.status(HttpStatus.CONFLICT).body(new MessageResponse(e.getMessage()));
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().body(new MessageResponse(e.getMessage()));
+        }
+        if (order == null) {
+            return ResponseEntity.status(HttpStatus.NOT_FOUND).body(new MessageResponse("订单不存在"));
+        }
+        return ResponseEntity.ok(order);
+    }
+
+    private static HttpStatus statusOf(int resultCode) {
+        switch (resultCode) {
+            case BookingResult.OK:
+                return HttpStatus.CREATED;
+            case BookingResult.CUSTOMER_NOT_FOUND:
+            case BookingResult.VEHICLE_NOT_FOUND:
+            case BookingResult.STORE_NOT_FOUND:
+                return HttpStatus.NOT_FOUND;
+            case BookingResult.VEHICLE_UNAVAILABLE:
+            case BookingResult.LOW_SOC:
+                return HttpStatus.CONFLICT;
+            case BookingResult.INVALID_PERIOD:
+                return HttpStatus.BAD_REQUEST;
+            default:
+                return HttpStatus.INTERNAL_SERVER_ERROR;
+        }
+    }
+
+    private QuoteRequest toQuoteRequest(RentalOrder order) {
+        QuoteRequest request = new QuoteRequest();
+        request.setVehicleId(order.getVehicleId());
+        request.setRentStart(order.getRentStart());
+        request.setRentEnd(order.getRentEnd());
+        request.setPickupStoreId(order.getPickupStoreId());
+        request.setReturnStoreId(order.getReturnStoreId());
+        return request;
     }
 }
@@ -0,0 +1,110 @@
+package com.tesla.rental.controller;
+
+import com.tesla.rental.entity.CustomerRollup;
+import com.tesla.rental.entity.OrderRollup;
+import com.tesla.rental.entity.StoreRollup;
+import com.tesla.rental.repository.CustomerRollupRepository;
+import com.tesla.rental.repository.OrderRollupRepository;
+import com.tesla.rental.repository.StoreRollupRepository;
+import com.tesla.rental.service.ChangeLogService;
+import com.tesla.rental.service.RollupConsistencyChecker;
+import com.tesla.rental.service.SchemaMigrationService;
+import com.tesla.rental.shard.ShardRouter;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.domain.Sort;
+import org.springframework.web.bind.annotation.*;
+
+import java.util.List;
+import java.util.Map;
+
+@RestController
+@RequestMapping("/api/reports")
+@CrossOrigin(origins = "*")
+public class ReportController {
+
+    @Autowired
+    private StoreRollupRepository storeRollupRepository;
+
+    @Autowired
+    private CustomerRollupRepository customerRollupRepository;
+
+    @Autowired
+    private OrderRollupRepository orderRollupRepository;
+
+    @Autowired
+    private RollupConsistencyChecker consistencyChecker;
+
+    @Autowired
+    private SchemaMigrationService schemaMigrationService;
+
+    @Autowired
+    private ShardRouter shardRouter;
+
+    @Autowired
+    private ChangeLogService changeLogService;
+
+    // 门店利用率（原 vw_store_utilization）
+    @GetMapping("/store-utilization")
+    public List<StoreRollup> getStoreUtilization() {
+        return storeRollupRepository.findAll(Sort.by("storeId"));
+    }
+
+    // 客户价值（原 vw_customer_value）
+    @GetMapping("/customer-value")
+    public List<CustomerRollup> getCustomerValue() {
+        return customerRollupRepository.findAll(Sort.by(Sort.Direction.DESC, "totalOrderAmount"));
+    }
+
+    @GetMapping("/customer-value/{customerId}")
+    public CustomerRollup getCustomerValueById(@PathVariable Long customerId) {
+        return customerRollupRepository.findById(customerId).orElse(null);
+    }
+
+    // 订单支付汇总（原 vw_payment_summary）
+    @GetMapping("/payment-summary")
+    public List<OrderRollup> getPaymentSummary() {
+        return orderRollupRepository.findAll(Sort.by("orderId"));
+    }
+
+    @GetMapping("/payment-summary/{orderId}")
+    public OrderRollup getPaymentSummaryById(@PathVariable Long orderId) {
+        return orderRollupRepository.findById(orderId).orElse(null);
+    }
+
+    // 一致性校验：从源表重算并与汇总表逐列比对，返回差异列表（为空表示一致）
+    @GetMapping("/consistency")
+    public List<RollupConsistencyChecker.RollupDiff> checkConsistency() {
+        return consistencyChecker.check();
+    }
+
+    // 从源表整体重建汇总表（首次上线或校验出差异后使用）
+    @PostMapping("/rebuild")
+    public List<RollupConsistencyChecker.RollupDiff> rebuild() {
+        consistencyChecker.rebuild();
+        return consistencyChecker.check();
+    }
+
+    // 已执行的表结构迁移（版本、校验和、耗时）
+    @GetMapping("/schema-migrations")
+    public List<SchemaMigrationService.AppliedMigration> getSchemaMigrations() {
+        return schemaMigrationService.history();
+    }
+
+    // 索引漂移：迁移脚本声明但线上缺失的索引（为空表示齐全）
+    @GetMapping("/index-drift")
+    public List<SchemaMigrationService.IndexDrift> checkIndexDrift() {
+        return schemaMigrationService.checkIndexDrift();
+    }
+
+    // 订单分片：各分片的连接串与订单、支付、违章行数（未启用分片时只有主库）
+    @GetMapping("/shards")
+    public List<ShardRouter.ShardStatus> getShards() {
+        return shardRouter.status();
+    }
+
+    // 多实例缓存失效：本实例的节点号、change_log 轮询进度与已应用的其他实例变更数
+    @GetMapping("/change-log")
+    public Map<String, Object> getChangeLogStatus() {
+        return changeLogService.status();
+    }
+}
@@ -0,0 +1,32 @@
+package com.tesla.rental.controller;
+
+import com.tesla.rental.payload.SearchHit;
+import com.tesla.rental.payload.SearchResponse;
+import com.tesla.rental.service.SearchIndexService;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.web.bind.annotation.*;
+
+import java.util.Map;
+import java.util.Set;
+
+@RestController
+@RequestMapping("/api/search")
+@CrossOrigin(origins = "*")
+public class SearchController {
+
+    @Autowired
+    private SearchIndexService searchIndexService;
+
+    // 联想搜索：q 不少于 3 个字符时按子串匹配，更短时按前缀匹配；types 可限定 CUSTOMER / VEHICLE / STORE
+    @GetMapping
+    public SearchResponse search(@RequestParam String q,
+                                 @RequestParam(required = false) Set<SearchHit.Type> types,
+                                 @RequestParam(defaultValue = "10") int limit) {
+        return searchIndexService.search(q, types, Math.min(limit, 100));
+    }
+
+    @GetMapping("/status")
+    public Map<String, Object> status() {
+        return searchIndexService.status();
+    }
+}
@@ -0,0 +1,37 @@
+package com.tesla.rental.controller;
+
+import com.tesla.rental.payload.MessageResponse;
+import com.tesla.rental.service.SettlementService;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+
+@RestController
+@RequestMapping("/api/settlement")
+@CrossOrigin(origins = "*")
+public class SettlementController {
+
+    @Autowired
+    private SettlementService settlementService;
+
+    // 启动批量结算（后台执行，从上次断点继续）
+    @PostMapping("/run")
+    public ResponseEntity<?> run() {
+        if (!settlementService.start()) {
+            return ResponseEntity.status(409).body(new MessageResponse("Settlement job is already running"));
+        }
+        return ResponseEntity.accepted().body(settlementService.status());
+    }
+
+    // 查询作业进度与吞吐
+    @GetMapping("/status")
+    public SettlementService.JobStatus status() {
+        return settlementService.status();
+    }
+
+    // 重置断点
+    @DeleteMapping("/checkpoint")
+    public void resetCheckpoint() {
+        settlementService.resetCheckpoint();
+    }
+}
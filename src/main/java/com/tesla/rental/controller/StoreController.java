@@ -2,8 +2,13 @@ package com.tesla.rental.controller;
 
 import com.tesla.rental.entity.Store;
 import com.tesla.rental.repository.StoreRepository;
+import com.tesla.rental.service.CollectionVersionService;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.WebRequest;
 
 import java.util.List;
 
@@ -15,9 +20,20 @@ public class StoreController {
     @Autowired
     private StoreRepository storeRepository;
 
+    @Autowired
+    private CollectionVersionService collectionVersions;
+
+    // 门店列表：If-None-Match 与当前版本一致时返回 304
     @GetMapping
-    public List<Store> getAllStores() {
-        return storeRepository.findAll();
+    public ResponseEntity<List<Store>> getAllStores(WebRequest request) {
+        String etag = collectionVersions.etag(Store.class, request);
+        if (request.checkNotModified(etag)) {
+            return ResponseEntity.status(HttpStatus.NOT_MODIFIED)
+                    .cacheControl(collectionVersions.referenceCacheControl()).varyBy(HttpHeaders.ACCEPT).build();
+        }
+        return ResponseEntity.ok().eTag(etag).cacheControl(collectionVersions.referenceCacheControl())
+                .varyBy(HttpHeaders.ACCEPT)
+                .body(storeRepository.findAll());
     }
 
     @PostMapping
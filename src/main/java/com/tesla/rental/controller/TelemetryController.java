@@ -0,0 +1,31 @@
+package com.tesla.rental.controller;
+
+import com.tesla.rental.payload.TelemetryReading;
+import com.tesla.rental.service.TelemetryService;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+
+import java.util.List;
+import java.util.Map;
+
+@RestController
+@RequestMapping("/api/telemetry")
+@CrossOrigin(origins = "*")
+public class TelemetryController {
+
+    @Autowired
+    private TelemetryService telemetryService;
+
+    // 批量上报电量/里程；读数先在内存合并，异步写库，因此返回 202
+    @PostMapping
+    public ResponseEntity<Map<String, Object>> ingest(@RequestBody List<TelemetryReading> readings) {
+        int rejected = telemetryService.accept(readings);
+        return ResponseEntity.accepted().body(Map.of("accepted", readings.size() - rejected, "rejected", rejected));
+    }
+
+    @GetMapping("/status")
+    public Map<String, Object> status() {
+        return telemetryService.status();
+    }
+}
@@ -2,9 +2,17 @@ package com.tesla.rental.controller;
 
 import com.tesla.rental.entity.Vehicle;
 import com.tesla.rental.entity.enums.VehicleStatus;
+import com.tesla.rental.payload.MessageResponse;
+import com.tesla.rental.payload.VehicleBatchRequest;
 import com.tesla.rental.repository.VehicleRepository;
+import com.tesla.rental.service.CollectionVersionService;
+import com.tesla.rental.service.VehicleBatchService;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.WebRequest;
 
 import java.util.List;
 
@@ -16,10 +24,21 @@ public class VehicleController {
     @Autowired
     private VehicleRepository vehicleRepository;
 
-    // 1. 查询所有车辆接口
+    @Autowired
+    private CollectionVersionService collectionVersions;
+
+    // 1. 查询所有车辆接口（If-None-Match 与当前版本一致时返回 304，不查库）
     @GetMapping
-    public List<Vehicle> getAllVehicles() {
-        return vehicleRepository.findAll();
+    public ResponseEntity<List<Vehicle>> getAllVehicles(WebRequest request) {
+        String etag = collectionVersions.etag(Vehicle.class, request);
+        // checkNotModified 已写入 ETag 头并置 304 状态
+        if (request.checkNotModified(etag)) {
+            return ResponseEntity.status(HttpStatus.NOT_MODIFIED)
+                    .cacheControl(collectionVersions.vehicleCacheControl()).varyBy(HttpHeaders.ACCEPT).build();
+        }
+        return ResponseEntity.ok().eTag(etag).cacheControl(collectionVersions.vehicleCacheControl())
+                .varyBy(HttpHeaders.ACCEPT)
+                .body(vehicleRepository.findAll());
     }
 
     // 2. 添加一辆新车接口
@@ -47,6 +66,29 @@ public class VehicleController {
         vehicleRepository.deleteById(id);
     }
 
+    @Autowired
+    private VehicleBatchService vehicleBatchService;
+
+    // 7. 批量状态变更（在库 <-> 维保），整批一个事务，返回每辆车的结果
+    @PostMapping("/batch/status")
+    public ResponseEntity<?> batchStatus(@RequestBody VehicleBatchRequest request) {
+        try {
+            return ResponseEntity.ok(vehicleBatchService.changeStatus(request));
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().body(new MessageResponse(e.getMessage()));
+        }
+    }
+
+    // 8. 批量调拨到目标门店（仅在库车辆），整批一个事务，返回每辆车的结果
+    @PostMapping("/batch/transfer")
+    public ResponseEntity<?> batchTransfer(@RequestBody VehicleBatchRequest request) {
+        try {
+            return ResponseEntity.ok(vehicleBatchService.transfer(request));
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().body(new MessageResponse(e.getMessage()));
+        }
+    }
+
     @Autowired
     private com.tesla.rental.repository.CarModelRepository carModelRepository;
 
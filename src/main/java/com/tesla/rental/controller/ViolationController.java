@@ -1,10 +1,17 @@
 package com.tesla.rental.controller;
 
 import com.tesla.rental.entity.Violation;
-import com.tesla.rental.repository.ViolationRepository;
+import com.tesla.rental.payload.MessageResponse;
+import com.tesla.rental.payload.ViolationImportResult;
+import com.tesla.rental.service.ViolationImportService;
+import com.tesla.rental.shard.ShardedOrderStore;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
 
+import java.io.IOException;
+import java.io.InputStream;
 import java.util.List;
 
 @RestController
@@ -13,31 +20,49 @@ import java.util.List;
 public class ViolationController {
 
     @Autowired
-    private ViolationRepository violationRepository;
+    private ShardedOrderStore orderStore;
+
+    @Autowired
+    private ViolationImportService importService;
 
     @GetMapping
     public List<Violation> getAllViolations() {
-        return violationRepository.findAll();
+        return orderStore.findViolations();
     }
 
     @PostMapping
-    public Violation addViolation(@RequestBody Violation violation) {
-        return violationRepository.save(violation);
+    public ResponseEntity<?> addViolation(@RequestBody Violation violation) {
+        return save(violation);
     }
 
     @GetMapping("/{id}")
     public Violation getViolationById(@PathVariable Long id) {
-        return violationRepository.findById(id).orElse(null);
+        return orderStore.findViolation(id);
     }
 
     @PutMapping("/{id}")
-    public Violation updateViolation(@PathVariable Long id, @RequestBody Violation violation) {
+    public ResponseEntity<?> updateViolation(@PathVariable Long id, @RequestBody Violation violation) {
         violation.setVioId(id);
-        return violationRepository.save(violation);
+        return save(violation);
     }
 
     @DeleteMapping("/{id}")
     public void deleteViolation(@PathVariable Long id) {
-        violationRepository.deleteById(id);
+        orderStore.deleteViolation(id);
+    }
+
+    // 导入交管违章文件：请求体为 CSV（车牌,违章时间,地点,罚款），按车牌和时间自动匹配订单
+    @PostMapping(value = "/import", consumes = { "text/csv", "text/plain", "application/octet-stream" })
+    public ViolationImportResult importViolations(InputStream body) throws IOException {
+        return importService.importCsv(body);
+    }
+
+    // 改挂到另一分片上的订单时返回 409
+    private ResponseEntity<?> save(Violation violation) {
+        try {
+            return ResponseEntity.ok(orderStore.saveViolation(violation));
+        } catch (IllegalStateException e) {
+            return ResponseEntity.status(HttpStatus.CONFLICT).body(new MessageResponse(e.getMessage()));
+        }
     }
 }
@@ -0,0 +1,18 @@
+package com.tesla.rental.entity;
+
+import jakarta.persistence.*;
+import lombok.Data;
+import java.time.LocalDateTime;
+
+// 批处理作业断点：记录每个作业已提交的最后一个主键，崩溃重启后从此处继续
+@Entity
+@Table(name = "batch_checkpoint")
+@Data
+public class BatchCheckpoint {
+    @Id
+    private String jobName;
+
+    private Long lastId;              // 已处理的最大主键
+    private Long processedCount;      // 累计处理条数
+    private LocalDateTime updatedAt;  // 最近一次提交时间
+}
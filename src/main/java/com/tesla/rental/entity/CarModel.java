@@ -2,6 +2,7 @@ package com.tesla.rental.entity;
 
 import jakarta.persistence.*;
 import lombok.Data;
+import java.math.BigDecimal;
 
 @Entity
 @Table(name = "car_model")
@@ -14,6 +15,7 @@ public class CarModel {
     private String name;              // 型号名称 (Model 3/Y)
     private Integer seatCount;        // 座位数
     private Double batteryCapacity;   // 电池容量
+    private BigDecimal dailyRate;     // 日租金（为空时使用默认价）
     
     @Column(name = "brand_id")
     private Long brandId;             // 关联品牌
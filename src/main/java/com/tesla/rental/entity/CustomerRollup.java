@@ -0,0 +1,52 @@
+package com.tesla.rental.entity;
+
+import com.fasterxml.jackson.annotation.JsonFormat;
+import com.fasterxml.jackson.annotation.JsonProperty;
+import jakarta.persistence.*;
+import lombok.Data;
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+
+// 客户汇总表（替代 vw_customer_value），由 RollupService 随订单/支付/违章写入增量维护
+@Entity
+@Table(name = "rpt_customer_rollup")
+@Data
+public class CustomerRollup {
+    @Id
+    private Long customerId;
+
+    private Long totalOrders;            // 订单总数
+    private Long pendingOrders;          // 已支付待取车
+    private Long activeOrders;           // 在租
+    private Long completedOrders;        // 已结算
+    private Long totalRentalDays;        // 累计租期(天)
+    private BigDecimal totalOrderAmount; // 订单总额
+    private BigDecimal totalPaidAmount;  // 实付总额
+    private BigDecimal totalDeposit;     // 押金
+    private BigDecimal totalRentalFee;   // 租金
+    private BigDecimal totalPenalty;     // 赔偿
+    private Long violationCount;         // 违章次数
+    private BigDecimal totalFineAmount;  // 罚款总额
+
+    @JsonFormat(pattern = "yyyy-MM-dd HH:mm:ss")
+    private LocalDateTime lastRentalDate; // 最近一次租车时间
+
+    @JsonProperty("customerLevel")
+    public String getCustomerLevel() {
+        double amount = totalOrderAmount != null ? totalOrderAmount.doubleValue() : 0;
+        if (amount >= 20000) return "VIP";
+        if (amount >= 10000) return "高价值";
+        if (amount >= 5000) return "中价值";
+        if (amount > 0) return "普通";
+        return "新客户";
+    }
+
+    @JsonProperty("riskLevel")
+    public String getRiskLevel() {
+        long count = violationCount != null ? violationCount : 0;
+        if (count == 0) return "优秀";
+        if (count <= 2) return "良好";
+        if (count <= 5) return "一般";
+        return "风险";
+    }
+}
@@ -0,0 +1,35 @@
+package com.tesla.rental.entity;
+
+import jakarta.persistence.*;
+import lombok.Data;
+
+import java.io.Serializable;
+import java.time.LocalDateTime;
+
+// 取车需求预测：按 (门店, 车型, 周内小时) 保存指数平滑后的每周取车量，由 DemandForecastService 增量维护
+@Entity
+@Table(name = "demand_forecast")
+@IdClass(DemandForecast.Key.class)
+@Data
+public class DemandForecast {
+    @Id
+    private Long storeId;
+
+    @Id
+    private Long modelId;
+
+    @Id
+    private Integer hourOfWeek;       // 0 = 周一 0 点，167 = 周日 23 点
+
+    private Double level;             // 截至上一周的平滑取车量
+    private Long currentWeek;         // 当前累计周（自 1970-01-05 周一起的周序号）
+    private Long currentCount;        // 当前周已累计的取车量
+    private LocalDateTime updatedAt;
+
+    @Data
+    public static class Key implements Serializable {
+        private Long storeId;
+        private Long modelId;
+        private Integer hourOfWeek;
+    }
+}
@@ -8,6 +8,7 @@ import java.io.IOException;
 import java.time.*;
 import java.time.format.DateTimeFormatter;
 import java.time.format.DateTimeParseException;
+import java.util.regex.Pattern;
 
 /**
  * 自定义反序列化器，可接受 LocalDateTime 的多种常见时间格式。
@@ -24,13 +25,23 @@ public class LocalDateTimeDeserializer extends JsonDeserializer<LocalDateTime> {
             DateTimeFormatter.ISO_LOCAL_DATE_TIME
     };
 
+    private static final Pattern EPOCH_MILLIS = Pattern.compile("^-?\\d+$");
+
     @Override
     public LocalDateTime deserialize(JsonParser p, DeserializationContext ctxt) throws IOException {
         String text = p.getText();
         if (text == null || text.isBlank()) return null;
 
+        // 系统自身使用的 yyyy-MM-dd HH:mm:ss 格式优先解析，避免逐个尝试时抛出的异常开销
+        if (text.length() == 19 && text.charAt(10) == ' ') {
+            try {
+                return LocalDateTime.parse(text, FORMATTERS[0]);
+            } catch (DateTimeParseException ignored) {
+            }
+        }
+
         // 数字形式的纪元毫秒值
-        if (text.matches("^-?\\d+$")) {
+        if (EPOCH_MILLIS.matcher(text).matches()) {
             try {
                 long millis = Long.parseLong(text);
                 return Instant.ofEpochMilli(millis).atZone(ZoneId.systemDefault()).toLocalDateTime();
@@ -0,0 +1,46 @@
+package com.tesla.rental.entity;
+
+import com.fasterxml.jackson.annotation.JsonProperty;
+import jakarta.persistence.*;
+import lombok.Data;
+import java.math.BigDecimal;
+
+// 订单支付汇总表（替代 vw_payment_summary），由 RollupService 随订单/支付/违章写入增量维护
+@Entity
+@Table(name = "rpt_order_rollup")
+@Data
+public class OrderRollup {
+    @Id
+    private Long orderId;
+
+    @Column(name = "customer_id")
+    private Long customerId;
+
+    @Column(name = "vehicle_id")
+    private Long vehicleId;
+
+    private BigDecimal orderTotalAmount; // 订单总额
+    private Long paymentCount;           // 支付笔数
+    private BigDecimal totalPaid;        // 已付合计
+    private BigDecimal depositAmount;    // 押金
+    private BigDecimal rentalFeeAmount;  // 租金
+    private BigDecimal penaltyAmount;    // 赔偿
+    private Long violationCount;         // 违章次数
+    private BigDecimal fineAmount;       // 罚款合计
+
+    @JsonProperty("paymentStatus")
+    public String getPaymentStatus() {
+        BigDecimal paid = totalPaid != null ? totalPaid : BigDecimal.ZERO;
+        if (paid.signum() == 0) return "未支付";
+        if (orderTotalAmount != null && paid.compareTo(orderTotalAmount) < 0) return "部分支付";
+        return "已付清";
+    }
+
+    @JsonProperty("outstandingAmount")
+    public BigDecimal getOutstandingAmount() {
+        if (orderTotalAmount == null) {
+            return null;
+        }
+        return orderTotalAmount.subtract(totalPaid != null ? totalPaid : BigDecimal.ZERO);
+    }
+}
@@ -25,13 +25,23 @@ public class RentalOrder {
     @JsonFormat(pattern = "yyyy-MM-dd HH:mm:ss")
     private LocalDateTime rentEnd;      // 计划还车时间
 
+    @JsonDeserialize(using = LocalDateTimeDeserializer.class)
+    @JsonFormat(pattern = "yyyy-MM-dd HH:mm:ss")
+    private LocalDateTime actualPickupTime;  // 实际取车时间
+
+    @JsonDeserialize(using = LocalDateTimeDeserializer.class)
+    @JsonFormat(pattern = "yyyy-MM-dd HH:mm:ss")
+    private LocalDateTime actualReturnTime;  // 实际还车时间
+
+    private Double pickupMileage;       // 取车里程
+    private Double returnMileage;       // 还车里程
     private Double pickupSoc;           // 取车电量(%)
     private Double returnSoc;           // 还车电量(%)
     private BigDecimal totalAmount;     // 订单总额
 
     @Column(name = "status")
     @Convert(converter = RentalOrderStatusConverter.class)
-    private RentalOrderStatus status;   // 已支付/在租/已还/结算
+    private RentalOrderStatus status;   // 已支付/在租/待验车/已还/结算
 
     // 核心关联
     @Column(name = "customer_id")
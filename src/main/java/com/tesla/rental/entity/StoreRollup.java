@@ -0,0 +1,46 @@
+package com.tesla.rental.entity;
+
+import com.fasterxml.jackson.annotation.JsonProperty;
+import jakarta.persistence.*;
+import lombok.Data;
+
+// 门店汇总表（替代 vw_store_utilization），由 RollupService 随车辆/订单写入增量维护
+@Entity
+@Table(name = "rpt_store_rollup")
+@Data
+public class StoreRollup {
+    @Id
+    private Long storeId;
+
+    private Long totalVehicles;       // 车辆总数
+    private Long availableVehicles;   // 在库
+    private Long rentedVehicles;      // 在租
+    private Long maintenanceVehicles; // 维保
+    private Double socSum;            // 电量合计（用于计算平均电量）
+    private Long lowBatteryCount;     // 电量 < 20%
+    private Long fullBatteryCount;    // 电量 >= 80%
+    private Double mileageSum;        // 里程合计
+    private Long activeRentalCount;   // 从本店取车且在租的订单数
+
+    @JsonProperty("utilizationRate")
+    public Double getUtilizationRate() {
+        return ratio(rentedVehicles != null ? rentedVehicles * 100.0 : null, totalVehicles);
+    }
+
+    @JsonProperty("avgBatterySoc")
+    public Double getAvgBatterySoc() {
+        return ratio(socSum, totalVehicles);
+    }
+
+    @JsonProperty("avgMileage")
+    public Double getAvgMileage() {
+        return ratio(mileageSum, totalVehicles);
+    }
+
+    private static Double ratio(Double sum, Long count) {
+        if (sum == null || count == null || count == 0) {
+            return null;
+        }
+        return Math.round(sum / count * 100.0) / 100.0;
+    }
+}
@@ -1,8 +1,11 @@
 package com.tesla.rental.entity;
 
+import com.fasterxml.jackson.annotation.JsonFormat;
+import com.fasterxml.jackson.databind.annotation.JsonDeserialize;
 import jakarta.persistence.*;
 import lombok.Data;
 import java.math.BigDecimal;
+import java.time.LocalDateTime;
 
 @Entity
 @Table(name = "violation")
@@ -14,6 +17,10 @@ public class Violation {
 
     private BigDecimal fineAmount;  // 罚款金额
     private String location;        // 违章位置
+
+    @JsonDeserialize(using = LocalDateTimeDeserializer.class)
+    @JsonFormat(pattern = "yyyy-MM-dd HH:mm:ss")
+    private LocalDateTime violationTime; // 违章时间
     
     @Column(name = "vehicle_id")
     private Long vehicleId;         // 关联车辆
@@ -7,7 +7,8 @@ public enum RentalOrderStatus {
     PAID(0, "已支付"),
     RENTED(1, "在租"),
     RETURNED(2, "已还"),
-    SETTLED(3, "结算");
+    SETTLED(3, "结算"),
+    PENDING_INSPECTION(4, "待验车");   // 客户已申请还车，等待门店验车
 
     private final int code;
     private final String label;
@@ -17,6 +18,11 @@ public enum RentalOrderStatus {
         this.label = label;
     }
 
+    // 车辆仍在客户手中：在租或待验车
+    public boolean isOnRent() {
+        return this == RENTED || this == PENDING_INSPECTION;
+    }
+
     public int getCode() {
         return code;
     }
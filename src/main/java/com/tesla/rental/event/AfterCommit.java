@@ -0,0 +1,27 @@
+package com.tesla.rental.event;
+
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+// 提交后执行：有活动事务时在提交完成后执行，回滚则丢弃；无事务时立即执行（同 fallbackExecution = true）。
+// 供内存索引类订阅方先按实体类型过滤再注册回调，避免批量写入时为无关事件各注册一个事务同步
+public final class AfterCommit {
+
+    private AfterCommit() {
+    }
+
+    public static void run(Runnable action) {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            action.run();
+            return;
+        }
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCompletion(int status) {
+                if (status == STATUS_COMMITTED) {
+                    action.run();
+                }
+            }
+        });
+    }
+}
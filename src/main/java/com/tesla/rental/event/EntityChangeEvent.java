@@ -0,0 +1,56 @@
+package com.tesla.rental.event;
+
+import lombok.Getter;
+
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+
+// 实体变更事件：由 Hibernate 监听器（或批量 JDBC 写入方）发布，供报表汇总等增量维护逻辑订阅
+@Getter
+public class EntityChangeEvent {
+
+    public enum Action {
+        INSERT, UPDATE, DELETE
+    }
+
+    private final Class<?> entityType;
+    private final Object id;
+    private final Action action;
+    private final Object entity;               // 变更后的实体（删除时为被删除的实体）
+    private final Map<String, Object> previous; // 变更前的属性值（新增时为空）
+
+    public EntityChangeEvent(Class<?> entityType, Object id, Action action, Object entity, Map<String, Object> previous) {
+        this.entityType = entityType;
+        this.id = id;
+        this.action = action;
+        this.entity = entity;
+        this.previous = previous != null ? previous : Collections.emptyMap();
+    }
+
+    public boolean isFor(Class<?> type) {
+        return type.isAssignableFrom(entityType);
+    }
+
+    @SuppressWarnings("unchecked")
+    public <T> T getEntity(Class<T> type) {
+        return (T) entity;
+    }
+
+    public Object previousValue(String property) {
+        return previous.get(property);
+    }
+
+    // 对比变更前后的值，返回发生变化的属性名（current 为变更后的属性值）
+    public Set<String> changedProperties(Map<String, Object> current) {
+        Set<String> changed = new HashSet<>();
+        for (Map.Entry<String, Object> entry : current.entrySet()) {
+            if (action != Action.UPDATE || !Objects.equals(previous.get(entry.getKey()), entry.getValue())) {
+                changed.add(entry.getKey());
+            }
+        }
+        return changed;
+    }
+}
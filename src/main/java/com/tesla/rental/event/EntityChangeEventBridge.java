@@ -0,0 +1,80 @@
+package com.tesla.rental.event;
+
+import jakarta.annotation.PostConstruct;
+import jakarta.persistence.EntityManagerFactory;
+import org.hibernate.engine.spi.SessionFactoryImplementor;
+import org.hibernate.event.service.spi.EventListenerRegistry;
+import org.hibernate.event.spi.EventType;
+import org.hibernate.event.spi.PostDeleteEvent;
+import org.hibernate.event.spi.PostDeleteEventListener;
+import org.hibernate.event.spi.PostInsertEvent;
+import org.hibernate.event.spi.PostInsertEventListener;
+import org.hibernate.event.spi.PostUpdateEvent;
+import org.hibernate.event.spi.PostUpdateEventListener;
+import org.hibernate.persister.entity.EntityPersister;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.stereotype.Component;
+
+import java.util.HashMap;
+import java.util.Map;
+
+// 把 Hibernate 的增删改回调转成 Spring 的 EntityChangeEvent
+// 回调发生在事务内的 flush 阶段，同步订阅者的 JDBC 写入与业务写入处于同一事务
+@Component
+public class EntityChangeEventBridge implements PostInsertEventListener, PostUpdateEventListener, PostDeleteEventListener {
+
+    private final EntityManagerFactory entityManagerFactory;
+    private final ApplicationEventPublisher publisher;
+
+    public EntityChangeEventBridge(EntityManagerFactory entityManagerFactory, ApplicationEventPublisher publisher) {
+        this.entityManagerFactory = entityManagerFactory;
+        this.publisher = publisher;
+    }
+
+    @PostConstruct
+    public void register() {
+        EventListenerRegistry registry = entityManagerFactory.unwrap(SessionFactoryImplementor.class)
+                .getServiceRegistry()
+                .getService(EventListenerRegistry.class);
+        registry.appendListeners(EventType.POST_INSERT, this);
+        registry.appendListeners(EventType.POST_UPDATE, this);
+        registry.appendListeners(EventType.POST_DELETE, this);
+    }
+
+    @Override
+    public void onPostInsert(PostInsertEvent event) {
+        publisher.publishEvent(new EntityChangeEvent(event.getEntity().getClass(), event.getId(),
+                EntityChangeEvent.Action.INSERT, event.getEntity(), null));
+    }
+
+    @Override
+    public void onPostUpdate(PostUpdateEvent event) {
+        publisher.publishEvent(new EntityChangeEvent(event.getEntity().getClass(), event.getId(),
+                EntityChangeEvent.Action.UPDATE, event.getEntity(),
+                toMap(event.getPersister(), event.getOldState())));
+    }
+
+    @Override
+    public void onPostDelete(PostDeleteEvent event) {
+        publisher.publishEvent(new EntityChangeEvent(event.getEntity().getClass(), event.getId(),
+                EntityChangeEvent.Action.DELETE, event.getEntity(),
+                toMap(event.getPersister(), event.getDeletedState())));
+    }
+
+    @Override
+    public boolean requiresPostCommitHandling(EntityPersister persister) {
+        return false;
+    }
+
+    private Map<String, Object> toMap(EntityPersister persister, Object[] state) {
+        if (state == null) {
+            return null;
+        }
+        String[] names = persister.getPropertyNames();
+        Map<String, Object> values = new HashMap<>();
+        for (int i = 0; i < names.length && i < state.length; i++) {
+            values.put(names[i], state[i]);
+        }
+        return values;
+    }
+}
@@ -0,0 +1,43 @@
+package com.tesla.rental.event;
+
+import com.fasterxml.jackson.annotation.JsonFormat;
+import com.tesla.rental.entity.RentalOrder;
+import com.tesla.rental.entity.enums.VehicleStatus;
+import lombok.Data;
+
+import java.time.LocalDateTime;
+
+// 订单生命周期事件（order_event 中的一行，只追加不修改）：changes 中非空的字段即本次变化后的值，
+// 依次叠加到订单上得到订单当前状态；vehicleStatus 非空时车辆投影同时把车辆置为该状态
+@Data
+public class OrderEvent {
+
+    public enum Type {
+        IMPORTED,           // 启用事件日志前已存在的订单：携带当时的完整状态
+        CREATED,            // 下单
+        AMENDED,            // 修改订单信息（客户、车辆、门店、租期、金额），不改变状态
+        PICKED_UP,          // 确认取车：已支付 -> 在租
+        RETURN_REQUESTED,   // 申请还车：在租 -> 待验车
+        RETURNED,           // 验车还车：在租/待验车 -> 已还
+        SETTLED,            // 结算：已还 -> 结算
+        DELETED             // 删除订单
+    }
+
+    private Long eventId;
+    private Long orderId;
+    private int seq;                    // 订单内从 1 开始的连续版本号
+    private Type type;
+    private RentalOrder changes;        // 本次变化的字段（DELETED 时为空）
+    private VehicleStatus vehicleStatus;
+    private String actor;               // 操作人（登录用户名），系统操作为空
+
+    @JsonFormat(pattern = "yyyy-MM-dd HH:mm:ss")
+    private LocalDateTime recordedAt;
+
+    public static OrderEvent of(Type type, RentalOrder changes) {
+        OrderEvent event = new OrderEvent();
+        event.setType(type);
+        event.setChanges(changes);
+        return event;
+    }
+}
@@ -0,0 +1,23 @@
+package com.tesla.rental.event;
+
+import lombok.Getter;
+
+// 其他应用实例提交的实体变更（由 ChangeLogService 轮询 change_log 得到）：只携带类型和主键，
+// 供本实例的内存缓存失效或从数据库重新加载；汇总表等已落库的派生数据不应订阅
+@Getter
+public class RemoteChangeEvent {
+
+    private final Class<?> entityType;
+    private final Long id;                       // 主键不是数字时为空，表示该类型全部失效
+    private final EntityChangeEvent.Action action;
+
+    public RemoteChangeEvent(Class<?> entityType, Long id, EntityChangeEvent.Action action) {
+        this.entityType = entityType;
+        this.id = id;
+        this.action = action;
+    }
+
+    public boolean isFor(Class<?> type) {
+        return type.isAssignableFrom(entityType);
+    }
+}
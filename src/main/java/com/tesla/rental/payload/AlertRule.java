@@ -0,0 +1,27 @@
+package com.tesla.rental.payload;
+
+import lombok.Data;
+
+@Data
+public class AlertRule {
+
+    public enum Metric {
+        SOC, MILEAGE
+    }
+
+    public enum Operator {
+        BELOW, ABOVE
+    }
+
+    private String name;          // 规则名，如 low-battery
+    private Metric metric;        // 监控指标：电量或里程
+    private Operator operator;    // BELOW：低于阈值告警；ABOVE：高于阈值告警
+    private Double threshold;
+
+    public boolean matches(Double value) {
+        if (value == null || threshold == null) {
+            return false;
+        }
+        return operator == Operator.BELOW ? value < threshold : value > threshold;
+    }
+}
@@ -0,0 +1,26 @@
+package com.tesla.rental.payload;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+import com.tesla.rental.entity.RentalOrder;
+import lombok.Data;
+
+@Data
+@JsonInclude(JsonInclude.Include.NON_NULL)
+public class BookingResult {
+
+    // 结果码沿用 sp_create_rental_order：0 成功；-1 客户不存在；-2 车辆不存在；-3 车辆不可用；-4 门店不存在；
+    // -5 租期无效；-6 电量不足；-99 系统错误
+    public static final int OK = 0;
+    public static final int CUSTOMER_NOT_FOUND = -1;
+    public static final int VEHICLE_NOT_FOUND = -2;
+    public static final int VEHICLE_UNAVAILABLE = -3;
+    public static final int STORE_NOT_FOUND = -4;
+    public static final int INVALID_PERIOD = -5;
+    public static final int LOW_SOC = -6;
+    public static final int SYSTEM_ERROR = -99;
+
+    private Integer resultCode;
+    private String resultMsg;
+    private String mode;                // 实际执行路径：procedure / java
+    private RentalOrder order;          // 成功时为新建的订单
+}
@@ -0,0 +1,15 @@
+package com.tesla.rental.payload;
+
+import com.tesla.rental.entity.CustomerRollup;
+import lombok.Data;
+
+import java.util.ArrayList;
+import java.util.List;
+
+@Data
+public class CustomerTimeline {
+    private Long customerId;
+    private CustomerRollup summary;     // 累计消费、租车次数、违章罚款等（汇总表增量维护，按主键读取）
+    private List<TimelineEntry> entries = new ArrayList<>();
+    private String nextCursor;          // 下一页的 cursor 参数，没有更多订单时为空
+}
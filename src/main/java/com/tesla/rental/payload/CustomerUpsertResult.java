@@ -0,0 +1,30 @@
+package com.tesla.rental.payload;
+
+import lombok.Data;
+import java.util.ArrayList;
+import java.util.List;
+
+@Data
+public class CustomerUpsertResult {
+
+    public enum Status {
+        INSERTED, UPDATED, FAILED
+    }
+
+    @Data
+    public static class Row {
+        private int index;              // 在请求数组中的下标
+        private String phone;
+        private Long customerId;
+        private Status status;
+        private String message;         // 失败原因
+    }
+
+    private int total;
+    private int inserted;
+    private int updated;
+    private int failed;
+    private long elapsedMillis;
+    private long rowsPerSecond;
+    private List<Row> rows = new ArrayList<>();
+}
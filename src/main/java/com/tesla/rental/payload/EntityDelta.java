@@ -0,0 +1,19 @@
+package com.tesla.rental.payload;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+import com.tesla.rental.event.EntityChangeEvent;
+import lombok.Data;
+
+import java.util.Map;
+
+// 变更流中的一条增量：新增带非空字段，修改只带变化的字段，删除不带字段
+@Data
+@JsonInclude(JsonInclude.Include.NON_NULL)
+public class EntityDelta {
+
+    private long version;               // 全局递增的变更序号（按提交顺序）
+    private String entity;              // vehicle / order / payment
+    private Object id;
+    private EntityChangeEvent.Action action;
+    private Map<String, Object> fields; // 字段名与列表接口的 JSON 一致，客户端可直接合并
+}
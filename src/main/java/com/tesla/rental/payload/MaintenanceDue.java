@@ -0,0 +1,29 @@
+package com.tesla.rental.payload;
+
+import com.fasterxml.jackson.annotation.JsonFormat;
+import lombok.Data;
+import java.time.LocalDateTime;
+import java.util.Map;
+
+@Data
+public class MaintenanceDue {
+
+    public enum Reason {
+        MILEAGE, TIME
+    }
+
+    private Long vehicleId;
+    private String plateNo;
+    private Long storeId;
+    private Long modelId;
+    private Double currentMileage;
+    private Double nextMaintKm;         // 下次保养里程（每 interval-km 一次，与 sp_register_maintenance 一致）
+    private Double kmPerDay;            // 预计日均里程
+    private String rateSource;          // VEHICLE：本车订单历史；MODEL：同车型平均；DEFAULT：默认值
+    private Map<String, String> lastMaintDates; // 维保类型 -> 最近一次维保时间
+
+    @JsonFormat(pattern = "yyyy-MM-dd HH:mm:ss")
+    private LocalDateTime dueDate;      // 预计到期时间
+    private Reason reason;              // 先到期的条件：里程或时间
+    private Long daysUntilDue;          // 为负表示已逾期
+}
@@ -0,0 +1,14 @@
+package com.tesla.rental.payload;
+
+import lombok.Data;
+import java.util.List;
+
+@Data
+public class MaintenanceRegisterRequest {
+    private List<Long> vehicleIds;       // 指定车辆；为空时取到期队列的前 limit 辆
+    private Integer limit = 50;
+    private Integer withinDays;          // 只登记 withinDays 天内到期的车辆
+    private Integer maintType = 0;       // 0=保养，1=维修，2=其他
+    private String description;
+    private Long operatorUserId;
+}
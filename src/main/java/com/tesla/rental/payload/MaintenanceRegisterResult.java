@@ -0,0 +1,13 @@
+package com.tesla.rental.payload;
+
+import lombok.Data;
+
+// 与 sp_register_maintenance 的输出参数一一对应
+@Data
+public class MaintenanceRegisterResult {
+    private Long vehicleId;
+    private Long maintId;
+    private Double nextMaintKm;
+    private Integer resultCode;         // 0 成功；-1 车辆不存在；-2 车辆在租
+    private String resultMsg;
+}
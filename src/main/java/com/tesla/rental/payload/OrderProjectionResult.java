@@ -0,0 +1,16 @@
+package com.tesla.rental.payload;
+
+import lombok.Data;
+
+@Data
+public class OrderProjectionResult {
+    private String mode;                // 重建：events（从第一条事件重放）/ snapshot（快照 + 其后的事件）；生成快照：snapshot
+    private long events;                // 重放的事件数
+    private long orders;                // 投影得到的订单数（不含已删除的订单）
+    private long inserted;              // rental_order 缺失而补回的订单
+    private long updated;               // 与投影不一致而修正的订单
+    private long deleted;               // 已删除却仍在 rental_order 中的订单
+    private long imported;              // 没有事件的订单，补记 IMPORTED 事件
+    private long vehiclesRepaired;      // 状态与订单不一致而修正的车辆
+    private long elapsedMillis;
+}
@@ -0,0 +1,24 @@
+package com.tesla.rental.payload;
+
+import com.fasterxml.jackson.annotation.JsonFormat;
+import com.fasterxml.jackson.databind.annotation.JsonDeserialize;
+import com.tesla.rental.entity.LocalDateTimeDeserializer;
+import lombok.Data;
+import java.time.LocalDateTime;
+
+@Data
+public class QuoteRequest {
+    private Long vehicleId;       // 车辆ID（与 modelId 二选一）
+    private Long modelId;         // 车型ID
+
+    @JsonDeserialize(using = LocalDateTimeDeserializer.class)
+    @JsonFormat(pattern = "yyyy-MM-dd HH:mm:ss")
+    private LocalDateTime rentStart;
+
+    @JsonDeserialize(using = LocalDateTimeDeserializer.class)
+    @JsonFormat(pattern = "yyyy-MM-dd HH:mm:ss")
+    private LocalDateTime rentEnd;
+
+    private Long pickupStoreId;
+    private Long returnStoreId;
+}
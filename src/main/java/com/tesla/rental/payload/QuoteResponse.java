@@ -0,0 +1,17 @@
+package com.tesla.rental.payload;
+
+import lombok.Data;
+import java.math.BigDecimal;
+
+@Data
+public class QuoteResponse {
+    private Long vehicleId;
+    private Long modelId;
+    private Integer days;                    // 计费天数（不足一天按一天）
+    private Long baseCents;                  // 日租金 * 天数（分）
+    private Long discountCents;              // 时长阶梯折扣（分）
+    private Long oneWaySurchargeCents;       // 异店还车附加费（分）
+    private Long totalCents;                 // 报价合计（分）
+    private BigDecimal totalAmount;          // 报价合计（元）
+    private String error;                    // 无法报价时的原因
+}
@@ -0,0 +1,25 @@
+package com.tesla.rental.payload;
+
+import lombok.Data;
+import java.util.ArrayList;
+import java.util.List;
+
+@Data
+public class RebalancePlan {
+    private List<Transfer> transfers = new ArrayList<>();
+    private Integer totalVehicles = 0;   // 调拨车辆总数
+    private Long totalCost = 0L;         // 调拨总费用
+    private Integer unmetDemand = 0;     // 全网库存不足以满足的缺口
+    private Long solveMillis;            // 求解耗时
+    private Integer appliedVehicles;     // 实际落库的车辆数（仅 apply 时返回）
+
+    @Data
+    public static class Transfer {
+        private Long modelId;
+        private Long fromStoreId;
+        private Long toStoreId;
+        private Integer quantity;
+        private Long unitCost;
+        private List<Long> vehicleIds;   // 仅 apply 时返回
+    }
+}
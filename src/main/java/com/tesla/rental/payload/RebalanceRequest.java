@@ -0,0 +1,26 @@
+package com.tesla.rental.payload;
+
+import lombok.Data;
+import java.util.List;
+
+@Data
+public class RebalanceRequest {
+    private List<Target> targets;        // 各门店各车型的目标在库数量；未列出的组合保持现状
+    private List<Cost> costs;            // 指定门店对的单车调拨费用；未指定时按 defaultCost
+    private Long defaultCost = 1L;
+    private Integer horizonHours;        // 未给出 targets 时，按未来若干小时的预测取车量生成目标
+
+    @Data
+    public static class Target {
+        private Long storeId;
+        private Long modelId;
+        private Integer target;
+    }
+
+    @Data
+    public static class Cost {
+        private Long fromStoreId;
+        private Long toStoreId;
+        private Long cost;
+    }
+}
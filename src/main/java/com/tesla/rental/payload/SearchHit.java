@@ -0,0 +1,17 @@
+package com.tesla.rental.payload;
+
+import lombok.Data;
+
+@Data
+public class SearchHit {
+
+    public enum Type {
+        CUSTOMER, VEHICLE, STORE
+    }
+
+    private Type type;
+    private Long id;
+    private String title;     // 客户姓名 / 车牌 / 店名
+    private String subtitle;  // 客户电话 / 门店地址
+    private String matched;   // 命中的字段值
+}
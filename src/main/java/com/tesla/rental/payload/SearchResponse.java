@@ -0,0 +1,13 @@
+package com.tesla.rental.payload;
+
+import lombok.Data;
+
+import java.util.ArrayList;
+import java.util.List;
+
+@Data
+public class SearchResponse {
+    private String query;
+    private List<SearchHit> hits = new ArrayList<>();
+    private long tookMicros;    // 索引内查找耗时（微秒）
+}
@@ -0,0 +1,11 @@
+package com.tesla.rental.payload;
+
+import lombok.Data;
+
+@Data
+public class TelemetryReading {
+    private Long vehicleId;
+    private Double soc;         // 电量%（0-100），为空表示本次未上报
+    private Double mileage;     // 里程表读数(km)，为空表示本次未上报
+    private Long timestamp;     // 车端采集时间（毫秒时间戳），为空时按到达顺序
+}
@@ -0,0 +1,20 @@
+package com.tesla.rental.payload;
+
+import com.fasterxml.jackson.annotation.JsonFormat;
+import lombok.Data;
+
+import java.time.LocalDateTime;
+
+@Data
+public class TimelineEntry {
+
+    public enum Type {
+        ORDER, PAYMENT, VIOLATION
+    }
+
+    private Type type;
+    @JsonFormat(pattern = "yyyy-MM-dd HH:mm:ss")
+    private LocalDateTime time;     // 订单：计划取车时间；支付：所属订单的取车时间（支付表无时间列）；违章：违章时间
+    private Long orderId;
+    private Object detail;          // RentalOrder / Payment / Violation
+}
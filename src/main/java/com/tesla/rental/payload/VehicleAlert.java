@@ -0,0 +1,25 @@
+package com.tesla.rental.payload;
+
+import com.fasterxml.jackson.annotation.JsonFormat;
+import lombok.Data;
+import java.time.LocalDateTime;
+
+@Data
+public class VehicleAlert {
+
+    public enum Type {
+        TRIGGERED, CLEARED
+    }
+
+    private String rule;
+    private Type type;            // TRIGGERED：越过阈值进入告警；CLEARED：恢复正常
+    private Long vehicleId;
+    private String plateNo;
+    private Long storeId;
+    private Double previousValue;
+    private Double value;
+    private Double threshold;
+
+    @JsonFormat(pattern = "yyyy-MM-dd HH:mm:ss")
+    private LocalDateTime time;
+}
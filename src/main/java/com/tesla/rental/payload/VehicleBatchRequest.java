@@ -0,0 +1,15 @@
+package com.tesla.rental.payload;
+
+import com.tesla.rental.entity.enums.VehicleStatus;
+import lombok.Data;
+import java.util.List;
+
+@Data
+public class VehicleBatchRequest {
+    private List<Long> vehicleIds;
+    private VehicleStatus status;        // 批量状态变更的目标状态
+    private Long fromStoreId;            // 批量调拨：可选，指定时只调拨当前在该门店的车辆
+    private Long toStoreId;              // 批量调拨：目标门店
+    private String reason;
+    private Long operatorUserId;
+}
@@ -0,0 +1,23 @@
+package com.tesla.rental.payload;
+
+import lombok.Data;
+import java.util.ArrayList;
+import java.util.List;
+
+@Data
+public class VehicleBatchResult {
+
+    // 结果码沿用 sp_transfer_vehicle：0 成功；-1 车辆不存在；-2 车辆不在源门店；-4 当前状态不允许该操作；-5 已处于目标状态/门店
+    @Data
+    public static class Item {
+        private Long vehicleId;
+        private Integer resultCode;
+        private String resultMsg;
+    }
+
+    private int total;
+    private int succeeded;
+    private int failed;
+    private Long auditLogId;            // 本批次的审计记录
+    private List<Item> items = new ArrayList<>();
+}
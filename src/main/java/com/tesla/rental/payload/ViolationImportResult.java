@@ -0,0 +1,30 @@
+package com.tesla.rental.payload;
+
+import lombok.Data;
+import java.util.ArrayList;
+import java.util.List;
+
+@Data
+public class ViolationImportResult {
+
+    public enum Reason {
+        INVALID_ROW, UNKNOWN_PLATE, NO_ORDER
+    }
+
+    @Data
+    public static class UnmatchedRow {
+        private long line;
+        private String plateNo;
+        private String violationTime;
+        private Reason reason;
+    }
+
+    private long totalRows;
+    private long imported;              // 写入 violation 表的行数（含未匹配到订单的行）
+    private long matchedOrders;         // 关联到订单的行数
+    private long unknownPlate;          // 车牌不存在，未写入
+    private long noOrder;               // 车辆存在但违章时间不在任何订单租期内，写入时 order_id 为空
+    private long invalidRows;           // 格式错误，未写入
+    private long elapsedMillis;
+    private List<UnmatchedRow> unmatched = new ArrayList<>(); // 未匹配明细（最多 maxDetails 条）
+}
@@ -1,9 +1,9 @@
 package com.tesla.rental.repository;
 
-import com.tesla.rental.entity.Violation;
+import com.tesla.rental.entity.CustomerRollup;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.stereotype.Repository;
 
 @Repository
-public interface ViolationRepository extends JpaRepository<Violation, Long> {
+public interface CustomerRollupRepository extends JpaRepository<CustomerRollup, Long> {
 }
@@ -1,9 +1,9 @@
 package com.tesla.rental.repository;
 
-import com.tesla.rental.entity.Payment;
+import com.tesla.rental.entity.OrderRollup;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.stereotype.Repository;
 
 @Repository
-public interface PaymentRepository extends JpaRepository<Payment, Long> {
+public interface OrderRollupRepository extends JpaRepository<OrderRollup, Long> {
 }
@@ -1,9 +1,9 @@
 package com.tesla.rental.repository;
 
-import com.tesla.rental.entity.RentalOrder;
+import com.tesla.rental.entity.StoreRollup;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.stereotype.Repository;
 
 @Repository
-public interface RentalOrderRepository extends JpaRepository<RentalOrder, Long> {
+public interface StoreRollupRepository extends JpaRepository<StoreRollup, Long> {
 }
@@ -1,10 +1,17 @@
 package com.tesla.rental.repository;
 
 import com.tesla.rental.entity.Vehicle;
+import jakarta.persistence.LockModeType;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Lock;
 import org.springframework.stereotype.Repository;
 
+import java.util.Optional;
+
 @Repository
 public interface VehicleRepository extends JpaRepository<Vehicle, Long> {
-    // 这里其实有一对大括号，虽然里面是空的
-}
\ No newline at end of file
+
+    // SELECT ... FOR UPDATE，须在事务内调用
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    Optional<Vehicle> findWithLockByVehicleId(Long vehicleId);
+}
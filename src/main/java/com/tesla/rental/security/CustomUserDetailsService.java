@@ -3,9 +3,13 @@ package com.tesla.rental.security;
 import com.tesla.rental.entity.SysRole;
 import com.tesla.rental.entity.SysUser;
 import com.tesla.rental.entity.SysUserRole;
+import com.tesla.rental.event.AfterCommit;
+import com.tesla.rental.event.EntityChangeEvent;
+import com.tesla.rental.event.RemoteChangeEvent;
 import com.tesla.rental.repository.SysRoleRepository;
 import com.tesla.rental.repository.SysUserRepository;
 import com.tesla.rental.repository.SysUserRoleRepository;
+import org.springframework.context.event.EventListener;
 import org.springframework.security.core.authority.SimpleGrantedAuthority;
 import org.springframework.security.core.userdetails.User;
 import org.springframework.security.core.userdetails.UserDetails;
@@ -15,14 +19,22 @@ import org.springframework.stereotype.Service;
 
 import java.util.ArrayList;
 import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
 import java.util.stream.Collectors;
 
+// 每个带 JWT 的请求都会加载用户及其角色：按用户名缓存，用户/角色/用户角色有写入（本实例或经 change_log 得知的其他实例）时整体清空
 @Service
 public class CustomUserDetailsService implements UserDetailsService {
 
+    private record CachedUser(String username, String passwordHash, List<SimpleGrantedAuthority> authorities) {
+    }
+
     private final SysUserRepository userRepository;
     private final SysUserRoleRepository userRoleRepository;
     private final SysRoleRepository roleRepository;
+    private final ConcurrentHashMap<String, CachedUser> cache = new ConcurrentHashMap<>();
+    private final AtomicLong generation = new AtomicLong(); // 清空次数：加载期间发生过清空的结果不放入缓存
 
     public CustomUserDetailsService(SysUserRepository userRepository, SysUserRoleRepository userRoleRepository, SysRoleRepository roleRepository) {
         this.userRepository = userRepository;
@@ -30,8 +42,45 @@ public class CustomUserDetailsService implements UserDetailsService {
         this.roleRepository = roleRepository;
     }
 
+    @EventListener
+    public void onEntityChange(EntityChangeEvent event) {
+        if (isAuthority(event.getEntityType())) {
+            AfterCommit.run(this::invalidate);
+        }
+    }
+
+    @EventListener
+    public void onRemoteChange(RemoteChangeEvent event) {
+        if (isAuthority(event.getEntityType())) {
+            invalidate();
+        }
+    }
+
+    private void invalidate() {
+        generation.incrementAndGet();
+        cache.clear();
+    }
+
+    private static boolean isAuthority(Class<?> type) {
+        return SysUser.class.isAssignableFrom(type) || SysUserRole.class.isAssignableFrom(type)
+                || SysRole.class.isAssignableFrom(type);
+    }
+
+    // 每次返回新的 User：认证成功后 Spring Security 会擦除返回对象中的密码
     @Override
     public UserDetails loadUserByUsername(String username) throws UsernameNotFoundException {
+        CachedUser cached = cache.get(username);
+        if (cached == null) {
+            long loadedAt = generation.get();
+            cached = load(username);
+            if (generation.get() == loadedAt) {
+                cache.put(username, cached);
+            }
+        }
+        return new User(cached.username(), cached.passwordHash(), cached.authorities());
+    }
+
+    private CachedUser load(String username) {
         SysUser sysUser = userRepository.findByUsername(username)
                 .orElseThrow(() -> new UsernameNotFoundException("User not found with username: " + username));
 
@@ -43,6 +92,6 @@ public class CustomUserDetailsService implements UserDetailsService {
                 .map(role -> new SimpleGrantedAuthority("ROLE_" + role.getRoleName())) // 假设 roleName 的值形如 "ADMIN"、"USER"
                 .collect(Collectors.toList());
 
-        return new User(sysUser.getUsername(), sysUser.getPasswordHash(), authorities);
+        return new CachedUser(sysUser.getUsername(), sysUser.getPasswordHash(), authorities);
     }
 }
@@ -0,0 +1,178 @@
+package com.tesla.rental.security;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+// 按路由分组的令牌桶限流：每个分组内已登录请求按 JWT 用户名、匿名请求按客户端 IP 各自一个桶。
+// 桶用 GCRA 实现（与令牌桶等价）：只保存“理论到达时间”一个 long，CAS 更新，无锁；
+// 桶满（理论到达时间已过）即与新建的桶相同，可随时回收，定时清理不丢失任何限流状态。
+// 客户端数达到上限时先回收已补满的桶，仍不足再淘汰最接近补满（最久未活跃）的一批桶，每个客户端始终独占一个桶
+@Component
+public class RateLimiter {
+
+    // 允许通过时 tryAcquire 的返回值
+    public static final long ALLOWED = 0;
+
+    private final boolean enabled;
+    private final int maxClients;
+    private final List<Route> routes = new ArrayList<>();
+
+    public RateLimiter(@Value("${rental.rate-limit.enabled:true}") boolean enabled,
+                       @Value("${rental.rate-limit.routes:/api/ai:10:0.2,/api/auth:20:1,/api/export:5:0.1,/api:200:50}") String routes,
+                       @Value("${rental.rate-limit.max-clients:100000}") int maxClients) {
+        if (maxClients <= 0) {
+            throw new IllegalArgumentException("rental.rate-limit.max-clients must be positive: " + maxClients);
+        }
+        this.enabled = enabled;
+        this.maxClients = maxClients;
+        // 格式："路径前缀:桶容量:每秒补充令牌数,..."，按顺序取第一个匹配的前缀，更具体的前缀须写在前面；
+        // 配置错误时启动失败，而不是静默跳过该分组
+        for (String route : routes.split(",")) {
+            if (!route.isBlank()) {
+                this.routes.add(parse(route.trim()));
+            }
+        }
+    }
+
+    private Route parse(String route) {
+        String[] parts = route.split(":");
+        if (parts.length != 3 || parts[0].isBlank()) {
+            throw new IllegalArgumentException("Invalid rental.rate-limit.routes entry, expected prefix:capacity:refillPerSecond: " + route);
+        }
+        int capacity;
+        double refillPerSecond;
+        try {
+            capacity = Integer.parseInt(parts[1].trim());
+            refillPerSecond = Double.parseDouble(parts[2].trim());
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException("Invalid rental.rate-limit.routes entry: " + route, e);
+        }
+        if (capacity <= 0) {
+            throw new IllegalArgumentException("Rate limit capacity must be positive: " + route);
+        }
+        // 补充一个令牌的时长须为 1 纳秒以上的有限值
+        if (!(refillPerSecond > 0) || refillPerSecond > 1_000_000_000) {
+            throw new IllegalArgumentException("Rate limit refill per second must be in (0, 1e9]: " + route);
+        }
+        return new Route(parts[0].trim(), capacity, refillPerSecond);
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    // 返回 ALLOWED 表示放行，否则为需等待的纳秒数（即可用于 Retry-After 的时长）
+    public long tryAcquire(String path, String subject, String clientIp) {
+        Route route = route(path);
+        if (route == null) {
+            return ALLOWED;
+        }
+        return subject != null ? route.acquire(route.bySubject, subject) : route.acquire(route.byIp, clientIp);
+    }
+
+    private Route route(String path) {
+        for (Route route : routes) {
+            if (route.matches(path)) {
+                return route;
+            }
+        }
+        return null;
+    }
+
+    // 回收已补满的桶：与新建的桶等价，删除不改变限流结果
+    @Scheduled(fixedDelayString = "${rental.rate-limit.sweep-interval-ms:60000}")
+    public void sweep() {
+        long now = System.nanoTime();
+        for (Route route : routes) {
+            route.byIp.values().removeIf(bucket -> bucket.get() - now <= 0);
+            route.bySubject.values().removeIf(bucket -> bucket.get() - now <= 0);
+        }
+    }
+
+    public int clientCount() {
+        int count = 0;
+        for (Route route : routes) {
+            count += route.byIp.size() + route.bySubject.size();
+        }
+        return count;
+    }
+
+    private final class Route {
+
+        private final String prefix;
+        private final long intervalNanos;   // 补充一个令牌的时长
+        private final long burstNanos;      // 桶容量对应的时长
+        private final Map<String, AtomicLong> byIp = new ConcurrentHashMap<>();
+        private final Map<String, AtomicLong> bySubject = new ConcurrentHashMap<>();
+
+        private Route(String prefix, int capacity, double refillPerSecond) {
+            this.prefix = prefix.endsWith("/") ? prefix.substring(0, prefix.length() - 1) : prefix;
+            this.intervalNanos = (long) (1_000_000_000L / refillPerSecond);
+            this.burstNanos = intervalNanos * capacity;
+        }
+
+        private boolean matches(String path) {
+            return path.startsWith(prefix) && (path.length() == prefix.length() || path.charAt(prefix.length()) == '/');
+        }
+
+        private long acquire(Map<String, AtomicLong> buckets, String key) {
+            AtomicLong bucket = buckets.get(key);
+            if (bucket == null) {
+                if (buckets.size() >= maxClients) {
+                    evict(buckets);
+                }
+                bucket = buckets.computeIfAbsent(key, k -> new AtomicLong(System.nanoTime()));
+            }
+            // 清理与本次请求并发时可能更新到已移除的桶上，至多少计一次请求
+            while (true) {
+                long now = System.nanoTime();
+                long tat = bucket.get();
+                long next = Math.max(tat, now) + intervalNanos;
+                long wait = next - now - burstNanos;
+                if (wait > 0) {
+                    return wait;
+                }
+                if (bucket.compareAndSet(tat, next)) {
+                    return ALLOWED;
+                }
+            }
+        }
+
+        // 先回收已补满的桶（不丢失状态）；仍达到上限时淘汰理论到达时间最早的十分之一，
+        // 被淘汰的客户端下次按新桶计数；一次淘汰一批，扫描与排序的开销分摊到之后的新客户端上
+        private void evict(Map<String, AtomicLong> buckets) {
+            synchronized (buckets) {
+                if (buckets.size() < maxClients) {
+                    return;
+                }
+                long now = System.nanoTime();
+                buckets.values().removeIf(bucket -> bucket.get() - now <= 0);
+                if (buckets.size() < maxClients) {
+                    return;
+                }
+                long[] tats = new long[buckets.size()];
+                int size = 0;
+                for (AtomicLong bucket : buckets.values()) {
+                    if (size == tats.length) {
+                        break;
+                    }
+                    tats[size++] = bucket.get() - now;
+                }
+                if (size == 0) {
+                    return;
+                }
+                Arrays.sort(tats, 0, size);
+                long threshold = tats[Math.min(size, Math.max(1, maxClients / 10)) - 1];
+                buckets.values().removeIf(bucket -> bucket.get() - now <= threshold);
+            }
+        }
+    }
+}
@@ -1,7 +1,9 @@
 package com.tesla.rental.security;
 
+import jakarta.servlet.DispatcherType;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
+import org.springframework.http.HttpMethod;
 import org.springframework.security.authentication.AuthenticationManager;
 import org.springframework.security.authentication.dao.DaoAuthenticationProvider;
 import org.springframework.security.config.annotation.authentication.configuration.AuthenticationConfiguration;
@@ -20,12 +22,14 @@ public class SecurityConfig {
     private final CustomUserDetailsService userDetailsService;
     private final AuthEntryPointJwt unauthorizedHandler;
     private final JwtAuthenticationFilter jwtAuthenticationFilter;
+    private final RateLimiter rateLimiter;
 
     public SecurityConfig(CustomUserDetailsService userDetailsService, AuthEntryPointJwt unauthorizedHandler,
-            JwtAuthenticationFilter jwtAuthenticationFilter) {
+            JwtAuthenticationFilter jwtAuthenticationFilter, RateLimiter rateLimiter) {
         this.userDetailsService = userDetailsService;
         this.unauthorizedHandler = unauthorizedHandler;
         this.jwtAuthenticationFilter = jwtAuthenticationFilter;
+        this.rateLimiter = rateLimiter;
     }
 
     @Bean
@@ -52,17 +56,32 @@ public class SecurityConfig {
                 .exceptionHandling(exception -> exception.authenticationEntryPoint(unauthorizedHandler))
                 .sessionManagement(session -> session.sessionCreationPolicy(SessionCreationPolicy.STATELESS))
                 .authorizeHttpRequests(auth -> auth
+                        // 错误页转发不经过 JWT 过滤器，放行以保留原状态码（如 403 不被改写为 401）
+                        .dispatcherTypeMatchers(DispatcherType.ERROR).permitAll()
                         .requestMatchers("/api/auth/**").permitAll()
                         .requestMatchers("/index.html", "/customer.html", "/images/**", "/js/**", "/css/**").permitAll()
                         .requestMatchers("/api/ai/**").permitAll()
+                        // 全量重建、批量结算等管理操作仅限管理员，需在开发阶段放行的路径之前匹配
+                        .requestMatchers(HttpMethod.POST, "/api/reports/rebuild").hasRole("管理员")
+                        .requestMatchers(HttpMethod.POST, "/api/settlement/run").hasRole("管理员")
+                        .requestMatchers(HttpMethod.DELETE, "/api/settlement/checkpoint").hasRole("管理员")
+                        .requestMatchers(HttpMethod.POST, "/api/rebalance/apply").hasRole("管理员")
+                        .requestMatchers(HttpMethod.POST, "/api/forecast/rebuild").hasRole("管理员")
+                        .requestMatchers(HttpMethod.POST, "/api/orders/projection/rebuild", "/api/orders/projection/snapshot").hasRole("管理员")
                         // 开发阶段：允许所有车辆、车型、门店、客户、订单相关的请求
                         .requestMatchers("/api/vehicles/**", "/api/models/**", "/api/stores/**").permitAll()
                         .requestMatchers("/api/customers/**", "/api/orders/**").permitAll()
                         .requestMatchers("/api/payments/**", "/api/violations/**", "/api/maintenance/**").permitAll()
+                        .requestMatchers("/api/reports/**", "/api/export/**", "/api/settlement/**").permitAll()
+                        .requestMatchers("/api/quotes/**", "/api/rebalance/**", "/api/forecast/**", "/api/telemetry/**", "/api/alerts/**").permitAll()
+                        .requestMatchers("/api/search/**").permitAll()
+                        .requestMatchers("/api/changes/**").permitAll()
                         .anyRequest().authenticated());
 
         http.authenticationProvider(authenticationProvider());
         http.addFilterBefore(jwtAuthenticationFilter, UsernamePasswordAuthenticationFilter.class);
+        // 在 JWT 解析之后限流，已登录用户按用户名计数
+        http.addFilterAfter(new RateLimitFilter(rateLimiter), JwtAuthenticationFilter.class);
 
         return http.build();
     }
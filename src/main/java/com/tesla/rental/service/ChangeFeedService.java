@@ -0,0 +1,310 @@
+package com.tesla.rental.service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.tesla.rental.entity.Payment;
+import com.tesla.rental.entity.RentalOrder;
+import com.tesla.rental.entity.Vehicle;
+import com.tesla.rental.event.AfterCommit;
+import com.tesla.rental.event.EntityChangeEvent;
+import com.tesla.rental.payload.EntityDelta;
+import jakarta.annotation.PreDestroy;
+import jakarta.persistence.Entity;
+import org.springframework.beans.PropertyAccessor;
+import org.springframework.beans.PropertyAccessorFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+// 车辆/订单/支付的变更流：提交后把增量按提交顺序编号写入环形缓冲区，通过 SSE 推送给订阅方。
+// 客户端断线重连时带 Last-Event-ID 从断点续传；断点已被覆盖（离线太久或消费太慢）时收到 reset，需重新拉取全量列表
+@Service
+public class ChangeFeedService {
+
+    public static final Map<Class<?>, String> ENTITIES = Map.of(
+            Vehicle.class, "vehicle",
+            RentalOrder.class, "order",
+            Payment.class, "payment");
+
+    // 单个订阅方的推送进度：同一时刻只有一个线程向其发送（scheduled 置位者）
+    private static class Subscriber {
+        private final SseEmitter emitter;
+        private final Set<String> entities;
+        private volatile long cursor;           // 已推送到的版本
+        private volatile boolean heartbeatDue;
+        private final AtomicBoolean scheduled = new AtomicBoolean();
+
+        Subscriber(SseEmitter emitter, Set<String> entities, long cursor) {
+            this.emitter = emitter;
+            this.entities = entities;
+            this.cursor = cursor;
+        }
+    }
+
+    // 进程启动标识：重启后版本号从 0 开始，重启前的 Last-Event-ID 一律视为断点失效
+    private final String epoch = Long.toString(System.currentTimeMillis(), 36);
+
+    private final ObjectMapper objectMapper;
+    private final int batchSize;
+    private final EntityDelta[] ring;
+    private long version;                      // 最新版本，受 ring 锁保护
+    private volatile long publishedVersion;    // 供推送线程无锁读取
+
+    private final CopyOnWriteArrayList<Subscriber> subscribers = new CopyOnWriteArrayList<>();
+    // 每个订阅方同一时刻最多占用一个推送线程：不读数据的客户端在写阻塞时只卡住自己的线程（直到 Tomcat 写超时断开），
+    // 不影响写入方和其他订阅方；恢复读取后若已落后超过缓冲区，收到 reset
+    private final ExecutorService dispatcher = Executors.newCachedThreadPool(r -> {
+        Thread thread = new Thread(r, "change-feed-dispatch");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    public ChangeFeedService(ObjectMapper objectMapper,
+                             @Value("${rental.change-feed.buffer-size:50000}") int bufferSize,
+                             @Value("${rental.change-feed.batch-size:500}") int batchSize) {
+        this.objectMapper = objectMapper;
+        this.ring = new EntityDelta[bufferSize];
+        this.batchSize = batchSize;
+    }
+
+    // 增量在事务内（flush 时）计算，与事件携带的旧值对应；提交后才编号入队，回滚的写入不会推送
+    @EventListener
+    public void onEntityChange(EntityChangeEvent event) {
+        String entity = entityName(event.getEntityType());
+        if (entity == null) {
+            return;
+        }
+        EntityDelta delta = toDelta(entity, event);
+        if (delta != null) {
+            AfterCommit.run(() -> append(delta));
+        }
+    }
+
+    private static String entityName(Class<?> type) {
+        for (Map.Entry<Class<?>, String> entry : ENTITIES.entrySet()) {
+            if (entry.getKey().isAssignableFrom(type)) {
+                return entry.getValue();
+            }
+        }
+        return null;
+    }
+
+    @SuppressWarnings("unchecked")
+    private EntityDelta toDelta(String entity, EntityChangeEvent event) {
+        EntityDelta delta = new EntityDelta();
+        delta.setEntity(entity);
+        delta.setId(event.getId());
+        delta.setAction(event.getAction());
+        if (event.getAction() == EntityChangeEvent.Action.DELETE) {
+            return delta;
+        }
+        // 经应用的 ObjectMapper 转换，字段格式（日期、枚举标签）与列表接口一致
+        Map<String, Object> current = objectMapper.convertValue(event.getEntity(), Map.class);
+        Map<String, Object> fields = new LinkedHashMap<>();
+        if (event.getAction() == EntityChangeEvent.Action.INSERT) {
+            current.forEach((name, value) -> {
+                if (value != null) {
+                    fields.put(name, value);
+                }
+            });
+        } else {
+            PropertyAccessor accessor = PropertyAccessorFactory.forDirectFieldAccess(event.getEntity());
+            for (Map.Entry<String, Object> entry : event.getPrevious().entrySet()) {
+                String name = entry.getKey();
+                // 关联对象（如 carModel）不入增量，其外键列（modelId）已随修改推送
+                if (!current.containsKey(name) || isAssociation(accessor.getPropertyType(name))) {
+                    continue;
+                }
+                if (!sameValue(entry.getValue(), accessor.getPropertyValue(name))) {
+                    fields.put(name, current.get(name));
+                }
+            }
+            if (fields.isEmpty()) {
+                return null;
+            }
+        }
+        delta.setFields(fields);
+        return delta;
+    }
+
+    private static boolean isAssociation(Class<?> type) {
+        return type != null && type.isAnnotationPresent(Entity.class);
+    }
+
+    // 数据库读回的金额与内存中的标度可能不同（100 与 100.00）
+    private static boolean sameValue(Object before, Object after) {
+        if (before instanceof BigDecimal a && after instanceof BigDecimal b) {
+            return a.compareTo(b) == 0;
+        }
+        return Objects.equals(before, after);
+    }
+
+    private void append(EntityDelta delta) {
+        synchronized (ring) {
+            delta.setVersion(++version);
+            ring[(int) (version % ring.length)] = delta;
+            publishedVersion = version;
+        }
+        for (Subscriber subscriber : subscribers) {
+            schedule(subscriber);
+        }
+    }
+
+    // 读取 (after, after + limit] 区间；after 之后的增量已被覆盖时返回 null
+    private List<EntityDelta> read(long after, int limit) {
+        synchronized (ring) {
+            if (after < version - ring.length) {
+                return null;
+            }
+            long to = Math.min(version, after + limit);
+            List<EntityDelta> result = new ArrayList<>((int) (to - after));
+            for (long v = after + 1; v <= to; v++) {
+                result.add(ring[(int) (v % ring.length)]);
+            }
+            return result;
+        }
+    }
+
+    // ---------------- SSE 推送 ----------------
+
+    // lastEventId 为客户端最后收到的事件 ID（epoch-version），为空表示从当前位置开始
+    public SseEmitter subscribe(String lastEventId, Set<String> entities) {
+        SseEmitter emitter = new SseEmitter(0L);
+        long current = publishedVersion;
+        long resumeFrom = parseVersion(lastEventId);
+        boolean resumable = resumeFrom >= 0 && resumeFrom <= current && read(resumeFrom, 0) != null;
+        Subscriber subscriber = new Subscriber(emitter, entities, resumable ? resumeFrom : current);
+        try {
+            if (resumable) {
+                emitter.send(SseEmitter.event().name("resume").id(eventId(resumeFrom)).data(Map.of("version", resumeFrom)));
+            } else {
+                // 首次连接或断点失效：客户端以此为起点，先拉取全量列表再合并之后的增量
+                emitter.send(SseEmitter.event().name(lastEventId == null ? "ready" : "reset")
+                        .id(eventId(current)).data(Map.of("version", current)));
+            }
+        } catch (IOException e) {
+            emitter.completeWithError(e);
+            return emitter;
+        }
+        subscribers.add(subscriber);
+        emitter.onCompletion(() -> subscribers.remove(subscriber));
+        emitter.onTimeout(() -> subscribers.remove(subscriber));
+        emitter.onError(e -> subscribers.remove(subscriber));
+        schedule(subscriber);
+        return emitter;
+    }
+
+    private long parseVersion(String lastEventId) {
+        if (lastEventId == null) {
+            return -1;
+        }
+        int dash = lastEventId.lastIndexOf('-');
+        if (dash < 0 || !lastEventId.substring(0, dash).equals(epoch)) {
+            return -1;
+        }
+        try {
+            return Long.parseLong(lastEventId.substring(dash + 1));
+        } catch (NumberFormatException e) {
+            return -1;
+        }
+    }
+
+    private String eventId(long version) {
+        return epoch + "-" + version;
+    }
+
+    private void schedule(Subscriber subscriber) {
+        if (subscriber.scheduled.compareAndSet(false, true)) {
+            dispatcher.execute(() -> drain(subscriber));
+        }
+    }
+
+    // 按批推送到最新版本；落后超过缓冲区时发 reset 并跳到最新位置，慢客户端不会让服务端积压内存
+    private void drain(Subscriber subscriber) {
+        try {
+            while (true) {
+                if (subscriber.cursor < publishedVersion) {
+                    List<EntityDelta> batch = read(subscriber.cursor, batchSize);
+                    if (batch == null) {
+                        long current = publishedVersion;
+                        subscriber.emitter.send(SseEmitter.event().name("reset").id(eventId(current))
+                                .data(Map.of("version", current)));
+                        subscriber.cursor = current;
+                        continue;
+                    }
+                    List<EntityDelta> selected = new ArrayList<>(batch.size());
+                    for (EntityDelta delta : batch) {
+                        if (subscriber.entities.contains(delta.getEntity())) {
+                            selected.add(delta);
+                        }
+                    }
+                    long last = batch.get(batch.size() - 1).getVersion();
+                    if (!selected.isEmpty()) {
+                        subscriber.emitter.send(SseEmitter.event().name("changes").id(eventId(last)).data(selected));
+                    }
+                    subscriber.cursor = last;
+                    continue;
+                }
+                if (subscriber.heartbeatDue) {
+                    subscriber.heartbeatDue = false;
+                    subscriber.emitter.send(SseEmitter.event().comment("ping"));
+                }
+                subscriber.scheduled.set(false);
+                // 释放后再检查一次，避免与 append 的 schedule 交错时漏推
+                if ((subscriber.cursor >= publishedVersion && !subscriber.heartbeatDue)
+                        || !subscriber.scheduled.compareAndSet(false, true)) {
+                    return;
+                }
+            }
+        } catch (IOException | IllegalStateException e) {
+            subscribers.remove(subscriber);
+            subscriber.scheduled.set(false);
+        }
+    }
+
+    // 心跳：保持代理连接，并及时发现已断开的客户端
+    @Scheduled(fixedDelayString = "${rental.change-feed.heartbeat-ms:15000}")
+    public void heartbeat() {
+        for (Subscriber subscriber : subscribers) {
+            subscriber.heartbeatDue = true;
+            schedule(subscriber);
+        }
+    }
+
+    public Map<String, Object> status() {
+        Map<String, Object> status = new LinkedHashMap<>();
+        long current = publishedVersion;
+        status.put("epoch", epoch);
+        status.put("version", current);
+        status.put("oldestVersion", Math.max(current - ring.length + 1, 1));
+        status.put("bufferSize", ring.length);
+        status.put("subscribers", subscribers.size());
+        return status;
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        dispatcher.shutdownNow();
+        for (Subscriber subscriber : subscribers) {
+            try {
+                subscriber.emitter.complete();
+            } catch (IllegalStateException e) {
+                // 连接已被容器回收
+            }
+        }
+    }
+}
@@ -0,0 +1,214 @@
+package com.tesla.rental.service;
+
+import com.tesla.rental.entity.CarModel;
+import com.tesla.rental.entity.Customer;
+import com.tesla.rental.entity.Store;
+import com.tesla.rental.entity.SysRole;
+import com.tesla.rental.entity.SysUser;
+import com.tesla.rental.entity.SysUserRole;
+import com.tesla.rental.entity.Vehicle;
+import com.tesla.rental.event.EntityChangeEvent;
+import com.tesla.rental.event.RemoteChangeEvent;
+import jakarta.annotation.PostConstruct;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.context.annotation.DependsOn;
+import org.springframework.context.event.EventListener;
+import org.springframework.dao.DataAccessException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.lang.management.ManagementFactory;
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.atomic.AtomicLong;
+
+// 多实例缓存一致性：被缓存的实体（车辆、车型、门店、客户、用户/角色）每次写入时在同一事务内追加一行 change_log，
+// 各实例定期按 change_id 做 keyset 轮询，把其他实例的变更作为 RemoteChangeEvent 发布，订阅方使本地缓存失效或重新加载。
+// 不依赖消息中间件；缓存最多落后一个轮询间隔（提交顺序与 change_id 顺序不一致时，晚提交的变更在 gap-timeout 内补上）
+@Service
+@DependsOn("schemaMigrationService") // change_log 由 db/migration/common/V4 创建
+public class ChangeLogService {
+
+    private static final Logger log = LoggerFactory.getLogger(ChangeLogService.class);
+
+    public static final Map<String, Class<?>> ENTITIES = entities(Vehicle.class, CarModel.class, Store.class,
+            Customer.class, SysUser.class, SysUserRole.class, SysRole.class);
+
+    private static final int MAX_TRACKED_GAPS = 10_000;
+
+    private final JdbcTemplate jdbcTemplate;
+    private final ApplicationEventPublisher publisher;
+    private final boolean enabled;
+    private final String nodeId;
+    private final int batchSize;
+    private final long gapTimeoutMillis;
+    private final long retentionHours;
+
+    private volatile boolean ready;
+    private long cursor;                                       // 已读到的最大 change_id
+    private final Map<Long, Long> gaps = new LinkedHashMap<>(); // 尚未出现的 change_id -> 发现时间（毫秒）
+    private final AtomicLong applied = new AtomicLong();
+    private volatile LocalDateTime lastPolledAt;
+
+    public ChangeLogService(JdbcTemplate jdbcTemplate, ApplicationEventPublisher publisher,
+                            @Value("${rental.change-log.enabled:true}") boolean enabled,
+                            @Value("${rental.change-log.node-id:}") String nodeId,
+                            @Value("${rental.change-log.batch-size:1000}") int batchSize,
+                            @Value("${rental.change-log.gap-timeout-ms:10000}") long gapTimeoutMillis,
+                            @Value("${rental.change-log.retention-hours:24}") long retentionHours) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.publisher = publisher;
+        this.enabled = enabled;
+        // 默认取 进程号@主机名 加随机后缀，同一主机上的多个实例（以及同一 JVM 内的多个上下文）互不相同
+        this.nodeId = !nodeId.isBlank() ? nodeId
+                : ManagementFactory.getRuntimeMXBean().getName() + "-" + UUID.randomUUID().toString().substring(0, 8);
+        this.batchSize = batchSize;
+        this.gapTimeoutMillis = gapTimeoutMillis;
+        this.retentionHours = retentionHours;
+    }
+
+    private static Map<String, Class<?>> entities(Class<?>... types) {
+        Map<String, Class<?>> entities = new HashMap<>();
+        for (Class<?> type : types) {
+            entities.put(type.getSimpleName(), type);
+        }
+        return Collections.unmodifiableMap(entities);
+    }
+
+    public String getNodeId() {
+        return nodeId;
+    }
+
+    // 从当前最大 change_id 开始轮询：此前的变更已体现在各缓存启动时加载的数据中
+    @PostConstruct
+    public synchronized void init() {
+        if (!enabled) {
+            return;
+        }
+        try {
+            Long max = jdbcTemplate.queryForObject("SELECT MAX(change_id) FROM change_log", Long.class);
+            cursor = max != null ? max : 0;
+            ready = true;
+        } catch (DataAccessException e) {
+            log.warn("change_log is not available, cross-node cache invalidation is disabled: {}", e.getMessage());
+        }
+    }
+
+    // ---------------- 写入 ----------------
+
+    // 同步写入：事件在业务事务内发布（JPA 在 flush 时），变更日志与业务数据一起提交或回滚
+    @EventListener
+    public void onEntityChange(EntityChangeEvent event) {
+        if (!ready || !ENTITIES.containsKey(event.getEntityType().getSimpleName())) {
+            return;
+        }
+        Long id = event.getId() instanceof Number number ? number.longValue() : null;
+        jdbcTemplate.update("INSERT INTO change_log (entity, entity_id, action, node_id, changed_at) VALUES (?, ?, ?, ?, ?)",
+                event.getEntityType().getSimpleName(), id, event.getAction().name(), nodeId,
+                Timestamp.valueOf(LocalDateTime.now()));
+    }
+
+    // ---------------- 轮询 ----------------
+
+    @Scheduled(fixedDelayString = "${rental.change-log.poll-interval-ms:1000}")
+    public synchronized void poll() {
+        if (!ready) {
+            return;
+        }
+        lastPolledAt = LocalDateTime.now();
+        retryGaps();
+        while (true) {
+            List<Object[]> rows = jdbcTemplate.query("SELECT change_id, entity, entity_id, action, node_id FROM change_log"
+                            + " WHERE change_id > ? ORDER BY change_id LIMIT " + batchSize,
+                    (rs, i) -> new Object[] { rs.getLong(1), rs.getString(2), rs.getObject(3, Long.class), rs.getString(4),
+                            rs.getString(5) }, cursor);
+            long now = System.currentTimeMillis();
+            for (Object[] row : rows) {
+                long changeId = (Long) row[0];
+                // 跳过的编号可能属于尚未提交的事务，记下来在后续轮询中补读
+                for (long missing = cursor + 1; missing < changeId && gaps.size() < MAX_TRACKED_GAPS; missing++) {
+                    gaps.put(missing, now);
+                }
+                cursor = changeId;
+                apply(row);
+            }
+            if (rows.size() < batchSize) {
+                return;
+            }
+        }
+    }
+
+    // 补读之前跳过的编号；超过 gap-timeout 仍未出现的视为回滚或自增跳号，不再等待
+    private void retryGaps() {
+        if (gaps.isEmpty()) {
+            return;
+        }
+        long deadline = System.currentTimeMillis() - gapTimeoutMillis;
+        gaps.values().removeIf(since -> since < deadline);
+        List<Long> ids = new ArrayList<>(gaps.keySet());
+        for (int start = 0; start < ids.size(); start += batchSize) {
+            List<Long> chunk = ids.subList(start, Math.min(start + batchSize, ids.size()));
+            String placeholders = String.join(",", Collections.nCopies(chunk.size(), "?"));
+            List<Object[]> rows = jdbcTemplate.query("SELECT change_id, entity, entity_id, action, node_id FROM change_log"
+                            + " WHERE change_id IN (" + placeholders + ") ORDER BY change_id",
+                    (rs, i) -> new Object[] { rs.getLong(1), rs.getString(2), rs.getObject(3, Long.class), rs.getString(4),
+                            rs.getString(5) }, chunk.toArray());
+            for (Object[] row : rows) {
+                gaps.remove((Long) row[0]);
+                apply(row);
+            }
+        }
+    }
+
+    // 本实例的变更已由 EntityChangeEvent 处理，只发布其他实例的
+    private void apply(Object[] row) {
+        if (nodeId.equals(row[4])) {
+            return;
+        }
+        Class<?> type = ENTITIES.get((String) row[1]);
+        if (type == null) {
+            return;
+        }
+        try {
+            publisher.publishEvent(new RemoteChangeEvent(type, (Long) row[2], EntityChangeEvent.Action.valueOf((String) row[3])));
+            applied.incrementAndGet();
+        } catch (RuntimeException e) {
+            log.warn("Failed to apply remote change {} {} {}", row[1], row[2], row[3], e);
+        }
+    }
+
+    // 清理超过保留时长的变更；各实例都会执行，重复删除无副作用
+    @Scheduled(fixedDelayString = "${rental.change-log.cleanup-interval-ms:3600000}", initialDelay = 60000)
+    public void cleanup() {
+        if (!ready) {
+            return;
+        }
+        int deleted = jdbcTemplate.update("DELETE FROM change_log WHERE changed_at < ?",
+                Timestamp.valueOf(LocalDateTime.now().minusHours(retentionHours)));
+        if (deleted > 0) {
+            log.info("Removed {} change_log row(s) older than {} h", deleted, retentionHours);
+        }
+    }
+
+    public synchronized Map<String, Object> status() {
+        Map<String, Object> status = new LinkedHashMap<>();
+        status.put("enabled", ready);
+        status.put("nodeId", nodeId);
+        status.put("cursor", cursor);
+        status.put("pendingGaps", gaps.size());
+        status.put("appliedRemoteChanges", applied.get());
+        status.put("lastPolledAt", lastPolledAt);
+        return status;
+    }
+}
@@ -0,0 +1,101 @@
+package com.tesla.rental.service;
+
+import com.tesla.rental.entity.CarModel;
+import com.tesla.rental.entity.Store;
+import com.tesla.rental.entity.Vehicle;
+import com.tesla.rental.event.AfterCommit;
+import com.tesla.rental.event.EntityChangeEvent;
+import com.tesla.rental.event.RemoteChangeEvent;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.event.EventListener;
+import org.springframework.http.CacheControl;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.stereotype.Service;
+import org.springframework.web.context.request.WebRequest;
+
+import java.time.Duration;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+
+// 列表接口的版本号：车辆/车型/门店每次写入提交后版本加一，据此生成 ETag，
+// 客户端带 If-None-Match 重复拉取未变化的列表时直接返回 304，无需查询数据库和序列化
+@Service
+public class CollectionVersionService {
+
+    // 进程启动标识：重启后版本号从 0 开始，不能与重启前发出的 ETag 相同
+    private final String epoch = Long.toString(System.currentTimeMillis(), 36);
+
+    private final Map<Class<?>, AtomicLong> versions = Map.of(
+            Vehicle.class, new AtomicLong(),
+            CarModel.class, new AtomicLong(),
+            Store.class, new AtomicLong());
+
+    private final CacheControl referenceCacheControl;
+
+    public CollectionVersionService(@Value("${rental.http.reference-max-age-seconds:0}") long referenceMaxAgeSeconds) {
+        // 车型、门店很少变化，可配置浏览器在 max-age 内直接复用；默认每次都带 ETag 重新验证，保证页面写入后立即可见
+        this.referenceCacheControl = referenceMaxAgeSeconds > 0
+                ? CacheControl.maxAge(Duration.ofSeconds(referenceMaxAgeSeconds)).cachePrivate().mustRevalidate()
+                : CacheControl.noCache().cachePrivate();
+    }
+
+    // 提交后再加版本：若提交前加，可能有请求拿到新 ETag 却读到旧数据并被客户端长期缓存
+    @EventListener
+    public void onEntityChange(EntityChangeEvent event) {
+        if (event.isFor(Vehicle.class)) {
+            AfterCommit.run(() -> bump(Vehicle.class));
+        } else if (event.isFor(CarModel.class)) {
+            // 车辆列表中带有车型名称，车型变化同样使车辆列表失效
+            AfterCommit.run(() -> {
+                bump(CarModel.class);
+                bump(Vehicle.class);
+            });
+        } else if (event.isFor(Store.class)) {
+            AfterCommit.run(() -> bump(Store.class));
+        }
+    }
+
+    // 其他实例的写入（经 change_log 轮询得到）同样使本实例的列表版本失效
+    @EventListener
+    public void onRemoteChange(RemoteChangeEvent event) {
+        if (event.isFor(Vehicle.class)) {
+            bump(Vehicle.class);
+        } else if (event.isFor(CarModel.class)) {
+            bump(CarModel.class);
+            bump(Vehicle.class);
+        } else if (event.isFor(Store.class)) {
+            bump(Store.class);
+        }
+    }
+
+    private void bump(Class<?> type) {
+        versions.get(type).incrementAndGet();
+    }
+
+    // 须在查询数据之前取 ETag：期间若有写入，返回的数据比 ETag 新，下次请求只会多拉一次。
+    // 同一版本的 CBOR 编码与 ?fields= 裁剪结果是不同的表示，ETag 也须不同；
+    // 使用弱 ETag：Tomcat 不压缩带强 ETag 的响应，而 gzip 前后语义相同，弱校验即可
+    public String etag(Class<?> type, WebRequest request) {
+        StringBuilder etag = new StringBuilder("W/\"").append(type.getSimpleName().toLowerCase())
+                .append('-').append(epoch).append('-').append(versions.get(type).get());
+        String accept = request.getHeader(HttpHeaders.ACCEPT);
+        if (accept != null && accept.contains(MediaType.APPLICATION_CBOR_VALUE)) {
+            etag.append("-cbor");
+        }
+        String fields = request.getParameter("fields");
+        if (fields != null && !fields.isBlank()) {
+            etag.append("-f").append(Integer.toHexString(fields.hashCode()));
+        }
+        return etag.append('"').toString();
+    }
+
+    // 车辆状态、电量频繁变化：每次都重新验证
+    public CacheControl vehicleCacheControl() {
+        return CacheControl.noCache().cachePrivate();
+    }
+
+    public CacheControl referenceCacheControl() {
+        return referenceCacheControl;
+    }
+}
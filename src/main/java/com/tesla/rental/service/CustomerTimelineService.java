@@ -0,0 +1,115 @@
+package com.tesla.rental.service;
+
+import com.tesla.rental.entity.CustomerRollup;
+import com.tesla.rental.entity.Payment;
+import com.tesla.rental.entity.RentalOrder;
+import com.tesla.rental.entity.Violation;
+import com.tesla.rental.payload.CustomerTimeline;
+import com.tesla.rental.payload.TimelineEntry;
+import com.tesla.rental.repository.CustomerRollupRepository;
+import com.tesla.rental.shard.Shard;
+import com.tesla.rental.shard.ShardRouter;
+import com.tesla.rental.shard.ShardedOrderStore;
+import org.springframework.stereotype.Service;
+
+import java.time.LocalDateTime;
+import java.time.format.DateTimeParseException;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+// 客户时间线：按订单分页（键集分页，游标为上一页最后一个订单的计划取车时间与主键），每页附带这些订单的支付与违章，
+// 合并后按时间倒序返回；订单在各分片并行读取，支付/违章在所属订单的分片上按订单主键读取。
+// 汇总（累计消费、租车次数、违章罚款）直接读取 RollupService 增量维护的 rpt_customer_rollup，不再对订单/支付/违章做 JOIN 聚合
+@Service
+public class CustomerTimelineService {
+
+    public static final int MAX_LIMIT = 100;
+
+    // 同一时间的条目：订单在前，其次为支付、违章
+    private static final Comparator<TimelineEntry> ORDER = Comparator
+            .comparing(TimelineEntry::getTime, Comparator.nullsLast(Comparator.<LocalDateTime>reverseOrder()))
+            .thenComparing(TimelineEntry::getOrderId, Comparator.reverseOrder())
+            .thenComparing(TimelineEntry::getType);
+
+    private final ShardRouter router;
+    private final ShardedOrderStore orderStore;
+    private final CustomerRollupRepository customerRollupRepository;
+
+    public CustomerTimelineService(ShardRouter router, ShardedOrderStore orderStore,
+                                   CustomerRollupRepository customerRollupRepository) {
+        this.router = router;
+        this.orderStore = orderStore;
+        this.customerRollupRepository = customerRollupRepository;
+    }
+
+    // cursor 为空时返回第一页；格式不正确时抛出 IllegalArgumentException
+    public CustomerTimeline timeline(Long customerId, String cursor, int limit) {
+        int size = Math.max(1, Math.min(limit, MAX_LIMIT));
+        LocalDateTime beforeStart = null;
+        Long beforeId = null;
+        if (cursor != null && !cursor.isEmpty()) {
+            int split = cursor.lastIndexOf('_');
+            try {
+                String start = cursor.substring(0, Math.max(split, 0));
+                beforeStart = start.equals("-") ? null : LocalDateTime.parse(start);
+                beforeId = Long.parseLong(cursor.substring(split + 1));
+            } catch (DateTimeParseException | NumberFormatException | IndexOutOfBoundsException e) {
+                throw new IllegalArgumentException("Invalid cursor: " + cursor);
+            }
+        }
+
+        List<RentalOrder> orders = orderStore.findCustomerOrders(customerId, beforeStart, beforeId, size);
+        List<TimelineEntry> entries = new ArrayList<>();
+        Map<Long, RentalOrder> byId = new LinkedHashMap<>();
+        Map<Shard, List<Long>> idsByShard = new LinkedHashMap<>();
+        for (RentalOrder order : orders) {
+            entries.add(entry(TimelineEntry.Type.ORDER, order.getRentStart(), order.getOrderId(), order));
+            byId.put(order.getOrderId(), order);
+            idsByShard.computeIfAbsent(orderStore.shardOfOrder(order.getOrderId()), k -> new ArrayList<>())
+                    .add(order.getOrderId());
+        }
+        if (!idsByShard.isEmpty()) {
+            entries.addAll(router.scatter(new ArrayList<>(idsByShard.keySet()), shard -> {
+                List<Long> ids = idsByShard.get(shard);
+                List<TimelineEntry> children = new ArrayList<>();
+                for (Payment payment : orderStore.findPaymentsOfOrders(shard, ids)) {
+                    children.add(entry(TimelineEntry.Type.PAYMENT, byId.get(payment.getOrderId()).getRentStart(),
+                            payment.getOrderId(), payment));
+                }
+                for (Violation violation : orderStore.findViolationsOfOrders(shard, ids)) {
+                    LocalDateTime time = violation.getViolationTime() != null ? violation.getViolationTime()
+                            : byId.get(violation.getOrderId()).getRentStart();
+                    children.add(entry(TimelineEntry.Type.VIOLATION, time, violation.getOrderId(), violation));
+                }
+                return children;
+            }));
+        }
+        entries.sort(ORDER);
+
+        CustomerTimeline timeline = new CustomerTimeline();
+        timeline.setCustomerId(customerId);
+        timeline.setSummary(customerRollupRepository.findById(customerId).orElseGet(() -> {
+            CustomerRollup empty = new CustomerRollup();
+            empty.setCustomerId(customerId);
+            return empty;
+        }));
+        timeline.setEntries(entries);
+        if (orders.size() == size) {
+            RentalOrder last = orders.get(orders.size() - 1);
+            timeline.setNextCursor((last.getRentStart() != null ? last.getRentStart().toString() : "-") + "_" + last.getOrderId());
+        }
+        return timeline;
+    }
+
+    private static TimelineEntry entry(TimelineEntry.Type type, LocalDateTime time, Long orderId, Object detail) {
+        TimelineEntry entry = new TimelineEntry();
+        entry.setType(type);
+        entry.setTime(time);
+        entry.setOrderId(orderId);
+        entry.setDetail(detail);
+        return entry;
+    }
+}
@@ -0,0 +1,240 @@
+package com.tesla.rental.service;
+
+import com.tesla.rental.entity.Customer;
+import com.tesla.rental.event.EntityChangeEvent;
+import com.tesla.rental.payload.CustomerUpsertResult;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.dao.DataAccessException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.support.JdbcUtils;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.sql.DatabaseMetaData;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+// 客户批量 upsert（合作方 CRM 导入）：按手机号唯一索引 idx_customer_phone 批量写入，
+// 每批至多三条语句（查已有、批量 upsert、回读新增行主键），替代逐个客户 findByPhone + save。
+// 与单个新增接口一致：传入为 null 的字段不覆盖已有值
+@Service
+public class CustomerUpsertService {
+
+    // MySQL 8.0.19+ 用行别名引用新值（VALUES(col) 已弃用）；MariaDB 不支持行别名，仍用 VALUES(col)
+    private static final String MYSQL_UPSERT = "INSERT INTO customer (phone, name, id_card, driver_license) VALUES (?, ?, ?, ?)"
+            + " AS new ON DUPLICATE KEY UPDATE name = COALESCE(new.name, name),"
+            + " id_card = COALESCE(new.id_card, id_card), driver_license = COALESCE(new.driver_license, driver_license)";
+    private static final String MARIADB_UPSERT = "INSERT INTO customer (phone, name, id_card, driver_license) VALUES (?, ?, ?, ?)"
+            + " ON DUPLICATE KEY UPDATE name = COALESCE(VALUES(name), name),"
+            + " id_card = COALESCE(VALUES(id_card), id_card), driver_license = COALESCE(VALUES(driver_license), driver_license)";
+    private static final String H2_UPSERT = "MERGE INTO customer c USING (VALUES (CAST(? AS VARCHAR), CAST(? AS VARCHAR),"
+            + " CAST(? AS VARCHAR), CAST(? AS VARCHAR))) s (phone, name, id_card, driver_license) ON c.phone = s.phone"
+            + " WHEN MATCHED THEN UPDATE SET name = COALESCE(s.name, c.name), id_card = COALESCE(s.id_card, c.id_card),"
+            + " driver_license = COALESCE(s.driver_license, c.driver_license)"
+            + " WHEN NOT MATCHED THEN INSERT (phone, name, id_card, driver_license) VALUES (s.phone, s.name, s.id_card, s.driver_license)";
+
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate transactionTemplate;
+    private final ApplicationEventPublisher publisher;
+    private volatile String upsertSql;
+
+    @Value("${rental.customer-upsert.batch-size:1000}")
+    private int batchSize;
+
+    public CustomerUpsertService(JdbcTemplate jdbcTemplate, PlatformTransactionManager transactionManager,
+                                 ApplicationEventPublisher publisher) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.publisher = publisher;
+    }
+
+    public CustomerUpsertResult upsert(List<Customer> customers) {
+        long startNanos = System.nanoTime();
+        CustomerUpsertResult result = new CustomerUpsertResult();
+        result.setTotal(customers.size());
+        // 同一请求中重复的手机号按顺序生效，后出现的视为对前者的更新
+        Set<String> seen = new HashSet<>();
+        List<Integer> valid = new ArrayList<>();
+        CustomerUpsertResult.Row[] rows = new CustomerUpsertResult.Row[customers.size()];
+        for (int i = 0; i < customers.size(); i++) {
+            Customer customer = customers.get(i);
+            CustomerUpsertResult.Row row = new CustomerUpsertResult.Row();
+            row.setIndex(i);
+            rows[i] = row;
+            String phone = customer != null && customer.getPhone() != null ? customer.getPhone().trim() : "";
+            row.setPhone(phone);
+            if (phone.isEmpty()) {
+                row.setStatus(CustomerUpsertResult.Status.FAILED);
+                row.setMessage("手机号不能为空");
+                continue;
+            }
+            customer.setPhone(phone);
+            valid.add(i);
+        }
+        for (int start = 0; start < valid.size(); start += batchSize) {
+            List<Integer> chunk = valid.subList(start, Math.min(start + batchSize, valid.size()));
+            try {
+                transactionTemplate.executeWithoutResult(tx -> write(customers, chunk, rows, seen));
+            } catch (DataAccessException e) {
+                // 整批失败时逐行重试，定位出错的行
+                for (Integer index : chunk) {
+                    try {
+                        transactionTemplate.executeWithoutResult(tx -> write(customers, List.of(index), rows, seen));
+                    } catch (DataAccessException rowError) {
+                        rows[index].setStatus(CustomerUpsertResult.Status.FAILED);
+                        String message = String.valueOf(rowError.getMostSpecificCause().getMessage());
+                        rows[index].setMessage(message.lines().findFirst().orElse(message));
+                    }
+                }
+            }
+        }
+        for (CustomerUpsertResult.Row row : rows) {
+            if (row.getStatus() == CustomerUpsertResult.Status.INSERTED) {
+                result.setInserted(result.getInserted() + 1);
+            } else if (row.getStatus() == CustomerUpsertResult.Status.UPDATED) {
+                result.setUpdated(result.getUpdated() + 1);
+            } else {
+                result.setFailed(result.getFailed() + 1);
+            }
+            result.getRows().add(row);
+        }
+        long elapsedNanos = System.nanoTime() - startNanos;
+        result.setElapsedMillis(elapsedNanos / 1_000_000);
+        result.setRowsPerSecond(elapsedNanos > 0 ? customers.size() * 1_000_000_000L / elapsedNanos : 0);
+        return result;
+    }
+
+    private void write(List<Customer> customers, List<Integer> chunk, CustomerUpsertResult.Row[] rows, Set<String> seen) {
+        Map<String, Customer> before = load(chunk, customers);
+        List<Object[]> batch = new ArrayList<>(chunk.size());
+        // 按与 upsert 语句相同的规则（null 不覆盖）在内存中推算每个手机号的最终值
+        Map<String, Customer> after = new LinkedHashMap<>();
+        for (Integer index : chunk) {
+            Customer customer = customers.get(index);
+            batch.add(new Object[] { customer.getPhone(), customer.getName(), customer.getIdCard(), customer.getDriverLicense() });
+            Customer current = after.get(customer.getPhone());
+            if (current == null) {
+                current = new Customer();
+                Customer existing = before.get(customer.getPhone());
+                if (existing != null) {
+                    current.setCustomerId(existing.getCustomerId());
+                    current.setName(existing.getName());
+                    current.setIdCard(existing.getIdCard());
+                    current.setDriverLicense(existing.getDriverLicense());
+                }
+                current.setPhone(customer.getPhone());
+                after.put(customer.getPhone(), current);
+            }
+            if (customer.getName() != null) current.setName(customer.getName());
+            if (customer.getIdCard() != null) current.setIdCard(customer.getIdCard());
+            if (customer.getDriverLicense() != null) current.setDriverLicense(customer.getDriverLicense());
+        }
+        jdbcTemplate.batchUpdate(upsertSql(), batch);
+        loadNewIds(after);
+
+        Set<String> chunkSeen = new HashSet<>();
+        for (Integer index : chunk) {
+            String phone = customers.get(index).getPhone();
+            CustomerUpsertResult.Row row = rows[index];
+            row.setCustomerId(after.get(phone).getCustomerId());
+            boolean existed = before.containsKey(phone) || seen.contains(phone) || !chunkSeen.add(phone);
+            row.setStatus(existed ? CustomerUpsertResult.Status.UPDATED : CustomerUpsertResult.Status.INSERTED);
+            row.setMessage(null);
+        }
+        // 每个手机号按最终状态发布一次变更事件
+        for (Map.Entry<String, Customer> entry : after.entrySet()) {
+            Customer previous = before.get(entry.getKey());
+            Customer saved = entry.getValue();
+            if (previous == null) {
+                publisher.publishEvent(new EntityChangeEvent(Customer.class, saved.getCustomerId(),
+                        EntityChangeEvent.Action.INSERT, saved, null));
+            } else if (!previous.equals(saved)) {
+                Map<String, Object> old = new LinkedHashMap<>();
+                old.put("name", previous.getName());
+                old.put("phone", previous.getPhone());
+                old.put("idCard", previous.getIdCard());
+                old.put("driverLicense", previous.getDriverLicense());
+                publisher.publishEvent(new EntityChangeEvent(Customer.class, saved.getCustomerId(),
+                        EntityChangeEvent.Action.UPDATE, saved, old));
+            }
+        }
+        seen.addAll(chunkSeen);
+    }
+
+    private Map<String, Customer> load(List<Integer> chunk, List<Customer> customers) {
+        Set<String> phones = new HashSet<>();
+        for (Integer index : chunk) {
+            phones.add(customers.get(index).getPhone());
+        }
+        Map<String, Customer> result = new HashMap<>();
+        jdbcTemplate.query("SELECT customer_id, name, phone, id_card, driver_license FROM customer WHERE phone IN ("
+                + "?, ".repeat(phones.size() - 1) + "?)", rs -> {
+            Customer customer = new Customer();
+            customer.setCustomerId(rs.getLong("customer_id"));
+            customer.setName(rs.getString("name"));
+            customer.setPhone(rs.getString("phone"));
+            customer.setIdCard(rs.getString("id_card"));
+            customer.setDriverLicense(rs.getString("driver_license"));
+            result.put(customer.getPhone(), customer);
+        }, phones.toArray());
+        return result;
+    }
+
+    // 只为本批新增的手机号回读主键
+    private void loadNewIds(Map<String, Customer> after) {
+        List<String> phones = new ArrayList<>();
+        after.forEach((phone, customer) -> {
+            if (customer.getCustomerId() == null) {
+                phones.add(phone);
+            }
+        });
+        if (phones.isEmpty()) {
+            return;
+        }
+        jdbcTemplate.query("SELECT customer_id, phone FROM customer WHERE phone IN ("
+                + "?, ".repeat(phones.size() - 1) + "?)", rs -> {
+            after.get(rs.getString("phone")).setCustomerId(rs.getLong("customer_id"));
+        }, phones.toArray());
+    }
+
+    // H2 使用标准 MERGE，MySQL/MariaDB 使用 INSERT ... ON DUPLICATE KEY UPDATE
+    private String upsertSql() {
+        if (upsertSql == null) {
+            upsertSql = jdbcTemplate.execute((java.sql.Connection connection) -> {
+                DatabaseMetaData metaData = connection.getMetaData();
+                if ("H2".equalsIgnoreCase(JdbcUtils.commonDatabaseName(metaData.getDatabaseProductName()))) {
+                    return H2_UPSERT;
+                }
+                return supportsRowAlias(metaData) ? MYSQL_UPSERT : MARIADB_UPSERT;
+            });
+        }
+        return upsertSql;
+    }
+
+    // MySQL Connector/J 连接 MariaDB 时产品名同为 MySQL，版本串形如 5.5.5-10.11.5-MariaDB
+    static boolean supportsRowAlias(DatabaseMetaData metaData) throws SQLException {
+        String version = metaData.getDatabaseProductVersion();
+        if (version == null || version.toLowerCase(Locale.ROOT).contains("mariadb")
+                || "MariaDB".equalsIgnoreCase(metaData.getDatabaseProductName())) {
+            return false;
+        }
+        int major = metaData.getDatabaseMajorVersion();
+        int minor = metaData.getDatabaseMinorVersion();
+        if (major != 8 || minor != 0) {
+            return major > 8 || (major == 8 && minor > 0);
+        }
+        Matcher patch = Pattern.compile("^8\\.0\\.(\\d+)").matcher(version);
+        return patch.find() && Integer.parseInt(patch.group(1)) >= 19;
+    }
+}
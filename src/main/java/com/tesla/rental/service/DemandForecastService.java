@@ -0,0 +1,442 @@
+package com.tesla.rental.service;
+
+import com.tesla.rental.entity.RentalOrder;
+import com.tesla.rental.entity.Vehicle;
+import com.tesla.rental.event.AfterCommit;
+import com.tesla.rental.event.EntityChangeEvent;
+import com.tesla.rental.event.RemoteChangeEvent;
+import com.tesla.rental.shard.Shard;
+import com.tesla.rental.shard.ShardIdGenerator;
+import com.tesla.rental.shard.ShardRouter;
+import lombok.Data;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import jakarta.annotation.PreDestroy;
+import java.sql.Timestamp;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+// 取车需求预测：按 (门店, 车型, 周内小时) 对每周取车量做指数平滑，
+// 每个新订单只更新一个格子，不再回扫历史订单（替代按月全表统计的趋势查询）。
+// 内存中维护实时估计，定期批量落库 demand_forecast，并以 batch_checkpoint 记录已计入的最大订单号，
+// 重启后只补算断点之后的订单。订单分片时每个分片各有一个断点（0 号分片为 demand-forecast，其余为 demand-forecast#分片号），都存于主库
+@Service
+public class DemandForecastService {
+
+    public static final String JOB_NAME = "demand-forecast";
+    public static final int HOURS_PER_WEEK = 168;
+
+    private static final int REPLAY_CHUNK = 5000;
+    private static final LocalDate EPOCH_MONDAY = LocalDate.of(1970, 1, 5);
+
+    // 单个预测格子；同一格子的读写在自身上加锁
+    static class Cell {
+        double level;
+        long week = Long.MIN_VALUE;
+        long count;
+        boolean dirty;
+    }
+
+    record Key(long storeId, long modelId, int hourOfWeek) {
+    }
+
+    @Data
+    public static class SlotForecast {
+        private LocalDateTime hourStart;
+        private Integer hourOfWeek;
+        private Double expected;
+    }
+
+    @Data
+    public static class StoreModelForecast {
+        private Long storeId;
+        private Long modelId;
+        private Double expected;
+    }
+
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate transactionTemplate;
+    private final ShardRouter shards;
+    private final double alpha;
+
+    private final ConcurrentHashMap<Key, Cell> cells = new ConcurrentHashMap<>();
+    private final ConcurrentHashMap<Long, Long> vehicleModels = new ConcurrentHashMap<>();
+    private final AtomicLongArray highWaterOrderIds;
+    private final AtomicLong appliedCount = new AtomicLong();
+    private volatile boolean loaded;
+
+    public DemandForecastService(JdbcTemplate jdbcTemplate, PlatformTransactionManager transactionManager,
+                                 ShardRouter shards, @Value("${rental.forecast.alpha:0.3}") double alpha) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.shards = shards;
+        this.highWaterOrderIds = new AtomicLongArray(shards.size());
+        this.alpha = alpha;
+    }
+
+    // 启动时加载已保存的估计，并补算断点之后的订单（首次上线时即为全部历史订单）
+    @EventListener(ApplicationReadyEvent.class)
+    public synchronized void onReady() {
+        load();
+        replay();
+        loaded = true;
+        flush();
+    }
+
+    // 订单提交后计入其取车门店/车型/时段；车辆变更时丢弃缓存的车型
+    @EventListener
+    public void onEntityChange(EntityChangeEvent event) {
+        if (event.isFor(Vehicle.class)) {
+            AfterCommit.run(() -> vehicleModels.remove((Long) event.getId()));
+            return;
+        }
+        if (!event.isFor(RentalOrder.class) || event.getAction() != EntityChangeEvent.Action.INSERT) {
+            return;
+        }
+        RentalOrder order = event.getEntity(RentalOrder.class);
+        AfterCommit.run(() -> record(order.getOrderId(), order.getPickupStoreId(), modelOf(order.getVehicleId()),
+                order.getRentStart()));
+    }
+
+    // 其他实例修改的车辆：丢弃缓存的车型，下次使用时重新查询
+    @EventListener
+    public void onRemoteChange(RemoteChangeEvent event) {
+        if (event.isFor(Vehicle.class)) {
+            if (event.getId() != null) {
+                vehicleModels.remove(event.getId());
+            } else {
+                vehicleModels.clear();
+            }
+        }
+    }
+
+    private Long modelOf(Long vehicleId) {
+        if (vehicleId == null) {
+            return null;
+        }
+        Long modelId = vehicleModels.get(vehicleId);
+        if (modelId == null) {
+            List<Long> models = jdbcTemplate.queryForList("SELECT model_id FROM vehicle WHERE vehicle_id = ?",
+                    Long.class, vehicleId);
+            modelId = models.isEmpty() ? null : models.get(0);
+            if (modelId != null) {
+                vehicleModels.put(vehicleId, modelId);
+            }
+        }
+        return modelId;
+    }
+
+    // ---------------- 增量更新 ----------------
+
+    private void record(Long orderId, Long storeId, Long modelId, LocalDateTime rentStart) {
+        if (storeId == null || modelId == null || rentStart == null) {
+            return;
+        }
+        Cell cell = cells.computeIfAbsent(new Key(storeId, modelId, hourOfWeek(rentStart)), k -> new Cell());
+        long week = weekOf(rentStart);
+        synchronized (cell) {
+            if (cell.week == Long.MIN_VALUE) {
+                cell.week = week;
+                cell.count = 1;
+            } else if (week == cell.week) {
+                cell.count++;
+            } else if (week > cell.week) {
+                // 结转当前周，中间没有订单的周按 0 平滑
+                cell.level = decay(alpha * cell.count + (1 - alpha) * cell.level, week - cell.week - 1);
+                cell.week = week;
+                cell.count = 1;
+            } else {
+                // 迟到的历史订单：直接补上它在平滑值中的权重
+                cell.level += alpha * Math.pow(1 - alpha, cell.week - week - 1);
+            }
+            cell.dirty = true;
+        }
+        if (orderId != null) {
+            highWaterOrderIds.accumulateAndGet(ShardIdGenerator.shardOf(orderId), orderId, Math::max);
+        }
+        appliedCount.incrementAndGet();
+    }
+
+    private double decay(double value, long weeks) {
+        return weeks <= 0 ? value : value * Math.pow(1 - alpha, weeks);
+    }
+
+    // 以 asOfWeek 为预测周：更早的累计周先结转；当前周取已有订单量与平滑值中的较大者
+    private double estimate(Cell cell, long asOfWeek) {
+        synchronized (cell) {
+            if (cell.week == Long.MIN_VALUE) {
+                return 0;
+            }
+            if (cell.week < asOfWeek) {
+                return decay(alpha * cell.count + (1 - alpha) * cell.level, asOfWeek - cell.week - 1);
+            }
+            if (cell.week == asOfWeek) {
+                return Math.max(cell.level, cell.count);
+            }
+            return cell.level;
+        }
+    }
+
+    // ---------------- 查询 ----------------
+
+    // 某门店某车型从 from 起逐小时的预计取车量
+    public List<SlotForecast> hourly(Long storeId, Long modelId, LocalDateTime from, int hours) {
+        LocalDateTime start = from.truncatedTo(ChronoUnit.HOURS);
+        long currentWeek = weekOf(LocalDateTime.now());
+        List<SlotForecast> result = new ArrayList<>(hours);
+        for (int i = 0; i < hours; i++) {
+            LocalDateTime hourStart = start.plusHours(i);
+            int slot = hourOfWeek(hourStart);
+            Cell cell = cells.get(new Key(storeId, modelId, slot));
+            SlotForecast forecast = new SlotForecast();
+            forecast.setHourStart(hourStart);
+            forecast.setHourOfWeek(slot);
+            forecast.setExpected(cell != null ? round(estimate(cell, Math.max(weekOf(hourStart), currentWeek))) : 0.0);
+            result.add(forecast);
+        }
+        return result;
+    }
+
+    public double expectedPickups(Long storeId, Long modelId, LocalDateTime from, LocalDateTime to) {
+        double total = 0;
+        int hours = (int) Math.max(ChronoUnit.HOURS.between(from.truncatedTo(ChronoUnit.HOURS), to), 0);
+        for (SlotForecast slot : hourly(storeId, modelId, from, hours)) {
+            total += slot.getExpected();
+        }
+        return total;
+    }
+
+    // 所有门店/车型在 [from, to) 内的预计取车量：按周内小时出现次数加权，每个格子只计算一次
+    public List<StoreModelForecast> expectedPickups(LocalDateTime from, LocalDateTime to) {
+        int[] occurrences = new int[HOURS_PER_WEEK];
+        LocalDateTime start = from.truncatedTo(ChronoUnit.HOURS);
+        long hours = Math.max(ChronoUnit.HOURS.between(start, to), 0);
+        int firstSlot = hourOfWeek(start);
+        for (int slot = 0; slot < HOURS_PER_WEEK; slot++) {
+            int offset = Math.floorMod(slot - firstSlot, HOURS_PER_WEEK);
+            occurrences[slot] = offset < hours ? (int) ((hours - 1 - offset) / HOURS_PER_WEEK + 1) : 0;
+        }
+        long asOfWeek = Math.max(weekOf(start), weekOf(LocalDateTime.now()));
+        Map<List<Long>, Double> totals = new HashMap<>();
+        cells.forEach((key, cell) -> {
+            int times = occurrences[key.hourOfWeek()];
+            if (times > 0) {
+                totals.merge(List.of(key.storeId(), key.modelId()), estimate(cell, asOfWeek) * times, Double::sum);
+            }
+        });
+        List<StoreModelForecast> result = new ArrayList<>(totals.size());
+        totals.forEach((key, expected) -> {
+            StoreModelForecast forecast = new StoreModelForecast();
+            forecast.setStoreId(key.get(0));
+            forecast.setModelId(key.get(1));
+            forecast.setExpected(round(expected));
+            result.add(forecast);
+        });
+        result.sort((a, b) -> a.getStoreId().equals(b.getStoreId())
+                ? a.getModelId().compareTo(b.getModelId()) : a.getStoreId().compareTo(b.getStoreId()));
+        return result;
+    }
+
+    public Map<String, Object> status() {
+        Map<String, Object> status = new HashMap<>();
+        status.put("alpha", alpha);
+        status.put("cells", cells.size());
+        status.put("appliedOrders", appliedCount.get());
+        status.put("lastOrderId", highWaterOrderIds.get(0));
+        if (shards.size() > 1) {
+            List<Long> lastOrderIds = new ArrayList<>();
+            for (int i = 0; i < shards.size(); i++) {
+                lastOrderIds.add(highWaterOrderIds.get(i));
+            }
+            status.put("shardLastOrderIds", lastOrderIds);
+        }
+        return status;
+    }
+
+    // ---------------- 持久化 ----------------
+
+    private void load() {
+        jdbcTemplate.query("SELECT store_id, model_id, hour_of_week, level, current_week, current_count FROM demand_forecast",
+                rs -> {
+                    Cell cell = new Cell();
+                    cell.level = rs.getDouble("level");
+                    long week = rs.getLong("current_week");
+                    cell.week = rs.wasNull() ? Long.MIN_VALUE : week;
+                    cell.count = rs.getLong("current_count");
+                    cells.put(new Key(rs.getLong("store_id"), rs.getLong("model_id"), rs.getInt("hour_of_week")), cell);
+                });
+        jdbcTemplate.query("SELECT last_id, processed_count FROM batch_checkpoint WHERE job_name = ?",
+                rs -> {
+                    highWaterOrderIds.set(0, rs.getLong("last_id"));
+                    appliedCount.set(rs.getLong("processed_count"));
+                }, JOB_NAME);
+        for (int i = 1; i < shards.size(); i++) {
+            int shard = i;
+            jdbcTemplate.query("SELECT last_id FROM batch_checkpoint WHERE job_name = ?",
+                    rs -> {
+                        highWaterOrderIds.set(shard, rs.getLong("last_id"));
+                    }, checkpointName(shard));
+        }
+    }
+
+    private static String checkpointName(int shard) {
+        return shard == 0 ? JOB_NAME : JOB_NAME + "#" + shard;
+    }
+
+    // 按主键分块补算断点之后的订单；上界取开始时的最大订单号，之后的新订单由事件计入。
+    // 其余分片与车辆表不在同一个库，先把车辆车型整体读入缓存，再逐行查缓存
+    private void replay() {
+        for (Shard shard : shards.all()) {
+            if (!shard.isPrimary() && vehicleModels.isEmpty()) {
+                jdbcTemplate.query("SELECT vehicle_id, model_id FROM vehicle WHERE model_id IS NOT NULL",
+                        rs -> {
+                            vehicleModels.put(rs.getLong(1), rs.getLong(2));
+                        });
+            }
+            replay(shard);
+        }
+    }
+
+    private void replay(Shard shard) {
+        JdbcTemplate source = shard.getJdbcTemplate();
+        String sql = shard.isPrimary()
+                ? "SELECT o.order_id, o.pickup_store_id, v.model_id, o.rent_start FROM rental_order o"
+                        + " LEFT JOIN vehicle v ON v.vehicle_id = o.vehicle_id"
+                        + " WHERE o.order_id > ? AND o.order_id <= ? ORDER BY o.order_id LIMIT " + REPLAY_CHUNK
+                : "SELECT order_id, pickup_store_id, vehicle_id, rent_start FROM rental_order"
+                        + " WHERE order_id > ? AND order_id <= ? ORDER BY order_id LIMIT " + REPLAY_CHUNK;
+        Long maxId = source.queryForObject("SELECT MAX(order_id) FROM rental_order", Long.class);
+        long lastId = highWaterOrderIds.get(shard.getIndex());
+        while (maxId != null && lastId < maxId) {
+            List<Object[]> rows = source.query(sql,
+                    (rs, i) -> new Object[] { rs.getLong(1), rs.getObject(2, Long.class), rs.getObject(3, Long.class),
+                            rs.getTimestamp(4) },
+                    lastId, maxId);
+            if (rows.isEmpty()) {
+                break;
+            }
+            for (Object[] row : rows) {
+                Timestamp rentStart = (Timestamp) row[3];
+                Long modelId = shard.isPrimary() ? (Long) row[2] : modelOf((Long) row[2]);
+                record((Long) row[0], (Long) row[1], modelId, rentStart != null ? rentStart.toLocalDateTime() : null);
+            }
+            lastId = (Long) rows.get(rows.size() - 1)[0];
+            highWaterOrderIds.accumulateAndGet(shard.getIndex(), lastId, Math::max);
+        }
+    }
+
+    // 定期把有变化的格子批量写回，并在同一事务内推进断点
+    @Scheduled(fixedDelayString = "${rental.forecast.flush-interval-ms:30000}")
+    public void flush() {
+        // 加载完成前不能写断点，否则会覆盖尚未读取的进度
+        if (!loaded) {
+            return;
+        }
+        List<Object[]> updates = new ArrayList<>();
+        List<Cell> flushed = new ArrayList<>();
+        cells.forEach((key, cell) -> {
+            synchronized (cell) {
+                if (!cell.dirty) {
+                    return;
+                }
+                cell.dirty = false;
+                updates.add(new Object[] { cell.level, cell.week == Long.MIN_VALUE ? null : cell.week, cell.count,
+                        LocalDateTime.now(), key.storeId(), key.modelId(), key.hourOfWeek() });
+                flushed.add(cell);
+            }
+        });
+        long[] lastIds = new long[shards.size()];
+        for (int i = 0; i < lastIds.length; i++) {
+            lastIds[i] = highWaterOrderIds.get(i);
+        }
+        try {
+            transactionTemplate.executeWithoutResult(tx -> {
+                for (int start = 0; start < updates.size(); start += 1000) {
+                    List<Object[]> chunk = updates.subList(start, Math.min(start + 1000, updates.size()));
+                    int[] counts = jdbcTemplate.batchUpdate("UPDATE demand_forecast SET level = ?, current_week = ?,"
+                            + " current_count = ?, updated_at = ? WHERE store_id = ? AND model_id = ? AND hour_of_week = ?", chunk);
+                    List<Object[]> inserts = new ArrayList<>();
+                    for (int i = 0; i < counts.length; i++) {
+                        if (counts[i] == 0) {
+                            inserts.add(chunk.get(i));
+                        }
+                    }
+                    if (!inserts.isEmpty()) {
+                        jdbcTemplate.batchUpdate("INSERT INTO demand_forecast (level, current_week, current_count, updated_at,"
+                                + " store_id, model_id, hour_of_week) VALUES (?, ?, ?, ?, ?, ?, ?)", inserts);
+                    }
+                }
+                // 已计入订单数记在 0 号分片的断点上
+                for (int i = 0; i < lastIds.length; i++) {
+                    long processed = i == 0 ? appliedCount.get() : 0;
+                    int updated = jdbcTemplate.update(
+                            "UPDATE batch_checkpoint SET last_id = ?, processed_count = ?, updated_at = ? WHERE job_name = ?",
+                            lastIds[i], processed, LocalDateTime.now(), checkpointName(i));
+                    if (updated == 0) {
+                        jdbcTemplate.update("INSERT INTO batch_checkpoint (job_name, last_id, processed_count, updated_at)"
+                                + " VALUES (?, ?, ?, ?)", checkpointName(i), lastIds[i], processed, LocalDateTime.now());
+                    }
+                }
+            });
+        } catch (RuntimeException e) {
+            for (Cell cell : flushed) {
+                synchronized (cell) {
+                    cell.dirty = true;
+                }
+            }
+            throw e;
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        flush();
+    }
+
+    // 清空预测并从全部历史订单重新计算（调整平滑系数后使用）
+    public synchronized Map<String, Object> rebuild() {
+        loaded = false;
+        transactionTemplate.executeWithoutResult(tx -> {
+            jdbcTemplate.update("DELETE FROM demand_forecast");
+            jdbcTemplate.update("DELETE FROM batch_checkpoint WHERE job_name = ? OR job_name LIKE ?", JOB_NAME, JOB_NAME + "#%");
+        });
+        cells.clear();
+        for (int i = 0; i < shards.size(); i++) {
+            highWaterOrderIds.set(i, 0);
+        }
+        appliedCount.set(0);
+        replay();
+        loaded = true;
+        flush();
+        return status();
+    }
+
+    // ---------------- 时间分桶 ----------------
+
+    static int hourOfWeek(LocalDateTime time) {
+        return (time.getDayOfWeek().getValue() - 1) * 24 + time.getHour();
+    }
+
+    static long weekOf(LocalDateTime time) {
+        return Math.floorDiv(ChronoUnit.DAYS.between(EPOCH_MONDAY, time.toLocalDate()), 7);
+    }
+
+    private static double round(double value) {
+        return Math.round(value * 1000.0) / 1000.0;
+    }
+}
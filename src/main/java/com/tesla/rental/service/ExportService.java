@@ -0,0 +1,212 @@
+package com.tesla.rental.service;
+
+import com.fasterxml.jackson.core.JsonEncoding;
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.tesla.rental.shard.Shard;
+import com.tesla.rental.shard.ShardRouter;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.ResultSetExtractor;
+import org.springframework.jdbc.support.JdbcUtils;
+import org.springframework.stereotype.Service;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.sql.Connection;
+import java.sql.ResultSet;
+import java.sql.ResultSetMetaData;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.zip.GZIPOutputStream;
+
+// 订单/支付全量导出：JDBC 游标逐行读取并直接写入响应流，内存占用与行数无关。
+// 分片时依次导出各分片（分片内按主键有序），按门店导出只读该门店所在分片
+@Service
+public class ExportService {
+
+    public enum Format {
+        CSV, NDJSON
+    }
+
+    private static final DateTimeFormatter TIME_FORMAT = DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm:ss");
+
+    private final ShardRouter shards;
+    private final List<JdbcTemplate> streamingJdbcTemplates = new ArrayList<>();
+    private final JsonFactory jsonFactory = new JsonFactory();
+
+    public ExportService(ShardRouter shards, @Value("${rental.export.fetch-size:1000}") int fetchSize) {
+        this.shards = shards;
+        // 每个分片独立的 JdbcTemplate，只作用于导出语句：MySQL 驱动默认一次读入整个结果集，
+        // fetch size 为 Integer.MIN_VALUE 时逐行流式读取（连接在读完前不能执行其他语句）；其他数据库按 fetch size 分批拉取
+        for (Shard shard : shards.all()) {
+            JdbcTemplate template = new JdbcTemplate(shard.getDataSource());
+            String product = shard.getJdbcTemplate().execute((Connection connection) ->
+                    JdbcUtils.commonDatabaseName(connection.getMetaData().getDatabaseProductName()));
+            template.setFetchSize("MySQL".equalsIgnoreCase(product) || "MariaDB".equalsIgnoreCase(product)
+                    ? Integer.MIN_VALUE : fetchSize);
+            streamingJdbcTemplates.add(template);
+        }
+    }
+
+    public void exportOrders(LocalDateTime from, LocalDateTime to, Long storeId, Format format, OutputStream out) throws IOException {
+        StringBuilder sql = new StringBuilder("SELECT ro.order_id, ro.customer_id, ro.vehicle_id, ro.pickup_store_id,"
+                + " ro.return_store_id, ro.rent_start, ro.rent_end, ro.pickup_soc, ro.return_soc, ro.total_amount, ro.status"
+                + " FROM rental_order ro WHERE 1 = 1");
+        List<Object> args = new ArrayList<>();
+        appendFilters(sql, args, from, to, storeId);
+        sql.append(" ORDER BY ro.order_id");
+        export(shards.forStoreQuery(storeId), sql.toString(), args.toArray(), format, out);
+    }
+
+    // 支付表本身没有时间和门店字段，按所属订单的租期开始时间和取车门店过滤
+    public void exportPayments(LocalDateTime from, LocalDateTime to, Long storeId, Format format, OutputStream out) throws IOException {
+        StringBuilder sql = new StringBuilder("SELECT p.pay_id, p.order_id, p.type, p.amount, ro.pickup_store_id, ro.rent_start"
+                + " FROM payment p LEFT JOIN rental_order ro ON p.order_id = ro.order_id WHERE 1 = 1");
+        List<Object> args = new ArrayList<>();
+        appendFilters(sql, args, from, to, storeId);
+        sql.append(" ORDER BY p.pay_id");
+        export(shards.forStoreQuery(storeId), sql.toString(), args.toArray(), format, out);
+    }
+
+    private void appendFilters(StringBuilder sql, List<Object> args, LocalDateTime from, LocalDateTime to, Long storeId) {
+        if (from != null) {
+            sql.append(" AND ro.rent_start >= ?");
+            args.add(from);
+        }
+        if (to != null) {
+            sql.append(" AND ro.rent_start < ?");
+            args.add(to);
+        }
+        if (storeId != null) {
+            sql.append(" AND ro.pickup_store_id = ?");
+            args.add(storeId);
+        }
+    }
+
+    private void export(List<Shard> targets, String sql, Object[] args, Format format, OutputStream out) throws IOException {
+        if (format == Format.NDJSON) {
+            GZIPOutputStream gzip = new GZIPOutputStream(out, 64 * 1024);
+            JsonGenerator generator = jsonFactory.createGenerator(gzip, JsonEncoding.UTF8);
+            generator.setRootValueSeparator(null);
+            try {
+                for (Shard shard : targets) {
+                    streamingJdbcTemplates.get(shard.getIndex()).query(sql, rs -> {
+                        writeJsonRow(rs, generator);
+                    }, args);
+                }
+            } catch (UncheckedIOException e) {
+                throw e.getCause();
+            }
+            generator.flush();
+            gzip.finish();
+            return;
+        }
+        Writer writer = new BufferedWriter(new OutputStreamWriter(out, StandardCharsets.UTF_8), 64 * 1024);
+        boolean[] headerWritten = { false };
+        try {
+            for (Shard shard : targets) {
+                // 表头取自结果集元数据，在读取第一行之前写出，没有匹配行时也输出表头
+                streamingJdbcTemplates.get(shard.getIndex()).query(sql, (ResultSetExtractor<Void>) rs -> {
+                    if (!headerWritten[0]) {
+                        writeCsvHeader(rs.getMetaData(), writer);
+                        headerWritten[0] = true;
+                    }
+                    while (rs.next()) {
+                        writeCsvRow(rs, writer);
+                    }
+                    return null;
+                }, args);
+            }
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
+        }
+        writer.flush();
+    }
+
+    private void writeJsonRow(ResultSet rs, JsonGenerator generator) throws SQLException {
+        ResultSetMetaData meta = rs.getMetaData();
+        try {
+            generator.writeStartObject();
+            for (int i = 1; i <= meta.getColumnCount(); i++) {
+                generator.writeFieldName(meta.getColumnLabel(i).toLowerCase());
+                Object value = rs.getObject(i);
+                if (value == null) {
+                    generator.writeNull();
+                } else if (value instanceof BigDecimal decimal) {
+                    generator.writeNumber(decimal);
+                } else if (value instanceof Number number) {
+                    generator.writeNumber(number.toString());
+                } else {
+                    generator.writeString(format(value));
+                }
+            }
+            generator.writeEndObject();
+            generator.writeRaw('\n');
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private void writeCsvHeader(ResultSetMetaData meta, Writer writer) throws SQLException {
+        try {
+            for (int i = 1; i <= meta.getColumnCount(); i++) {
+                if (i > 1) {
+                    writer.write(',');
+                }
+                writer.write(meta.getColumnLabel(i).toLowerCase());
+            }
+            writer.write('\n');
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private void writeCsvRow(ResultSet rs, Writer writer) throws SQLException {
+        int columns = rs.getMetaData().getColumnCount();
+        try {
+            for (int i = 1; i <= columns; i++) {
+                if (i > 1) {
+                    writer.write(',');
+                }
+                Object value = rs.getObject(i);
+                if (value != null) {
+                    writer.write(escapeCsv(format(value)));
+                }
+            }
+            writer.write('\n');
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private static String format(Object value) {
+        if (value instanceof Timestamp timestamp) {
+            return timestamp.toLocalDateTime().format(TIME_FORMAT);
+        }
+        if (value instanceof LocalDateTime time) {
+            return time.format(TIME_FORMAT);
+        }
+        if (value instanceof BigDecimal decimal) {
+            return decimal.toPlainString();
+        }
+        return value.toString();
+    }
+
+    private static String escapeCsv(String text) {
+        if (text.indexOf(',') < 0 && text.indexOf('"') < 0 && text.indexOf('\n') < 0 && text.indexOf('\r') < 0) {
+            return text;
+        }
+        return '"' + text.replace("\"", "\"\"") + '"';
+    }
+}
@@ -0,0 +1,243 @@
+package com.tesla.rental.service;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.DependsOn;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.sql.Timestamp;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+// 幂等键存储：同一 Idempotency-Key 的首个请求执行并记录响应，之后的重复请求直接回放；
+// 首个请求尚在执行时，重复请求等待其结果而不是再执行一次。
+// 内存中按 TTL 与条数上限保存；store=jdbc 时同时写入 idempotency 表，多实例之间与重启后仍然去重
+@Service
+@DependsOn("schemaMigrationService") // idempotency 表由 db/migration/common/V5 创建
+public class IdempotencyService {
+
+    private static final Logger log = LoggerFactory.getLogger(IdempotencyService.class);
+
+    private static final long DB_POLL_MILLIS = 100;
+
+    public record StoredResponse(int status, String contentType, byte[] body) {
+    }
+
+    public enum Outcome {
+        EXECUTE,      // 本请求首个使用该键，执行后须调用 complete 或 abandon
+        REPLAY,       // 已有记录的响应
+        MISMATCH,     // 同一个键用于了不同的请求
+        IN_PROGRESS   // 等待超时，首个请求仍未完成
+    }
+
+    public record Result(Outcome outcome, StoredResponse response) {
+    }
+
+    private static final class Entry {
+        private final String requestHash;
+        private final CompletableFuture<StoredResponse> response = new CompletableFuture<>();
+        private volatile long expiresAt;
+
+        private Entry(String requestHash, long expiresAt) {
+            this.requestHash = requestHash;
+            this.expiresAt = expiresAt;
+        }
+    }
+
+    private final JdbcTemplate jdbcTemplate;
+    private final boolean enabled;
+    private final boolean jdbc;
+    private final long ttlMillis;
+    private final int maxEntries;
+    private final long waitTimeoutMillis;
+    private final long lockTimeoutMillis;
+    private final Map<String, Entry> entries = new ConcurrentHashMap<>();
+
+    public IdempotencyService(JdbcTemplate jdbcTemplate,
+                              @Value("${rental.idempotency.enabled:true}") boolean enabled,
+                              @Value("${rental.idempotency.store:memory}") String store,
+                              @Value("${rental.idempotency.ttl-minutes:1440}") long ttlMinutes,
+                              @Value("${rental.idempotency.max-entries:10000}") int maxEntries,
+                              @Value("${rental.idempotency.wait-timeout-ms:30000}") long waitTimeoutMillis,
+                              @Value("${rental.idempotency.lock-timeout-ms:300000}") long lockTimeoutMillis) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.enabled = enabled;
+        this.jdbc = "jdbc".equalsIgnoreCase(store.trim());
+        this.ttlMillis = TimeUnit.MINUTES.toMillis(ttlMinutes);
+        this.maxEntries = maxEntries;
+        this.waitTimeoutMillis = waitTimeoutMillis;
+        this.lockTimeoutMillis = lockTimeoutMillis;
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    // key 为已含请求方法、路径与用户的幂等键摘要；requestHash 为请求参数与请求体的摘要
+    public Result begin(String key, String requestHash) {
+        long deadline = System.currentTimeMillis() + waitTimeoutMillis;
+        while (true) {
+            long now = System.currentTimeMillis();
+            Entry entry = new Entry(requestHash, now + ttlMillis);
+            Entry existing = entries.putIfAbsent(key, entry);
+            if (existing == null) {
+                ensureCapacity();
+                return jdbc ? claimInDatabase(key, entry, deadline) : new Result(Outcome.EXECUTE, null);
+            }
+            if (existing.response.isDone() && existing.expiresAt < now) {
+                entries.remove(key, existing);
+                continue;
+            }
+            if (!existing.requestHash.equals(requestHash)) {
+                return new Result(Outcome.MISMATCH, null);
+            }
+            try {
+                StoredResponse response = existing.response.get(Math.max(0, deadline - now), TimeUnit.MILLISECONDS);
+                return new Result(Outcome.REPLAY, response);
+            } catch (TimeoutException e) {
+                return new Result(Outcome.IN_PROGRESS, null);
+            } catch (ExecutionException | CancellationException e) {
+                // 首个请求失败并放弃了该键：重新竞争执行权
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return new Result(Outcome.IN_PROGRESS, null);
+            }
+        }
+    }
+
+    // 本实例已持有内存中的键，再在表中占位：其他实例已占位时等待其结果
+    private Result claimInDatabase(String key, Entry entry, long deadline) {
+        while (true) {
+            try {
+                jdbcTemplate.update("INSERT INTO idempotency (idem_key, request_hash, expires_at) VALUES (?, ?, ?)",
+                        key, entry.requestHash, timestamp(System.currentTimeMillis() + lockTimeoutMillis));
+                return new Result(Outcome.EXECUTE, null);
+            } catch (DuplicateKeyException e) {
+                // 已有记录，读取其状态
+            }
+            List<Object[]> rows = jdbcTemplate.query(
+                    "SELECT request_hash, status_code, content_type, body, expires_at FROM idempotency WHERE idem_key = ?",
+                    (rs, i) -> new Object[] { rs.getString(1), rs.getObject(2, Integer.class), rs.getString(3),
+                            rs.getBytes(4), rs.getTimestamp(5) }, key);
+            if (rows.isEmpty()) {
+                continue; // 占位的请求失败后删除了记录
+            }
+            Object[] row = rows.get(0);
+            long now = System.currentTimeMillis();
+            if (((Timestamp) row[4]).getTime() < now) {
+                // 已过期（或占位的实例在执行中退出）：删除后重新占位
+                jdbcTemplate.update("DELETE FROM idempotency WHERE idem_key = ? AND expires_at < ?", key, timestamp(now));
+                continue;
+            }
+            if (!entry.requestHash.equals(row[0])) {
+                release(key, entry);
+                return new Result(Outcome.MISMATCH, null);
+            }
+            if (row[1] != null) {
+                StoredResponse response = new StoredResponse((Integer) row[1], (String) row[2], (byte[]) row[3]);
+                entry.expiresAt = ((Timestamp) row[4]).getTime();
+                entry.response.complete(response);
+                return new Result(Outcome.REPLAY, response);
+            }
+            if (now >= deadline) {
+                release(key, entry);
+                return new Result(Outcome.IN_PROGRESS, null);
+            }
+            try {
+                Thread.sleep(DB_POLL_MILLIS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                release(key, entry);
+                return new Result(Outcome.IN_PROGRESS, null);
+            }
+        }
+    }
+
+    // 记录首个请求的响应并唤醒等待的重复请求
+    public void complete(String key, StoredResponse response) {
+        Entry entry = entries.get(key);
+        long expiresAt = System.currentTimeMillis() + ttlMillis;
+        if (jdbc) {
+            jdbcTemplate.update("UPDATE idempotency SET status_code = ?, content_type = ?, body = ?, expires_at = ? WHERE idem_key = ?",
+                    response.status(), response.contentType(), response.body(), timestamp(expiresAt), key);
+        }
+        if (entry != null) {
+            entry.expiresAt = expiresAt;
+            entry.response.complete(response);
+        }
+    }
+
+    // 首个请求失败（5xx 或异常）：不记录结果，客户端可用同一个键重试
+    public void abandon(String key) {
+        Entry entry = entries.get(key);
+        if (jdbc) {
+            jdbcTemplate.update("DELETE FROM idempotency WHERE idem_key = ? AND status_code IS NULL", key);
+        }
+        if (entry != null) {
+            release(key, entry);
+        }
+    }
+
+    private void release(String key, Entry entry) {
+        entries.remove(key, entry);
+        entry.response.cancel(false);
+    }
+
+    // 超过条数上限时先清理过期记录，仍超出则淘汰最早过期的已完成记录（jdbc 模式下表中仍保留）
+    private void ensureCapacity() {
+        if (entries.size() <= maxEntries) {
+            return;
+        }
+        removeExpired();
+        int excess = entries.size() - maxEntries * 9 / 10;
+        if (excess <= 0) {
+            return;
+        }
+        List<Map.Entry<String, Entry>> completed = new ArrayList<>();
+        for (Map.Entry<String, Entry> e : entries.entrySet()) {
+            if (e.getValue().response.isDone()) {
+                completed.add(e);
+            }
+        }
+        completed.sort(Comparator.comparingLong(e -> e.getValue().expiresAt));
+        for (int i = 0; i < Math.min(excess, completed.size()); i++) {
+            entries.remove(completed.get(i).getKey(), completed.get(i).getValue());
+        }
+    }
+
+    private void removeExpired() {
+        long now = System.currentTimeMillis();
+        entries.values().removeIf(entry -> entry.response.isDone() && entry.expiresAt < now);
+    }
+
+    @Scheduled(fixedDelayString = "${rental.idempotency.cleanup-interval-ms:600000}")
+    public void cleanup() {
+        if (!enabled) {
+            return;
+        }
+        removeExpired();
+        if (jdbc) {
+            int deleted = jdbcTemplate.update("DELETE FROM idempotency WHERE expires_at < ?",
+                    timestamp(System.currentTimeMillis()));
+            if (deleted > 0) {
+                log.info("Removed {} expired idempotency key(s)", deleted);
+            }
+        }
+    }
+
+    private static Timestamp timestamp(long epochMillis) {
+        return new Timestamp(epochMillis);
+    }
+}
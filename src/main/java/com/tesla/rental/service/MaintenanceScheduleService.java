@@ -0,0 +1,515 @@
+package com.tesla.rental.service;
+
+import com.tesla.rental.entity.Maintenance;
+import com.tesla.rental.entity.RentalOrder;
+import com.tesla.rental.entity.Vehicle;
+import com.tesla.rental.entity.enums.MaintenanceType;
+import com.tesla.rental.entity.enums.VehicleStatus;
+import com.tesla.rental.event.AfterCommit;
+import com.tesla.rental.event.EntityChangeEvent;
+import com.tesla.rental.event.RemoteChangeEvent;
+import com.tesla.rental.payload.MaintenanceDue;
+import com.tesla.rental.payload.MaintenanceRegisterRequest;
+import com.tesla.rental.payload.MaintenanceRegisterResult;
+import com.tesla.rental.shard.Shard;
+import com.tesla.rental.shard.ShardRouter;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.context.event.EventListener;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.Statement;
+import java.sql.Timestamp;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.ConcurrentSkipListSet;
+
+// 预测性维保排程：按本车订单历史的日均里程（无历史时用同车型平均）推算到达下次保养里程的日期，
+// 再与距上次保养的天数取较早者作为到期时间；所有车辆按到期时间放在一个有序队列中，
+// 车辆/订单/维保写入时只重算受影响的车辆（替代每次读取都全表聚合的 vw_maintenance_pending）
+@Service
+public class MaintenanceScheduleService {
+
+    private static final DateTimeFormatter DATE_FORMAT = DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm:ss");
+
+    // 单辆车的排程状态
+    static class VehicleState {
+        final long vehicleId;
+        String plateNo;
+        Long storeId;
+        Long modelId;
+        VehicleStatus status;
+        Double mileage;
+        double orderKm;          // 已完成订单的行驶里程合计
+        double orderDays;        // 已完成订单的用车天数合计
+        final EnumMap<MaintenanceType, LocalDateTime> lastMaint = new EnumMap<>(MaintenanceType.class);
+        QueueEntry entry;
+
+        VehicleState(long vehicleId) {
+            this.vehicleId = vehicleId;
+        }
+    }
+
+    record QueueEntry(LocalDateTime dueDate, long vehicleId, double nextMaintKm, double kmPerDay, String rateSource,
+                      MaintenanceDue.Reason reason) implements Comparable<QueueEntry> {
+        @Override
+        public int compareTo(QueueEntry other) {
+            int byDate = dueDate.compareTo(other.dueDate);
+            return byDate != 0 ? byDate : Long.compare(vehicleId, other.vehicleId);
+        }
+    }
+
+    private final JdbcTemplate jdbcTemplate;
+    private final ApplicationEventPublisher publisher;
+    private final RollupService rollupService;
+    private final ShardRouter shards;
+
+    private final double intervalKm;
+    private final long intervalDays;
+    private final double defaultKmPerDay;
+
+    private final Map<Long, VehicleState> vehicles = new HashMap<>();
+    private final Map<Long, double[]> modelUsage = new HashMap<>();   // 车型 -> {里程合计, 天数合计}
+    private final ConcurrentSkipListSet<QueueEntry> queue = new ConcurrentSkipListSet<>();
+
+    public MaintenanceScheduleService(JdbcTemplate jdbcTemplate, ApplicationEventPublisher publisher,
+                                      RollupService rollupService, ShardRouter shards,
+                                      @Value("${rental.maintenance.interval-km:10000}") double intervalKm,
+                                      @Value("${rental.maintenance.interval-days:180}") long intervalDays,
+                                      @Value("${rental.maintenance.default-km-per-day:80}") double defaultKmPerDay) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.publisher = publisher;
+        this.rollupService = rollupService;
+        this.shards = shards;
+        this.intervalKm = intervalKm;
+        this.intervalDays = intervalDays;
+        this.defaultKmPerDay = defaultKmPerDay;
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public synchronized void onReady() {
+        vehicles.clear();
+        modelUsage.clear();
+        queue.clear();
+        jdbcTemplate.query("SELECT vehicle_id, plate_no, store_id, model_id, status, current_mileage FROM vehicle",
+                rs -> {
+                    VehicleState state = new VehicleState(rs.getLong("vehicle_id"));
+                    readVehicle(state, rs);
+                    vehicles.put(state.vehicleId, state);
+                });
+        jdbcTemplate.query("SELECT vehicle_id, type, MAX(maint_date) AS last_date FROM maintenance"
+                        + " WHERE vehicle_id IS NOT NULL GROUP BY vehicle_id, type",
+                rs -> {
+                    VehicleState state = vehicles.get(rs.getLong("vehicle_id"));
+                    Timestamp lastDate = rs.getTimestamp("last_date");
+                    if (state != null && lastDate != null) {
+                        state.lastMaint.merge(MaintenanceType.from(rs.getString("type")), lastDate.toLocalDateTime(),
+                                (a, b) -> a.isAfter(b) ? a : b);
+                    }
+                });
+        for (Shard shard : shards.all()) {
+            shard.getJdbcTemplate().query("SELECT vehicle_id, pickup_mileage, return_mileage, rent_start, actual_pickup_time,"
+                            + " actual_return_time FROM rental_order WHERE return_mileage IS NOT NULL AND actual_return_time IS NOT NULL",
+                    rs -> {
+                        double[] usage = usage(rs.getObject("pickup_mileage", Double.class), rs.getObject("return_mileage", Double.class),
+                                toLocalDateTime(rs.getTimestamp("actual_pickup_time")), toLocalDateTime(rs.getTimestamp("rent_start")),
+                                toLocalDateTime(rs.getTimestamp("actual_return_time")));
+                        addUsage(rs.getLong("vehicle_id"), usage, 1);
+                    });
+        }
+        vehicles.values().forEach(this::reschedule);
+    }
+
+    // ---------------- 增量更新 ----------------
+
+    @EventListener
+    public void onEntityChange(EntityChangeEvent event) {
+        if (event.isFor(Vehicle.class)) {
+            AfterCommit.run(() -> onVehicleChange(event));
+        } else if (event.isFor(RentalOrder.class)) {
+            AfterCommit.run(() -> onOrderChange(event));
+        } else if (event.isFor(Maintenance.class)) {
+            AfterCommit.run(() -> onMaintenanceChange(event));
+        }
+    }
+
+    // 其他实例修改的车辆：从数据库读取最新的门店、车型、状态与里程后重新排程
+    @EventListener
+    public void onRemoteChange(RemoteChangeEvent event) {
+        if (!event.isFor(Vehicle.class) || event.getId() == null) {
+            return;
+        }
+        List<Vehicle> rows = jdbcTemplate.query("SELECT vehicle_id, plate_no, store_id, model_id, status, current_mileage"
+                + " FROM vehicle WHERE vehicle_id = ?", (rs, rowNum) -> {
+                    Vehicle vehicle = new Vehicle();
+                    vehicle.setVehicleId(rs.getLong("vehicle_id"));
+                    vehicle.setPlateNo(rs.getString("plate_no"));
+                    vehicle.setStoreId(rs.getObject("store_id", Long.class));
+                    vehicle.setModelId(rs.getObject("model_id", Long.class));
+                    String status = rs.getString("status");
+                    vehicle.setStatus(status != null ? VehicleStatus.from(status) : null);
+                    vehicle.setCurrentMileage(rs.getObject("current_mileage", Double.class));
+                    return vehicle;
+                }, event.getId());
+        onVehicleChange(event.getId(), rows.isEmpty() ? null : rows.get(0));
+    }
+
+    private void onVehicleChange(EntityChangeEvent event) {
+        onVehicleChange((Long) event.getId(), event.getAction() == EntityChangeEvent.Action.DELETE
+                ? null : event.getEntity(Vehicle.class));
+    }
+
+    private synchronized void onVehicleChange(Long vehicleId, Vehicle vehicle) {
+        if (vehicle == null) {
+            VehicleState removed = vehicles.remove(vehicleId);
+            if (removed != null && removed.entry != null) {
+                queue.remove(removed.entry);
+            }
+            return;
+        }
+        VehicleState state = vehicles.computeIfAbsent(vehicleId, VehicleState::new);
+        if (!Objects.equals(state.modelId, vehicle.getModelId())) {
+            // 换车型时把本车的历史里程从旧车型平均中移到新车型
+            addModelUsage(state.modelId, new double[] { state.orderKm, state.orderDays }, -1);
+            addModelUsage(vehicle.getModelId(), new double[] { state.orderKm, state.orderDays }, 1);
+        }
+        state.plateNo = vehicle.getPlateNo();
+        state.storeId = vehicle.getStoreId();
+        state.modelId = vehicle.getModelId();
+        state.status = vehicle.getStatus();
+        state.mileage = vehicle.getCurrentMileage();
+        reschedule(state);
+    }
+
+    // 订单的里程/时间贡献按"旧值扣减、新值累加"维护，与汇总表的增量方式一致
+    private synchronized void onOrderChange(EntityChangeEvent event) {
+        RentalOrder order = event.getEntity(RentalOrder.class);
+        if (event.getAction() != EntityChangeEvent.Action.INSERT) {
+            Long oldVehicle = (Long) event.previousValue("vehicleId");
+            if (oldVehicle != null) {
+                addUsage(oldVehicle, usage((Double) event.previousValue("pickupMileage"),
+                        (Double) event.previousValue("returnMileage"),
+                        (LocalDateTime) event.previousValue("actualPickupTime"),
+                        (LocalDateTime) event.previousValue("rentStart"),
+                        (LocalDateTime) event.previousValue("actualReturnTime")), -1);
+                reschedule(vehicles.get(oldVehicle));
+            }
+        }
+        if (event.getAction() != EntityChangeEvent.Action.DELETE && order.getVehicleId() != null) {
+            addUsage(order.getVehicleId(), usage(order.getPickupMileage(), order.getReturnMileage(),
+                    order.getActualPickupTime(), order.getRentStart(), order.getActualReturnTime()), 1);
+            reschedule(vehicles.get(order.getVehicleId()));
+        }
+    }
+
+    private synchronized void onMaintenanceChange(EntityChangeEvent event) {
+        Maintenance maintenance = event.getEntity(Maintenance.class);
+        Long vehicleId = maintenance.getVehicleId();
+        Object previousVehicle = event.previousValue("vehicleId");
+        if (event.getAction() == EntityChangeEvent.Action.INSERT) {
+            VehicleState state = vehicleId != null ? vehicles.get(vehicleId) : null;
+            if (state != null && maintenance.getMaintDate() != null && maintenance.getType() != null) {
+                state.lastMaint.merge(maintenance.getType(), maintenance.getMaintDate(), (a, b) -> a.isAfter(b) ? a : b);
+                reschedule(state);
+            }
+            return;
+        }
+        // 修改或删除维保记录时，从库中重新读取受影响车辆的各类型最近维保时间
+        reloadMaintenance(vehicleId);
+        if (previousVehicle instanceof Long oldVehicle && !oldVehicle.equals(vehicleId)) {
+            reloadMaintenance(oldVehicle);
+        }
+    }
+
+    private void reloadMaintenance(Long vehicleId) {
+        VehicleState state = vehicleId != null ? vehicles.get(vehicleId) : null;
+        if (state == null) {
+            return;
+        }
+        state.lastMaint.clear();
+        jdbcTemplate.query("SELECT type, MAX(maint_date) AS last_date FROM maintenance WHERE vehicle_id = ? GROUP BY type",
+                rs -> {
+                    Timestamp lastDate = rs.getTimestamp("last_date");
+                    if (lastDate != null) {
+                        state.lastMaint.merge(MaintenanceType.from(rs.getString("type")), lastDate.toLocalDateTime(),
+                                (a, b) -> a.isAfter(b) ? a : b);
+                    }
+                }, vehicleId);
+        reschedule(state);
+    }
+
+    private void addUsage(Long vehicleId, double[] usage, int sign) {
+        VehicleState state = vehicles.get(vehicleId);
+        if (usage == null || state == null) {
+            return;
+        }
+        state.orderKm += sign * usage[0];
+        state.orderDays += sign * usage[1];
+        addModelUsage(state.modelId, usage, sign);
+    }
+
+    private void addModelUsage(Long modelId, double[] usage, int sign) {
+        if (modelId == null) {
+            return;
+        }
+        double[] total = modelUsage.computeIfAbsent(modelId, k -> new double[2]);
+        total[0] += sign * usage[0];
+        total[1] += sign * usage[1];
+    }
+
+    // 重算到期时间并调整在队列中的位置：O(log n)
+    private void reschedule(VehicleState state) {
+        if (state == null) {
+            return;
+        }
+        if (state.entry != null) {
+            queue.remove(state.entry);
+            state.entry = null;
+        }
+        // 维保中的车辆不参与排程
+        if (state.status == VehicleStatus.MAINTENANCE || state.mileage == null) {
+            return;
+        }
+        double kmPerDay;
+        String rateSource;
+        double[] model = state.modelId != null ? modelUsage.get(state.modelId) : null;
+        if (state.orderDays >= 1 && state.orderKm > 0) {
+            kmPerDay = state.orderKm / state.orderDays;
+            rateSource = "VEHICLE";
+        } else if (model != null && model[1] >= 1 && model[0] > 0) {
+            kmPerDay = model[0] / model[1];
+            rateSource = "MODEL";
+        } else {
+            kmPerDay = defaultKmPerDay;
+            rateSource = "DEFAULT";
+        }
+        double nextKm = Math.ceil(state.mileage / intervalKm) * intervalKm;
+        if (nextKm <= state.mileage) {
+            nextKm += intervalKm;
+        }
+        LocalDateTime now = LocalDateTime.now();
+        LocalDateTime dueDate = now.plusMinutes((long) ((nextKm - state.mileage) / kmPerDay * 24 * 60));
+        MaintenanceDue.Reason reason = MaintenanceDue.Reason.MILEAGE;
+        LocalDateTime lastRoutine = state.lastMaint.get(MaintenanceType.ROUTINE);
+        if (lastRoutine == null) {
+            lastRoutine = state.lastMaint.values().stream().max(LocalDateTime::compareTo).orElse(null);
+        }
+        if (lastRoutine != null && lastRoutine.plusDays(intervalDays).isBefore(dueDate)) {
+            dueDate = lastRoutine.plusDays(intervalDays);
+            reason = MaintenanceDue.Reason.TIME;
+        }
+        state.entry = new QueueEntry(dueDate, state.vehicleId, nextKm, kmPerDay, rateSource, reason);
+        queue.add(state.entry);
+    }
+
+    // ---------------- 查询 ----------------
+
+    // 最早到期的前 limit 辆车；withinDays 不为空时只返回该天数内到期的车辆
+    public synchronized List<MaintenanceDue> due(int limit, Integer withinDays) {
+        LocalDateTime now = LocalDateTime.now();
+        LocalDateTime cutoff = withinDays != null ? now.plusDays(withinDays) : null;
+        List<MaintenanceDue> result = new ArrayList<>(Math.min(limit, 1024));
+        for (QueueEntry entry : queue) {
+            if (result.size() >= limit || (cutoff != null && entry.dueDate().isAfter(cutoff))) {
+                break;
+            }
+            result.add(toDue(vehicles.get(entry.vehicleId()), entry, now));
+        }
+        return result;
+    }
+
+    public synchronized MaintenanceDue forVehicle(Long vehicleId) {
+        VehicleState state = vehicles.get(vehicleId);
+        return state != null && state.entry != null ? toDue(state, state.entry, LocalDateTime.now()) : null;
+    }
+
+    private static MaintenanceDue toDue(VehicleState state, QueueEntry entry, LocalDateTime now) {
+        MaintenanceDue due = new MaintenanceDue();
+        due.setVehicleId(state.vehicleId);
+        due.setPlateNo(state.plateNo);
+        due.setStoreId(state.storeId);
+        due.setModelId(state.modelId);
+        due.setCurrentMileage(state.mileage);
+        due.setNextMaintKm(entry.nextMaintKm());
+        due.setKmPerDay(Math.round(entry.kmPerDay() * 100.0) / 100.0);
+        due.setRateSource(entry.rateSource());
+        Map<String, String> dates = new LinkedHashMap<>();
+        state.lastMaint.forEach((type, date) -> dates.put(type.getLabel(), date.format(DATE_FORMAT)));
+        due.setLastMaintDates(dates);
+        due.setDueDate(entry.dueDate());
+        due.setReason(entry.reason());
+        due.setDaysUntilDue(Duration.between(now, entry.dueDate()).toDays());
+        return due;
+    }
+
+    // ---------------- 批量登记 ----------------
+
+    // 按 sp_register_maintenance 的规则批量登记：写维保记录、车辆置为维保中、写审计日志，
+    // 整批在一个事务内用 JDBC 批量语句完成，逐车返回与存储过程相同的结果码
+    @Transactional
+    public List<MaintenanceRegisterResult> register(MaintenanceRegisterRequest request) {
+        List<Long> vehicleIds = request.getVehicleIds();
+        if (vehicleIds == null || vehicleIds.isEmpty()) {
+            vehicleIds = due(request.getLimit() != null ? request.getLimit() : 50, request.getWithinDays())
+                    .stream().map(MaintenanceDue::getVehicleId).toList();
+        }
+        MaintenanceType type = MaintenanceType.from(request.getMaintType() != null ? request.getMaintType() : 0);
+        List<MaintenanceRegisterResult> results = new ArrayList<>();
+        for (int start = 0; start < vehicleIds.size(); start += 1000) {
+            results.addAll(registerChunk(vehicleIds.subList(start, Math.min(start + 1000, vehicleIds.size())),
+                    type, request.getDescription(), request.getOperatorUserId()));
+        }
+        return results;
+    }
+
+    private List<MaintenanceRegisterResult> registerChunk(List<Long> vehicleIds, MaintenanceType type,
+                                                          String description, Long operatorUserId) {
+        Map<Long, Vehicle> found = new HashMap<>();
+        String placeholders = String.join(",", Collections.nCopies(vehicleIds.size(), "?"));
+        jdbcTemplate.query("SELECT vehicle_id, plate_no, store_id, model_id, status, current_soc, current_mileage"
+                        + " FROM vehicle WHERE vehicle_id IN (" + placeholders + ") FOR UPDATE",
+                rs -> {
+                    Vehicle vehicle = new Vehicle();
+                    vehicle.setVehicleId(rs.getLong("vehicle_id"));
+                    vehicle.setPlateNo(rs.getString("plate_no"));
+                    vehicle.setStoreId(rs.getObject("store_id", Long.class));
+                    vehicle.setModelId(rs.getLong("model_id"));
+                    String status = rs.getString("status");
+                    vehicle.setStatus(status != null ? VehicleStatus.from(status) : null);
+                    vehicle.setCurrentSoc(rs.getObject("current_soc", Double.class));
+                    vehicle.setCurrentMileage(rs.getObject("current_mileage", Double.class));
+                    found.put(vehicle.getVehicleId(), vehicle);
+                }, vehicleIds.toArray());
+
+        List<MaintenanceRegisterResult> results = new ArrayList<>();
+        List<Vehicle> accepted = new ArrayList<>();
+        List<MaintenanceRegisterResult> acceptedResults = new ArrayList<>();
+        for (Long vehicleId : vehicleIds) {
+            MaintenanceRegisterResult result = new MaintenanceRegisterResult();
+            result.setVehicleId(vehicleId);
+            Vehicle vehicle = found.get(vehicleId);
+            if (vehicle == null) {
+                result.setResultCode(-1);
+                result.setResultMsg("车辆不存在");
+            } else if (vehicle.getStatus() == VehicleStatus.RENTED) {
+                result.setResultCode(-2);
+                result.setResultMsg("车辆当前在租，无法进行维保");
+            } else {
+                double mileage = vehicle.getCurrentMileage() != null ? vehicle.getCurrentMileage() : 0;
+                result.setNextMaintKm(Math.ceil(mileage / intervalKm) * intervalKm);
+                result.setResultCode(0);
+                result.setResultMsg("维保登记成功");
+                accepted.add(vehicle);
+                acceptedResults.add(result);
+            }
+            results.add(result);
+        }
+        if (accepted.isEmpty()) {
+            return results;
+        }
+
+        LocalDateTime now = LocalDateTime.now();
+        List<Maintenance> records = new ArrayList<>(accepted.size());
+        for (Vehicle vehicle : accepted) {
+            Maintenance maintenance = new Maintenance();
+            maintenance.setType(type);
+            maintenance.setMaintDate(now);
+            maintenance.setDescription(description);
+            maintenance.setVehicleId(vehicle.getVehicleId());
+            records.add(maintenance);
+        }
+        insertMaintenance(records);
+        for (int i = 0; i < records.size(); i++) {
+            acceptedResults.get(i).setMaintId(records.get(i).getMaintId());
+        }
+
+        jdbcTemplate.batchUpdate("UPDATE vehicle SET status = ? WHERE vehicle_id = ?",
+                accepted.stream().map(v -> new Object[] { VehicleStatus.MAINTENANCE.getLabel(), v.getVehicleId() }).toList());
+        jdbcTemplate.batchUpdate("INSERT INTO audit_log (action, action_time, user_id) VALUES (?, ?, ?)",
+                accepted.stream().map(v -> new Object[] { "车辆维保 车辆#" + v.getVehicleId() + " (" + v.getPlateNo() + ") 维保类型:"
+                        + type.getLabel(), now, operatorUserId }).toList());
+
+        rollupService.deferred(() -> {
+            for (int i = 0; i < accepted.size(); i++) {
+                Vehicle vehicle = accepted.get(i);
+                Map<String, Object> previous = new LinkedHashMap<>();
+                previous.put("storeId", vehicle.getStoreId());
+                previous.put("status", vehicle.getStatus());
+                previous.put("currentSoc", vehicle.getCurrentSoc());
+                previous.put("currentMileage", vehicle.getCurrentMileage());
+                previous.put("modelId", vehicle.getModelId());
+                previous.put("plateNo", vehicle.getPlateNo());
+                vehicle.setStatus(VehicleStatus.MAINTENANCE);
+                publisher.publishEvent(new EntityChangeEvent(Vehicle.class, vehicle.getVehicleId(),
+                        EntityChangeEvent.Action.UPDATE, vehicle, previous));
+                publisher.publishEvent(new EntityChangeEvent(Maintenance.class, records.get(i).getMaintId(),
+                        EntityChangeEvent.Action.INSERT, records.get(i), null));
+            }
+        });
+        return results;
+    }
+
+    private void insertMaintenance(List<Maintenance> records) {
+        jdbcTemplate.execute((java.sql.Connection connection) -> {
+            try (PreparedStatement ps = connection.prepareStatement(
+                    "INSERT INTO maintenance (type, maint_date, description, vehicle_id) VALUES (?, ?, ?, ?)",
+                    Statement.RETURN_GENERATED_KEYS)) {
+                for (Maintenance record : records) {
+                    ps.setString(1, record.getType().getLabel());
+                    ps.setTimestamp(2, Timestamp.valueOf(record.getMaintDate()));
+                    ps.setString(3, record.getDescription());
+                    ps.setLong(4, record.getVehicleId());
+                    ps.addBatch();
+                }
+                ps.executeBatch();
+                try (ResultSet keys = ps.getGeneratedKeys()) {
+                    int i = 0;
+                    while (keys.next() && i < records.size()) {
+                        records.get(i++).setMaintId(keys.getLong(1));
+                    }
+                }
+            }
+            return null;
+        });
+    }
+
+    // ---------------- 工具方法 ----------------
+
+    private void readVehicle(VehicleState state, ResultSet rs) throws java.sql.SQLException {
+        state.plateNo = rs.getString("plate_no");
+        state.storeId = rs.getObject("store_id", Long.class);
+        state.modelId = rs.getObject("model_id", Long.class);
+        String status = rs.getString("status");
+        state.status = status != null ? VehicleStatus.from(status) : null;
+        state.mileage = rs.getObject("current_mileage", Double.class);
+    }
+
+    // 单个已还订单的 {行驶里程, 用车天数}；数据不完整时不计入
+    private static double[] usage(Double pickupMileage, Double returnMileage, LocalDateTime actualPickup,
+                                  LocalDateTime rentStart, LocalDateTime actualReturn) {
+        LocalDateTime start = actualPickup != null ? actualPickup : rentStart;
+        if (pickupMileage == null || returnMileage == null || start == null || actualReturn == null
+                || returnMileage < pickupMileage || !actualReturn.isAfter(start)) {
+            return null;
+        }
+        return new double[] { returnMileage - pickupMileage, Duration.between(start, actualReturn).toMinutes() / 1440.0 };
+    }
+
+    private static LocalDateTime toLocalDateTime(Timestamp timestamp) {
+        return timestamp != null ? timestamp.toLocalDateTime() : null;
+    }
+}
@@ -0,0 +1,267 @@
+package com.tesla.rental.service;
+
+import com.tesla.rental.entity.RentalOrder;
+import com.tesla.rental.entity.enums.RentalOrderStatus;
+import com.tesla.rental.entity.enums.VehicleStatus;
+import com.tesla.rental.event.EntityChangeEvent;
+import com.tesla.rental.payload.BookingResult;
+import com.tesla.rental.payload.QuoteRequest;
+import com.tesla.rental.payload.QuoteResponse;
+import com.tesla.rental.shard.ShardRouter;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.dao.DataAccessException;
+import org.springframework.jdbc.core.ConnectionCallback;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.SqlOutParameter;
+import org.springframework.jdbc.core.SqlParameter;
+import org.springframework.jdbc.core.simple.SimpleJdbcCall;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.math.BigDecimal;
+import java.sql.DatabaseMetaData;
+import java.sql.ResultSet;
+import java.sql.Timestamp;
+import java.sql.Types;
+import java.time.LocalDateTime;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+// 带校验的下单：MySQL 上调用 sp_create_rental_order（校验客户、车辆状态与电量、门店、租期并插入订单，一次往返），
+// 数据库没有该过程（如 H2）或取车门店的订单在其他分片时，由 Java 在一个事务内执行相同的校验与插入，两条路径结果码一致。
+// 订单为“已支付”状态，车辆保持在库，支付押金后才转为在租（与 sp_pay_deposit 一致）
+@Service
+public class OrderBookingService {
+
+    private static final Logger log = LoggerFactory.getLogger(OrderBookingService.class);
+
+    public static final String MODE_AUTO = "auto";
+    public static final String MODE_PROCEDURE = "procedure";
+    public static final String MODE_JAVA = "java";
+
+    private static final String PROCEDURE = "sp_create_rental_order";
+    private static final double MIN_SOC = 20;
+
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate transactionTemplate;
+    private final ApplicationEventPublisher publisher;
+    private final PricingService pricingService;
+    private final ShardRouter router;
+    private final OrderLifecycleService lifecycleService;
+    private final String defaultMode;
+    private final SimpleJdbcCall createOrderCall;
+
+    private volatile Boolean procedureAvailable;
+
+    public OrderBookingService(JdbcTemplate jdbcTemplate, PlatformTransactionManager transactionManager,
+                               ApplicationEventPublisher publisher, PricingService pricingService,
+                               ShardRouter router, OrderLifecycleService lifecycleService,
+                               @Value("${rental.booking.mode:auto}") String defaultMode) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.publisher = publisher;
+        this.pricingService = pricingService;
+        this.router = router;
+        this.lifecycleService = lifecycleService;
+        this.defaultMode = defaultMode;
+        // 显式声明参数，不在首次调用时读取过程元数据
+        this.createOrderCall = new SimpleJdbcCall(jdbcTemplate)
+                .withProcedureName(PROCEDURE)
+                .withoutProcedureColumnMetaDataAccess()
+                .declareParameters(
+                        new SqlParameter("p_customer_id", Types.BIGINT),
+                        new SqlParameter("p_vehicle_id", Types.BIGINT),
+                        new SqlParameter("p_rent_start", Types.TIMESTAMP),
+                        new SqlParameter("p_rent_end", Types.TIMESTAMP),
+                        new SqlParameter("p_pickup_store_id", Types.BIGINT),
+                        new SqlParameter("p_return_store_id", Types.BIGINT),
+                        new SqlParameter("p_total_amount", Types.DECIMAL),
+                        new SqlOutParameter("p_order_id", Types.BIGINT),
+                        new SqlOutParameter("p_result_code", Types.INTEGER),
+                        new SqlOutParameter("p_result_msg", Types.VARCHAR));
+    }
+
+    // mode 为空时使用配置的默认模式；auto 按数据库中是否存在存储过程选择
+    public BookingResult book(RentalOrder request, String mode) {
+        String resolved = mode != null && !mode.isBlank() ? mode : defaultMode;
+        // 过程只写主库的 rental_order，取车门店路由到其他分片时只能走 Java 实现
+        boolean primaryShard = router.forStore(request.getPickupStoreId()).isPrimary();
+        if (MODE_AUTO.equals(resolved)) {
+            resolved = isProcedureAvailable() && primaryShard ? MODE_PROCEDURE : MODE_JAVA;
+        }
+        if (!MODE_PROCEDURE.equals(resolved) && !MODE_JAVA.equals(resolved)) {
+            throw new IllegalArgumentException("Unknown booking mode: " + resolved);
+        }
+        if (MODE_PROCEDURE.equals(resolved) && !isProcedureAvailable()) {
+            throw new IllegalArgumentException(PROCEDURE + " is not available in this database");
+        }
+        if (MODE_PROCEDURE.equals(resolved) && !primaryShard) {
+            throw new IllegalArgumentException(PROCEDURE + " cannot book for store " + request.getPickupStoreId()
+                    + ", its orders are stored on another shard");
+        }
+
+        // 订单金额以服务端报价为准，无法报价时保留客户端传入的金额（同 POST /api/orders）
+        BigDecimal totalAmount = request.getTotalAmount();
+        QuoteResponse quote = pricingService.quote(toQuoteRequest(request));
+        if (quote.getError() == null) {
+            totalAmount = quote.getTotalAmount();
+        }
+
+        BookingResult result = MODE_PROCEDURE.equals(resolved)
+                ? callProcedure(request, totalAmount)
+                : bookInJava(request, totalAmount);
+        result.setMode(resolved);
+        return result;
+    }
+
+    public boolean isProcedureAvailable() {
+        Boolean available = procedureAvailable;
+        if (available == null) {
+            available = jdbcTemplate.execute((ConnectionCallback<Boolean>) con -> {
+                DatabaseMetaData metaData = con.getMetaData();
+                String name = metaData.storesUpperCaseIdentifiers() ? PROCEDURE.toUpperCase() : PROCEDURE;
+                try (ResultSet rs = metaData.getProcedures(con.getCatalog(), con.getSchema(), name)) {
+                    return rs.next();
+                }
+            });
+            procedureAvailable = available;
+            log.info("Order booking: {} {}", PROCEDURE, available ? "available, using stored procedure" : "not found, using Java fallback");
+        }
+        return available;
+    }
+
+    // ---------------- 存储过程 ----------------
+
+    // 过程内自行 START TRANSACTION/COMMIT，调用方不能处于 Spring 事务中（否则外层事务会被隐式提交）
+    private BookingResult callProcedure(RentalOrder request, BigDecimal totalAmount) {
+        Map<String, Object> in = new HashMap<>();
+        in.put("p_customer_id", request.getCustomerId());
+        in.put("p_vehicle_id", request.getVehicleId());
+        in.put("p_rent_start", toTimestamp(request.getRentStart()));
+        in.put("p_rent_end", toTimestamp(request.getRentEnd()));
+        in.put("p_pickup_store_id", request.getPickupStoreId());
+        in.put("p_return_store_id", request.getReturnStoreId());
+        in.put("p_total_amount", totalAmount);
+        Map<String, Object> out;
+        try {
+            out = createOrderCall.execute(in);
+        } catch (DataAccessException e) {
+            log.warn("Order booking failed", e);
+            return result(BookingResult.SYSTEM_ERROR, "系统错误：订单创建失败");
+        }
+
+        Number code = (Number) out.get("p_result_code");
+        BookingResult result = result(code != null ? code.intValue() : BookingResult.SYSTEM_ERROR, (String) out.get("p_result_msg"));
+        Number orderId = (Number) out.get("p_order_id");
+        if (result.getResultCode() == BookingResult.OK && orderId != null) {
+            // 取车电量由过程从车辆表读取，不在输出参数中
+            RentalOrder order = newOrder(orderId.longValue(), request, totalAmount, null);
+            publisher.publishEvent(new EntityChangeEvent(RentalOrder.class, order.getOrderId(),
+                    EntityChangeEvent.Action.INSERT, order, null));
+            // 过程已提交订单，再补记下单事件（失败时由之后的命令或投影重建补记 IMPORTED）
+            try {
+                lifecycleService.recordCreated(order.getOrderId());
+            } catch (DataAccessException e) {
+                log.warn("Failed to record order event for order {}", order.getOrderId(), e);
+            }
+            result.setOrder(order);
+        }
+        return result;
+    }
+
+    // ---------------- Java 实现（校验顺序与过程一致） ----------------
+
+    private BookingResult bookInJava(RentalOrder request, BigDecimal totalAmount) {
+        try {
+            return transactionTemplate.execute(tx -> validateAndInsert(request, totalAmount));
+        } catch (DataAccessException e) {
+            log.warn("Order booking failed", e);
+            return result(BookingResult.SYSTEM_ERROR, "系统错误：订单创建失败");
+        }
+    }
+
+    private BookingResult validateAndInsert(RentalOrder request, BigDecimal totalAmount) {
+        Integer customers = jdbcTemplate.queryForObject("SELECT COUNT(*) FROM customer WHERE customer_id = ?",
+                Integer.class, request.getCustomerId());
+        if (customers == null || customers == 0) {
+            return result(BookingResult.CUSTOMER_NOT_FOUND, "客户不存在");
+        }
+
+        // 锁定车辆行，避免并发下单同一辆车
+        List<Object[]> vehicles = jdbcTemplate.query("SELECT status, current_soc FROM vehicle WHERE vehicle_id = ? FOR UPDATE",
+                (rs, rowNum) -> new Object[] { rs.getString("status"), rs.getObject("current_soc", Double.class) },
+                request.getVehicleId());
+        if (vehicles.isEmpty() || vehicles.get(0)[0] == null) {
+            return result(BookingResult.VEHICLE_NOT_FOUND, "车辆不存在");
+        }
+        String status = (String) vehicles.get(0)[0];
+        Double soc = (Double) vehicles.get(0)[1];
+        if (!VehicleStatus.IN_STOCK.getLabel().equals(status)) {
+            return result(BookingResult.VEHICLE_UNAVAILABLE, "车辆不可用，当前状态：" + status);
+        }
+        if (soc != null && soc < MIN_SOC) {
+            return result(BookingResult.LOW_SOC, "车辆电量不足：" + BigDecimal.valueOf(soc).stripTrailingZeros().toPlainString() + "%，无法出租");
+        }
+
+        Integer stores = jdbcTemplate.queryForObject("SELECT COUNT(*) FROM store WHERE store_id IN (?, ?)",
+                Integer.class, request.getPickupStoreId(), request.getReturnStoreId());
+        int expected = request.getPickupStoreId() != null && request.getPickupStoreId().equals(request.getReturnStoreId()) ? 1 : 2;
+        if (stores == null || stores < expected) {
+            return result(BookingResult.STORE_NOT_FOUND, "门店不存在");
+        }
+
+        if (request.getRentStart() == null || request.getRentEnd() == null
+                || !request.getRentStart().isBefore(request.getRentEnd())
+                || request.getRentStart().isBefore(LocalDateTime.now())) {
+            return result(BookingResult.INVALID_PERIOD, "租期时间无效");
+        }
+
+        // 订单写入取车门店所在分片并记录下单事件（主库分片时与上面的校验在同一事务内）
+        RentalOrder order = lifecycleService.create(newOrder(null, request, totalAmount, soc), null);
+
+        BookingResult result = result(BookingResult.OK, "订单创建成功");
+        result.setOrder(order);
+        return result;
+    }
+
+    private static RentalOrder newOrder(Long orderId, RentalOrder request, BigDecimal totalAmount, Double pickupSoc) {
+        RentalOrder order = new RentalOrder();
+        order.setOrderId(orderId);
+        order.setRentStart(request.getRentStart());
+        order.setRentEnd(request.getRentEnd());
+        order.setPickupSoc(pickupSoc);
+        order.setTotalAmount(totalAmount);
+        order.setStatus(RentalOrderStatus.PAID);
+        order.setCustomerId(request.getCustomerId());
+        order.setVehicleId(request.getVehicleId());
+        order.setPickupStoreId(request.getPickupStoreId());
+        order.setReturnStoreId(request.getReturnStoreId());
+        return order;
+    }
+
+    private static BookingResult result(int code, String message) {
+        BookingResult result = new BookingResult();
+        result.setResultCode(code);
+        result.setResultMsg(message);
+        return result;
+    }
+
+    private static Timestamp toTimestamp(LocalDateTime value) {
+        return value != null ? Timestamp.valueOf(value) : null;
+    }
+
+    private static QuoteRequest toQuoteRequest(RentalOrder order) {
+        QuoteRequest request = new QuoteRequest();
+        request.setVehicleId(order.getVehicleId());
+        request.setRentStart(order.getRentStart());
+        request.setRentEnd(order.getRentEnd());
+        request.setPickupStoreId(order.getPickupStoreId());
+        request.setReturnStoreId(order.getReturnStoreId());
+        return request;
+    }
+}
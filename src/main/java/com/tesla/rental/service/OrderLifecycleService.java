@@ -0,0 +1,324 @@
+package com.tesla.rental.service;
+
+import com.tesla.rental.entity.RentalOrder;
+import com.tesla.rental.entity.Vehicle;
+import com.tesla.rental.entity.enums.RentalOrderStatus;
+import com.tesla.rental.entity.enums.VehicleStatus;
+import com.tesla.rental.event.EntityChangeEvent;
+import com.tesla.rental.event.OrderEvent;
+import com.tesla.rental.repository.VehicleRepository;
+import com.tesla.rental.shard.OrderEventStore;
+import com.tesla.rental.shard.Shard;
+import com.tesla.rental.shard.ShardRouter;
+import com.tesla.rental.shard.ShardedOrderStore;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.security.authentication.AnonymousAuthenticationToken;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.stereotype.Service;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.function.Function;
+
+// 订单生命周期命令：锁定订单行、校验状态迁移、追加订单事件，并在同一分片事务内投影到 rental_order
+// （车辆投影与变更事件在主库事务内，见 Shard.write）。订单状态只能通过这些命令改变：
+// 已支付 -(取车)-> 在租 -(申请还车)-> 待验车 -(验车还车)-> 已还 -(结算)-> 结算，在租时也可直接验车还车。
+// 状态不允许时抛 IllegalStateException，参数无效时抛 IllegalArgumentException；订单不存在时返回 null
+@Service
+public class OrderLifecycleService {
+
+    private final ShardRouter router;
+    private final ShardedOrderStore orderStore;
+    private final OrderEventStore eventStore;
+    private final OrderProjectionService projectionService;
+    private final VehicleRepository vehicleRepository;
+    private final ApplicationEventPublisher publisher;
+
+    public OrderLifecycleService(ShardRouter router, ShardedOrderStore orderStore, OrderEventStore eventStore,
+                                 OrderProjectionService projectionService, VehicleRepository vehicleRepository,
+                                 ApplicationEventPublisher publisher) {
+        this.router = router;
+        this.orderStore = orderStore;
+        this.eventStore = eventStore;
+        this.projectionService = projectionService;
+        this.vehicleRepository = vehicleRepository;
+        this.publisher = publisher;
+    }
+
+    // 一次命令的结果：追加的事件与投影后的订单
+    private static final class Outcome {
+        private OrderEvent event;
+        private RentalOrder order;
+    }
+
+    // ---------------- 命令 ----------------
+
+    // 下单：写入取车门店所在分片；vehicleStatus 不为空时同时把车辆置为该状态
+    public RentalOrder create(RentalOrder order, VehicleStatus vehicleStatus) {
+        Shard shard = router.forStore(order.getPickupStoreId());
+        RentalOrder created = OrderProjectionService.copy(order);
+        created.setOrderId(null);
+        OrderEvent event = OrderEvent.of(OrderEvent.Type.CREATED, created);
+        event.setVehicleStatus(vehicleStatus);
+        event.setActor(actor());
+        List<EntityChangeEvent> changes = new ArrayList<>();
+        return shard.write(tx -> {
+            orderStore.insertOrder(shard, created, changes);
+            event.setOrderId(created.getOrderId());
+            event.setSeq(1);
+            eventStore.append(shard, List.of(event));
+            return created;
+        }, () -> {
+            projectionService.projectVehicle(event, created);
+            changes.forEach(publisher::publishEvent);
+        });
+    }
+
+    // 存储过程已插入的订单（过程自行提交）：补记 CREATED 事件
+    public void recordCreated(Long orderId) {
+        Shard shard = orderStore.shardOfOrder(orderId);
+        if (shard == null) {
+            return;
+        }
+        shard.write(tx -> {
+            RentalOrder current = orderStore.lockOrder(shard, orderId);
+            if (current != null && !eventStore.lastSeq(shard, List.of(orderId)).containsKey(orderId)) {
+                OrderEvent event = OrderEvent.of(OrderEvent.Type.CREATED, current);
+                event.setOrderId(orderId);
+                event.setSeq(1);
+                event.setActor(actor());
+                eventStore.append(shard, List.of(event));
+            }
+            return null;
+        }, () -> { });
+    }
+
+    // 修改订单信息（PUT /api/orders/{id}）：只记录与当前不同的非空字段；状态不能通过修改变更
+    public RentalOrder amend(Long id, RentalOrder request) {
+        return execute(id, current -> {
+            if (request.getStatus() != null && request.getStatus() != current.getStatus()) {
+                throw new IllegalStateException("订单状态只能通过取车、还车、结算变更，当前状态：" + label(current));
+            }
+            RentalOrder changes = new RentalOrder();
+            changes.setRentStart(changed(current.getRentStart(), request.getRentStart()));
+            changes.setRentEnd(changed(current.getRentEnd(), request.getRentEnd()));
+            changes.setActualPickupTime(changed(current.getActualPickupTime(), request.getActualPickupTime()));
+            changes.setActualReturnTime(changed(current.getActualReturnTime(), request.getActualReturnTime()));
+            changes.setPickupMileage(changed(current.getPickupMileage(), request.getPickupMileage()));
+            changes.setReturnMileage(changed(current.getReturnMileage(), request.getReturnMileage()));
+            changes.setPickupSoc(changed(current.getPickupSoc(), request.getPickupSoc()));
+            changes.setReturnSoc(changed(current.getReturnSoc(), request.getReturnSoc()));
+            changes.setTotalAmount(changed(current.getTotalAmount(), request.getTotalAmount()));
+            changes.setCustomerId(changed(current.getCustomerId(), request.getCustomerId()));
+            changes.setVehicleId(changed(current.getVehicleId(), request.getVehicleId()));
+            changes.setPickupStoreId(changed(current.getPickupStoreId(), request.getPickupStoreId()));
+            requireSameShard(current, changes.getPickupStoreId());
+            changes.setReturnStoreId(changed(current.getReturnStoreId(), request.getReturnStoreId()));
+            return changes.equals(new RentalOrder()) ? null : OrderEvent.of(OrderEvent.Type.AMENDED, changes);
+        });
+    }
+
+    // 确认取车：已支付 -> 在租，车辆置为在租；未传取车里程/电量时取车辆当前值
+    public RentalOrder pickup(Long id, RentalOrder request) {
+        return execute(id, current -> {
+            requireStatus(current, "取车", RentalOrderStatus.PAID);
+            Vehicle vehicle = vehicle(current);
+            RentalOrder changes = new RentalOrder();
+            changes.setStatus(RentalOrderStatus.RENTED);
+            changes.setActualPickupTime(request.getActualPickupTime() != null ? request.getActualPickupTime() : now());
+            changes.setPickupMileage(request.getPickupMileage() != null ? request.getPickupMileage()
+                    : vehicle != null ? vehicle.getCurrentMileage() : null);
+            changes.setPickupSoc(request.getPickupSoc() != null ? request.getPickupSoc()
+                    : vehicle != null ? vehicle.getCurrentSoc() : null);
+            requireSoc(changes.getPickupSoc());
+            OrderEvent event = OrderEvent.of(OrderEvent.Type.PICKED_UP, changes);
+            event.setVehicleStatus(VehicleStatus.RENTED);
+            return event;
+        });
+    }
+
+    // 申请还车：在租 -> 待验车，可同时指定还车门店；车辆仍为在租
+    public RentalOrder applyReturn(Long id, RentalOrder request) {
+        return execute(id, current -> {
+            requireStatus(current, "申请还车", RentalOrderStatus.RENTED);
+            RentalOrder changes = new RentalOrder();
+            changes.setStatus(RentalOrderStatus.PENDING_INSPECTION);
+            changes.setReturnStoreId(request.getReturnStoreId());
+            return OrderEvent.of(OrderEvent.Type.RETURN_REQUESTED, changes);
+        });
+    }
+
+    // 验车还车：在租/待验车 -> 已还；车辆回到在库，写回还车里程、电量并停放到还车门店
+    public RentalOrder confirmReturn(Long id, RentalOrder request) {
+        return execute(id, current -> {
+            requireStatus(current, "验车还车", RentalOrderStatus.RENTED, RentalOrderStatus.PENDING_INSPECTION);
+            Vehicle vehicle = vehicle(current);
+            RentalOrder changes = new RentalOrder();
+            changes.setStatus(RentalOrderStatus.RETURNED);
+            changes.setActualReturnTime(request.getActualReturnTime() != null ? request.getActualReturnTime() : now());
+            changes.setReturnMileage(request.getReturnMileage() != null ? request.getReturnMileage()
+                    : vehicle != null ? vehicle.getCurrentMileage() : null);
+            changes.setReturnSoc(request.getReturnSoc() != null ? request.getReturnSoc()
+                    : vehicle != null ? vehicle.getCurrentSoc() : null);
+            changes.setReturnStoreId(request.getReturnStoreId());
+            requireSoc(changes.getReturnSoc());
+            if (changes.getReturnMileage() != null && current.getPickupMileage() != null
+                    && changes.getReturnMileage() < current.getPickupMileage()) {
+                throw new IllegalArgumentException("还车里程不能小于取车里程：" + current.getPickupMileage());
+            }
+            if (current.getActualPickupTime() != null && changes.getActualReturnTime().isBefore(current.getActualPickupTime())) {
+                throw new IllegalArgumentException("还车时间不能早于取车时间");
+            }
+            OrderEvent event = OrderEvent.of(OrderEvent.Type.RETURNED, changes);
+            event.setVehicleStatus(VehicleStatus.IN_STOCK);
+            return event;
+        });
+    }
+
+    public RentalOrder delete(Long id) {
+        return execute(id, current -> OrderEvent.of(OrderEvent.Type.DELETED, null));
+    }
+
+    // 批量结算（SettlementService 已在分片事务内把这些订单从已还改为结算）：在同一事务内追加 SETTLED 事件，
+    // previous 为结算前的订单
+    public void recordSettled(Shard shard, List<RentalOrder> previous) {
+        if (previous.isEmpty()) {
+            return;
+        }
+        Map<Long, Integer> lastSeq = eventStore.lastSeq(shard, previous.stream().map(RentalOrder::getOrderId).toList());
+        List<OrderEvent> events = new ArrayList<>();
+        for (RentalOrder order : previous) {
+            int seq = importIfUntracked(order, lastSeq.get(order.getOrderId()), events);
+            RentalOrder changes = new RentalOrder();
+            changes.setStatus(RentalOrderStatus.SETTLED);
+            OrderEvent event = OrderEvent.of(OrderEvent.Type.SETTLED, changes);
+            event.setOrderId(order.getOrderId());
+            event.setSeq(seq + 1);
+            events.add(event);
+        }
+        eventStore.append(shard, events);
+    }
+
+    public List<OrderEvent> history(Long id) {
+        Shard shard = orderStore.shardOfOrder(id);
+        return shard != null ? eventStore.history(shard, id) : List.of();
+    }
+
+    // ---------------- 执行 ----------------
+
+    // 锁定订单行，由 command 按当前状态给出事件（返回 null 表示没有变化），追加事件并投影
+    private RentalOrder execute(Long id, Function<RentalOrder, OrderEvent> command) {
+        Shard shard = orderStore.shardOfOrder(id);
+        if (shard == null) {
+            return null;
+        }
+        Outcome outcome = new Outcome();
+        List<EntityChangeEvent> changes = new ArrayList<>();
+        shard.write(tx -> {
+            RentalOrder current = orderStore.lockOrder(shard, id);
+            if (current == null) {
+                return null;
+            }
+            outcome.order = current;
+            OrderEvent event = command.apply(current);
+            if (event == null) {
+                return null;
+            }
+            List<OrderEvent> events = new ArrayList<>();
+            int seq = importIfUntracked(current, eventStore.lastSeq(shard, List.of(id)).get(id), events);
+            event.setOrderId(id);
+            event.setSeq(seq + 1);
+            event.setActor(actor());
+            events.add(event);
+            eventStore.append(shard, events);
+
+            RentalOrder next = OrderProjectionService.apply(current, event);
+            if (next != null) {
+                orderStore.updateOrder(shard, next, current, changes);
+                outcome.order = next;
+            } else {
+                orderStore.removeOrder(shard, current, changes);
+            }
+            outcome.event = event;
+            return null;
+        }, () -> {
+            if (outcome.event != null) {
+                projectionService.projectVehicle(outcome.event, outcome.order);
+            }
+            changes.forEach(publisher::publishEvent);
+        });
+        return outcome.order;
+    }
+
+    // 启用事件日志前已存在的订单没有事件：先补记一条 IMPORTED（当时的完整状态），返回当前最大版本号
+    private static int importIfUntracked(RentalOrder current, Integer lastSeq, List<OrderEvent> events) {
+        if (lastSeq != null) {
+            return lastSeq;
+        }
+        OrderEvent imported = OrderEvent.of(OrderEvent.Type.IMPORTED, OrderProjectionService.copy(current));
+        imported.setOrderId(current.getOrderId());
+        imported.setSeq(1);
+        events.add(imported);
+        return 1;
+    }
+
+    private static void requireStatus(RentalOrder order, String action, RentalOrderStatus... allowed) {
+        if (!Arrays.asList(allowed).contains(order.getStatus())) {
+            throw new IllegalStateException("订单当前状态为" + label(order) + "，不能" + action);
+        }
+    }
+
+    // 取车门店决定订单所在分片：不跨库搬移订单及其支付/违章，改到另一分片的门店时拒绝（按门店查询会漏掉该订单）。
+    // 主库上启用分片前的历史订单总在按门店查询的范围内，不受限制
+    private void requireSameShard(RentalOrder current, Long pickupStoreId) {
+        if (pickupStoreId == null) {
+            return;
+        }
+        Shard shard = orderStore.shardOfOrder(current.getOrderId());
+        if (shard != null && !shard.isPrimary() && router.forStore(pickupStoreId) != shard) {
+            throw new IllegalStateException("取车门店 " + pickupStoreId + " 属于另一个订单分片，不能修改，请取消后重新下单");
+        }
+    }
+
+    private static void requireSoc(Double soc) {
+        if (soc != null && (soc < 0 || soc > 100)) {
+            throw new IllegalArgumentException("电量须在 0-100 之间：" + soc);
+        }
+    }
+
+    private Vehicle vehicle(RentalOrder order) {
+        return order.getVehicleId() != null ? vehicleRepository.findById(order.getVehicleId()).orElse(null) : null;
+    }
+
+    // 请求中的值与当前值不同时返回该值，否则返回 null（事件中不记录）
+    private static <T> T changed(T current, T requested) {
+        if (requested == null) {
+            return null;
+        }
+        if (requested instanceof BigDecimal amount && current instanceof BigDecimal existing) {
+            return amount.compareTo(existing) != 0 ? requested : null;
+        }
+        return Objects.equals(current, requested) ? null : requested;
+    }
+
+    private static String label(RentalOrder order) {
+        return order.getStatus() != null ? order.getStatus().getLabel() : "空";
+    }
+
+    private static LocalDateTime now() {
+        return LocalDateTime.now().truncatedTo(ChronoUnit.SECONDS);
+    }
+
+    private static String actor() {
+        Authentication authentication = SecurityContextHolder.getContext().getAuthentication();
+        return authentication != null && authentication.isAuthenticated()
+                && !(authentication instanceof AnonymousAuthenticationToken) ? authentication.getName() : null;
+    }
+}
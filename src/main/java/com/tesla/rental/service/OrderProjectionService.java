@@ -0,0 +1,705 @@
+package com.tesla.rental.service;
+
+import com.tesla.rental.entity.RentalOrder;
+import com.tesla.rental.entity.Vehicle;
+import com.tesla.rental.entity.enums.RentalOrderStatus;
+import com.tesla.rental.entity.enums.VehicleStatus;
+import com.tesla.rental.event.EntityChangeEvent;
+import com.tesla.rental.event.OrderEvent;
+import com.tesla.rental.payload.OrderProjectionResult;
+import com.tesla.rental.repository.VehicleRepository;
+import com.tesla.rental.shard.OrderEventStore;
+import com.tesla.rental.shard.OrderEventStore.Checkpoint;
+import com.tesla.rental.shard.OrderEventStore.SnapshotRow;
+import com.tesla.rental.shard.Shard;
+import com.tesla.rental.shard.ShardRouter;
+import com.tesla.rental.shard.ShardedOrderStore;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+
+// 订单投影：订单事件依次叠加得到订单的当前状态（rental_order）与车辆状态。
+// 命令（OrderLifecycleService）在追加事件的同一事务内增量投影；rebuild 从事件（或快照加其后的事件）重新计算全部订单，
+// 与 rental_order 逐行比对后只修正不一致的行；snapshot 定期把投影结果写入 order_snapshot，重建时不必从第一条事件重放
+@Service
+public class OrderProjectionService {
+
+    private static final Logger log = LoggerFactory.getLogger(OrderProjectionService.class);
+
+    public static final String MODE_AUTO = "auto";
+    public static final String MODE_EVENTS = "events";
+    public static final String MODE_SNAPSHOT = "snapshot";
+
+    // 一个订单的投影结果；order 为空表示订单已删除
+    private record Projected(long orderId, RentalOrder order, int seq) {
+    }
+
+    // 按 order_id 升序逐个给出投影结果，读完返回 null
+    private interface ProjectionSource {
+        Projected next();
+    }
+
+    private final ShardRouter router;
+    private final ShardedOrderStore orderStore;
+    private final OrderEventStore eventStore;
+    private final VehicleRepository vehicleRepository;
+    private final ApplicationEventPublisher publisher;
+    private final int batchSize;
+    private final long snapshotLagSeconds;
+    private final boolean snapshotEnabled;
+    private final Object lock = new Object();
+
+    public OrderProjectionService(ShardRouter router, ShardedOrderStore orderStore, OrderEventStore eventStore,
+                                  VehicleRepository vehicleRepository, ApplicationEventPublisher publisher,
+                                  @Value("${rental.order-events.batch-size:5000}") int batchSize,
+                                  @Value("${rental.order-events.snapshot-lag-seconds:60}") long snapshotLagSeconds,
+                                  @Value("${rental.order-events.snapshot-enabled:true}") boolean snapshotEnabled) {
+        this.router = router;
+        this.orderStore = orderStore;
+        this.eventStore = eventStore;
+        this.vehicleRepository = vehicleRepository;
+        this.publisher = publisher;
+        this.batchSize = batchSize;
+        this.snapshotLagSeconds = snapshotLagSeconds;
+        this.snapshotEnabled = snapshotEnabled;
+    }
+
+    // ---------------- 投影 ----------------
+
+    // 叠加一个事件，返回新的订单状态（不修改 state）；删除事件返回 null
+    public static RentalOrder apply(RentalOrder state, OrderEvent event) {
+        if (event.getType() == OrderEvent.Type.DELETED) {
+            return null;
+        }
+        RentalOrder next = state != null ? copy(state) : new RentalOrder();
+        next.setOrderId(event.getOrderId());
+        RentalOrder changes = event.getChanges();
+        if (changes == null) {
+            return next;
+        }
+        if (changes.getRentStart() != null) {
+            next.setRentStart(changes.getRentStart());
+        }
+        if (changes.getRentEnd() != null) {
+            next.setRentEnd(changes.getRentEnd());
+        }
+        if (changes.getActualPickupTime() != null) {
+            next.setActualPickupTime(changes.getActualPickupTime());
+        }
+        if (changes.getActualReturnTime() != null) {
+            next.setActualReturnTime(changes.getActualReturnTime());
+        }
+        if (changes.getPickupMileage() != null) {
+            next.setPickupMileage(changes.getPickupMileage());
+        }
+        if (changes.getReturnMileage() != null) {
+            next.setReturnMileage(changes.getReturnMileage());
+        }
+        if (changes.getPickupSoc() != null) {
+            next.setPickupSoc(changes.getPickupSoc());
+        }
+        if (changes.getReturnSoc() != null) {
+            next.setReturnSoc(changes.getReturnSoc());
+        }
+        if (changes.getTotalAmount() != null) {
+            next.setTotalAmount(changes.getTotalAmount());
+        }
+        if (changes.getStatus() != null) {
+            next.setStatus(changes.getStatus());
+        }
+        if (changes.getCustomerId() != null) {
+            next.setCustomerId(changes.getCustomerId());
+        }
+        if (changes.getVehicleId() != null) {
+            next.setVehicleId(changes.getVehicleId());
+        }
+        if (changes.getPickupStoreId() != null) {
+            next.setPickupStoreId(changes.getPickupStoreId());
+        }
+        if (changes.getReturnStoreId() != null) {
+            next.setReturnStoreId(changes.getReturnStoreId());
+        }
+        return next;
+    }
+
+    public static RentalOrder copy(RentalOrder order) {
+        RentalOrder copy = new RentalOrder();
+        copy.setOrderId(order.getOrderId());
+        copy.setRentStart(order.getRentStart());
+        copy.setRentEnd(order.getRentEnd());
+        copy.setActualPickupTime(order.getActualPickupTime());
+        copy.setActualReturnTime(order.getActualReturnTime());
+        copy.setPickupMileage(order.getPickupMileage());
+        copy.setReturnMileage(order.getReturnMileage());
+        copy.setPickupSoc(order.getPickupSoc());
+        copy.setReturnSoc(order.getReturnSoc());
+        copy.setTotalAmount(order.getTotalAmount());
+        copy.setStatus(order.getStatus());
+        copy.setCustomerId(order.getCustomerId());
+        copy.setVehicleId(order.getVehicleId());
+        copy.setPickupStoreId(order.getPickupStoreId());
+        copy.setReturnStoreId(order.getReturnStoreId());
+        return copy;
+    }
+
+    // 车辆投影（在主库事务内执行）：事件带车辆状态时更新车辆；验车还车同时写回里程、电量并停放到还车门店
+    public void projectVehicle(OrderEvent event, RentalOrder order) {
+        if (event.getVehicleStatus() == null || order == null || order.getVehicleId() == null) {
+            return;
+        }
+        vehicleRepository.findById(order.getVehicleId()).ifPresent(vehicle -> {
+            vehicle.setStatus(event.getVehicleStatus());
+            if (event.getType() == OrderEvent.Type.RETURNED) {
+                if (order.getReturnMileage() != null) {
+                    vehicle.setCurrentMileage(order.getReturnMileage());
+                }
+                if (order.getReturnSoc() != null) {
+                    vehicle.setCurrentSoc(order.getReturnSoc());
+                }
+                if (order.getReturnStoreId() != null) {
+                    vehicle.setStoreId(order.getReturnStoreId());
+                }
+            }
+            vehicleRepository.save(vehicle);
+        });
+    }
+
+    // ---------------- 重建 ----------------
+
+    // mode：events 从第一条事件重放；snapshot 从快照重放其后的事件（没有快照的分片报错）；auto（默认）有快照用快照。
+    // 投影与 rental_order 不一致的行在各分片事务内修正（并发布变更事件，汇总表随之调整）；没有事件的订单补记 IMPORTED 事件。
+    // 车辆按重建后的订单校正：有在租/待验车订单的车辆为在租，标记在租却没有已支付/在租/待验车订单的车辆改回在库
+    public OrderProjectionResult rebuild(String mode) {
+        String resolved = mode == null || mode.isBlank() ? MODE_AUTO : mode.trim().toLowerCase();
+        if (!MODE_AUTO.equals(resolved) && !MODE_EVENTS.equals(resolved) && !MODE_SNAPSHOT.equals(resolved)) {
+            throw new IllegalArgumentException("Unknown rebuild mode: " + mode);
+        }
+        synchronized (lock) {
+            long started = System.currentTimeMillis();
+            OrderProjectionResult result = new OrderProjectionResult();
+            Set<Long> onRentVehicles = new HashSet<>();
+            Set<Long> reservedVehicles = new HashSet<>();
+            Set<String> modes = new HashSet<>();
+            for (Shard shard : router.all()) {
+                Checkpoint checkpoint = MODE_EVENTS.equals(resolved) ? null : eventStore.checkpoint(shard);
+                if (MODE_SNAPSHOT.equals(resolved) && checkpoint == null) {
+                    throw new IllegalStateException(shard + " has no order snapshot yet");
+                }
+                modes.add(checkpoint != null ? MODE_SNAPSHOT : MODE_EVENTS);
+                ProjectionSource source = checkpoint != null
+                        ? new SnapshotReplay(shard, checkpoint.lastEventId(), result)
+                        : new EventReplay(shard, null, result);
+                reconcile(shard, source, result, onRentVehicles, reservedVehicles);
+            }
+            result.setMode(String.join("+", modes.stream().sorted().toList()));
+            result.setVehiclesRepaired(reconcileVehicles(onRentVehicles, reservedVehicles));
+            result.setElapsedMillis(System.currentTimeMillis() - started);
+            log.info("Order projection rebuilt from {}: {} event(s), {} order(s), {} inserted, {} updated, {} deleted, "
+                            + "{} imported, {} vehicle(s) repaired in {} ms", result.getMode(), result.getEvents(),
+                    result.getOrders(), result.getInserted(), result.getUpdated(), result.getDeleted(), result.getImported(),
+                    result.getVehiclesRepaired(), result.getElapsedMillis());
+            return result;
+        }
+    }
+
+    // 投影结果与 rental_order 同按 order_id 升序归并比对，不一致的行攒满一批后修正
+    private void reconcile(Shard shard, ProjectionSource source, OrderProjectionResult result,
+                           Set<Long> onRentVehicles, Set<Long> reservedVehicles) {
+        Map<Long, Projected> mismatched = new LinkedHashMap<>();
+        List<Long> untracked = new ArrayList<>();
+        List<RentalOrder> actual = List.of();
+        int position = 0;
+        long afterId = 0;
+        boolean actualDone = false;
+
+        Projected expected = source.next();
+        while (true) {
+            if (position >= actual.size() && !actualDone) {
+                actual = orderStore.scanOrders(shard, afterId, batchSize);
+                position = 0;
+                actualDone = actual.isEmpty();
+                if (!actualDone) {
+                    afterId = actual.get(actual.size() - 1).getOrderId();
+                }
+            }
+            RentalOrder row = position < actual.size() ? actual.get(position) : null;
+            if (expected == null && row == null) {
+                break;
+            }
+            if (row == null || (expected != null && expected.orderId() < row.getOrderId())) {
+                if (expected.order() != null) {
+                    mismatched.put(expected.orderId(), expected);
+                }
+                track(expected.order(), result, onRentVehicles, reservedVehicles);
+                expected = source.next();
+            } else if (expected == null || row.getOrderId() < expected.orderId()) {
+                // 没有事件的订单：补记 IMPORTED 后投影即为当前行
+                untracked.add(row.getOrderId());
+                track(row, result, onRentVehicles, reservedVehicles);
+                position++;
+            } else {
+                if (expected.order() == null || !sameState(expected.order(), row)) {
+                    mismatched.put(expected.orderId(), expected);
+                }
+                track(expected.order(), result, onRentVehicles, reservedVehicles);
+                expected = source.next();
+                position++;
+            }
+            if (mismatched.size() + untracked.size() >= batchSize) {
+                repair(shard, mismatched, untracked, result);
+                mismatched.clear();
+                untracked.clear();
+            }
+        }
+        repair(shard, mismatched, untracked, result);
+    }
+
+    // 计数并记下投影结果中的车辆占用
+    private static void track(RentalOrder order, OrderProjectionResult result, Set<Long> onRentVehicles,
+                              Set<Long> reservedVehicles) {
+        if (order != null) {
+            result.setOrders(result.getOrders() + 1);
+            if (order.getVehicleId() != null && order.getStatus() != null) {
+                if (order.getStatus().isOnRent()) {
+                    onRentVehicles.add(order.getVehicleId());
+                } else if (order.getStatus() == RentalOrderStatus.PAID) {
+                    reservedVehicles.add(order.getVehicleId());
+                }
+            }
+        }
+    }
+
+    // 在分片事务内锁定这些订单后再核对版本号：重建期间又有新事件的订单已由命令投影，跳过
+    private void repair(Shard shard, Map<Long, Projected> mismatched, List<Long> untracked, OrderProjectionResult result) {
+        if (mismatched.isEmpty() && untracked.isEmpty()) {
+            return;
+        }
+        List<Long> ids = new ArrayList<>(mismatched.keySet());
+        ids.addAll(untracked);
+        List<EntityChangeEvent> changes = new ArrayList<>();
+        shard.write(tx -> {
+            Map<Long, RentalOrder> current = orderStore.lockOrders(shard, ids);
+            Map<Long, Integer> lastSeq = eventStore.lastSeq(shard, ids);
+            List<OrderEvent> imports = new ArrayList<>();
+            for (Long id : untracked) {
+                RentalOrder row = current.get(id);
+                if (row != null && !lastSeq.containsKey(id)) {
+                    OrderEvent event = OrderEvent.of(OrderEvent.Type.IMPORTED, row);
+                    event.setOrderId(id);
+                    event.setSeq(1);
+                    imports.add(event);
+                }
+            }
+            eventStore.append(shard, imports);
+            result.setImported(result.getImported() + imports.size());
+
+            for (Projected projected : mismatched.values()) {
+                if (!Objects.equals(lastSeq.get(projected.orderId()), projected.seq())) {
+                    continue;
+                }
+                RentalOrder row = current.get(projected.orderId());
+                if (projected.order() == null) {
+                    if (row != null) {
+                        orderStore.removeOrder(shard, row, changes);
+                        result.setDeleted(result.getDeleted() + 1);
+                    }
+                } else if (row == null) {
+                    orderStore.insertOrder(shard, copy(projected.order()), changes);
+                    result.setInserted(result.getInserted() + 1);
+                } else if (!sameState(projected.order(), row)) {
+                    orderStore.updateOrder(shard, copy(projected.order()), row, changes);
+                    result.setUpdated(result.getUpdated() + 1);
+                }
+            }
+            return null;
+        }, () -> changes.forEach(publisher::publishEvent));
+    }
+
+    // 重建时收集的车辆占用只用来挑出状态可能不对的车辆，不直接写回（收集之后可能又有取车/还车）：
+    // 逐辆在主库事务内锁定车辆行（与存储过程相同），再读取各分片上该车辆未结束的订单，仍不一致时才修正。
+    // 命令先提交订单再投影车辆，车辆行被锁期间提交的取车/还车在本次修正之后投影，不会被覆盖
+    private long reconcileVehicles(Set<Long> onRentVehicles, Set<Long> reservedVehicles) {
+        List<Long> candidates = new ArrayList<>();
+        for (Vehicle vehicle : vehicleRepository.findAll()) {
+            if (targetStatus(vehicle.getStatus(), onRentVehicles.contains(vehicle.getVehicleId()),
+                    reservedVehicles.contains(vehicle.getVehicleId())) != null) {
+                candidates.add(vehicle.getVehicleId());
+            }
+        }
+        long repaired = 0;
+        for (Long vehicleId : candidates) {
+            if (Boolean.TRUE.equals(router.primary().getTransactionTemplate().execute(tx -> reconcileVehicle(vehicleId)))) {
+                repaired++;
+            }
+        }
+        return repaired;
+    }
+
+    private boolean reconcileVehicle(Long vehicleId) {
+        Vehicle vehicle = vehicleRepository.findWithLockByVehicleId(vehicleId).orElse(null);
+        if (vehicle == null) {
+            return false;
+        }
+        boolean onRent = false;
+        boolean reserved = false;
+        for (RentalOrder order : orderStore.findActiveOrdersOfVehicle(vehicleId)) {
+            onRent |= order.getStatus().isOnRent();
+            reserved |= order.getStatus() == RentalOrderStatus.PAID;
+        }
+        VehicleStatus target = targetStatus(vehicle.getStatus(), onRent, reserved);
+        if (target == null) {
+            return false;
+        }
+        vehicle.setStatus(target);
+        vehicleRepository.save(vehicle);
+        return true;
+    }
+
+    // 有在租/待验车订单的车辆应为在租；标记在租却没有已支付/在租/待验车订单的应为在库；其余不动（返回 null）
+    private static VehicleStatus targetStatus(VehicleStatus current, boolean onRent, boolean reserved) {
+        if (onRent && current != VehicleStatus.RENTED) {
+            return VehicleStatus.RENTED;
+        }
+        if (!onRent && !reserved && current == VehicleStatus.RENTED) {
+            return VehicleStatus.IN_STOCK;
+        }
+        return null;
+    }
+
+    private static boolean sameState(RentalOrder a, RentalOrder b) {
+        return Objects.equals(a.getRentStart(), b.getRentStart())
+                && Objects.equals(a.getRentEnd(), b.getRentEnd())
+                && Objects.equals(a.getActualPickupTime(), b.getActualPickupTime())
+                && Objects.equals(a.getActualReturnTime(), b.getActualReturnTime())
+                && Objects.equals(a.getPickupMileage(), b.getPickupMileage())
+                && Objects.equals(a.getReturnMileage(), b.getReturnMileage())
+                && Objects.equals(a.getPickupSoc(), b.getPickupSoc())
+                && Objects.equals(a.getReturnSoc(), b.getReturnSoc())
+                && (a.getTotalAmount() == null ? b.getTotalAmount() == null
+                        : b.getTotalAmount() != null && a.getTotalAmount().compareTo(b.getTotalAmount()) == 0)
+                && a.getStatus() == b.getStatus()
+                && Objects.equals(a.getCustomerId(), b.getCustomerId())
+                && Objects.equals(a.getVehicleId(), b.getVehicleId())
+                && Objects.equals(a.getPickupStoreId(), b.getPickupStoreId())
+                && Objects.equals(a.getReturnStoreId(), b.getReturnStoreId());
+    }
+
+    // 从第一条事件开始按订单重放；maxEventId 不为空时跳过更晚的事件（生成快照）。
+    // 该条件不放进查询：否则优化器可能改走主键范围再排序，每批都扫描整张表
+    private final class EventReplay implements ProjectionSource {
+
+        private final Shard shard;
+        private final Long maxEventId;
+        private final OrderProjectionResult result;
+        private List<OrderEvent> batch = List.of();
+        private int position;
+        private long afterOrderId;
+        private boolean done;
+
+        private EventReplay(Shard shard, Long maxEventId, OrderProjectionResult result) {
+            this.shard = shard;
+            this.maxEventId = maxEventId;
+            this.result = result;
+        }
+
+        @Override
+        public Projected next() {
+            while (true) {
+                if (position >= batch.size()) {
+                    if (done) {
+                        return null;
+                    }
+                    batch = eventStore.scanByOrder(shard, afterOrderId, batchSize);
+                    position = 0;
+                    if (batch.isEmpty()) {
+                        done = true;
+                        return null;
+                    }
+                    afterOrderId = batch.get(batch.size() - 1).getOrderId();
+                }
+                long orderId = batch.get(position).getOrderId();
+                RentalOrder state = null;
+                int seq = 0;
+                while (position < batch.size() && batch.get(position).getOrderId() == orderId) {
+                    OrderEvent event = batch.get(position++);
+                    if (maxEventId != null && event.getEventId() > maxEventId) {
+                        continue;
+                    }
+                    state = apply(state, event);
+                    seq = event.getSeq();
+                    result.setEvents(result.getEvents() + 1);
+                }
+                if (seq > 0) {
+                    return new Projected(orderId, state, seq);
+                }
+            }
+        }
+    }
+
+    // 从快照开始，只重放检查点之后的事件：快照与其后的事件都按 order_id 升序分批读取后归并，内存中各只保留一批
+    private final class SnapshotReplay implements ProjectionSource {
+
+        private final Shard shard;
+        private final long lastEventId;
+        private final OrderProjectionResult result;
+        private List<SnapshotRow> batch = List.of();
+        private int position;
+        private long afterOrderId;
+        private boolean done;
+        private List<OrderEvent> tail = List.of();
+        private int tailPosition;
+        private long tailAfterOrderId;
+        private boolean tailDone;
+
+        private SnapshotReplay(Shard shard, long lastEventId, OrderProjectionResult result) {
+            this.shard = shard;
+            this.lastEventId = lastEventId;
+            this.result = result;
+        }
+
+        @Override
+        public Projected next() {
+            if (position >= batch.size() && !done) {
+                batch = eventStore.scanSnapshot(shard, afterOrderId, batchSize);
+                position = 0;
+                done = batch.isEmpty();
+                if (!done) {
+                    afterOrderId = batch.get(batch.size() - 1).order().getOrderId();
+                }
+            }
+            SnapshotRow row = position < batch.size() ? batch.get(position) : null;
+            Long tailOrderId = tailOrderId();
+            if (row == null && tailOrderId == null) {
+                return null;
+            }
+            if (row != null && (tailOrderId == null || row.order().getOrderId() <= tailOrderId)) {
+                position++;
+                long orderId = row.order().getOrderId();
+                return replay(orderId, row.order(), row.seq(),
+                        tailOrderId != null && tailOrderId == orderId ? takeTail(orderId) : null);
+            }
+            return replay(tailOrderId, null, 0, takeTail(tailOrderId));
+        }
+
+        // 下一个有新事件的订单，没有时为 null
+        private Long tailOrderId() {
+            if (tailPosition >= tail.size() && !tailDone) {
+                tail = eventStore.scanTailByOrder(shard, lastEventId, tailAfterOrderId, batchSize);
+                tailPosition = 0;
+                tailDone = tail.isEmpty();
+                if (!tailDone) {
+                    tailAfterOrderId = tail.get(tail.size() - 1).getOrderId();
+                }
+            }
+            return tailPosition < tail.size() ? tail.get(tailPosition).getOrderId() : null;
+        }
+
+        // 一批中一个订单的事件是连续的
+        private List<OrderEvent> takeTail(long orderId) {
+            int from = tailPosition;
+            while (tailPosition < tail.size() && tail.get(tailPosition).getOrderId() == orderId) {
+                tailPosition++;
+            }
+            return tail.subList(from, tailPosition);
+        }
+
+        private Projected replay(long orderId, RentalOrder state, int seq, List<OrderEvent> events) {
+            if (events == null) {
+                return new Projected(orderId, state, seq);
+            }
+            for (OrderEvent event : events) {
+                if (event.getSeq() <= seq) {
+                    continue;
+                }
+                if (event.getSeq() != seq + 1) {
+                    // 快照与其后的事件之间有缺口（检查点之前的事务提交晚于快照）：该订单从第一条事件重放
+                    log.warn("Order {} has a gap after snapshot seq {}, replaying its full history", orderId, seq);
+                    return fullReplay(shard, orderId, null, result);
+                }
+                state = apply(state, event);
+                seq = event.getSeq();
+                result.setEvents(result.getEvents() + 1);
+            }
+            return new Projected(orderId, state, seq);
+        }
+    }
+
+    private Projected fullReplay(Shard shard, long orderId, Long maxEventId, OrderProjectionResult result) {
+        RentalOrder state = null;
+        int seq = 0;
+        for (OrderEvent event : eventStore.history(shard, orderId)) {
+            if (maxEventId != null && event.getEventId() > maxEventId) {
+                break;
+            }
+            state = apply(state, event);
+            seq = event.getSeq();
+            result.setEvents(result.getEvents() + 1);
+        }
+        return new Projected(orderId, state, seq);
+    }
+
+    // ---------------- 快照 ----------------
+
+    @Scheduled(fixedDelayString = "${rental.order-events.snapshot-interval-ms:3600000}",
+            initialDelayString = "${rental.order-events.snapshot-initial-delay-ms:300000}")
+    public void scheduledSnapshot() {
+        if (!snapshotEnabled) {
+            return;
+        }
+        try {
+            snapshot();
+        } catch (RuntimeException e) {
+            log.warn("Order snapshot failed", e);
+        }
+    }
+
+    // 快照只包含 snapshot-lag-seconds 之前记录的事件：更晚的事件可能还有未提交的事务占着更小的 event_id。
+    // 没有快照的分片从事件全量生成，已有快照的分片只叠加检查点之后的事件
+    public OrderProjectionResult snapshot() {
+        synchronized (lock) {
+            long started = System.currentTimeMillis();
+            OrderProjectionResult result = new OrderProjectionResult();
+            result.setMode(MODE_SNAPSHOT);
+            LocalDateTime cutoff = LocalDateTime.now().minusSeconds(snapshotLagSeconds);
+            for (Shard shard : router.all()) {
+                long upTo = eventStore.lastEventIdBefore(shard, cutoff);
+                Checkpoint checkpoint = eventStore.checkpoint(shard);
+                if (checkpoint == null) {
+                    fullSnapshot(shard, upTo, result);
+                } else if (upTo > checkpoint.lastEventId()) {
+                    incrementalSnapshot(shard, checkpoint, upTo, result);
+                } else {
+                    result.setOrders(result.getOrders() + checkpoint.orderCount());
+                }
+            }
+            result.setElapsedMillis(System.currentTimeMillis() - started);
+            log.info("Order snapshot: {} event(s) applied, {} order(s) in {} ms", result.getEvents(), result.getOrders(),
+                    result.getElapsedMillis());
+            return result;
+        }
+    }
+
+    private void fullSnapshot(Shard shard, long upTo, OrderProjectionResult result) {
+        shard.getTransactionTemplate().executeWithoutResult(tx -> eventStore.clearSnapshot(shard));
+        EventReplay source = new EventReplay(shard, upTo, result);
+        List<SnapshotRow> rows = new ArrayList<>();
+        long count = 0;
+        for (Projected projected = source.next(); projected != null; projected = source.next()) {
+            if (projected.order() == null) {
+                continue;
+            }
+            rows.add(new SnapshotRow(projected.order(), projected.seq()));
+            count++;
+            if (rows.size() >= batchSize) {
+                List<SnapshotRow> chunk = rows;
+                shard.getTransactionTemplate().executeWithoutResult(tx -> eventStore.writeSnapshots(shard, chunk, List.of()));
+                rows = new ArrayList<>();
+            }
+        }
+        // 检查点最后写入：中途失败时没有检查点，重建从事件重放，下次快照重新生成
+        List<SnapshotRow> last = rows;
+        long orders = count;
+        shard.getTransactionTemplate().executeWithoutResult(tx -> {
+            eventStore.writeSnapshots(shard, last, List.of());
+            eventStore.saveCheckpoint(shard, new Checkpoint(upTo, orders, LocalDateTime.now()));
+        });
+        result.setOrders(result.getOrders() + count);
+    }
+
+    // 每批事件与其检查点在同一事务内写入
+    private void incrementalSnapshot(Shard shard, Checkpoint checkpoint, long upTo, OrderProjectionResult result) {
+        long after = checkpoint.lastEventId();
+        long count = checkpoint.orderCount();
+        while (after < upTo) {
+            List<OrderEvent> events = eventStore.scanById(shard, after, upTo, batchSize);
+            if (events.isEmpty()) {
+                break;
+            }
+            long lastEventId = events.get(events.size() - 1).getEventId();
+            Map<Long, List<OrderEvent>> byOrder = new LinkedHashMap<>();
+            for (OrderEvent event : events) {
+                byOrder.computeIfAbsent(event.getOrderId(), id -> new ArrayList<>()).add(event);
+            }
+            Map<Long, SnapshotRow> base = eventStore.findSnapshots(shard, byOrder.keySet());
+            List<SnapshotRow> rows = new ArrayList<>();
+            List<Long> removed = new ArrayList<>();
+            Map<Long, Boolean> existed = new HashMap<>();
+            for (Map.Entry<Long, List<OrderEvent>> entry : byOrder.entrySet()) {
+                long orderId = entry.getKey();
+                SnapshotRow row = base.get(orderId);
+                existed.put(orderId, row != null);
+                RentalOrder state = row != null ? row.order() : null;
+                int seq = row != null ? row.seq() : 0;
+                Projected projected = null;
+                for (OrderEvent event : entry.getValue()) {
+                    if (event.getSeq() <= seq) {
+                        continue;
+                    }
+                    if (event.getSeq() != seq + 1) {
+                        projected = fullReplay(shard, orderId, lastEventId, result);
+                        break;
+                    }
+                    state = apply(state, event);
+                    seq = event.getSeq();
+                    result.setEvents(result.getEvents() + 1);
+                }
+                if (projected == null) {
+                    projected = new Projected(orderId, state, seq);
+                }
+                if (projected.order() != null) {
+                    rows.add(new SnapshotRow(projected.order(), projected.seq()));
+                } else {
+                    removed.add(orderId);
+                }
+            }
+            for (SnapshotRow row : rows) {
+                if (!existed.get(row.order().getOrderId())) {
+                    count++;
+                }
+            }
+            for (Long orderId : removed) {
+                if (existed.get(orderId)) {
+                    count--;
+                }
+            }
+            long orders = count;
+            shard.getTransactionTemplate().executeWithoutResult(tx -> {
+                eventStore.writeSnapshots(shard, rows, removed);
+                eventStore.saveCheckpoint(shard, new Checkpoint(lastEventId, orders, LocalDateTime.now()));
+            });
+            after = lastEventId;
+        }
+        result.setOrders(result.getOrders() + count);
+    }
+
+    // ---------------- 状态 ----------------
+
+    // 各分片的事件数与快照检查点
+    public List<Map<String, Object>> status() {
+        List<Map<String, Object>> shards = new ArrayList<>();
+        for (Shard shard : router.all()) {
+            Map<String, Object> status = new LinkedHashMap<>();
+            status.put("shard", shard.getIndex());
+            status.put("events", eventStore.countEvents(shard));
+            Checkpoint checkpoint = eventStore.checkpoint(shard);
+            status.put("snapshotLastEventId", checkpoint != null ? checkpoint.lastEventId() : null);
+            status.put("snapshotOrders", checkpoint != null ? checkpoint.orderCount() : null);
+            status.put("snapshotTakenAt", checkpoint != null ? checkpoint.takenAt() : null);
+            shards.add(status);
+        }
+        return shards;
+    }
+}
@@ -0,0 +1,210 @@
+package com.tesla.rental.service;
+
+import com.tesla.rental.entity.CarModel;
+import com.tesla.rental.event.AfterCommit;
+import com.tesla.rental.event.EntityChangeEvent;
+import com.tesla.rental.event.RemoteChangeEvent;
+import com.tesla.rental.payload.QuoteRequest;
+import com.tesla.rental.payload.QuoteResponse;
+import com.tesla.rental.repository.CarModelRepository;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+
+// 服务端报价引擎：按车型预先计算 1..N 天的总价表，内部统一使用 long 分计算，
+// 报价时只做数组查表；车型变更后整体重建费率表
+@Service
+public class PricingService {
+
+    private static final int PRECOMPUTED_DAYS = 90;
+    private static final int LOOKUP_CHUNK = 500;
+
+    // 单个车型的费率表
+    static class RateTable {
+        final long dailyCents;
+        final long[] totalCentsByDays = new long[PRECOMPUTED_DAYS + 1];
+
+        RateTable(long dailyCents) {
+            this.dailyCents = dailyCents;
+        }
+    }
+
+    private final CarModelRepository carModelRepository;
+    private final JdbcTemplate jdbcTemplate;
+
+    private final long defaultDailyCents;
+    private final long oneWaySurchargeCents;
+    private final TreeMap<Integer, Long> durationTiers = new TreeMap<>(); // 起始天数 -> 折扣（基点，1% = 100）
+
+    private volatile Map<Long, RateTable> rateTables = Collections.emptyMap();
+    private volatile boolean dirty = true;
+
+    public PricingService(CarModelRepository carModelRepository, JdbcTemplate jdbcTemplate,
+                          @Value("${rental.pricing.default-daily-rate:300}") BigDecimal defaultDailyRate,
+                          @Value("${rental.pricing.one-way-surcharge:200}") BigDecimal oneWaySurcharge,
+                          @Value("${rental.pricing.duration-tiers:3:5,7:10,30:20}") String tiers) {
+        this.carModelRepository = carModelRepository;
+        this.jdbcTemplate = jdbcTemplate;
+        this.defaultDailyCents = toCents(defaultDailyRate);
+        this.oneWaySurchargeCents = toCents(oneWaySurcharge);
+        // 格式："天数:折扣百分比,..."，例如 3:5 表示租 3 天及以上 95 折
+        durationTiers.put(1, 0L);
+        for (String tier : tiers.split(",")) {
+            String[] parts = tier.trim().split(":");
+            if (parts.length == 2) {
+                durationTiers.put(Integer.parseInt(parts[0].trim()),
+                        new BigDecimal(parts[1].trim()).multiply(BigDecimal.valueOf(100)).longValue());
+            }
+        }
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void onReady() {
+        rebuild();
+    }
+
+    // 车型的新增/修改/删除在提交后触发重建
+    @EventListener
+    public void onEntityChange(EntityChangeEvent event) {
+        if (event.isFor(CarModel.class)) {
+            AfterCommit.run(() -> dirty = true);
+        }
+    }
+
+    @EventListener
+    public void onRemoteChange(RemoteChangeEvent event) {
+        if (event.isFor(CarModel.class)) {
+            dirty = true;
+        }
+    }
+
+    public synchronized void rebuild() {
+        // 读取车型之前清除标记：读取期间提交的车型变更会重新置位，下次报价时再重建；读取失败时恢复标记
+        dirty = false;
+        Map<Long, RateTable> tables = new HashMap<>();
+        try {
+            for (CarModel model : carModelRepository.findAll()) {
+                long daily = model.getDailyRate() != null ? toCents(model.getDailyRate()) : defaultDailyCents;
+                RateTable table = new RateTable(daily);
+                for (int days = 1; days <= PRECOMPUTED_DAYS; days++) {
+                    table.totalCentsByDays[days] = durationPrice(daily, days);
+                }
+                tables.put(model.getModelId(), table);
+            }
+        } catch (RuntimeException e) {
+            dirty = true;
+            throw e;
+        }
+        rateTables = tables;
+    }
+
+    private Map<Long, RateTable> tables() {
+        if (dirty) {
+            rebuild();
+        }
+        return rateTables;
+    }
+
+    private long durationPrice(long dailyCents, int days) {
+        long base = dailyCents * days;
+        long discountBps = durationTiers.floorEntry(days).getValue();
+        return base - base * discountBps / 10_000;
+    }
+
+    // 批量报价：按车辆主键分批（每批至多 500 个）查询车型，其余全部在内存中完成
+    public List<QuoteResponse> quote(List<QuoteRequest> requests) {
+        Map<Long, RateTable> tables = tables();
+        Map<Long, Long> vehicleModels = resolveModels(requests);
+        List<QuoteResponse> responses = new ArrayList<>(requests.size());
+        for (QuoteRequest request : requests) {
+            Long modelId = request.getModelId() != null ? request.getModelId() : vehicleModels.get(request.getVehicleId());
+            responses.add(quote(request, modelId, tables));
+        }
+        return responses;
+    }
+
+    public QuoteResponse quote(QuoteRequest request) {
+        return quote(List.of(request)).get(0);
+    }
+
+    private QuoteResponse quote(QuoteRequest request, Long modelId, Map<Long, RateTable> tables) {
+        QuoteResponse response = new QuoteResponse();
+        response.setVehicleId(request.getVehicleId());
+        response.setModelId(modelId);
+        RateTable table = modelId != null ? tables.get(modelId) : null;
+        if (table == null) {
+            response.setError("Unknown vehicle or model");
+            return response;
+        }
+        if (request.getRentStart() == null || request.getRentEnd() == null
+                || !request.getRentEnd().isAfter(request.getRentStart())) {
+            response.setError("Invalid rental period");
+            return response;
+        }
+        int days = billableDays(request.getRentStart(), request.getRentEnd());
+        long base = table.dailyCents * days;
+        long total = days <= PRECOMPUTED_DAYS ? table.totalCentsByDays[days] : durationPrice(table.dailyCents, days);
+        long oneWay = request.getPickupStoreId() != null && request.getReturnStoreId() != null
+                && !request.getPickupStoreId().equals(request.getReturnStoreId()) ? oneWaySurchargeCents : 0L;
+
+        response.setDays(days);
+        response.setBaseCents(base);
+        response.setDiscountCents(base - total);
+        response.setOneWaySurchargeCents(oneWay);
+        response.setTotalCents(total + oneWay);
+        response.setTotalAmount(fromCents(total + oneWay));
+        return response;
+    }
+
+    private Map<Long, Long> resolveModels(List<QuoteRequest> requests) {
+        Set<Long> vehicleIds = new LinkedHashSet<>();
+        for (QuoteRequest request : requests) {
+            if (request.getModelId() == null && request.getVehicleId() != null) {
+                vehicleIds.add(request.getVehicleId());
+            }
+        }
+        Map<Long, Long> models = new HashMap<>();
+        if (vehicleIds.isEmpty()) {
+            return models;
+        }
+        List<Long> ids = new ArrayList<>(vehicleIds);
+        for (int from = 0; from < ids.size(); from += LOOKUP_CHUNK) {
+            List<Long> part = ids.subList(from, Math.min(from + LOOKUP_CHUNK, ids.size()));
+            String placeholders = String.join(",", Collections.nCopies(part.size(), "?"));
+            jdbcTemplate.query("SELECT vehicle_id, model_id FROM vehicle WHERE vehicle_id IN (" + placeholders + ")",
+                    rs -> {
+                        models.put(rs.getLong("vehicle_id"), rs.getLong("model_id"));
+                    }, part.toArray());
+        }
+        return models;
+    }
+
+    // 不足一天按一天计：按秒向上取整，24 小时零 1 分钟计 2 天
+    static int billableDays(LocalDateTime start, LocalDateTime end) {
+        long seconds = Duration.between(start, end).toSeconds();
+        return (int) Math.max((seconds + 86399) / 86400, 1);
+    }
+
+    static long toCents(BigDecimal amount) {
+        return amount.movePointRight(2).setScale(0, RoundingMode.HALF_UP).longValueExact();
+    }
+
+    static BigDecimal fromCents(long cents) {
+        return BigDecimal.valueOf(cents, 2);
+    }
+}
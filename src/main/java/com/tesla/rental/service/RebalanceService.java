@@ -0,0 +1,240 @@
+package com.tesla.rental.service;
+
+import com.tesla.rental.entity.Vehicle;
+import com.tesla.rental.entity.enums.VehicleStatus;
+import com.tesla.rental.event.EntityChangeEvent;
+import com.tesla.rental.payload.RebalancePlan;
+import com.tesla.rental.payload.RebalanceRequest;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeSet;
+
+// 门店间车辆调拨优化：读取各门店各车型的在库车辆与目标数量，按车型求最小费用调拨方案，
+// 并可在一个事务内批量落库（替代逐辆调用 sp_transfer_vehicle）
+@Service
+public class RebalanceService {
+
+    private final JdbcTemplate jdbcTemplate;
+    private final ApplicationEventPublisher publisher;
+    private final DemandForecastService forecastService;
+    private final RollupService rollupService;
+
+    public RebalanceService(JdbcTemplate jdbcTemplate, ApplicationEventPublisher publisher,
+                            DemandForecastService forecastService, RollupService rollupService) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.publisher = publisher;
+        this.forecastService = forecastService;
+        this.rollupService = rollupService;
+    }
+
+    // 车型 -> 门店 -> 在库车辆
+    private Map<Long, Map<Long, List<Vehicle>>> loadInventory() {
+        Map<Long, Map<Long, List<Vehicle>>> inventory = new HashMap<>();
+        jdbcTemplate.query("SELECT vehicle_id, plate_no, store_id, model_id, current_soc, current_mileage FROM vehicle"
+                        + " WHERE status = ? AND store_id IS NOT NULL",
+                rs -> {
+                    Vehicle vehicle = new Vehicle();
+                    vehicle.setVehicleId(rs.getLong("vehicle_id"));
+                    vehicle.setPlateNo(rs.getString("plate_no"));
+                    vehicle.setStoreId(rs.getLong("store_id"));
+                    vehicle.setModelId(rs.getLong("model_id"));
+                    vehicle.setCurrentSoc(rs.getObject("current_soc", Double.class));
+                    vehicle.setCurrentMileage(rs.getObject("current_mileage", Double.class));
+                    vehicle.setStatus(VehicleStatus.IN_STOCK);
+                    inventory.computeIfAbsent(vehicle.getModelId(), k -> new HashMap<>())
+                            .computeIfAbsent(vehicle.getStoreId(), k -> new ArrayList<>())
+                            .add(vehicle);
+                }, VehicleStatus.IN_STOCK.getLabel());
+        return inventory;
+    }
+
+    public RebalancePlan plan(RebalanceRequest request) {
+        return solve(request, loadInventory());
+    }
+
+    @Transactional
+    public RebalancePlan apply(RebalanceRequest request) {
+        Map<Long, Map<Long, List<Vehicle>>> inventory = loadInventory();
+        RebalancePlan plan = solve(request, inventory);
+
+        List<Object[]> batch = new ArrayList<>();
+        List<Vehicle> moved = new ArrayList<>();
+        List<Long> fromStores = new ArrayList<>();
+        for (RebalancePlan.Transfer transfer : plan.getTransfers()) {
+            List<Vehicle> pool = inventory.get(transfer.getModelId()).get(transfer.getFromStoreId());
+            List<Long> ids = new ArrayList<>();
+            for (int i = 0; i < transfer.getQuantity(); i++) {
+                Vehicle vehicle = pool.remove(pool.size() - 1);
+                ids.add(vehicle.getVehicleId());
+                moved.add(vehicle);
+                fromStores.add(vehicle.getStoreId());
+                batch.add(new Object[] { transfer.getToStoreId(), vehicle.getVehicleId(), vehicle.getStoreId(),
+                        VehicleStatus.IN_STOCK.getLabel() });
+                vehicle.setStoreId(transfer.getToStoreId());
+            }
+            transfer.setVehicleIds(ids);
+        }
+
+        // 条件更新：车辆在读取后被租出或已移走时跳过
+        List<Integer> appliedIndexes = new ArrayList<>();
+        for (int start = 0; start < batch.size(); start += 1000) {
+            List<Object[]> chunk = batch.subList(start, Math.min(start + 1000, batch.size()));
+            int[] counts = jdbcTemplate.batchUpdate(
+                    "UPDATE vehicle SET store_id = ? WHERE vehicle_id = ? AND store_id = ? AND status = ?", chunk);
+            for (int i = 0; i < counts.length; i++) {
+                if (counts[i] != 0) {
+                    appliedIndexes.add(start + i);
+                }
+            }
+        }
+        // 门店汇总的增量按门店合并后再写
+        rollupService.deferred(() -> {
+            for (int index : appliedIndexes) {
+                Vehicle vehicle = moved.get(index);
+                Map<String, Object> previous = new LinkedHashMap<>();
+                previous.put("storeId", fromStores.get(index));
+                previous.put("status", vehicle.getStatus());
+                previous.put("currentSoc", vehicle.getCurrentSoc());
+                previous.put("currentMileage", vehicle.getCurrentMileage());
+                previous.put("modelId", vehicle.getModelId());
+                previous.put("plateNo", vehicle.getPlateNo());
+                publisher.publishEvent(new EntityChangeEvent(Vehicle.class, vehicle.getVehicleId(),
+                        EntityChangeEvent.Action.UPDATE, vehicle, previous));
+            }
+        });
+        int applied = appliedIndexes.size();
+        plan.setAppliedVehicles(applied);
+        jdbcTemplate.update("INSERT INTO audit_log (action, action_time) VALUES (?, ?)",
+                "车辆调拨优化：计划 " + plan.getTotalVehicles() + " 辆，实际调拨 " + applied + " 辆", LocalDateTime.now());
+        return plan;
+    }
+
+    private RebalancePlan solve(RebalanceRequest request, Map<Long, Map<Long, List<Vehicle>>> inventory) {
+        long startNanos = System.nanoTime();
+
+        // 车型 -> 门店 -> 目标数量
+        Map<Long, Map<Long, Integer>> targets = new HashMap<>();
+        TreeSet<Long> storeIds = new TreeSet<>();
+        inventory.values().forEach(stores -> storeIds.addAll(stores.keySet()));
+        if ((request.getTargets() == null || request.getTargets().isEmpty()) && request.getHorizonHours() != null) {
+            request.setTargets(forecastTargets(inventory, request.getHorizonHours()));
+        }
+        if (request.getTargets() != null) {
+            for (RebalanceRequest.Target target : request.getTargets()) {
+                if (target.getStoreId() == null || target.getModelId() == null || target.getTarget() == null) {
+                    continue;
+                }
+                targets.computeIfAbsent(target.getModelId(), k -> new HashMap<>())
+                        .put(target.getStoreId(), target.getTarget());
+                storeIds.add(target.getStoreId());
+            }
+        }
+        if (request.getCosts() != null) {
+            for (RebalanceRequest.Cost cost : request.getCosts()) {
+                if (cost.getFromStoreId() == null || cost.getToStoreId() == null) {
+                    throw new IllegalArgumentException("调拨费用必须指定调出门店和调入门店");
+                }
+                // 求解器按非负费用求最短路
+                if (cost.getCost() != null && cost.getCost() < 0) {
+                    throw new IllegalArgumentException("调拨费用不能为负数");
+                }
+                storeIds.add(cost.getFromStoreId());
+                storeIds.add(cost.getToStoreId());
+            }
+        }
+        Long[] stores = storeIds.toArray(new Long[0]);
+        Map<Long, Integer> storeIndex = new HashMap<>();
+        for (int i = 0; i < stores.length; i++) {
+            storeIndex.put(stores[i], i);
+        }
+        List<TransferSolver.Edge> edges = new ArrayList<>();
+        if (request.getCosts() != null) {
+            for (RebalanceRequest.Cost cost : request.getCosts()) {
+                if (cost.getCost() != null && !cost.getFromStoreId().equals(cost.getToStoreId())) {
+                    edges.add(new TransferSolver.Edge(storeIndex.get(cost.getFromStoreId()),
+                            storeIndex.get(cost.getToStoreId()), cost.getCost()));
+                }
+            }
+        }
+        long defaultCost = request.getDefaultCost() != null ? request.getDefaultCost() : 1L;
+        if (defaultCost < 0) {
+            throw new IllegalArgumentException("调拨费用不能为负数");
+        }
+
+        RebalancePlan plan = new RebalancePlan();
+        for (Map.Entry<Long, Map<Long, Integer>> modelTargets : targets.entrySet()) {
+            Long modelId = modelTargets.getKey();
+            Map<Long, List<Vehicle>> stock = inventory.getOrDefault(modelId, Map.of());
+            int[] balance = new int[stores.length];
+            int surplus = 0;
+            int deficit = 0;
+            for (Map.Entry<Long, Integer> target : modelTargets.getValue().entrySet()) {
+                int index = storeIndex.get(target.getKey());
+                int current = stock.getOrDefault(target.getKey(), List.of()).size();
+                balance[index] = current - target.getValue();
+                if (balance[index] > 0) {
+                    surplus += balance[index];
+                } else {
+                    deficit -= balance[index];
+                }
+            }
+            if (surplus == 0 || deficit == 0) {
+                plan.setUnmetDemand(plan.getUnmetDemand() + deficit);
+                continue;
+            }
+            // 只保留 富余门店 -> 缺口门店 的指定边，避免经其他门店中转
+            List<TransferSolver.Edge> modelEdges = new ArrayList<>();
+            for (TransferSolver.Edge edge : edges) {
+                if (balance[edge.getFrom()] > 0 && balance[edge.getTo()] < 0) {
+                    modelEdges.add(edge);
+                }
+            }
+            List<TransferSolver.Flow> flows = new TransferSolver().solve(balance, defaultCost, modelEdges);
+            int moved = 0;
+            for (TransferSolver.Flow flow : flows) {
+                RebalancePlan.Transfer transfer = new RebalancePlan.Transfer();
+                transfer.setModelId(modelId);
+                transfer.setFromStoreId(stores[flow.getFrom()]);
+                transfer.setToStoreId(stores[flow.getTo()]);
+                transfer.setQuantity(flow.getQuantity());
+                transfer.setUnitCost(flow.getUnitCost());
+                plan.getTransfers().add(transfer);
+                plan.setTotalCost(plan.getTotalCost() + flow.getUnitCost() * flow.getQuantity());
+                moved += flow.getQuantity();
+            }
+            plan.setTotalVehicles(plan.getTotalVehicles() + moved);
+            plan.setUnmetDemand(plan.getUnmetDemand() + Math.max(deficit - moved, 0));
+        }
+        plan.setSolveMillis((System.nanoTime() - startNanos) / 1_000_000);
+        return plan;
+    }
+
+    // 以预测取车量（向上取整）作为目标；有库存但无预测的门店目标为 0，其车辆可调出
+    private List<RebalanceRequest.Target> forecastTargets(Map<Long, Map<Long, List<Vehicle>>> inventory, int horizonHours) {
+        LocalDateTime now = LocalDateTime.now();
+        Map<List<Long>, Integer> targets = new LinkedHashMap<>();
+        for (DemandForecastService.StoreModelForecast forecast : forecastService.expectedPickups(now, now.plusHours(horizonHours))) {
+            targets.put(List.of(forecast.getStoreId(), forecast.getModelId()), (int) Math.ceil(forecast.getExpected()));
+        }
+        inventory.forEach((modelId, stores) -> stores.keySet()
+                .forEach(storeId -> targets.putIfAbsent(List.of(storeId, modelId), 0)));
+        List<RebalanceRequest.Target> result = new ArrayList<>(targets.size());
+        targets.forEach((key, value) -> {
+            RebalanceRequest.Target target = new RebalanceRequest.Target();
+            target.setStoreId(key.get(0));
+            target.setModelId(key.get(1));
+            target.setTarget(value);
+            result.add(target);
+        });
+        return result;
+    }
+}
@@ -0,0 +1,281 @@
+package com.tesla.rental.service;
+
+import com.tesla.rental.entity.enums.PaymentType;
+import com.tesla.rental.entity.enums.RentalOrderStatus;
+import com.tesla.rental.entity.enums.VehicleStatus;
+import com.tesla.rental.shard.Shard;
+import com.tesla.rental.shard.ShardRouter;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.math.BigDecimal;
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.TreeSet;
+
+import static com.tesla.rental.service.RollupService.*;
+
+// 汇总表一致性校验：从源表全量重算期望值，与增量维护的汇总表逐列比对，必要时整体重建。
+// 订单/支付/违章逐个分片读取后合并（支付、违章与所属订单在同一分片）
+@Service
+public class RollupConsistencyChecker {
+
+    private final JdbcTemplate jdbcTemplate;
+    private final ShardRouter shards;
+
+    public RollupConsistencyChecker(JdbcTemplate jdbcTemplate, ShardRouter shards) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.shards = shards;
+    }
+
+    @Data
+    @AllArgsConstructor
+    public static class RollupDiff {
+        private String table;
+        private Long key;
+        private String column;
+        private Object expected;
+        private Object actual;
+    }
+
+    @Transactional(readOnly = true)
+    public List<RollupDiff> check() {
+        List<RollupDiff> diffs = new ArrayList<>();
+        Map<Long, Map<String, Object>> orders = expectedOrders();
+        diff(STORE_TABLE, "store_id", STORE_COLUMNS, expectedStores(), diffs);
+        diff(CUSTOMER_TABLE, "customer_id", CUSTOMER_COLUMNS, expectedCustomers(orders), diffs);
+        List<String> orderColumns = new ArrayList<>(ORDER_COLUMNS);
+        orderColumns.add("customer_id");
+        orderColumns.add("vehicle_id");
+        orderColumns.add("order_total_amount");
+        diff(ORDER_TABLE, "order_id", orderColumns, orders, diffs);
+        return diffs;
+    }
+
+    @Transactional
+    public void rebuild() {
+        Map<Long, Map<String, Object>> orders = expectedOrders();
+        replace(STORE_TABLE, "store_id", expectedStores());
+        replace(CUSTOMER_TABLE, "customer_id", expectedCustomers(orders));
+        replace(ORDER_TABLE, "order_id", orders);
+    }
+
+    // ---------------- 从源表重算 ----------------
+
+    private Map<Long, Map<String, Object>> expectedStores() {
+        Map<Long, Map<String, Object>> result = new TreeMap<>();
+        jdbcTemplate.query("SELECT store_id, status, current_soc, current_mileage FROM vehicle WHERE store_id IS NOT NULL",
+                rs -> {
+                    double soc = rs.getDouble("current_soc");
+                    Double socValue = rs.wasNull() ? null : soc;
+                    double mileage = rs.getDouble("current_mileage");
+                    Double mileageValue = rs.wasNull() ? null : mileage;
+                    String status = rs.getString("status");
+                    add(result.computeIfAbsent(rs.getLong("store_id"), k -> zeroRow(STORE_COLUMNS)),
+                            vehicleContribution(status != null ? VehicleStatus.from(status) : null, socValue, mileageValue));
+                });
+        for (Shard shard : shards.all()) {
+            shard.getJdbcTemplate().query("SELECT pickup_store_id, COUNT(*) AS cnt FROM rental_order"
+                            + " WHERE status IN (?, ?) AND pickup_store_id IS NOT NULL GROUP BY pickup_store_id",
+                    rs -> {
+                        add(result.computeIfAbsent(rs.getLong("pickup_store_id"), k -> zeroRow(STORE_COLUMNS)),
+                                Map.of("active_rental_count", rs.getLong("cnt")));
+                    }, RentalOrderStatus.RENTED.getLabel(), RentalOrderStatus.PENDING_INSPECTION.getLabel());
+        }
+        return result;
+    }
+
+    private Map<Long, Map<String, Object>> expectedOrders() {
+        Map<Long, Map<String, Object>> result = new TreeMap<>();
+        for (Shard shard : shards.all()) {
+            expectedOrders(shard.getJdbcTemplate(), result);
+        }
+        return result;
+    }
+
+    // 一个分片内的订单，再叠加同一分片上的支付、违章
+    private static void expectedOrders(JdbcTemplate source, Map<Long, Map<String, Object>> result) {
+        source.query("SELECT order_id, customer_id, vehicle_id, total_amount, status, rent_start, rent_end FROM rental_order",
+                rs -> {
+                    Map<String, Object> row = zeroRow(ORDER_COLUMNS);
+                    row.put("customer_id", rs.getObject("customer_id", Long.class));
+                    row.put("vehicle_id", rs.getObject("vehicle_id", Long.class));
+                    row.put("order_total_amount", rs.getBigDecimal("total_amount"));
+                    String status = rs.getString("status");
+                    row.put("_status", status != null ? RentalOrderStatus.from(status) : null);
+                    row.put("_rent_start", toLocalDateTime(rs.getTimestamp("rent_start")));
+                    row.put("_rent_end", toLocalDateTime(rs.getTimestamp("rent_end")));
+                    result.put(rs.getLong("order_id"), row);
+                });
+        source.query("SELECT order_id, type, COUNT(*) AS cnt, SUM(amount) AS total FROM payment"
+                        + " WHERE order_id IS NOT NULL GROUP BY order_id, type",
+                rs -> {
+                    Map<String, Object> row = result.computeIfAbsent(rs.getLong("order_id"), k -> orphanRow());
+                    BigDecimal total = rs.getBigDecimal("total");
+                    total = total != null ? total : BigDecimal.ZERO;
+                    Map<String, Number> part = new HashMap<>();
+                    part.put("payment_count", rs.getLong("cnt"));
+                    part.put("total_paid", total);
+                    String type = rs.getString("type");
+                    PaymentType paymentType = type != null ? PaymentType.from(type) : null;
+                    if (paymentType == PaymentType.DEPOSIT) {
+                        part.put("deposit_amount", total);
+                    } else if (paymentType == PaymentType.RENTAL_FEE) {
+                        part.put("rental_fee_amount", total);
+                    } else if (paymentType == PaymentType.COMPENSATION) {
+                        part.put("penalty_amount", total);
+                    }
+                    add(row, part);
+                });
+        source.query("SELECT order_id, COUNT(*) AS cnt, SUM(fine_amount) AS total FROM violation"
+                        + " WHERE order_id IS NOT NULL GROUP BY order_id",
+                rs -> {
+                    BigDecimal total = rs.getBigDecimal("total");
+                    add(result.computeIfAbsent(rs.getLong("order_id"), k -> orphanRow()),
+                            Map.of("violation_count", rs.getLong("cnt"),
+                                    "fine_amount", total != null ? total : BigDecimal.ZERO));
+                });
+    }
+
+    private Map<Long, Map<String, Object>> expectedCustomers(Map<Long, Map<String, Object>> orders) {
+        Map<Long, Map<String, Object>> result = new TreeMap<>();
+        for (Map<String, Object> order : orders.values()) {
+            Long customerId = (Long) order.get("customer_id");
+            if (customerId == null || !order.containsKey("_status")) {
+                continue;
+            }
+            Map<String, Number> sums = new HashMap<>();
+            for (String column : ORDER_COLUMNS) {
+                sums.put(column, (Number) order.get(column));
+            }
+            LocalDateTime rentStart = (LocalDateTime) order.get("_rent_start");
+            Map<String, Object> row = result.computeIfAbsent(customerId, k -> {
+                Map<String, Object> created = zeroRow(CUSTOMER_COLUMNS);
+                created.put("last_rental_date", null);
+                return created;
+            });
+            add(row, customerContribution((RentalOrderStatus) order.get("_status"),
+                    (BigDecimal) order.get("order_total_amount"), rentStart, (LocalDateTime) order.get("_rent_end"), sums));
+            LocalDateTime last = (LocalDateTime) row.get("last_rental_date");
+            if (rentStart != null && (last == null || last.isBefore(rentStart))) {
+                row.put("last_rental_date", rentStart);
+            }
+        }
+        return result;
+    }
+
+    // ---------------- 比对与重建 ----------------
+
+    private void diff(String table, String keyColumn, List<String> columns,
+                      Map<Long, Map<String, Object>> expected, List<RollupDiff> diffs) {
+        Map<Long, Map<String, Object>> actual = new HashMap<>();
+        for (Map<String, Object> row : jdbcTemplate.queryForList("SELECT * FROM " + table)) {
+            Map<String, Object> lower = lowerKeys(row);
+            actual.put(((Number) lower.get(keyColumn)).longValue(), lower);
+        }
+        TreeSet<Long> keys = new TreeSet<>(expected.keySet());
+        keys.addAll(actual.keySet());
+        for (Long key : keys) {
+            Map<String, Object> exp = expected.getOrDefault(key, Collections.emptyMap());
+            Map<String, Object> act = actual.getOrDefault(key, Collections.emptyMap());
+            for (String column : columns) {
+                if (!sameValue(exp.get(column), act.get(column))) {
+                    diffs.add(new RollupDiff(table, key, column, exp.get(column), act.get(column)));
+                }
+            }
+        }
+    }
+
+    private void replace(String table, String keyColumn, Map<Long, Map<String, Object>> rows) {
+        jdbcTemplate.update("DELETE FROM " + table);
+        if (rows.isEmpty()) {
+            return;
+        }
+        List<String> columns = new ArrayList<>();
+        for (String column : rows.values().iterator().next().keySet()) {
+            if (!column.startsWith("_")) {
+                columns.add(column);
+            }
+        }
+        String sql = "INSERT INTO " + table + " (" + keyColumn + ", " + String.join(", ", columns) + ") VALUES (?"
+                + ", ?".repeat(columns.size()) + ")";
+        List<Object[]> batch = new ArrayList<>();
+        for (Map.Entry<Long, Map<String, Object>> entry : rows.entrySet()) {
+            Object[] args = new Object[columns.size() + 1];
+            args[0] = entry.getKey();
+            for (int i = 0; i < columns.size(); i++) {
+                args[i + 1] = entry.getValue().get(columns.get(i));
+            }
+            batch.add(args);
+            if (batch.size() == 1000) {
+                jdbcTemplate.batchUpdate(sql, batch);
+                batch.clear();
+            }
+        }
+        if (!batch.isEmpty()) {
+            jdbcTemplate.batchUpdate(sql, batch);
+        }
+    }
+
+    private static Map<String, Object> zeroRow(List<String> columns) {
+        Map<String, Object> row = new LinkedHashMap<>();
+        for (String column : columns) {
+            row.put(column, 0L);
+        }
+        return row;
+    }
+
+    // 订单已删除但仍有支付/违章引用时，增量维护也会保留一行无客户的汇总
+    private static Map<String, Object> orphanRow() {
+        Map<String, Object> row = zeroRow(ORDER_COLUMNS);
+        row.put("customer_id", null);
+        row.put("vehicle_id", null);
+        row.put("order_total_amount", null);
+        return row;
+    }
+
+    private static void add(Map<String, Object> row, Map<String, Number> part) {
+        for (Map.Entry<String, Number> entry : part.entrySet()) {
+            Object current = row.get(entry.getKey());
+            Number value = entry.getValue();
+            if (value instanceof BigDecimal || current instanceof BigDecimal) {
+                row.put(entry.getKey(), toBigDecimal(current).add(toBigDecimal(value)));
+            } else if (value instanceof Double || current instanceof Double) {
+                row.put(entry.getKey(), ((Number) current).doubleValue() + value.doubleValue());
+            } else {
+                row.put(entry.getKey(), ((Number) current).longValue() + value.longValue());
+            }
+        }
+    }
+
+    // 缺失的汇总行视同全 0；浮点列允许微小误差
+    private static boolean sameValue(Object expected, Object actual) {
+        if (expected == null || actual == null) {
+            boolean expectedZero = expected == null || isZero(expected);
+            boolean actualZero = actual == null || isZero(actual);
+            return expectedZero && actualZero;
+        }
+        if (expected instanceof Number && actual instanceof Number) {
+            return toBigDecimal(expected).subtract(toBigDecimal(actual)).abs().compareTo(new BigDecimal("0.000001")) < 0;
+        }
+        return expected.equals(actual);
+    }
+
+    private static boolean isZero(Object value) {
+        return value instanceof Number && toBigDecimal(value).signum() == 0;
+    }
+
+    private static LocalDateTime toLocalDateTime(Timestamp timestamp) {
+        return timestamp != null ? timestamp.toLocalDateTime() : null;
+    }
+}
@@ -0,0 +1,492 @@
+package com.tesla.rental.service;
+
+import com.tesla.rental.entity.Payment;
+import com.tesla.rental.entity.RentalOrder;
+import com.tesla.rental.entity.Vehicle;
+import com.tesla.rental.entity.Violation;
+import com.tesla.rental.entity.enums.PaymentType;
+import com.tesla.rental.entity.enums.RentalOrderStatus;
+import com.tesla.rental.entity.enums.VehicleStatus;
+import com.tesla.rental.event.EntityChangeEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+
+// 报表汇总表的增量维护：每次车辆/订单/支付/违章写入时，只对受影响的汇总行做 +/- 增量更新，
+// 不再像 vw_* 视图那样每次读取都对全表做多表 JOIN + GROUP BY
+@Service
+public class RollupService {
+
+    public static final String STORE_TABLE = "rpt_store_rollup";
+    public static final String CUSTOMER_TABLE = "rpt_customer_rollup";
+    public static final String ORDER_TABLE = "rpt_order_rollup";
+
+    // 各汇总表中可累加的列
+    public static final List<String> STORE_COLUMNS = List.of(
+            "total_vehicles", "available_vehicles", "rented_vehicles", "maintenance_vehicles",
+            "soc_sum", "low_battery_count", "full_battery_count", "mileage_sum", "active_rental_count");
+    public static final List<String> CUSTOMER_COLUMNS = List.of(
+            "total_orders", "pending_orders", "active_orders", "completed_orders", "total_rental_days",
+            "total_order_amount", "total_paid_amount", "total_deposit", "total_rental_fee", "total_penalty",
+            "violation_count", "total_fine_amount");
+    public static final List<String> ORDER_COLUMNS = List.of(
+            "payment_count", "total_paid", "deposit_amount", "rental_fee_amount", "penalty_amount",
+            "violation_count", "fine_amount");
+
+    private final JdbcTemplate jdbcTemplate;
+
+    // 批量写入期间暂存的某张汇总表的增量：主键 -> 列 -> 累计值
+    private record DeferredTable(String keyColumn, List<String> columns, Map<Long, Map<String, Number>> rows) {
+    }
+
+    // 批量写入作用域：暂存的增量，以及按订单暂存、结束时再批量解析客户的客户汇总增量
+    private static class DeferredScope {
+        final Map<String, DeferredTable> tables = new LinkedHashMap<>();
+        final Map<Long, Map<String, Number>> customerDeltasByOrder = new LinkedHashMap<>();
+    }
+
+    private final ThreadLocal<DeferredScope> deferred = new ThreadLocal<>();
+
+    public RollupService(JdbcTemplate jdbcTemplate) {
+        this.jdbcTemplate = jdbcTemplate;
+    }
+
+    @EventListener
+    public void onEntityChange(EntityChangeEvent event) {
+        if (event.isFor(Vehicle.class)) {
+            onVehicleChange(event);
+        } else if (event.isFor(RentalOrder.class)) {
+            onOrderChange(event);
+        } else if (event.isFor(Payment.class)) {
+            onPaymentChange(event);
+        } else if (event.isFor(Violation.class)) {
+            onViolationChange(event);
+        }
+    }
+
+    // ---------------- 车辆 -> 门店汇总 ----------------
+
+    private void onVehicleChange(EntityChangeEvent event) {
+        Vehicle vehicle = event.getEntity(Vehicle.class);
+        Long oldStore = null;
+        Map<String, Number> oldPart = null;
+        if (event.getAction() != EntityChangeEvent.Action.INSERT) {
+            oldStore = (Long) event.previousValue("storeId");
+            oldPart = vehicleContribution((VehicleStatus) event.previousValue("status"),
+                    (Double) event.previousValue("currentSoc"), (Double) event.previousValue("currentMileage"));
+        }
+        Long newStore = null;
+        Map<String, Number> newPart = null;
+        if (event.getAction() != EntityChangeEvent.Action.DELETE) {
+            newStore = vehicle.getStoreId();
+            newPart = vehicleContribution(vehicle.getStatus(), vehicle.getCurrentSoc(), vehicle.getCurrentMileage());
+        }
+        applyMove(STORE_TABLE, "store_id", STORE_COLUMNS, oldStore, oldPart, newStore, newPart);
+    }
+
+    public static Map<String, Number> vehicleContribution(VehicleStatus status, Double soc, Double mileage) {
+        Map<String, Number> part = new LinkedHashMap<>();
+        part.put("total_vehicles", 1L);
+        part.put("available_vehicles", status == VehicleStatus.IN_STOCK ? 1L : 0L);
+        part.put("rented_vehicles", status == VehicleStatus.RENTED ? 1L : 0L);
+        part.put("maintenance_vehicles", status == VehicleStatus.MAINTENANCE ? 1L : 0L);
+        part.put("soc_sum", soc != null ? soc : 0.0);
+        part.put("low_battery_count", soc != null && soc < 20 ? 1L : 0L);
+        part.put("full_battery_count", soc != null && soc >= 80 ? 1L : 0L);
+        part.put("mileage_sum", mileage != null ? mileage : 0.0);
+        return part;
+    }
+
+    // ---------------- 订单 -> 客户汇总 / 门店在租数 / 订单汇总 ----------------
+
+    private void onOrderChange(EntityChangeEvent event) {
+        RentalOrder order = event.getEntity(RentalOrder.class);
+        Long orderId = (Long) event.getId();
+        Map<String, Number> sums = orderSums(orderId);
+
+        Long oldCustomer = null;
+        Long oldStore = null;
+        RentalOrderStatus oldStatus = null;
+        Map<String, Number> oldPart = null;
+        if (event.getAction() != EntityChangeEvent.Action.INSERT) {
+            oldCustomer = (Long) event.previousValue("customerId");
+            oldStore = (Long) event.previousValue("pickupStoreId");
+            oldStatus = (RentalOrderStatus) event.previousValue("status");
+            oldPart = customerContribution(oldStatus, (BigDecimal) event.previousValue("totalAmount"),
+                    (LocalDateTime) event.previousValue("rentStart"), (LocalDateTime) event.previousValue("rentEnd"), sums);
+        }
+        Long newCustomer = null;
+        Long newStore = null;
+        RentalOrderStatus newStatus = null;
+        Map<String, Number> newPart = null;
+        if (event.getAction() != EntityChangeEvent.Action.DELETE) {
+            newCustomer = order.getCustomerId();
+            newStore = order.getPickupStoreId();
+            newStatus = order.getStatus();
+            newPart = customerContribution(newStatus, order.getTotalAmount(), order.getRentStart(), order.getRentEnd(), sums);
+        }
+
+        applyMove(CUSTOMER_TABLE, "customer_id", CUSTOMER_COLUMNS, oldCustomer, oldPart, newCustomer, newPart);
+        if (newCustomer != null && order.getRentStart() != null
+                && (!newCustomer.equals(oldCustomer) || !order.getRentStart().equals(event.previousValue("rentStart")))) {
+            jdbcTemplate.update("UPDATE " + CUSTOMER_TABLE + " SET last_rental_date = ? WHERE customer_id = ?"
+                    + " AND (last_rental_date IS NULL OR last_rental_date < ?)",
+                    order.getRentStart(), newCustomer, order.getRentStart());
+        }
+
+        // 门店在租订单数按取车门店统计
+        boolean wasActive = oldStatus != null && oldStatus.isOnRent() && oldStore != null;
+        boolean isActive = newStatus != null && newStatus.isOnRent() && newStore != null;
+        if (wasActive != isActive || (wasActive && !oldStore.equals(newStore))) {
+            if (wasActive) {
+                applyDelta(STORE_TABLE, "store_id", oldStore, STORE_COLUMNS, Map.of("active_rental_count", 1L), -1);
+            }
+            if (isActive) {
+                applyDelta(STORE_TABLE, "store_id", newStore, STORE_COLUMNS, Map.of("active_rental_count", 1L), 1);
+            }
+        }
+
+        if (event.getAction() == EntityChangeEvent.Action.DELETE) {
+            // 仍被支付/违章引用的订单保留一行无客户的汇总，与一致性校验的口径一致
+            jdbcTemplate.update("DELETE FROM " + ORDER_TABLE
+                    + " WHERE order_id = ? AND payment_count = 0 AND violation_count = 0", orderId);
+            jdbcTemplate.update("UPDATE " + ORDER_TABLE
+                    + " SET customer_id = NULL, vehicle_id = NULL, order_total_amount = NULL WHERE order_id = ?", orderId);
+        } else if (event.getAction() == EntityChangeEvent.Action.INSERT
+                || !Objects.equals(oldCustomer, newCustomer)
+                || !Objects.equals(event.previousValue("vehicleId"), order.getVehicleId())
+                || compare((BigDecimal) event.previousValue("totalAmount"), order.getTotalAmount()) != 0) {
+            ensureRow(ORDER_TABLE, "order_id", orderId, ORDER_COLUMNS);
+            jdbcTemplate.update("UPDATE " + ORDER_TABLE
+                    + " SET customer_id = ?, vehicle_id = ?, order_total_amount = ? WHERE order_id = ?",
+                    order.getCustomerId(), order.getVehicleId(), order.getTotalAmount(), orderId);
+        }
+    }
+
+    public static Map<String, Number> customerContribution(RentalOrderStatus status, BigDecimal totalAmount,
+                                                           LocalDateTime rentStart, LocalDateTime rentEnd,
+                                                           Map<String, Number> sums) {
+        Map<String, Number> part = new LinkedHashMap<>();
+        part.put("total_orders", 1L);
+        part.put("pending_orders", status == RentalOrderStatus.PAID ? 1L : 0L);
+        part.put("active_orders", status != null && status.isOnRent() ? 1L : 0L);
+        part.put("completed_orders", status == RentalOrderStatus.SETTLED ? 1L : 0L);
+        part.put("total_rental_days", rentalDays(rentStart, rentEnd));
+        part.put("total_order_amount", totalAmount != null ? totalAmount : BigDecimal.ZERO);
+        part.put("total_paid_amount", sums.getOrDefault("total_paid", BigDecimal.ZERO));
+        part.put("total_deposit", sums.getOrDefault("deposit_amount", BigDecimal.ZERO));
+        part.put("total_rental_fee", sums.getOrDefault("rental_fee_amount", BigDecimal.ZERO));
+        part.put("total_penalty", sums.getOrDefault("penalty_amount", BigDecimal.ZERO));
+        part.put("violation_count", sums.getOrDefault("violation_count", 0L));
+        part.put("total_fine_amount", sums.getOrDefault("fine_amount", BigDecimal.ZERO));
+        return part;
+    }
+
+    // 与视图中 DATEDIFF(rent_end, rent_start) 口径一致：按日期差计算
+    public static long rentalDays(LocalDateTime rentStart, LocalDateTime rentEnd) {
+        if (rentStart == null || rentEnd == null) {
+            return 0L;
+        }
+        return ChronoUnit.DAYS.between(rentStart.toLocalDate(), rentEnd.toLocalDate());
+    }
+
+    // 读取订单当前的支付/违章合计，用于订单换客户或删除时整体迁移
+    private Map<String, Number> orderSums(Long orderId) {
+        List<Map<String, Object>> rows = jdbcTemplate.queryForList(
+                "SELECT * FROM " + ORDER_TABLE + " WHERE order_id = ?", orderId);
+        Map<String, Number> sums = new LinkedHashMap<>();
+        if (!rows.isEmpty()) {
+            Map<String, Object> row = lowerKeys(rows.get(0));
+            sums.put("total_paid", toBigDecimal(row.get("total_paid")));
+            sums.put("deposit_amount", toBigDecimal(row.get("deposit_amount")));
+            sums.put("rental_fee_amount", toBigDecimal(row.get("rental_fee_amount")));
+            sums.put("penalty_amount", toBigDecimal(row.get("penalty_amount")));
+            sums.put("violation_count", ((Number) row.getOrDefault("violation_count", 0L)).longValue());
+            sums.put("fine_amount", toBigDecimal(row.get("fine_amount")));
+        }
+        return sums;
+    }
+
+    // ---------------- 支付 -> 订单汇总 / 客户汇总 ----------------
+
+    private void onPaymentChange(EntityChangeEvent event) {
+        Payment payment = event.getEntity(Payment.class);
+        if (event.getAction() != EntityChangeEvent.Action.INSERT) {
+            Long oldOrder = (Long) event.previousValue("orderId");
+            PaymentType oldType = (PaymentType) event.previousValue("type");
+            BigDecimal oldAmount = (BigDecimal) event.previousValue("amount");
+            if (event.getAction() == EntityChangeEvent.Action.UPDATE
+                    && Objects.equals(oldOrder, payment.getOrderId())
+                    && oldType == payment.getType()
+                    && compare(oldAmount, payment.getAmount()) == 0) {
+                return;
+            }
+            applyPayment(oldOrder, oldType, oldAmount, -1);
+        }
+        if (event.getAction() != EntityChangeEvent.Action.DELETE) {
+            applyPayment(payment.getOrderId(), payment.getType(), payment.getAmount(), 1);
+        }
+    }
+
+    private void applyPayment(Long orderId, PaymentType type, BigDecimal amount, int sign) {
+        if (orderId == null) {
+            return;
+        }
+        BigDecimal value = amount != null ? amount : BigDecimal.ZERO;
+        Map<String, Number> orderPart = new LinkedHashMap<>();
+        orderPart.put("payment_count", 1L);
+        orderPart.put("total_paid", value);
+        Map<String, Number> customerPart = new LinkedHashMap<>();
+        customerPart.put("total_paid_amount", value);
+        if (type == PaymentType.DEPOSIT) {
+            orderPart.put("deposit_amount", value);
+            customerPart.put("total_deposit", value);
+        } else if (type == PaymentType.RENTAL_FEE) {
+            orderPart.put("rental_fee_amount", value);
+            customerPart.put("total_rental_fee", value);
+        } else if (type == PaymentType.COMPENSATION) {
+            orderPart.put("penalty_amount", value);
+            customerPart.put("total_penalty", value);
+        }
+        applyDelta(ORDER_TABLE, "order_id", orderId, ORDER_COLUMNS, orderPart, sign);
+        applyCustomerDeltaOfOrder(orderId, customerPart, sign);
+    }
+
+    // ---------------- 违章 -> 订单汇总 / 客户汇总 ----------------
+
+    private void onViolationChange(EntityChangeEvent event) {
+        Violation violation = event.getEntity(Violation.class);
+        if (event.getAction() != EntityChangeEvent.Action.INSERT) {
+            Long oldOrder = (Long) event.previousValue("orderId");
+            BigDecimal oldFine = (BigDecimal) event.previousValue("fineAmount");
+            if (event.getAction() == EntityChangeEvent.Action.UPDATE
+                    && Objects.equals(oldOrder, violation.getOrderId())
+                    && compare(oldFine, violation.getFineAmount()) == 0) {
+                return;
+            }
+            applyViolation(oldOrder, oldFine, -1);
+        }
+        if (event.getAction() != EntityChangeEvent.Action.DELETE) {
+            applyViolation(violation.getOrderId(), violation.getFineAmount(), 1);
+        }
+    }
+
+    private void applyViolation(Long orderId, BigDecimal fine, int sign) {
+        if (orderId == null) {
+            return;
+        }
+        BigDecimal value = fine != null ? fine : BigDecimal.ZERO;
+        applyDelta(ORDER_TABLE, "order_id", orderId, ORDER_COLUMNS,
+                Map.of("violation_count", 1L, "fine_amount", value), sign);
+        applyCustomerDeltaOfOrder(orderId, Map.of("violation_count", 1L, "total_fine_amount", value), sign);
+    }
+
+    // 订单所属客户的汇总增量：批量作用域内先按订单累计，结束时用 IN 查询一次解析客户，避免逐单查询
+    private void applyCustomerDeltaOfOrder(Long orderId, Map<String, Number> delta, int sign) {
+        DeferredScope scope = deferred.get();
+        if (scope != null) {
+            Map<String, Number> row = scope.customerDeltasByOrder.computeIfAbsent(orderId, k -> new LinkedHashMap<>());
+            delta.forEach((column, value) -> row.merge(column, signed(value, sign), RollupService::sum));
+            return;
+        }
+        List<Long> ids = jdbcTemplate.queryForList(
+                "SELECT customer_id FROM " + ORDER_TABLE + " WHERE order_id = ?", Long.class, orderId);
+        if (!ids.isEmpty() && ids.get(0) != null) {
+            applyDelta(CUSTOMER_TABLE, "customer_id", ids.get(0), CUSTOMER_COLUMNS, delta, sign);
+        }
+    }
+
+    private void resolveCustomerDeltas(DeferredScope scope) {
+        List<Long> orderIds = new ArrayList<>(scope.customerDeltasByOrder.keySet());
+        for (int start = 0; start < orderIds.size(); start += 1000) {
+            List<Long> chunk = orderIds.subList(start, Math.min(start + 1000, orderIds.size()));
+            jdbcTemplate.query("SELECT order_id, customer_id FROM " + ORDER_TABLE + " WHERE order_id IN ("
+                    + "?, ".repeat(chunk.size() - 1) + "?) AND customer_id IS NOT NULL", rs -> {
+                applyDelta(CUSTOMER_TABLE, "customer_id", rs.getLong("customer_id"), CUSTOMER_COLUMNS,
+                        scope.customerDeltasByOrder.get(rs.getLong("order_id")), 1);
+            }, chunk.toArray());
+        }
+    }
+
+    // ---------------- 通用增量写入 ----------------
+
+    // 一条记录从 oldKey 的贡献变为 newKey 的贡献：键不变时只写一次净增量，键变化时分别扣减和累加
+    private void applyMove(String table, String keyColumn, List<String> columns,
+                           Long oldKey, Map<String, Number> oldPart, Long newKey, Map<String, Number> newPart) {
+        if (oldKey != null && oldKey.equals(newKey)) {
+            Map<String, Number> net = new LinkedHashMap<>();
+            for (Map.Entry<String, Number> entry : newPart.entrySet()) {
+                Number before = oldPart.get(entry.getKey());
+                BigDecimal diff = toBigDecimal(entry.getValue()).subtract(toBigDecimal(before));
+                if (diff.signum() != 0) {
+                    net.put(entry.getKey(), entry.getValue() instanceof Long ? (Number) diff.longValue()
+                            : entry.getValue() instanceof Double ? (Number) diff.doubleValue() : diff);
+                }
+            }
+            applyDelta(table, keyColumn, newKey, columns, net, 1);
+            return;
+        }
+        if (oldKey != null) {
+            applyDelta(table, keyColumn, oldKey, columns, oldPart, -1);
+        }
+        if (newKey != null) {
+            applyDelta(table, keyColumn, newKey, columns, newPart, 1);
+        }
+    }
+
+    // 在当前线程内合并 action 期间产生的增量，结束时每个汇总行只写一次，且同样列组合的行用批量语句写入。
+    // 仅适用于只产生累加增量的批量写入（如大批车辆的电量/门店变化、违章导入），不要包住订单删除等需要读取汇总值的变更
+    public void deferred(Runnable action) {
+        if (deferred.get() != null) {
+            action.run();
+            return;
+        }
+        DeferredScope scope = new DeferredScope();
+        deferred.set(scope);
+        try {
+            action.run();
+            resolveCustomerDeltas(scope);
+        } finally {
+            deferred.remove();
+        }
+        scope.tables.forEach((table, pending) -> {
+            // 列组合 -> 批量参数（各列增量 + 主键）
+            Map<List<String>, List<Object[]>> groups = new LinkedHashMap<>();
+            Map<List<String>, List<Long>> groupKeys = new HashMap<>();
+            pending.rows().forEach((key, row) -> {
+                List<String> columns = new ArrayList<>();
+                List<Object> args = new ArrayList<>();
+                row.forEach((column, value) -> {
+                    if (toBigDecimal(value).signum() != 0) {
+                        columns.add(column);
+                        args.add(value);
+                    }
+                });
+                if (columns.isEmpty()) {
+                    return;
+                }
+                args.add(key);
+                groups.computeIfAbsent(columns, k -> new ArrayList<>()).add(args.toArray());
+                groupKeys.computeIfAbsent(columns, k -> new ArrayList<>()).add(key);
+            });
+            groups.forEach((columns, batch) -> {
+                String sql = updateSql(table, pending.keyColumn(), columns);
+                int[] counts = jdbcTemplate.batchUpdate(sql, batch);
+                List<Long> keys = groupKeys.get(columns);
+                for (int i = 0; i < counts.length; i++) {
+                    if (counts[i] == 0) {
+                        ensureRow(table, pending.keyColumn(), keys.get(i), pending.columns());
+                        jdbcTemplate.update(sql, batch.get(i));
+                    }
+                }
+            });
+        });
+    }
+
+    private static String updateSql(String table, String keyColumn, List<String> columns) {
+        StringBuilder sql = new StringBuilder("UPDATE ").append(table).append(" SET ");
+        for (int i = 0; i < columns.size(); i++) {
+            if (i > 0) {
+                sql.append(", ");
+            }
+            sql.append(columns.get(i)).append(" = ").append(columns.get(i)).append(" + ?");
+        }
+        return sql.append(" WHERE ").append(keyColumn).append(" = ?").toString();
+    }
+
+    // UPDATE t SET c1 = c1 + ?, c2 = c2 + ? WHERE key = ?；行不存在时先插入全 0 行
+    public void applyDelta(String table, String keyColumn, Long key, List<String> columns,
+                           Map<String, Number> delta, int sign) {
+        if (delta == null || delta.isEmpty()) {
+            return;
+        }
+        DeferredScope scope = deferred.get();
+        if (scope != null) {
+            Map<String, Number> row = scope.tables
+                    .computeIfAbsent(table, k -> new DeferredTable(keyColumn, columns, new LinkedHashMap<>()))
+                    .rows().computeIfAbsent(key, k -> new LinkedHashMap<>());
+            delta.forEach((column, value) -> row.merge(column, signed(value, sign), RollupService::sum));
+            return;
+        }
+        List<Object> args = new ArrayList<>();
+        for (Number value : delta.values()) {
+            args.add(signed(value, sign));
+        }
+        args.add(key);
+        String sql = updateSql(table, keyColumn, new ArrayList<>(delta.keySet()));
+        if (jdbcTemplate.update(sql, args.toArray()) == 0) {
+            ensureRow(table, keyColumn, key, columns);
+            jdbcTemplate.update(sql, args.toArray());
+        }
+    }
+
+    private void ensureRow(String table, String keyColumn, Long key, List<String> columns) {
+        Integer count = jdbcTemplate.queryForObject(
+                "SELECT COUNT(*) FROM " + table + " WHERE " + keyColumn + " = ?", Integer.class, key);
+        if (count != null && count > 0) {
+            return;
+        }
+        String placeholders = String.join(", ", java.util.Collections.nCopies(columns.size(), "0"));
+        try {
+            jdbcTemplate.update("INSERT INTO " + table + " (" + keyColumn + ", " + String.join(", ", columns)
+                    + ") VALUES (?, " + placeholders + ")", key);
+        } catch (DuplicateKeyException e) {
+            // 并发插入同一行，另一方已成功，直接继续执行 UPDATE
+        }
+    }
+
+    private static Number signed(Number value, int sign) {
+        if (sign > 0) {
+            return value;
+        }
+        if (value instanceof BigDecimal decimal) {
+            return decimal.negate();
+        }
+        if (value instanceof Double d) {
+            return -d;
+        }
+        return -value.longValue();
+    }
+
+    private static Number sum(Number a, Number b) {
+        if (a instanceof BigDecimal || b instanceof BigDecimal) {
+            return toBigDecimal(a).add(toBigDecimal(b));
+        }
+        if (a instanceof Double || b instanceof Double) {
+            return a.doubleValue() + b.doubleValue();
+        }
+        return a.longValue() + b.longValue();
+    }
+
+    static BigDecimal toBigDecimal(Object value) {
+        if (value == null) {
+            return BigDecimal.ZERO;
+        }
+        if (value instanceof BigDecimal decimal) {
+            return decimal;
+        }
+        return new BigDecimal(value.toString());
+    }
+
+    static int compare(BigDecimal a, BigDecimal b) {
+        return (a != null ? a : BigDecimal.ZERO).compareTo(b != null ? b : BigDecimal.ZERO);
+    }
+
+    // 不同数据库返回的列名大小写不一致（H2 为大写），统一转为小写
+    static Map<String, Object> lowerKeys(Map<String, Object> row) {
+        Map<String, Object> result = new LinkedHashMap<>();
+        row.forEach((k, v) -> result.put(k.toLowerCase(), v));
+        return result;
+    }
+}
@@ -0,0 +1,597 @@
+package com.tesla.rental.service;
+
+import jakarta.annotation.PostConstruct;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.DependsOn;
+import org.springframework.dao.DataAccessException;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.dao.PessimisticLockingFailureException;
+import org.springframework.core.io.Resource;
+import org.springframework.core.io.support.PathMatchingResourcePatternResolver;
+import org.springframework.jdbc.core.ConnectionCallback;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.sql.Connection;
+import java.sql.DatabaseMetaData;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import java.util.zip.CRC32;
+
+// 版本化表结构迁移：启动时按版本号执行 classpath:db/migration 下未执行过的脚本（common 通用 + 当前数据库专用目录），
+// 执行记录与校验和写入 schema_migration 表；已执行脚本被修改时拒绝启动。
+// 另按脚本中的 CREATE INDEX 定期核对线上索引，缺失时告警
+@Service
+@DependsOn("entityManagerFactory") // ddl-auto=update 先建表，索引/视图才有表可依附
+public class SchemaMigrationService {
+
+    private static final Logger log = LoggerFactory.getLogger(SchemaMigrationService.class);
+
+    private static final String HISTORY_TABLE = "schema_migration";
+    private static final String LOCK_TABLE = "schema_migration_lock";
+    private static final Pattern SCRIPT_NAME = Pattern.compile("V(\\d+(?:[._]\\d+)*)__(.+)\\.sql");
+    private static final Pattern CREATE_INDEX = Pattern.compile(
+            "CREATE\\s+(UNIQUE\\s+)?INDEX\\s+`?(\\w+)`?\\s+ON\\s+`?(\\w+)`?\\s*\\((.+)\\)\\s*",
+            Pattern.CASE_INSENSITIVE | Pattern.DOTALL);
+    private static final Pattern ADD_COLUMN = Pattern.compile(
+            "ALTER\\s+TABLE\\s+`?(\\w+)`?\\s+ADD\\s+(?:COLUMN\\s+)?`?(\\w+)`?\\s+.+",
+            Pattern.CASE_INSENSITIVE | Pattern.DOTALL);
+    private static final Pattern DELIMITER = Pattern.compile("(?i)^\\s*DELIMITER\\s+(\\S+)\\s*$");
+
+    private final JdbcTemplate jdbcTemplate;
+    private final boolean enabled;
+    private final boolean validateChecksums;
+    private final long lockTimeoutSeconds;
+
+    private volatile List<MigrationScript> scripts = List.of();
+
+    public SchemaMigrationService(JdbcTemplate jdbcTemplate,
+                                  @Value("${rental.migration.enabled:true}") boolean enabled,
+                                  @Value("${rental.migration.validate-checksums:true}") boolean validateChecksums,
+                                  @Value("${rental.migration.lock-timeout-seconds:600}") long lockTimeoutSeconds) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.enabled = enabled;
+        this.validateChecksums = validateChecksums;
+        this.lockTimeoutSeconds = lockTimeoutSeconds;
+    }
+
+    @Data
+    @AllArgsConstructor
+    public static class MigrationScript {
+        private String version;
+        private String description;
+        private String location;
+        private long checksum;
+        private List<String> statements;
+    }
+
+    @Data
+    @AllArgsConstructor
+    public static class AppliedMigration {
+        private String version;
+        private String description;
+        private String script;
+        private long checksum;
+        private LocalDateTime installedOn;
+        private long executionMs;
+        // 本地脚本与记录的校验和不一致（已执行后被修改）
+        private boolean checksumMismatch;
+    }
+
+    @Data
+    @AllArgsConstructor
+    public static class IndexDefinition {
+        private String table;
+        private String name;
+        private List<String> columns;
+        private boolean unique;
+    }
+
+    @Data
+    @AllArgsConstructor
+    public static class IndexDrift {
+        private String table;
+        private String index;
+        private List<String> columns;
+        private boolean unique;
+        private String problem;
+    }
+
+    @PostConstruct
+    public void migrate() {
+        String vendor = jdbcTemplate.execute((ConnectionCallback<String>) con -> vendorOf(con.getMetaData()));
+        scripts = loadScripts(List.of("common", vendor));
+        if (!enabled) {
+            log.info("Schema migration disabled, {} script(s) for {} not checked", scripts.size(), vendor);
+            return;
+        }
+        migrate(jdbcTemplate, scripts);
+    }
+
+    // 订单分片（非主库）只有 rental_order / payment / violation 等分片表，执行 db/migration/shard 下的脚本
+    public void migrateShard(int shard, JdbcTemplate target) {
+        List<MigrationScript> shardScripts = loadScripts(List.of("shard"));
+        if (!enabled) {
+            log.info("Schema migration disabled, {} script(s) for shard {} not checked", shardScripts.size(), shard);
+            return;
+        }
+        log.info("Migrating shard {}", shard);
+        migrate(target, shardScripts);
+    }
+
+    // 多实例同时启动时由迁移锁串行执行：锁由单独的连接持有到迁移结束（连接断开即释放），拿到锁后才读取执行记录，
+    // 其他实例已执行的脚本不再重复执行
+    private void migrate(JdbcTemplate target, List<MigrationScript> scripts) {
+        createHistoryTable(target);
+        target.execute((ConnectionCallback<Void>) con -> {
+            Runnable release = acquireLock(target, con);
+            try {
+                migrateLocked(target, scripts);
+            } finally {
+                release.run();
+            }
+            return null;
+        });
+    }
+
+    private void migrateLocked(JdbcTemplate target, List<MigrationScript> scripts) {
+        Map<String, AppliedMigration> applied = new HashMap<>();
+        for (AppliedMigration migration : history(target, scripts)) {
+            applied.put(migration.getVersion(), migration);
+        }
+
+        List<String> mismatches = new ArrayList<>();
+        for (MigrationScript script : scripts) {
+            AppliedMigration done = applied.get(script.getVersion());
+            if (done != null && done.getChecksum() != script.getChecksum()) {
+                mismatches.add(script.getLocation() + " (recorded " + done.getChecksum() + ", local " + script.getChecksum() + ")");
+            }
+        }
+        if (!mismatches.isEmpty()) {
+            String message = "Applied migration(s) modified after execution, add a new version instead: " + mismatches;
+            if (validateChecksums) {
+                throw new IllegalStateException(message);
+            }
+            log.warn(message);
+        }
+
+        for (MigrationScript script : scripts) {
+            if (!applied.containsKey(script.getVersion())) {
+                apply(target, script);
+            }
+        }
+    }
+
+    // 每个脚本的语句均可重复执行（索引、列已存在则跳过，建表 IF NOT EXISTS，视图 OR REPLACE，过程先 DROP），
+    // 执行中途失败不写记录，修复后重启即从该脚本重新执行
+    private void apply(JdbcTemplate target, MigrationScript script) {
+        long start = System.currentTimeMillis();
+        int[] counts = new int[2];
+        target.execute((ConnectionCallback<Void>) con -> {
+            try (Statement statement = con.createStatement()) {
+                for (String sql : script.getStatements()) {
+                    IndexDefinition index = parseIndex(sql);
+                    if (index != null) {
+                        String coveredBy = coveringIndex(con.getMetaData(), index);
+                        if (coveredBy != null) {
+                            log.info("{}: skip {} on {}{}, covered by existing index {}", script.getLocation(),
+                                    index.getName(), index.getTable(), index.getColumns(), coveredBy);
+                            counts[1]++;
+                            continue;
+                        }
+                    }
+                    Matcher column = ADD_COLUMN.matcher(sql);
+                    if (column.matches() && columnExists(con.getMetaData(), column.group(1), column.group(2))) {
+                        log.info("{}: skip column {}.{}, already exists", script.getLocation(), column.group(1),
+                                column.group(2));
+                        counts[1]++;
+                        continue;
+                    }
+                    statement.execute(sql);
+                    counts[0]++;
+                }
+            }
+            return null;
+        });
+        long elapsed = System.currentTimeMillis() - start;
+        target.update("INSERT INTO " + HISTORY_TABLE
+                        + " (version, description, script, checksum, installed_on, execution_ms) VALUES (?, ?, ?, ?, ?, ?)",
+                script.getVersion(), script.getDescription(), script.getLocation(), script.getChecksum(),
+                LocalDateTime.now(), elapsed);
+        log.info("Applied migration {} ({}): {} statement(s) executed, {} skipped in {} ms",
+                script.getVersion(), script.getLocation(), counts[0], counts[1], elapsed);
+    }
+
+    // ---------------- 执行记录 ----------------
+
+    private static void createHistoryTable(JdbcTemplate target) {
+        target.execute("CREATE TABLE IF NOT EXISTS " + HISTORY_TABLE + " ("
+                + "version VARCHAR(50) NOT NULL PRIMARY KEY, "
+                + "description VARCHAR(200) NOT NULL, "
+                + "script VARCHAR(200) NOT NULL, "
+                + "checksum BIGINT NOT NULL, "
+                + "installed_on DATETIME NOT NULL, "
+                + "execution_ms BIGINT NOT NULL)");
+    }
+
+    // MySQL 用 GET_LOCK（会话级，按库名区分）；其他数据库在事务内锁定 schema_migration_lock 的一行，
+    // 等待超过 lock-timeout-seconds 时拒绝启动。返回释放锁的操作
+    private Runnable acquireLock(JdbcTemplate target, Connection con) throws SQLException {
+        long deadline = System.currentTimeMillis() + lockTimeoutSeconds * 1000;
+        if (vendorOf(con.getMetaData()).equals("mysql")) {
+            String name = HISTORY_TABLE + "." + con.getCatalog();
+            try (PreparedStatement statement = con.prepareStatement("SELECT GET_LOCK(?, ?)")) {
+                statement.setString(1, name);
+                statement.setLong(2, lockTimeoutSeconds);
+                try (ResultSet rs = statement.executeQuery()) {
+                    if (!rs.next() || rs.getInt(1) != 1) {
+                        throw new IllegalStateException("Timed out after " + lockTimeoutSeconds
+                                + "s waiting for migration lock " + name + ", held by another instance");
+                    }
+                }
+            }
+            return () -> {
+                try (PreparedStatement statement = con.prepareStatement("SELECT RELEASE_LOCK(?)")) {
+                    statement.setString(1, name);
+                    statement.executeQuery().close();
+                } catch (SQLException e) {
+                    log.warn("Failed to release migration lock {}", name, e);
+                }
+            };
+        }
+
+        target.execute("CREATE TABLE IF NOT EXISTS " + LOCK_TABLE + " (id INT NOT NULL PRIMARY KEY)");
+        if (target.queryForObject("SELECT COUNT(*) FROM " + LOCK_TABLE + " WHERE id = 1", Integer.class) == 0) {
+            try {
+                target.update("INSERT INTO " + LOCK_TABLE + " (id) VALUES (1)");
+            } catch (DuplicateKeyException e) {
+                // 另一实例同时插入
+            }
+        }
+        con.setAutoCommit(false);
+        while (true) {
+            try (Statement statement = con.createStatement()) {
+                statement.executeQuery("SELECT id FROM " + LOCK_TABLE + " WHERE id = 1 FOR UPDATE").close();
+                break;
+            } catch (SQLException e) {
+                DataAccessException translated = target.getExceptionTranslator().translate("migration lock", null, e);
+                if (!(translated instanceof PessimisticLockingFailureException) || System.currentTimeMillis() > deadline) {
+                    con.rollback();
+                    con.setAutoCommit(true);
+                    if (translated != null) {
+                        throw translated;
+                    }
+                    throw e;
+                }
+                log.info("Waiting for migration lock held by another instance");
+            }
+        }
+        return () -> {
+            try {
+                con.rollback();
+                con.setAutoCommit(true);
+            } catch (SQLException e) {
+                log.warn("Failed to release migration lock", e);
+            }
+        };
+    }
+
+    public List<AppliedMigration> history() {
+        return history(jdbcTemplate, scripts);
+    }
+
+    private static List<AppliedMigration> history(JdbcTemplate target, List<MigrationScript> scripts) {
+        Map<String, Long> local = new HashMap<>();
+        for (MigrationScript script : scripts) {
+            local.put(script.getVersion(), script.getChecksum());
+        }
+        List<AppliedMigration> result = target.query("SELECT version, description, script, checksum, installed_on, execution_ms FROM "
+                        + HISTORY_TABLE, (rs, rowNum) -> {
+                    String version = rs.getString("version");
+                    long checksum = rs.getLong("checksum");
+                    Timestamp installedOn = rs.getTimestamp("installed_on");
+                    return new AppliedMigration(version, rs.getString("description"), rs.getString("script"), checksum,
+                            installedOn != null ? installedOn.toLocalDateTime() : null, rs.getLong("execution_ms"),
+                            local.containsKey(version) && local.get(version) != checksum);
+                });
+        result.sort((a, b) -> compareVersions(a.getVersion(), b.getVersion()));
+        return result;
+    }
+
+    // ---------------- 索引漂移检查 ----------------
+
+    // 迁移脚本中声明的全部索引（即期望的线上索引）
+    public List<IndexDefinition> expectedIndexes() {
+        List<IndexDefinition> result = new ArrayList<>();
+        for (MigrationScript script : scripts) {
+            for (String sql : script.getStatements()) {
+                IndexDefinition index = parseIndex(sql);
+                if (index != null) {
+                    result.add(index);
+                }
+            }
+        }
+        return result;
+    }
+
+    // 期望索引的列未被任何线上索引以相同前导列覆盖即视为缺失（按列比对，不要求索引名一致）
+    public List<IndexDrift> checkIndexDrift() {
+        List<IndexDefinition> expected = expectedIndexes();
+        return jdbcTemplate.execute((ConnectionCallback<List<IndexDrift>>) con -> {
+            DatabaseMetaData metaData = con.getMetaData();
+            Map<String, Map<String, LiveIndex>> liveByTable = new HashMap<>();
+            List<IndexDrift> drifts = new ArrayList<>();
+            for (IndexDefinition index : expected) {
+                Map<String, LiveIndex> live = liveByTable.get(index.getTable());
+                if (live == null) {
+                    live = liveIndexes(metaData, index.getTable());
+                    liveByTable.put(index.getTable(), live);
+                }
+                if (live == null) {
+                    drifts.add(new IndexDrift(index.getTable(), index.getName(), index.getColumns(), index.isUnique(), "table missing"));
+                } else if (covering(live, index) == null) {
+                    drifts.add(new IndexDrift(index.getTable(), index.getName(), index.getColumns(), index.isUnique(), "index missing"));
+                }
+            }
+            return drifts;
+        });
+    }
+
+    // 启动后立即检查一次，之后按间隔复查（线上索引可能被手工删除）
+    @Scheduled(fixedDelayString = "${rental.migration.drift-check-interval-ms:3600000}")
+    public void warnOnIndexDrift() {
+        if (scripts.isEmpty()) {
+            return;
+        }
+        for (IndexDrift drift : checkIndexDrift()) {
+            log.warn("Index drift: {} {} on {}{} ({})", drift.isUnique() ? "unique index" : "index",
+                    drift.getIndex(), drift.getTable(), drift.getColumns(), drift.getProblem());
+        }
+    }
+
+    private static class LiveIndex {
+        private final boolean unique;
+        private final TreeMap<Short, String> columns = new TreeMap<>();
+
+        private LiveIndex(boolean unique) {
+            this.unique = unique;
+        }
+
+        private List<String> columnList() {
+            return new ArrayList<>(columns.values());
+        }
+    }
+
+    private String coveringIndex(DatabaseMetaData metaData, IndexDefinition index) throws SQLException {
+        Map<String, LiveIndex> live = liveIndexes(metaData, index.getTable());
+        return live != null ? covering(live, index) : null;
+    }
+
+    private static String covering(Map<String, LiveIndex> live, IndexDefinition index) {
+        for (Map.Entry<String, LiveIndex> entry : live.entrySet()) {
+            List<String> columns = entry.getValue().columnList();
+            boolean covers = index.isUnique()
+                    ? entry.getValue().unique && columns.equals(index.getColumns())
+                    : columns.size() >= index.getColumns().size()
+                            && columns.subList(0, index.getColumns().size()).equals(index.getColumns());
+            if (covers) {
+                return entry.getKey();
+            }
+        }
+        return null;
+    }
+
+    // 表不存在时返回 null；索引名、列名统一转小写
+    private static Map<String, LiveIndex> liveIndexes(DatabaseMetaData metaData, String table) throws SQLException {
+        Connection con = metaData.getConnection();
+        String name = metaData.storesUpperCaseIdentifiers() ? table.toUpperCase(Locale.ROOT) : table;
+        try (ResultSet tables = metaData.getTables(con.getCatalog(), con.getSchema(), name, new String[] { "TABLE" })) {
+            if (!tables.next()) {
+                return null;
+            }
+        }
+        Map<String, LiveIndex> result = new LinkedHashMap<>();
+        try (ResultSet rs = metaData.getIndexInfo(con.getCatalog(), con.getSchema(), name, false, false)) {
+            while (rs.next()) {
+                String indexName = rs.getString("INDEX_NAME");
+                String column = rs.getString("COLUMN_NAME");
+                if (indexName == null || column == null || rs.getShort("TYPE") == DatabaseMetaData.tableIndexStatistic) {
+                    continue;
+                }
+                boolean unique = !rs.getBoolean("NON_UNIQUE");
+                result.computeIfAbsent(indexName.toLowerCase(Locale.ROOT), k -> new LiveIndex(unique))
+                        .columns.put(rs.getShort("ORDINAL_POSITION"), column.toLowerCase(Locale.ROOT));
+            }
+        }
+        return result;
+    }
+
+    private static boolean columnExists(DatabaseMetaData metaData, String table, String column) throws SQLException {
+        Connection con = metaData.getConnection();
+        boolean upper = metaData.storesUpperCaseIdentifiers();
+        try (ResultSet rs = metaData.getColumns(con.getCatalog(), con.getSchema(),
+                upper ? table.toUpperCase(Locale.ROOT) : table, upper ? column.toUpperCase(Locale.ROOT) : column)) {
+            return rs.next();
+        }
+    }
+
+    private static IndexDefinition parseIndex(String sql) {
+        Matcher matcher = CREATE_INDEX.matcher(sql);
+        if (!matcher.matches()) {
+            return null;
+        }
+        List<String> columns = new ArrayList<>();
+        for (String part : matcher.group(4).split(",")) {
+            // 去掉排序方向与前缀长度：maint_date DESC、name(20)
+            String column = part.trim().split("[\\s(]")[0].replace("`", "");
+            columns.add(column.toLowerCase(Locale.ROOT));
+        }
+        return new IndexDefinition(matcher.group(3).toLowerCase(Locale.ROOT), matcher.group(2).toLowerCase(Locale.ROOT),
+                columns, matcher.group(1) != null);
+    }
+
+    // ---------------- 脚本加载与拆分 ----------------
+
+    // MariaDB 与 MySQL 共用 mysql 目录
+    private static String vendorOf(DatabaseMetaData metaData) throws SQLException {
+        String product = metaData.getDatabaseProductName().toLowerCase(Locale.ROOT);
+        if (product.contains("mysql") || product.contains("mariadb")) {
+            return "mysql";
+        }
+        return product.replaceAll("[^a-z0-9]", "");
+    }
+
+    private static List<MigrationScript> loadScripts(List<String> locations) {
+        PathMatchingResourcePatternResolver resolver = new PathMatchingResourcePatternResolver();
+        Map<String, MigrationScript> byVersion = new TreeMap<>(SchemaMigrationService::compareVersions);
+        for (String location : locations) {
+            Resource[] resources;
+            try {
+                resources = resolver.getResources("classpath*:db/migration/" + location + "/V*__*.sql");
+            } catch (IOException e) {
+                throw new IllegalStateException("Failed to list migrations in db/migration/" + location, e);
+            }
+            for (Resource resource : resources) {
+                Matcher matcher = SCRIPT_NAME.matcher(resource.getFilename());
+                if (!matcher.matches()) {
+                    continue;
+                }
+                String version = matcher.group(1).replace('_', '.');
+                String path = location + "/" + resource.getFilename();
+                String content;
+                try {
+                    content = resource.getContentAsString(StandardCharsets.UTF_8);
+                } catch (IOException e) {
+                    throw new IllegalStateException("Failed to read migration " + path, e);
+                }
+                MigrationScript script = new MigrationScript(version, matcher.group(2).replace('_', ' '), path,
+                        checksum(content), splitStatements(content));
+                MigrationScript duplicate = byVersion.put(version, script);
+                if (duplicate != null) {
+                    throw new IllegalStateException("Duplicate migration version " + version + ": "
+                            + duplicate.getLocation() + ", " + path);
+                }
+            }
+        }
+        return new ArrayList<>(byVersion.values());
+    }
+
+    // 逐行 CRC32，忽略换行符差异（Windows 检出的脚本校验和不变）
+    private static long checksum(String content) {
+        CRC32 crc = new CRC32();
+        String text = content.startsWith("\uFEFF") ? content.substring(1) : content;
+        for (String line : text.split("\r?\n", -1)) {
+            crc.update(line.getBytes(StandardCharsets.UTF_8));
+        }
+        return crc.getValue();
+    }
+
+    private static int compareVersions(String a, String b) {
+        long[] left = Arrays.stream(a.split("\\.")).mapToLong(Long::parseLong).toArray();
+        long[] right = Arrays.stream(b.split("\\.")).mapToLong(Long::parseLong).toArray();
+        for (int i = 0; i < Math.max(left.length, right.length); i++) {
+            long l = i < left.length ? left[i] : 0;
+            long r = i < right.length ? right[i] : 0;
+            if (l != r) {
+                return Long.compare(l, r);
+            }
+        }
+        return 0;
+    }
+
+    // 按分隔符拆分语句：跳过注释与引号内的内容，支持 mysql 客户端的 DELIMITER 指令（存储过程体内含分号）
+    static List<String> splitStatements(String content) {
+        List<String> statements = new ArrayList<>();
+        StringBuilder current = new StringBuilder();
+        String delimiter = ";";
+        int i = 0;
+        int length = content.length();
+        boolean lineStart = true;
+        while (i < length) {
+            char c = content.charAt(i);
+            if (lineStart && current.toString().isBlank()) {
+                int end = content.indexOf('\n', i);
+                String line = content.substring(i, end < 0 ? length : end).replace("\r", "");
+                Matcher matcher = DELIMITER.matcher(line);
+                if (matcher.matches()) {
+                    delimiter = matcher.group(1);
+                    i = end < 0 ? length : end + 1;
+                    continue;
+                }
+            }
+            lineStart = false;
+            if (c == '-' && content.startsWith("--", i)) {
+                int end = content.indexOf('\n', i);
+                i = end < 0 ? length : end;
+                continue;
+            }
+            if (c == '/' && content.startsWith("/*", i)) {
+                int end = content.indexOf("*/", i + 2);
+                i = end < 0 ? length : end + 2;
+                continue;
+            }
+            if (c == '\'' || c == '"' || c == '`') {
+                int j = i + 1;
+                while (j < length) {
+                    char q = content.charAt(j);
+                    if (q == '\\' && c != '`') {
+                        j += 2;
+                        continue;
+                    }
+                    if (q == c) {
+                        if (j + 1 < length && content.charAt(j + 1) == c) {
+                            j += 2;
+                            continue;
+                        }
+                        break;
+                    }
+                    j++;
+                }
+                current.append(content, i, Math.min(j + 1, length));
+                i = j + 1;
+                continue;
+            }
+            if (content.startsWith(delimiter, i)) {
+                add(statements, current);
+                i += delimiter.length();
+                continue;
+            }
+            if (c == '\n') {
+                lineStart = true;
+            }
+            current.append(c);
+            i++;
+        }
+        add(statements, current);
+        return statements;
+    }
+
+    private static void add(List<String> statements, StringBuilder current) {
+        String sql = current.toString().trim();
+        if (!sql.isEmpty()) {
+            statements.add(sql);
+        }
+        current.setLength(0);
+    }
+}
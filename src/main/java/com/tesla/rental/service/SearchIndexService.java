@@ -0,0 +1,396 @@
+package com.tesla.rental.service;
+
+import com.tesla.rental.entity.Customer;
+import com.tesla.rental.entity.Store;
+import com.tesla.rental.entity.Vehicle;
+import com.tesla.rental.event.AfterCommit;
+import com.tesla.rental.event.EntityChangeEvent;
+import com.tesla.rental.event.RemoteChangeEvent;
+import com.tesla.rental.payload.SearchHit;
+import com.tesla.rental.payload.SearchResponse;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.EnumMap;
+import java.util.EnumSet;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+// 联想搜索：内存 n-gram 倒排索引，覆盖车牌、客户姓名/电话、门店名称/地址（替代查询 4.1-4.3 无法走索引的 LIKE '%x%' / REGEXP）。
+// 每个字段按三字符切片建索引，另加字段开头的 1、2 字符前缀：3 个字符及以上的查询做子串匹配，更短的查询做前缀匹配。
+// 实体写入提交后增量更新；被替换或删除的倒排项先留在表中，由查询时的回表校验过滤，积累过多时整体压缩
+@Service
+public class SearchIndexService {
+
+    private static final char PREFIX_MARK = '\u0001';
+
+    // 倒排表：按内部文档号升序的可增长数组（新文档号递增，通常直接追加）
+    private static class Postings {
+        int[] docs = new int[4];
+        int size;
+
+        void add(int doc) {
+            int position = size == 0 || docs[size - 1] < doc ? size : Arrays.binarySearch(docs, 0, size, doc);
+            if (position < 0) {
+                position = -position - 1;
+            } else if (position < size) {
+                return;
+            }
+            if (size == docs.length) {
+                docs = Arrays.copyOf(docs, size * 2);
+            }
+            System.arraycopy(docs, position, docs, position + 1, size - position);
+            docs[position] = doc;
+            size++;
+        }
+
+        // 从 from 开始倍增步长再二分，返回第一个 >= doc 的位置；候选升序遍历时游标只前进
+        int seek(int from, int doc) {
+            if (from >= size) {
+                return size;
+            }
+            int low = from;
+            int step = 1;
+            while (low + step < size && docs[low + step] < doc) {
+                low += step;
+                step <<= 1;
+            }
+            int position = Arrays.binarySearch(docs, low, Math.min(low + step + 1, size), doc);
+            return position >= 0 ? position : -position - 1;
+        }
+    }
+
+    private static class Doc {
+        final SearchHit.Type type;
+        final long id;
+        final String[] values;      // 原始字段值，第一个为标题
+        final String[] normalized;  // 规范化后的字段值
+        boolean alive = true;
+
+        Doc(SearchHit.Type type, long id, String[] values) {
+            this.type = type;
+            this.id = id;
+            this.values = values;
+            this.normalized = new String[values.length];
+            for (int i = 0; i < values.length; i++) {
+                normalized[i] = values[i] != null ? normalize(values[i]) : "";
+            }
+        }
+    }
+
+    private final JdbcTemplate jdbcTemplate;
+    private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+
+    private final List<Doc> docs = new ArrayList<>();
+    private final Map<SearchHit.Type, Map<Long, Integer>> docIds = new EnumMap<>(SearchHit.Type.class);
+    private final Map<String, Postings> index = new HashMap<>();
+    private long entries;
+    private long staleEntries;
+
+    public SearchIndexService(JdbcTemplate jdbcTemplate) {
+        this.jdbcTemplate = jdbcTemplate;
+        for (SearchHit.Type type : SearchHit.Type.values()) {
+            docIds.put(type, new HashMap<>());
+        }
+    }
+
+    // 启动时逐行加载，每行单独加锁，加载期间的查询返回已加载部分而不是等待全部完成
+    @EventListener(ApplicationReadyEvent.class)
+    public void onReady() {
+        jdbcTemplate.query("SELECT customer_id, name, phone FROM customer", rs -> {
+            load(SearchHit.Type.CUSTOMER, rs.getLong("customer_id"), rs.getString("name"), rs.getString("phone"));
+        });
+        jdbcTemplate.query("SELECT vehicle_id, plate_no FROM vehicle", rs -> {
+            load(SearchHit.Type.VEHICLE, rs.getLong("vehicle_id"), rs.getString("plate_no"));
+        });
+        jdbcTemplate.query("SELECT store_id, name, address FROM store", rs -> {
+            load(SearchHit.Type.STORE, rs.getLong("store_id"), rs.getString("name"), rs.getString("address"));
+        });
+    }
+
+    private void load(SearchHit.Type type, long id, String... values) {
+        lock.writeLock().lock();
+        try {
+            // 加载过程中已由写入事件建立的文档以事件为准
+            if (!docIds.get(type).containsKey(id)) {
+                put(type, id, values);
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    @EventListener
+    public void onEntityChange(EntityChangeEvent event) {
+        if (event.isFor(Customer.class)) {
+            Customer customer = event.getEntity(Customer.class);
+            AfterCommit.run(() -> apply(event, SearchHit.Type.CUSTOMER, customer.getName(), customer.getPhone()));
+        } else if (event.isFor(Vehicle.class)) {
+            Vehicle vehicle = event.getEntity(Vehicle.class);
+            AfterCommit.run(() -> apply(event, SearchHit.Type.VEHICLE, vehicle.getPlateNo()));
+        } else if (event.isFor(Store.class)) {
+            Store store = event.getEntity(Store.class);
+            AfterCommit.run(() -> apply(event, SearchHit.Type.STORE, store.getName(), store.getAddress()));
+        }
+    }
+
+    // 其他实例修改的客户/车辆/门店：从数据库读取被索引的字段，不存在即已删除
+    @EventListener
+    public void onRemoteChange(RemoteChangeEvent event) {
+        if (event.getId() == null) {
+            return;
+        }
+        if (event.isFor(Customer.class)) {
+            reload(SearchHit.Type.CUSTOMER, "SELECT name, phone FROM customer WHERE customer_id = ?", event.getId());
+        } else if (event.isFor(Vehicle.class)) {
+            reload(SearchHit.Type.VEHICLE, "SELECT plate_no FROM vehicle WHERE vehicle_id = ?", event.getId());
+        } else if (event.isFor(Store.class)) {
+            reload(SearchHit.Type.STORE, "SELECT name, address FROM store WHERE store_id = ?", event.getId());
+        }
+    }
+
+    private void reload(SearchHit.Type type, String sql, long id) {
+        List<String[]> rows = jdbcTemplate.query(sql, (rs, rowNum) -> {
+            String[] values = new String[rs.getMetaData().getColumnCount()];
+            for (int i = 0; i < values.length; i++) {
+                values[i] = rs.getString(i + 1);
+            }
+            return values;
+        }, id);
+        apply(id, rows.isEmpty(), type, rows.isEmpty() ? new String[0] : rows.get(0));
+    }
+
+    private void apply(EntityChangeEvent event, SearchHit.Type type, String... values) {
+        apply(((Number) event.getId()).longValue(), event.getAction() == EntityChangeEvent.Action.DELETE, type, values);
+    }
+
+    private void apply(long id, boolean deleted, SearchHit.Type type, String... values) {
+        // 电量/里程等高频写入不改变被索引的字段，先在读锁下判断，避免争用写锁
+        if (!deleted) {
+            lock.readLock().lock();
+            try {
+                Integer doc = docIds.get(type).get(id);
+                if (doc != null && Arrays.equals(docs.get(doc).values, values)) {
+                    return;
+                }
+            } finally {
+                lock.readLock().unlock();
+            }
+        }
+        lock.writeLock().lock();
+        try {
+            if (deleted) {
+                remove(type, id);
+            } else {
+                put(type, id, values);
+            }
+            if (staleEntries > 100_000 && staleEntries > entries / 4) {
+                compact();
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    public SearchResponse search(String query, Set<SearchHit.Type> types, int limit) {
+        long startNanos = System.nanoTime();
+        SearchResponse response = new SearchResponse();
+        response.setQuery(query);
+        String q = query != null ? normalize(query) : "";
+        if (q.isEmpty() || limit <= 0) {
+            return response;
+        }
+        Set<SearchHit.Type> wanted = types == null || types.isEmpty() ? EnumSet.allOf(SearchHit.Type.class) : types;
+        boolean prefix = q.length() < 3;
+        List<SearchHit> hits = new ArrayList<>();
+        lock.readLock().lock();
+        try {
+            List<Postings> postings = prefix ? singleton(index.get(PREFIX_MARK + q)) : trigramPostings(q);
+            if (postings != null) {
+                Postings candidates = postings.get(0);
+                int[] cursors = new int[postings.size()];
+                for (int i = 0; i < candidates.size && hits.size() < limit; i++) {
+                    int docNo = candidates.docs[i];
+                    if (!inAll(postings, cursors, docNo)) {
+                        continue;
+                    }
+                    Doc doc = docs.get(docNo);
+                    if (!doc.alive || !wanted.contains(doc.type)) {
+                        continue;
+                    }
+                    int field = matchingField(doc, q, prefix);
+                    if (field >= 0) {
+                        hits.add(hit(doc, field));
+                    }
+                }
+            }
+        } finally {
+            lock.readLock().unlock();
+        }
+        // 字段以查询开头的排在前面，其次是较短的值
+        hits.sort(Comparator.comparing((SearchHit hit) -> !normalize(hit.getMatched()).startsWith(q))
+                .thenComparingInt(hit -> hit.getMatched().length()));
+        response.setHits(hits);
+        response.setTookMicros((System.nanoTime() - startNanos) / 1000);
+        return response;
+    }
+
+    public Map<String, Object> status() {
+        lock.readLock().lock();
+        try {
+            Map<String, Object> status = new HashMap<>();
+            docIds.forEach((type, ids) -> status.put(type.name().toLowerCase(Locale.ROOT), ids.size()));
+            status.put("grams", index.size());
+            status.put("entries", entries);
+            status.put("staleEntries", staleEntries);
+            return status;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    // ---------------- 索引维护（调用方持有写锁） ----------------
+
+    private void put(SearchHit.Type type, long id, String... values) {
+        Map<Long, Integer> ids = docIds.get(type);
+        Integer existing = ids.get(id);
+        Doc doc = new Doc(type, id, values);
+        Set<String> grams = grams(doc.normalized);
+        int docNo;
+        if (existing != null) {
+            // 沿用文档号：旧值已有的切片不重复写入，旧值独有的切片成为过期项
+            docNo = existing;
+            Set<String> old = grams(docs.get(docNo).normalized);
+            for (String gram : old) {
+                if (!grams.remove(gram)) {
+                    staleEntries++;
+                }
+            }
+            docs.set(docNo, doc);
+        } else {
+            docNo = docs.size();
+            docs.add(doc);
+            ids.put(id, docNo);
+        }
+        for (String gram : grams) {
+            index.computeIfAbsent(gram, k -> new Postings()).add(docNo);
+            entries++;
+        }
+    }
+
+    private void remove(SearchHit.Type type, long id) {
+        Integer docNo = docIds.get(type).remove(id);
+        if (docNo != null) {
+            Doc doc = docs.get(docNo);
+            doc.alive = false;
+            staleEntries += grams(doc.normalized).size();
+        }
+    }
+
+    // 丢弃已删除文档并按当前字段值重建倒排表
+    private void compact() {
+        List<Doc> live = new ArrayList<>();
+        for (Doc doc : docs) {
+            if (doc.alive) {
+                live.add(doc);
+            }
+        }
+        docs.clear();
+        docIds.values().forEach(Map::clear);
+        index.clear();
+        entries = 0;
+        staleEntries = 0;
+        for (Doc doc : live) {
+            put(doc.type, doc.id, doc.values);
+        }
+    }
+
+    // ---------------- 查询 ----------------
+
+    // 查询各三字符切片的倒排表，按长度升序：遍历最短的一个，用其余的做二分求交，最后回表校验子串
+    private List<Postings> trigramPostings(String q) {
+        Set<String> grams = new HashSet<>();
+        for (int i = 0; i + 3 <= q.length(); i++) {
+            grams.add(q.substring(i, i + 3));
+        }
+        List<Postings> result = new ArrayList<>(grams.size());
+        for (String gram : grams) {
+            Postings postings = index.get(gram);
+            if (postings == null) {
+                return null;
+            }
+            result.add(postings);
+        }
+        result.sort(Comparator.comparingInt(postings -> postings.size));
+        return result;
+    }
+
+    private static List<Postings> singleton(Postings postings) {
+        return postings != null ? List.of(postings) : null;
+    }
+
+    private static boolean inAll(List<Postings> postings, int[] cursors, int docNo) {
+        for (int i = 1; i < postings.size(); i++) {
+            Postings other = postings.get(i);
+            cursors[i] = other.seek(cursors[i], docNo);
+            if (cursors[i] >= other.size || other.docs[cursors[i]] != docNo) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static int matchingField(Doc doc, String q, boolean prefix) {
+        for (int i = 0; i < doc.normalized.length; i++) {
+            if (prefix ? doc.normalized[i].startsWith(q) : doc.normalized[i].contains(q)) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    private static SearchHit hit(Doc doc, int field) {
+        SearchHit hit = new SearchHit();
+        hit.setType(doc.type);
+        hit.setId(doc.id);
+        hit.setTitle(doc.values[0]);
+        hit.setSubtitle(doc.values.length > 1 ? doc.values[1] : null);
+        hit.setMatched(doc.values[field]);
+        return hit;
+    }
+
+    private static Set<String> grams(String[] normalized) {
+        Set<String> grams = new HashSet<>();
+        for (String value : normalized) {
+            for (int i = 0; i + 3 <= value.length(); i++) {
+                grams.add(value.substring(i, i + 3));
+            }
+            for (int length = 1; length <= 2 && length <= value.length(); length++) {
+                grams.add(PREFIX_MARK + value.substring(0, length));
+            }
+        }
+        return grams;
+    }
+
+    // 忽略大小写与空白
+    private static String normalize(String value) {
+        StringBuilder builder = new StringBuilder(value.length());
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            if (!Character.isWhitespace(c)) {
+                builder.append(Character.toLowerCase(c));
+            }
+        }
+        return builder.toString();
+    }
+}
@@ -0,0 +1,375 @@
+package com.tesla.rental.service;
+
+import com.tesla.rental.entity.Payment;
+import com.tesla.rental.entity.RentalOrder;
+import com.tesla.rental.entity.enums.PaymentType;
+import com.tesla.rental.entity.enums.RentalOrderStatus;
+import com.tesla.rental.event.EntityChangeEvent;
+import com.tesla.rental.shard.Shard;
+import com.tesla.rental.shard.ShardRouter;
+import com.tesla.rental.shard.ShardedOrderStore;
+import lombok.Data;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowMapper;
+import org.springframework.stereotype.Service;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.sql.Timestamp;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+
+// 批量结算作业：按主键分块拉取"已还"订单，并行计算费用，分批写回并记录断点，
+// 对应存储过程 sp_settle_rental_order 的逐单结算逻辑。订单分片时逐个分片处理，断点记在各分片自己的 batch_checkpoint 中。
+// 断点只用于中断后续跑：一个分片扫描完毕即把断点归零，之后才变为"已还"的小主键订单在下次运行时仍会被结算
+@Service
+public class SettlementService {
+
+    public static final String JOB_NAME = "settlement";
+
+    private final ShardRouter shards;
+    private final ShardedOrderStore orderStore;
+    private final OrderLifecycleService lifecycleService;
+    private final ApplicationEventPublisher publisher;
+    private final ExecutorService jobExecutor = Executors.newSingleThreadExecutor(r -> {
+        Thread thread = new Thread(r, "settlement-job");
+        thread.setDaemon(true);
+        return thread;
+    });
+    private final ForkJoinPool computePool;
+
+    @Value("${rental.settlement.chunk-size:1000}")
+    private int chunkSize;
+
+    @Value("${rental.settlement.mileage-allowance-per-day:300}")
+    private double mileageAllowancePerDay;   // 每天免费里程(km)
+
+    @Value("${rental.settlement.excess-mileage-fee:0.8}")
+    private BigDecimal excessMileageFee;     // 超出里程每公里费用
+
+    @Value("${rental.settlement.soc-fee-per-percent:2.0}")
+    private BigDecimal socFeePerPercent;     // 还车电量低于取车电量时每 1% 的补电费
+
+    @Value("${rental.settlement.late-multiplier:1.5}")
+    private BigDecimal lateMultiplier;       // 逾期按日租金的倍数计费（与存储过程一致为 150%）
+
+    private final AtomicBoolean running = new AtomicBoolean(false);
+    private final AtomicLong processedThisRun = new AtomicLong();
+    private volatile LocalDateTime startedAt;
+    private volatile LocalDateTime finishedAt;
+    private volatile String lastError;
+
+    public SettlementService(ShardRouter shards, ShardedOrderStore orderStore, OrderLifecycleService lifecycleService,
+                             ApplicationEventPublisher publisher,
+                             @Value("${rental.settlement.parallelism:0}") int parallelism) {
+        this.shards = shards;
+        this.orderStore = orderStore;
+        this.lifecycleService = lifecycleService;
+        this.publisher = publisher;
+        this.computePool = new ForkJoinPool(parallelism > 0 ? parallelism : Runtime.getRuntime().availableProcessors());
+    }
+
+    @Data
+    public static class SettlementResult {
+        private Long orderId;
+        private BigDecimal baseAmount;     // 原订单金额
+        private BigDecimal overdueFee;     // 逾期费
+        private BigDecimal mileageFee;     // 超里程费
+        private BigDecimal socFee;         // 补电费
+        private BigDecimal violationFee;   // 违章罚款
+        private BigDecimal finalAmount;    // 最终金额
+    }
+
+    @Data
+    public static class JobStatus {
+        private boolean running;
+        private Map<Integer, Long> lastIds;   // 分片号 -> 本轮断点（0 表示未在运行或已扫描完毕）
+        private Long processedTotal;
+        private Long processedThisRun;
+        private Double ordersPerSecond;
+        private LocalDateTime startedAt;
+        private LocalDateTime finishedAt;
+        private String lastError;
+    }
+
+    // 后台启动作业；已在运行时返回 false
+    public boolean start() {
+        if (!running.compareAndSet(false, true)) {
+            return false;
+        }
+        processedThisRun.set(0);
+        startedAt = LocalDateTime.now();
+        finishedAt = null;
+        lastError = null;
+        jobExecutor.submit(() -> {
+            try {
+                runToCompletion();
+            } catch (Exception e) {
+                lastError = e.getMessage();
+            } finally {
+                finishedAt = LocalDateTime.now();
+                running.set(false);
+            }
+        });
+        return true;
+    }
+
+    public JobStatus status() {
+        JobStatus status = new JobStatus();
+        status.setRunning(running.get());
+        // 断点按分片列出，已处理数为各分片之和
+        long processedTotal = 0;
+        Map<Integer, Long> lastIds = new LinkedHashMap<>();
+        for (Shard shard : shards.all()) {
+            Map<String, Object> checkpoint = loadCheckpoint(shard.getJdbcTemplate());
+            lastIds.put(shard.getIndex(), ((Number) checkpoint.get("last_id")).longValue());
+            processedTotal += ((Number) checkpoint.get("processed_count")).longValue();
+        }
+        status.setLastIds(lastIds);
+        status.setProcessedTotal(processedTotal);
+        status.setProcessedThisRun(processedThisRun.get());
+        status.setStartedAt(startedAt);
+        status.setFinishedAt(finishedAt);
+        status.setLastError(lastError);
+        if (startedAt != null) {
+            LocalDateTime end = finishedAt != null ? finishedAt : LocalDateTime.now();
+            double seconds = Math.max(Duration.between(startedAt, end).toMillis(), 1) / 1000.0;
+            status.setOrdersPerSecond(Math.round(processedThisRun.get() / seconds * 10.0) / 10.0);
+        }
+        return status;
+    }
+
+    // 从断点开始循环处理，直到没有待结算订单
+    public void runToCompletion() throws Exception {
+        for (Shard shard : shards.all()) {
+            runToCompletion(shard);
+        }
+    }
+
+    private void runToCompletion(Shard shard) throws Exception {
+        JdbcTemplate jdbcTemplate = shard.getJdbcTemplate();
+        while (true) {
+            Map<String, Object> checkpoint = loadCheckpoint(jdbcTemplate);
+            long lastId = ((Number) checkpoint.get("last_id")).longValue();
+            long processed = ((Number) checkpoint.get("processed_count")).longValue();
+
+            List<RentalOrder> chunk = jdbcTemplate.query(
+                    "SELECT * FROM rental_order WHERE status = ? AND order_id > ? ORDER BY order_id LIMIT ?",
+                    ORDER_MAPPER, RentalOrderStatus.RETURNED.getLabel(), lastId, chunkSize);
+            if (chunk.isEmpty()) {
+                // 本轮扫描完毕：断点归零（保留累计处理数），下次运行从头扫描
+                if (lastId != 0) {
+                    saveCheckpoint(jdbcTemplate, 0L, processed);
+                }
+                return;
+            }
+            Map<Long, BigDecimal> fines = loadFines(jdbcTemplate, chunk);
+            List<SettlementResult> results = computePool.submit(() -> chunk.parallelStream()
+                    .map(order -> calculate(order, fines.getOrDefault(order.getOrderId(), BigDecimal.ZERO)))
+                    .toList()).get();
+
+            long chunkLastId = chunk.get(chunk.size() - 1).getOrderId();
+            List<EntityChangeEvent> events = new ArrayList<>();
+            Integer settled = shard.write(tx -> {
+                int count = writeResults(shard, chunk, results, events);
+                saveCheckpoint(jdbcTemplate, chunkLastId, processed + count);
+                return count;
+            }, () -> events.forEach(publisher::publishEvent));
+            processedThisRun.addAndGet(settled != null ? settled : 0);
+        }
+    }
+
+    public SettlementResult calculate(RentalOrder order, BigDecimal fines) {
+        SettlementResult result = new SettlementResult();
+        result.setOrderId(order.getOrderId());
+        BigDecimal base = order.getTotalAmount() != null ? order.getTotalAmount() : BigDecimal.ZERO;
+        result.setBaseAmount(base);
+
+        long plannedDays = Math.max(RollupService.rentalDays(order.getRentStart(), order.getRentEnd()), 1);
+        BigDecimal dailyRate = base.divide(BigDecimal.valueOf(plannedDays), 2, RoundingMode.HALF_UP);
+
+        // 逾期：按日租金 * 倍数 * 逾期天数（不足一天按一天）
+        BigDecimal overdue = BigDecimal.ZERO;
+        if (order.getActualReturnTime() != null && order.getRentEnd() != null
+                && order.getActualReturnTime().isAfter(order.getRentEnd())) {
+            long seconds = Duration.between(order.getRentEnd(), order.getActualReturnTime()).toSeconds();
+            long lateDays = (seconds + 86399) / 86400;
+            overdue = dailyRate.multiply(lateMultiplier).multiply(BigDecimal.valueOf(lateDays));
+        }
+        result.setOverdueFee(scale(overdue));
+
+        // 超里程：实际行驶里程超过 (租期天数 * 每日免费里程) 的部分
+        BigDecimal mileage = BigDecimal.ZERO;
+        if (order.getPickupMileage() != null && order.getReturnMileage() != null) {
+            double driven = order.getReturnMileage() - order.getPickupMileage();
+            double excess = driven - plannedDays * mileageAllowancePerDay;
+            if (excess > 0) {
+                mileage = excessMileageFee.multiply(BigDecimal.valueOf(excess));
+            }
+        }
+        result.setMileageFee(scale(mileage));
+
+        // 补电：还车电量低于取车电量的差值
+        BigDecimal soc = BigDecimal.ZERO;
+        if (order.getPickupSoc() != null && order.getReturnSoc() != null && order.getReturnSoc() < order.getPickupSoc()) {
+            soc = socFeePerPercent.multiply(BigDecimal.valueOf(order.getPickupSoc() - order.getReturnSoc()));
+        }
+        result.setSocFee(scale(soc));
+        result.setViolationFee(scale(fines));
+
+        result.setFinalAmount(base.add(result.getOverdueFee()).add(result.getMileageFee())
+                .add(result.getSocFee()).add(result.getViolationFee()));
+        return result;
+    }
+
+    // 写回：逾期费记为租金，超里程/补电/违章合计记为赔偿；订单状态置为结算并追加 SETTLED 订单事件
+    private int writeResults(Shard shard, List<RentalOrder> chunk, List<SettlementResult> results,
+                             List<EntityChangeEvent> events) {
+        List<Payment> payments = new ArrayList<>();
+        for (SettlementResult result : results) {
+            if (result.getOverdueFee().signum() > 0) {
+                payments.add(payment(result.getOrderId(), PaymentType.RENTAL_FEE, result.getOverdueFee()));
+            }
+            BigDecimal compensation = result.getMileageFee().add(result.getSocFee()).add(result.getViolationFee());
+            if (compensation.signum() > 0) {
+                payments.add(payment(result.getOrderId(), PaymentType.COMPENSATION, compensation));
+            }
+        }
+
+        // 只结算仍处于"已还"状态的订单，避免与人工操作冲突
+        int[] counts = shard.getJdbcTemplate().batchUpdate(
+                "UPDATE rental_order SET status = ? WHERE order_id = ? AND status = ?",
+                chunk.stream().map(order -> new Object[] { RentalOrderStatus.SETTLED.getLabel(), order.getOrderId(),
+                        RentalOrderStatus.RETURNED.getLabel() }).toList());
+        Set<Long> settledIds = new HashSet<>();
+        List<RentalOrder> beforeSettlement = new ArrayList<>();
+        for (int i = 0; i < chunk.size(); i++) {
+            if (counts[i] != 0) {
+                RentalOrder order = chunk.get(i);
+                settledIds.add(order.getOrderId());
+                beforeSettlement.add(OrderProjectionService.copy(order));
+                Map<String, Object> previous = new HashMap<>(orderState(order));
+                order.setStatus(RentalOrderStatus.SETTLED);
+                events.add(new EntityChangeEvent(RentalOrder.class, order.getOrderId(),
+                        EntityChangeEvent.Action.UPDATE, order, previous));
+            }
+        }
+        lifecycleService.recordSettled(shard, beforeSettlement);
+        List<Payment> settledPayments = payments.stream().filter(p -> settledIds.contains(p.getOrderId())).toList();
+        orderStore.insertPayments(shard, settledPayments);
+        for (Payment payment : settledPayments) {
+            events.add(new EntityChangeEvent(Payment.class, payment.getPayId(),
+                    EntityChangeEvent.Action.INSERT, payment, null));
+        }
+        return settledIds.size();
+    }
+
+    private Map<Long, BigDecimal> loadFines(JdbcTemplate jdbcTemplate, List<RentalOrder> chunk) {
+        Map<Long, BigDecimal> fines = new HashMap<>();
+        String placeholders = String.join(",", Collections.nCopies(chunk.size(), "?"));
+        jdbcTemplate.query("SELECT order_id, SUM(fine_amount) AS total FROM violation WHERE order_id IN (" + placeholders
+                        + ") GROUP BY order_id",
+                rs -> {
+                    BigDecimal total = rs.getBigDecimal("total");
+                    fines.put(rs.getLong("order_id"), total != null ? total : BigDecimal.ZERO);
+                }, chunk.stream().map(RentalOrder::getOrderId).toArray());
+        return fines;
+    }
+
+    private static Map<String, Object> loadCheckpoint(JdbcTemplate jdbcTemplate) {
+        List<Map<String, Object>> rows = jdbcTemplate.queryForList(
+                "SELECT last_id, processed_count FROM batch_checkpoint WHERE job_name = ?", JOB_NAME);
+        if (rows.isEmpty()) {
+            return Map.of("last_id", 0L, "processed_count", 0L);
+        }
+        return RollupService.lowerKeys(rows.get(0));
+    }
+
+    private static void saveCheckpoint(JdbcTemplate jdbcTemplate, long lastId, long processed) {
+        int updated = jdbcTemplate.update(
+                "UPDATE batch_checkpoint SET last_id = ?, processed_count = ?, updated_at = ? WHERE job_name = ?",
+                lastId, processed, LocalDateTime.now(), JOB_NAME);
+        if (updated == 0) {
+            jdbcTemplate.update("INSERT INTO batch_checkpoint (job_name, last_id, processed_count, updated_at) VALUES (?, ?, ?, ?)",
+                    JOB_NAME, lastId, processed, LocalDateTime.now());
+        }
+    }
+
+    // 重置断点，下次运行从头扫描（已结算订单不会被重复处理）
+    public void resetCheckpoint() {
+        for (Shard shard : shards.all()) {
+            shard.getJdbcTemplate().update("DELETE FROM batch_checkpoint WHERE job_name = ?", JOB_NAME);
+        }
+    }
+
+    private static Payment payment(Long orderId, PaymentType type, BigDecimal amount) {
+        Payment payment = new Payment();
+        payment.setOrderId(orderId);
+        payment.setType(type);
+        payment.setAmount(amount);
+        return payment;
+    }
+
+    private static BigDecimal scale(BigDecimal value) {
+        return value.setScale(2, RoundingMode.HALF_UP);
+    }
+
+    private static Map<String, Object> orderState(RentalOrder order) {
+        Map<String, Object> state = new LinkedHashMap<>();
+        state.put("customerId", order.getCustomerId());
+        state.put("vehicleId", order.getVehicleId());
+        state.put("pickupStoreId", order.getPickupStoreId());
+        state.put("returnStoreId", order.getReturnStoreId());
+        state.put("status", order.getStatus());
+        state.put("totalAmount", order.getTotalAmount());
+        state.put("rentStart", order.getRentStart());
+        state.put("rentEnd", order.getRentEnd());
+        state.put("actualPickupTime", order.getActualPickupTime());
+        state.put("actualReturnTime", order.getActualReturnTime());
+        state.put("pickupMileage", order.getPickupMileage());
+        state.put("returnMileage", order.getReturnMileage());
+        state.put("pickupSoc", order.getPickupSoc());
+        state.put("returnSoc", order.getReturnSoc());
+        return state;
+    }
+
+    public static final RowMapper<RentalOrder> ORDER_MAPPER = (rs, rowNum) -> {
+        RentalOrder order = new RentalOrder();
+        order.setOrderId(rs.getLong("order_id"));
+        order.setCustomerId(rs.getObject("customer_id", Long.class));
+        order.setVehicleId(rs.getObject("vehicle_id", Long.class));
+        order.setPickupStoreId(rs.getObject("pickup_store_id", Long.class));
+        order.setReturnStoreId(rs.getObject("return_store_id", Long.class));
+        String status = rs.getString("status");
+        order.setStatus(status != null ? RentalOrderStatus.from(status) : null);
+        order.setTotalAmount(rs.getBigDecimal("total_amount"));
+        order.setRentStart(toLocalDateTime(rs.getTimestamp("rent_start")));
+        order.setRentEnd(toLocalDateTime(rs.getTimestamp("rent_end")));
+        order.setActualPickupTime(toLocalDateTime(rs.getTimestamp("actual_pickup_time")));
+        order.setActualReturnTime(toLocalDateTime(rs.getTimestamp("actual_return_time")));
+        order.setPickupMileage(rs.getObject("pickup_mileage", Double.class));
+        order.setReturnMileage(rs.getObject("return_mileage", Double.class));
+        order.setPickupSoc(rs.getObject("pickup_soc", Double.class));
+        order.setReturnSoc(rs.getObject("return_soc", Double.class));
+        return order;
+    };
+
+    private static LocalDateTime toLocalDateTime(Timestamp timestamp) {
+        return timestamp != null ? timestamp.toLocalDateTime() : null;
+    }
+}
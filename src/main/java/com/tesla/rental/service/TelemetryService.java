@@ -0,0 +1,188 @@
+package com.tesla.rental.service;
+
+import com.tesla.rental.entity.Vehicle;
+import com.tesla.rental.entity.enums.VehicleStatus;
+import com.tesla.rental.event.EntityChangeEvent;
+import com.tesla.rental.payload.TelemetryReading;
+import jakarta.annotation.PreDestroy;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+// 车辆遥测写入：上报的电量/里程先按车辆合并在内存中（同一车辆只保留最新读数），
+// 由定时任务把有变化的车辆分批写回 vehicle 表；崩溃时最多丢失一个刷新周期的读数
+@Service
+public class TelemetryService {
+
+    private static final int BATCH_SIZE = 1000;
+
+    // 合并后的待写读数
+    static class Pending {
+        final Double soc;
+        final Double mileage;
+        final long timestamp;
+
+        Pending(Double soc, Double mileage, long timestamp) {
+            this.soc = soc;
+            this.mileage = mileage;
+            this.timestamp = timestamp;
+        }
+
+        // 较新的读数覆盖较旧的；新读数缺失的字段沿用旧值
+        Pending merge(Pending newer) {
+            if (newer.timestamp < timestamp) {
+                return new Pending(soc != null ? soc : newer.soc, mileage != null ? mileage : newer.mileage, timestamp);
+            }
+            return new Pending(newer.soc != null ? newer.soc : soc, newer.mileage != null ? newer.mileage : mileage,
+                    newer.timestamp);
+        }
+    }
+
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate transactionTemplate;
+    private final ApplicationEventPublisher publisher;
+    private final RollupService rollupService;
+
+    private final ConcurrentHashMap<Long, Pending> pending = new ConcurrentHashMap<>();
+    private final AtomicLong received = new AtomicLong();
+    private final AtomicLong flushedVehicles = new AtomicLong();
+    private volatile long lastFlushMillis;
+
+    public TelemetryService(JdbcTemplate jdbcTemplate, PlatformTransactionManager transactionManager,
+                            ApplicationEventPublisher publisher, RollupService rollupService) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.publisher = publisher;
+        this.rollupService = rollupService;
+    }
+
+    // 接收一批读数，返回被拒绝（缺少车辆ID或数值越界）的条数
+    public int accept(List<TelemetryReading> readings) {
+        int rejected = 0;
+        long now = System.currentTimeMillis();
+        for (TelemetryReading reading : readings) {
+            if (reading == null || reading.getVehicleId() == null
+                    || (reading.getSoc() == null && reading.getMileage() == null)
+                    || (reading.getSoc() != null && (reading.getSoc() < 0 || reading.getSoc() > 100))
+                    || (reading.getMileage() != null && reading.getMileage() < 0)) {
+                rejected++;
+                continue;
+            }
+            Pending value = new Pending(reading.getSoc(), reading.getMileage(),
+                    reading.getTimestamp() != null ? reading.getTimestamp() : now);
+            pending.merge(reading.getVehicleId(), value, Pending::merge);
+        }
+        received.addAndGet(readings.size() - rejected);
+        return rejected;
+    }
+
+    @Scheduled(fixedDelayString = "${rental.telemetry.flush-interval-ms:1000}")
+    public void flush() {
+        if (pending.isEmpty()) {
+            return;
+        }
+        long start = System.currentTimeMillis();
+        // 逐个摘下待写读数；摘下之后到达的新读数留给下一轮
+        Map<Long, Pending> snapshot = new HashMap<>();
+        for (Long vehicleId : pending.keySet()) {
+            Pending value = pending.remove(vehicleId);
+            if (value != null) {
+                snapshot.put(vehicleId, value);
+            }
+        }
+        List<Long> ids = new ArrayList<>(snapshot.keySet());
+        for (int from = 0; from < ids.size(); from += BATCH_SIZE) {
+            List<Long> chunk = ids.subList(from, Math.min(from + BATCH_SIZE, ids.size()));
+            try {
+                transactionTemplate.executeWithoutResult(tx -> writeChunk(chunk, snapshot));
+            } catch (RuntimeException e) {
+                // 写入失败时把本批及之后尚未写入的读数都放回，与期间到达的更新读数合并后下轮重试
+                for (Long vehicleId : ids.subList(from, ids.size())) {
+                    pending.merge(vehicleId, snapshot.get(vehicleId), (newer, retry) -> retry.merge(newer));
+                }
+                throw e;
+            }
+        }
+        lastFlushMillis = System.currentTimeMillis() - start;
+    }
+
+    // 读取当前值，只更新电量或里程确实变化的车辆，并发布变更事件供汇总表等订阅方使用
+    private void writeChunk(List<Long> chunk, Map<Long, Pending> snapshot) {
+        String placeholders = String.join(",", Collections.nCopies(chunk.size(), "?"));
+        List<Vehicle> changed = new ArrayList<>();
+        List<Map<String, Object>> previous = new ArrayList<>();
+        List<Object[]> batch = new ArrayList<>();
+        jdbcTemplate.query("SELECT vehicle_id, plate_no, store_id, model_id, status, current_soc, current_mileage"
+                        + " FROM vehicle WHERE vehicle_id IN (" + placeholders + ")",
+                rs -> {
+                    Vehicle vehicle = new Vehicle();
+                    vehicle.setVehicleId(rs.getLong("vehicle_id"));
+                    vehicle.setPlateNo(rs.getString("plate_no"));
+                    vehicle.setStoreId(rs.getObject("store_id", Long.class));
+                    vehicle.setModelId(rs.getLong("model_id"));
+                    String status = rs.getString("status");
+                    vehicle.setStatus(status != null ? VehicleStatus.from(status) : null);
+                    vehicle.setCurrentSoc(rs.getObject("current_soc", Double.class));
+                    vehicle.setCurrentMileage(rs.getObject("current_mileage", Double.class));
+
+                    Pending value = snapshot.get(vehicle.getVehicleId());
+                    Double soc = value.soc != null ? value.soc : vehicle.getCurrentSoc();
+                    Double mileage = value.mileage != null ? value.mileage : vehicle.getCurrentMileage();
+                    if (Objects.equals(soc, vehicle.getCurrentSoc()) && Objects.equals(mileage, vehicle.getCurrentMileage())) {
+                        return;
+                    }
+                    Map<String, Object> before = new LinkedHashMap<>();
+                    before.put("storeId", vehicle.getStoreId());
+                    before.put("status", vehicle.getStatus());
+                    before.put("currentSoc", vehicle.getCurrentSoc());
+                    before.put("currentMileage", vehicle.getCurrentMileage());
+                    before.put("modelId", vehicle.getModelId());
+                    before.put("plateNo", vehicle.getPlateNo());
+                    vehicle.setCurrentSoc(soc);
+                    vehicle.setCurrentMileage(mileage);
+                    changed.add(vehicle);
+                    previous.add(before);
+                    batch.add(new Object[] { soc, mileage, vehicle.getVehicleId() });
+                }, chunk.toArray());
+        if (batch.isEmpty()) {
+            return;
+        }
+        jdbcTemplate.batchUpdate("UPDATE vehicle SET current_soc = ?, current_mileage = ? WHERE vehicle_id = ?", batch);
+        // 同一门店的电量/里程增量合并后每批只写一次
+        rollupService.deferred(() -> {
+            for (int i = 0; i < changed.size(); i++) {
+                Vehicle vehicle = changed.get(i);
+                publisher.publishEvent(new EntityChangeEvent(Vehicle.class, vehicle.getVehicleId(),
+                        EntityChangeEvent.Action.UPDATE, vehicle, previous.get(i)));
+            }
+        });
+        flushedVehicles.addAndGet(changed.size());
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        flush();
+    }
+
+    public Map<String, Object> status() {
+        Map<String, Object> status = new LinkedHashMap<>();
+        status.put("received", received.get());
+        status.put("pendingVehicles", pending.size());
+        status.put("flushedVehicles", flushedVehicles.get());
+        status.put("lastFlushMillis", lastFlushMillis);
+        return status;
+    }
+}
@@ -0,0 +1,342 @@
+package com.tesla.rental.service;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.Set;
+
+// 调拨最小费用流求解器：节点为门店，balance > 0 表示富余车辆，< 0 表示缺口；指定边只连 富余 -> 缺口。
+// 指定费用以指定值为准，其余门店对统一按 defaultCost 计费。缺口门店按下标排成一棵线段树（内部节点 -> 子节点费用 0），
+// 每个富余门店以默认费用连到覆盖“除其指定边目标外所有缺口门店”的若干线段树节点，每个被排除的目标至多多出 O(log 缺口门店数) 条边，
+// 边数为 O(门店数 + 指定边数 x log 门店数)，不会退化为 富余 x 缺口 的稠密图；
+// 没有指定边时所有路径费用相同，直接贪心配对即为最优解
+public class TransferSolver {
+
+    @Data
+    @AllArgsConstructor
+    public static class Edge {
+        private int from;
+        private int to;
+        private long cost;
+    }
+
+    @Data
+    @AllArgsConstructor
+    public static class Flow {
+        private int from;
+        private int to;
+        private int quantity;
+        private long unitCost;
+    }
+
+    public List<Flow> solve(int[] balance, long defaultCost, List<Edge> explicitEdges) {
+        if (explicitEdges == null || explicitEdges.isEmpty()) {
+            return greedy(balance, defaultCost);
+        }
+        return successiveShortestPath(balance, defaultCost, explicitEdges);
+    }
+
+    private List<Flow> greedy(int[] balance, long defaultCost) {
+        List<Flow> flows = new ArrayList<>();
+        int[] remaining = balance.clone();
+        int deficit = 0;
+        for (int from = 0; from < remaining.length; from++) {
+            while (remaining[from] > 0) {
+                while (deficit < remaining.length && remaining[deficit] >= 0) {
+                    deficit++;
+                }
+                if (deficit == remaining.length) {
+                    return flows;
+                }
+                int quantity = Math.min(remaining[from], -remaining[deficit]);
+                flows.add(new Flow(from, deficit, quantity, defaultCost));
+                remaining[from] -= quantity;
+                remaining[deficit] += quantity;
+            }
+        }
+        return flows;
+    }
+
+    // ---------------- 逐次最短路（Dijkstra + 势函数） ----------------
+
+    private int[] head;
+    private int[] next;
+    private int[] to;
+    private int[] cap;
+    private long[] cost;
+    private int edgeCount;
+
+    private List<Flow> successiveShortestPath(int[] balance, long defaultCost, List<Edge> explicitEdges) {
+        int n = balance.length;
+        int source = n;
+        int sink = n + 1;
+        List<Integer> deficits = new ArrayList<>();
+        for (int i = 0; i < n; i++) {
+            if (balance[i] < 0) {
+                deficits.add(i);
+            }
+        }
+        // 每个富余门店已指定费用的缺口门店（在 deficits 中的位置）
+        int[] position = new int[n];
+        for (int k = 0; k < deficits.size(); k++) {
+            position[deficits.get(k)] = k;
+        }
+        Map<Integer, Set<Integer>> explicitTargets = new HashMap<>();
+        for (Edge edge : explicitEdges) {
+            explicitTargets.computeIfAbsent(edge.getFrom(), k -> new HashSet<>()).add(position[edge.getTo()]);
+        }
+
+        // 线段树：叶子即缺口门店节点本身，内部节点编号从 n + 2 起
+        treeLeft = new ArrayList<>();
+        treeRight = new ArrayList<>();
+        treeBase = n + 2;
+        treeNodes = treeBase;
+        int root = deficits.isEmpty() ? -1 : buildTree(deficits, 0, deficits.size());
+        // 每个富余门店的默认费用边目标：按排除的目标把缺口区间切成若干段，每段取线段树覆盖节点
+        List<int[]> defaultEdges = new ArrayList<>();   // {富余门店, 线段树节点}
+        for (int i = 0; i < n; i++) {
+            if (balance[i] <= 0 || root < 0) {
+                continue;
+            }
+            List<Integer> excluded = new ArrayList<>(explicitTargets.getOrDefault(i, Set.of()));
+            excluded.sort(null);
+            int lo = 0;
+            for (int k : excluded) {
+                cover(root, 0, deficits.size(), lo, k, i, defaultEdges);
+                lo = k + 1;
+            }
+            cover(root, 0, deficits.size(), lo, deficits.size(), i, defaultEdges);
+        }
+
+        int nodes = treeNodes;
+        int maxEdges = 2 * (n + 2 * treeLeft.size() + explicitEdges.size() + defaultEdges.size());
+        head = new int[nodes];
+        Arrays.fill(head, -1);
+        next = new int[maxEdges];
+        to = new int[maxEdges];
+        cap = new int[maxEdges];
+        cost = new long[maxEdges];
+        edgeCount = 0;
+
+        for (int i = 0; i < n; i++) {
+            if (balance[i] > 0) {
+                addEdge(source, i, balance[i], 0);
+            } else if (balance[i] < 0) {
+                addEdge(i, sink, -balance[i], 0);
+            }
+        }
+        int[] explicitIndex = new int[explicitEdges.size()];
+        for (int i = 0; i < explicitEdges.size(); i++) {
+            Edge edge = explicitEdges.get(i);
+            explicitIndex[i] = edgeCount;
+            addEdge(edge.getFrom(), edge.getTo(), Integer.MAX_VALUE, edge.getCost());
+        }
+        treeEdge = new int[treeLeft.size()];
+        for (int t = 0; t < treeLeft.size(); t++) {
+            treeEdge[t] = edgeCount;
+            addEdge(treeBase + t, treeLeft.get(t), Integer.MAX_VALUE, 0);
+            addEdge(treeBase + t, treeRight.get(t), Integer.MAX_VALUE, 0);
+        }
+        int[] defaultIndex = new int[defaultEdges.size()];
+        for (int k = 0; k < defaultEdges.size(); k++) {
+            defaultIndex[k] = edgeCount;
+            addEdge(defaultEdges.get(k)[0], defaultEdges.get(k)[1], balance[defaultEdges.get(k)[0]], defaultCost);
+        }
+
+        long[] potential = new long[nodes];
+        long[] dist = new long[nodes];
+        while (true) {
+            Arrays.fill(dist, Long.MAX_VALUE);
+            dist[source] = 0;
+            PriorityQueue<long[]> queue = new PriorityQueue<>((a, b) -> Long.compare(a[0], b[0]));
+            queue.add(new long[] { 0, source });
+            while (!queue.isEmpty()) {
+                long[] top = queue.poll();
+                int u = (int) top[1];
+                if (top[0] > dist[u]) {
+                    continue;
+                }
+                for (int e = head[u]; e != -1; e = next[e]) {
+                    if (cap[e] <= 0) {
+                        continue;
+                    }
+                    int v = to[e];
+                    long nd = dist[u] + cost[e] + potential[u] - potential[v];
+                    if (nd < dist[v]) {
+                        dist[v] = nd;
+                        queue.add(new long[] { nd, v });
+                    }
+                }
+            }
+            if (dist[sink] == Long.MAX_VALUE) {
+                break;
+            }
+            for (int i = 0; i < nodes; i++) {
+                if (dist[i] != Long.MAX_VALUE) {
+                    potential[i] += dist[i];
+                }
+            }
+            augmentShortestPaths(source, sink, dist, potential);
+        }
+
+        // 汇总结果：指定边上的流量直接输出；默认费用边流入线段树节点的流量沿树边向下拆到具体缺口门店，
+        // 该节点覆盖的缺口门店都不在此富余门店的指定目标中，任意拆分都是默认费用
+        List<Flow> flows = new ArrayList<>();
+        for (int i = 0; i < explicitEdges.size(); i++) {
+            int used = cap[explicitIndex[i] ^ 1];
+            if (used > 0) {
+                Edge edge = explicitEdges.get(i);
+                flows.add(new Flow(edge.getFrom(), edge.getTo(), used, edge.getCost()));
+            }
+        }
+        for (int k = 0; k < defaultEdges.size(); k++) {
+            int used = cap[defaultIndex[k] ^ 1];
+            if (used > 0) {
+                split(defaultEdges.get(k)[0], defaultEdges.get(k)[1], used, defaultCost, flows);
+            }
+        }
+        return flows;
+    }
+
+    // 一次 Dijkstra 后，在所有最短路组成的子图（可达且约化费用为 0 的边）上按层次图求阻塞流，
+    // 一轮增广多条等长最短路，Dijkstra 次数降为不同最短路长度的个数
+    private void augmentShortestPaths(int source, int sink, long[] dist, long[] potential) {
+        int nodes = head.length;
+        int[] level = new int[nodes];
+        int[] queue = new int[nodes];
+        int[] iter = new int[nodes];
+        int[] path = new int[nodes];
+        while (true) {
+            Arrays.fill(level, -1);
+            level[source] = 0;
+            int tail = 0;
+            queue[tail++] = source;
+            for (int q = 0; q < tail; q++) {
+                int u = queue[q];
+                for (int e = head[u]; e != -1; e = next[e]) {
+                    int v = to[e];
+                    if (level[v] < 0 && admissible(e, u, v, dist, potential)) {
+                        level[v] = level[u] + 1;
+                        queue[tail++] = v;
+                    }
+                }
+            }
+            if (level[sink] < 0) {
+                return;
+            }
+            System.arraycopy(head, 0, iter, 0, nodes);
+            int depth = 0;
+            int u = source;
+            while (true) {
+                if (u == sink) {
+                    int push = Integer.MAX_VALUE;
+                    for (int k = 0; k < depth; k++) {
+                        push = Math.min(push, cap[path[k]]);
+                    }
+                    for (int k = 0; k < depth; k++) {
+                        cap[path[k]] -= push;
+                        cap[path[k] ^ 1] += push;
+                    }
+                    depth = 0;
+                    u = source;
+                    continue;
+                }
+                int e = iter[u];
+                while (e != -1 && !(level[to[e]] == level[u] + 1 && admissible(e, u, to[e], dist, potential))) {
+                    e = next[e];
+                }
+                iter[u] = e;
+                if (e != -1) {
+                    path[depth++] = e;
+                    u = to[e];
+                    continue;
+                }
+                if (u == source) {
+                    break;
+                }
+                // 死路：退回上一节点并跳过这条边
+                level[u] = -1;
+                u = to[path[--depth] ^ 1];
+                iter[u] = next[iter[u]];
+            }
+        }
+    }
+
+    private boolean admissible(int e, int u, int v, long[] dist, long[] potential) {
+        return cap[e] > 0 && dist[u] != Long.MAX_VALUE && dist[v] != Long.MAX_VALUE
+                && cost[e] + potential[u] - potential[v] == 0;
+    }
+
+    // ---------------- 线段树 ----------------
+
+    private List<Integer> treeLeft;
+    private List<Integer> treeRight;
+    private int[] treeEdge;   // 内部节点到左子节点的边下标，到右子节点的边紧随其后（下标 + 2）
+    private int treeBase;
+    private int treeNodes;
+
+    // 覆盖 deficits[lo, hi) 的节点：单个缺口门店直接用门店节点
+    private int buildTree(List<Integer> deficits, int lo, int hi) {
+        if (hi - lo == 1) {
+            return deficits.get(lo);
+        }
+        int mid = (lo + hi) >>> 1;
+        int left = buildTree(deficits, lo, mid);
+        int right = buildTree(deficits, mid, hi);
+        treeLeft.add(left);
+        treeRight.add(right);
+        return treeNodes++;
+    }
+
+    // 把 [lo, hi) 拆成线段树节点（node 覆盖 [nodeLo, nodeHi)），逐个记为富余门店 from 的默认费用边
+    private void cover(int node, int nodeLo, int nodeHi, int lo, int hi, int from, List<int[]> out) {
+        if (lo >= hi || hi <= nodeLo || nodeHi <= lo) {
+            return;
+        }
+        if (lo <= nodeLo && nodeHi <= hi) {
+            out.add(new int[] { from, node });
+            return;
+        }
+        int mid = (nodeLo + nodeHi) >>> 1;
+        int t = node - treeBase;
+        cover(treeLeft.get(t), nodeLo, mid, lo, hi, from, out);
+        cover(treeRight.get(t), mid, nodeHi, lo, hi, from, out);
+    }
+
+    // 把富余门店 from 流入线段树节点 node 的 amount 辆沿树边向下拆到缺口门店，已拆出的流量从树边上扣除
+    private void split(int from, int node, int amount, long defaultCost, List<Flow> flows) {
+        if (node < treeBase) {
+            flows.add(new Flow(from, node, amount, defaultCost));
+            return;
+        }
+        int t = node - treeBase;
+        for (int e = treeEdge[t]; e <= treeEdge[t] + 2 && amount > 0; e += 2) {
+            int quantity = Math.min(amount, cap[e ^ 1]);
+            if (quantity > 0) {
+                cap[e ^ 1] -= quantity;
+                amount -= quantity;
+                split(from, to[e], quantity, defaultCost, flows);
+            }
+        }
+    }
+
+    private void addEdge(int u, int v, int capacity, long edgeCost) {
+        to[edgeCount] = v;
+        cap[edgeCount] = capacity;
+        cost[edgeCount] = edgeCost;
+        next[edgeCount] = head[u];
+        head[u] = edgeCount++;
+        to[edgeCount] = u;
+        cap[edgeCount] = 0;
+        cost[edgeCount] = -edgeCost;
+        next[edgeCount] = head[v];
+        head[v] = edgeCount++;
+    }
+}
@@ -0,0 +1,300 @@
+package com.tesla.rental.service;
+
+import com.tesla.rental.entity.Vehicle;
+import com.tesla.rental.entity.enums.VehicleStatus;
+import com.tesla.rental.event.AfterCommit;
+import com.tesla.rental.event.EntityChangeEvent;
+import com.tesla.rental.event.RemoteChangeEvent;
+import com.tesla.rental.payload.AlertRule;
+import com.tesla.rental.payload.VehicleAlert;
+import jakarta.annotation.PreDestroy;
+import lombok.Data;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowMapper;
+import org.springframework.stereotype.Service;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import java.io.IOException;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.List;
+import java.util.NavigableSet;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListSet;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+// 车辆电量/里程阈值告警：内存中按电量、按里程各维护一个有序索引（替代查询 1.2 / 1.3 的全表扫描），
+// 车辆每次写入后更新索引，只在越过规则阈值时产生告警，并通过 SSE 推送给订阅方
+@Service
+public class VehicleAlertService {
+
+    // 索引中的车辆快照
+    @Data
+    public static class VehicleSnapshot {
+        private final Long vehicleId;
+        private final String plateNo;
+        private final Long storeId;
+        private final Long modelId;
+        private final VehicleStatus status;
+        private final Double currentSoc;
+        private final Double currentMileage;
+    }
+
+    private static final Comparator<VehicleSnapshot> BY_SOC = Comparator
+            .comparing(VehicleSnapshot::getCurrentSoc).thenComparing(VehicleSnapshot::getVehicleId);
+    private static final Comparator<VehicleSnapshot> BY_MILEAGE = Comparator
+            .comparing(VehicleSnapshot::getCurrentMileage).thenComparing(VehicleSnapshot::getVehicleId);
+
+    private static final String SNAPSHOT_SQL =
+            "SELECT vehicle_id, plate_no, store_id, model_id, status, current_soc, current_mileage FROM vehicle";
+
+    private static final RowMapper<VehicleSnapshot> SNAPSHOT_MAPPER = (rs, rowNum) -> {
+        String status = rs.getString("status");
+        return new VehicleSnapshot(rs.getLong("vehicle_id"), rs.getString("plate_no"),
+                rs.getObject("store_id", Long.class), rs.getObject("model_id", Long.class),
+                status != null ? VehicleStatus.from(status) : null,
+                rs.getObject("current_soc", Double.class), rs.getObject("current_mileage", Double.class));
+    };
+
+    private final JdbcTemplate jdbcTemplate;
+
+    private final ConcurrentHashMap<Long, VehicleSnapshot> vehicles = new ConcurrentHashMap<>();
+    private final ConcurrentSkipListSet<VehicleSnapshot> bySoc = new ConcurrentSkipListSet<>(BY_SOC);
+    private final ConcurrentSkipListSet<VehicleSnapshot> byMileage = new ConcurrentSkipListSet<>(BY_MILEAGE);
+
+    private final CopyOnWriteArrayList<AlertRule> rules = new CopyOnWriteArrayList<>();
+    private final CopyOnWriteArrayList<SseEmitter> emitters = new CopyOnWriteArrayList<>();
+    // 推送在独立线程中进行，慢客户端不会阻塞车辆写入
+    private final ExecutorService dispatcher = Executors.newSingleThreadExecutor(r -> {
+        Thread thread = new Thread(r, "vehicle-alert-dispatch");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    public VehicleAlertService(JdbcTemplate jdbcTemplate,
+                               @Value("${rental.alerts.low-soc:20}") double lowSoc,
+                               @Value("${rental.alerts.high-mileage:50000}") double highMileage) {
+        this.jdbcTemplate = jdbcTemplate;
+        rules.add(rule("low-battery", AlertRule.Metric.SOC, AlertRule.Operator.BELOW, lowSoc));
+        rules.add(rule("high-mileage", AlertRule.Metric.MILEAGE, AlertRule.Operator.ABOVE, highMileage));
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public synchronized void onReady() {
+        jdbcTemplate.query(SNAPSHOT_SQL, rs -> {
+            VehicleSnapshot snapshot = SNAPSHOT_MAPPER.mapRow(rs, 0);
+            apply(snapshot.getVehicleId(), snapshot);
+        });
+    }
+
+    // 车辆写入提交后更新索引并检查是否越过阈值
+    @EventListener
+    public void onEntityChange(EntityChangeEvent event) {
+        if (event.isFor(Vehicle.class)) {
+            AfterCommit.run(() -> onVehicleChange(event));
+        }
+    }
+
+    // 其他实例修改的车辆：从数据库读取最新值，同样检查阈值并推送给本实例的订阅方
+    @EventListener
+    public void onRemoteChange(RemoteChangeEvent event) {
+        if (!event.isFor(Vehicle.class)) {
+            return;
+        }
+        if (event.getId() == null) {
+            onReady();
+            return;
+        }
+        List<VehicleSnapshot> rows = jdbcTemplate.query(SNAPSHOT_SQL + " WHERE vehicle_id = ?", SNAPSHOT_MAPPER, event.getId());
+        onVehicleChange(event.getId(), rows.isEmpty() ? null : rows.get(0));
+    }
+
+    private void onVehicleChange(EntityChangeEvent event) {
+        VehicleSnapshot current = null;
+        if (event.getAction() != EntityChangeEvent.Action.DELETE) {
+            Vehicle vehicle = event.getEntity(Vehicle.class);
+            current = new VehicleSnapshot(vehicle.getVehicleId(), vehicle.getPlateNo(), vehicle.getStoreId(),
+                    vehicle.getModelId(), vehicle.getStatus(), vehicle.getCurrentSoc(), vehicle.getCurrentMileage());
+        }
+        onVehicleChange((Long) event.getId(), current);
+    }
+
+    private void onVehicleChange(Long vehicleId, VehicleSnapshot current) {
+        VehicleSnapshot previous = apply(vehicleId, current);
+        if (current == null) {
+            return;
+        }
+        List<VehicleAlert> alerts = new ArrayList<>();
+        for (AlertRule rule : rules) {
+            Double before = previous != null ? value(previous, rule.getMetric()) : null;
+            Double after = value(current, rule.getMetric());
+            boolean was = rule.matches(before);
+            boolean is = rule.matches(after);
+            if (was != is) {
+                alerts.add(alert(rule, is ? VehicleAlert.Type.TRIGGERED : VehicleAlert.Type.CLEARED, current, before, after));
+            }
+        }
+        if (!alerts.isEmpty() && !emitters.isEmpty()) {
+            dispatcher.execute(() -> alerts.forEach(this::send));
+        }
+    }
+
+    // 替换某辆车在两个索引中的位置，返回旧快照
+    private synchronized VehicleSnapshot apply(Long vehicleId, VehicleSnapshot current) {
+        VehicleSnapshot previous = current != null ? vehicles.put(vehicleId, current) : vehicles.remove(vehicleId);
+        if (previous != null) {
+            if (previous.getCurrentSoc() != null) {
+                bySoc.remove(previous);
+            }
+            if (previous.getCurrentMileage() != null) {
+                byMileage.remove(previous);
+            }
+        }
+        if (current != null) {
+            addToIndexes(current);
+        }
+        return previous;
+    }
+
+    private void addToIndexes(VehicleSnapshot snapshot) {
+        if (snapshot.getCurrentSoc() != null) {
+            bySoc.add(snapshot);
+        }
+        if (snapshot.getCurrentMileage() != null) {
+            byMileage.add(snapshot);
+        }
+    }
+
+    // ---------------- 查询 ----------------
+
+    // 电量低于 threshold 的车辆，按电量升序（对应查询 1.2）
+    public List<VehicleSnapshot> socBelow(double threshold, int limit) {
+        return take(bySoc.headSet(probe(threshold, null, Long.MIN_VALUE), false), limit);
+    }
+
+    // 里程高于 threshold 的车辆，按里程降序（对应查询 1.3）
+    public List<VehicleSnapshot> mileageAbove(double threshold, int limit) {
+        return take(byMileage.tailSet(probe(null, threshold, Long.MAX_VALUE), false).descendingSet(), limit);
+    }
+
+    // 当前满足某条规则的车辆
+    public List<VehicleSnapshot> matching(String ruleName, int limit) {
+        AlertRule rule = findRule(ruleName);
+        if (rule == null) {
+            return List.of();
+        }
+        NavigableSet<VehicleSnapshot> index = rule.getMetric() == AlertRule.Metric.SOC ? bySoc : byMileage;
+        VehicleSnapshot bound = rule.getOperator() == AlertRule.Operator.BELOW
+                ? probe(rule.getThreshold(), rule.getThreshold(), Long.MIN_VALUE)
+                : probe(rule.getThreshold(), rule.getThreshold(), Long.MAX_VALUE);
+        return rule.getOperator() == AlertRule.Operator.BELOW
+                ? take(index.headSet(bound, false), limit)
+                : take(index.tailSet(bound, false).descendingSet(), limit);
+    }
+
+    public List<AlertRule> getRules() {
+        return List.copyOf(rules);
+    }
+
+    // 新增或替换同名规则；新规则只对之后的越界生效，不对当前已满足的车辆补发告警
+    public AlertRule saveRule(AlertRule rule) {
+        if (rule.getName() == null || rule.getMetric() == null || rule.getOperator() == null || rule.getThreshold() == null) {
+            throw new IllegalArgumentException("name, metric, operator and threshold are required");
+        }
+        rules.removeIf(existing -> existing.getName().equals(rule.getName()));
+        rules.add(rule);
+        return rule;
+    }
+
+    public boolean deleteRule(String name) {
+        return rules.removeIf(rule -> rule.getName().equals(name));
+    }
+
+    // ---------------- SSE 推送 ----------------
+
+    public SseEmitter subscribe() {
+        SseEmitter emitter = new SseEmitter(0L);
+        emitters.add(emitter);
+        emitter.onCompletion(() -> emitters.remove(emitter));
+        emitter.onTimeout(() -> emitters.remove(emitter));
+        emitter.onError(e -> emitters.remove(emitter));
+        return emitter;
+    }
+
+    private void send(VehicleAlert alert) {
+        for (SseEmitter emitter : emitters) {
+            try {
+                emitter.send(SseEmitter.event().name(alert.getRule()).data(alert));
+            } catch (IOException | IllegalStateException e) {
+                emitters.remove(emitter);
+            }
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        dispatcher.shutdownNow();
+        emitters.forEach(SseEmitter::complete);
+    }
+
+    // ---------------- 工具方法 ----------------
+
+    private AlertRule findRule(String name) {
+        for (AlertRule rule : rules) {
+            if (rule.getName().equals(name)) {
+                return rule;
+            }
+        }
+        return null;
+    }
+
+    private static Double value(VehicleSnapshot snapshot, AlertRule.Metric metric) {
+        return metric == AlertRule.Metric.SOC ? snapshot.getCurrentSoc() : snapshot.getCurrentMileage();
+    }
+
+    private static VehicleSnapshot probe(Double soc, Double mileage, long vehicleId) {
+        return new VehicleSnapshot(vehicleId, null, null, null, null, soc, mileage);
+    }
+
+    private static List<VehicleSnapshot> take(Collection<VehicleSnapshot> source, int limit) {
+        List<VehicleSnapshot> result = new ArrayList<>(Math.min(limit, 1024));
+        for (VehicleSnapshot snapshot : source) {
+            if (result.size() >= limit) {
+                break;
+            }
+            result.add(snapshot);
+        }
+        return result;
+    }
+
+    private static AlertRule rule(String name, AlertRule.Metric metric, AlertRule.Operator operator, double threshold) {
+        AlertRule rule = new AlertRule();
+        rule.setName(name);
+        rule.setMetric(metric);
+        rule.setOperator(operator);
+        rule.setThreshold(threshold);
+        return rule;
+    }
+
+    private static VehicleAlert alert(AlertRule rule, VehicleAlert.Type type, VehicleSnapshot vehicle,
+                                      Double before, Double after) {
+        VehicleAlert alert = new VehicleAlert();
+        alert.setRule(rule.getName());
+        alert.setType(type);
+        alert.setVehicleId(vehicle.getVehicleId());
+        alert.setPlateNo(vehicle.getPlateNo());
+        alert.setStoreId(vehicle.getStoreId());
+        alert.setPreviousValue(before);
+        alert.setValue(after);
+        alert.setThreshold(rule.getThreshold());
+        alert.setTime(LocalDateTime.now());
+        return alert;
+    }
+}
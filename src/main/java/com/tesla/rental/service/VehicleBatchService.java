@@ -0,0 +1,209 @@
+package com.tesla.rental.service;
+
+import com.tesla.rental.entity.Vehicle;
+import com.tesla.rental.entity.enums.VehicleStatus;
+import com.tesla.rental.event.EntityChangeEvent;
+import com.tesla.rental.payload.VehicleBatchRequest;
+import com.tesla.rental.payload.VehicleBatchResult;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.support.GeneratedKeyHolder;
+import org.springframework.jdbc.support.KeyHolder;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.sql.PreparedStatement;
+import java.sql.Statement;
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.EnumMap;
+import java.util.EnumSet;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+// 车辆批量运营操作：批量状态变更与批量调拨，整批一个事务，按 1000 辆一组加锁读取、校验后用 UPDATE ... WHERE vehicle_id IN (...) 写入，
+// 每辆车返回结果码，每批只写一条审计记录（替代前端逐辆 PUT /api/vehicles/{id}）
+@Service
+public class VehicleBatchService {
+
+    private static final int CHUNK_SIZE = 1000;
+
+    // 运营可手工发起的状态流转；在租状态只能由订单取车/还车改变
+    private static final Map<VehicleStatus, Set<VehicleStatus>> MANUAL_TRANSITIONS = new EnumMap<>(VehicleStatus.class);
+
+    static {
+        MANUAL_TRANSITIONS.put(VehicleStatus.IN_STOCK, EnumSet.of(VehicleStatus.MAINTENANCE));
+        MANUAL_TRANSITIONS.put(VehicleStatus.MAINTENANCE, EnumSet.of(VehicleStatus.IN_STOCK));
+        MANUAL_TRANSITIONS.put(VehicleStatus.RENTED, EnumSet.noneOf(VehicleStatus.class));
+    }
+
+    private final JdbcTemplate jdbcTemplate;
+    private final ApplicationEventPublisher publisher;
+    private final RollupService rollupService;
+
+    public VehicleBatchService(JdbcTemplate jdbcTemplate, ApplicationEventPublisher publisher, RollupService rollupService) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.publisher = publisher;
+        this.rollupService = rollupService;
+    }
+
+    @Transactional
+    public VehicleBatchResult changeStatus(VehicleBatchRequest request) {
+        VehicleStatus target = request.getStatus();
+        if (target == null) {
+            throw new IllegalArgumentException("目标状态不能为空");
+        }
+        VehicleBatchResult result = run(request, vehicle -> {
+            if (vehicle.getStatus() == target) {
+                return item(vehicle.getVehicleId(), -5, "车辆已处于" + target.getLabel() + "状态");
+            }
+            if (vehicle.getStatus() == null || !MANUAL_TRANSITIONS.get(vehicle.getStatus()).contains(target)) {
+                return item(vehicle.getVehicleId(), -4, "不允许从" + (vehicle.getStatus() != null ? vehicle.getStatus().getLabel() : "未知")
+                        + "变更为" + target.getLabel());
+            }
+            return null;
+        }, "UPDATE vehicle SET status = ? WHERE vehicle_id IN ", target.getLabel(), vehicle -> vehicle.setStatus(target), "状态变更成功");
+        audit(result, "批量状态变更：目标状态 " + target.getLabel(), request);
+        return result;
+    }
+
+    @Transactional
+    public VehicleBatchResult transfer(VehicleBatchRequest request) {
+        Long toStoreId = request.getToStoreId();
+        if (toStoreId == null) {
+            throw new IllegalArgumentException("目标门店不能为空");
+        }
+        Integer exists = jdbcTemplate.queryForObject("SELECT COUNT(*) FROM store WHERE store_id = ?", Integer.class, toStoreId);
+        if (exists == null || exists == 0) {
+            throw new IllegalArgumentException("目标门店不存在");
+        }
+        Long fromStoreId = request.getFromStoreId();
+        VehicleBatchResult result = run(request, vehicle -> {
+            if (fromStoreId != null && !fromStoreId.equals(vehicle.getStoreId())) {
+                return item(vehicle.getVehicleId(), -2, "车辆当前不在源门店");
+            }
+            if (toStoreId.equals(vehicle.getStoreId())) {
+                return item(vehicle.getVehicleId(), -5, "车辆已在目标门店");
+            }
+            if (vehicle.getStatus() != VehicleStatus.IN_STOCK) {
+                return item(vehicle.getVehicleId(), -4, "车辆状态不允许调拨（非在库状态）");
+            }
+            return null;
+        }, "UPDATE vehicle SET store_id = ? WHERE vehicle_id IN ", toStoreId, vehicle -> vehicle.setStoreId(toStoreId), "调拨成功");
+        audit(result, "批量调拨：" + (fromStoreId != null ? "门店#" + fromStoreId + " -> " : "") + "门店#" + toStoreId, request);
+        return result;
+    }
+
+    private interface Check {
+        VehicleBatchResult.Item reject(Vehicle vehicle);
+    }
+
+    private interface Change {
+        void apply(Vehicle vehicle);
+    }
+
+    private VehicleBatchResult run(VehicleBatchRequest request, Check check, String updateSql, Object value,
+                                   Change change, String successMsg) {
+        if (request.getVehicleIds() == null || request.getVehicleIds().isEmpty()) {
+            throw new IllegalArgumentException("车辆列表不能为空");
+        }
+        List<Long> vehicleIds = new ArrayList<>(new LinkedHashSet<>(request.getVehicleIds()));
+        VehicleBatchResult result = new VehicleBatchResult();
+        result.setTotal(vehicleIds.size());
+        for (int start = 0; start < vehicleIds.size(); start += CHUNK_SIZE) {
+            List<Long> chunk = vehicleIds.subList(start, Math.min(start + CHUNK_SIZE, vehicleIds.size()));
+            Map<Long, Vehicle> found = lock(chunk);
+            List<Vehicle> accepted = new ArrayList<>();
+            for (Long vehicleId : chunk) {
+                Vehicle vehicle = found.get(vehicleId);
+                VehicleBatchResult.Item item = vehicle == null ? item(vehicleId, -1, "车辆不存在") : check.reject(vehicle);
+                if (item == null) {
+                    item = item(vehicleId, 0, successMsg);
+                    accepted.add(vehicle);
+                }
+                result.getItems().add(item);
+            }
+            if (accepted.isEmpty()) {
+                continue;
+            }
+            List<Object> args = new ArrayList<>(accepted.size() + 1);
+            args.add(value);
+            accepted.forEach(vehicle -> args.add(vehicle.getVehicleId()));
+            jdbcTemplate.update(updateSql + "(" + String.join(",", Collections.nCopies(accepted.size(), "?")) + ")",
+                    args.toArray());
+            rollupService.deferred(() -> {
+                for (Vehicle vehicle : accepted) {
+                    Map<String, Object> previous = new LinkedHashMap<>();
+                    previous.put("storeId", vehicle.getStoreId());
+                    previous.put("status", vehicle.getStatus());
+                    previous.put("currentSoc", vehicle.getCurrentSoc());
+                    previous.put("currentMileage", vehicle.getCurrentMileage());
+                    previous.put("modelId", vehicle.getModelId());
+                    previous.put("plateNo", vehicle.getPlateNo());
+                    change.apply(vehicle);
+                    publisher.publishEvent(new EntityChangeEvent(Vehicle.class, vehicle.getVehicleId(),
+                            EntityChangeEvent.Action.UPDATE, vehicle, previous));
+                }
+            });
+        }
+        for (VehicleBatchResult.Item item : result.getItems()) {
+            if (item.getResultCode() == 0) {
+                result.setSucceeded(result.getSucceeded() + 1);
+            } else {
+                result.setFailed(result.getFailed() + 1);
+            }
+        }
+        return result;
+    }
+
+    // 读取并锁定本组车辆，避免校验后被订单或其他批次改动
+    private Map<Long, Vehicle> lock(List<Long> vehicleIds) {
+        Map<Long, Vehicle> found = new HashMap<>();
+        jdbcTemplate.query("SELECT vehicle_id, plate_no, store_id, model_id, status, current_soc, current_mileage"
+                        + " FROM vehicle WHERE vehicle_id IN (" + String.join(",", Collections.nCopies(vehicleIds.size(), "?"))
+                        + ") FOR UPDATE",
+                rs -> {
+                    Vehicle vehicle = new Vehicle();
+                    vehicle.setVehicleId(rs.getLong("vehicle_id"));
+                    vehicle.setPlateNo(rs.getString("plate_no"));
+                    vehicle.setStoreId(rs.getObject("store_id", Long.class));
+                    vehicle.setModelId(rs.getLong("model_id"));
+                    String status = rs.getString("status");
+                    vehicle.setStatus(status != null ? VehicleStatus.from(status) : null);
+                    vehicle.setCurrentSoc(rs.getObject("current_soc", Double.class));
+                    vehicle.setCurrentMileage(rs.getObject("current_mileage", Double.class));
+                    found.put(vehicle.getVehicleId(), vehicle);
+                }, vehicleIds.toArray());
+        return found;
+    }
+
+    private void audit(VehicleBatchResult result, String action, VehicleBatchRequest request) {
+        String text = action + "，共 " + result.getTotal() + " 辆，成功 " + result.getSucceeded() + " 辆，失败 " + result.getFailed() + " 辆"
+                + (request.getReason() != null && !request.getReason().isBlank() ? "，原因：" + request.getReason() : "");
+        KeyHolder keyHolder = new GeneratedKeyHolder();
+        jdbcTemplate.update(connection -> {
+            PreparedStatement ps = connection.prepareStatement(
+                    "INSERT INTO audit_log (action, action_time, user_id) VALUES (?, ?, ?)", Statement.RETURN_GENERATED_KEYS);
+            ps.setString(1, text.length() > 255 ? text.substring(0, 255) : text);
+            ps.setTimestamp(2, Timestamp.valueOf(LocalDateTime.now()));
+            ps.setObject(3, request.getOperatorUserId());
+            return ps;
+        }, keyHolder);
+        Number key = keyHolder.getKey();
+        result.setAuditLogId(key != null ? key.longValue() : null);
+    }
+
+    private static VehicleBatchResult.Item item(Long vehicleId, int code, String message) {
+        VehicleBatchResult.Item item = new VehicleBatchResult.Item();
+        item.setVehicleId(vehicleId);
+        item.setResultCode(code);
+        item.setResultMsg(message);
+        return item;
+    }
+}
@@ -0,0 +1,326 @@
+package com.tesla.rental.service;
+
+import com.tesla.rental.entity.Violation;
+import com.tesla.rental.event.EntityChangeEvent;
+import com.tesla.rental.payload.ViolationImportResult;
+import com.tesla.rental.shard.Shard;
+import com.tesla.rental.shard.ShardRouter;
+import com.tesla.rental.shard.ShardedOrderStore;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.sql.Timestamp;
+import java.time.DateTimeException;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+// 交管违章文件批量导入：逐行流式解析 CSV（车牌, 违章时间, 地点, 罚款），
+// 车牌经哈希索引解析为车辆，违章时间在该车按取车时间排序的租期区间上二分查找对应订单，
+// 按批写入并记录未匹配的行。订单分片时违章写入所属订单的分片
+@Service
+public class ViolationImportService {
+
+    // 单辆车按租期开始时间排序的订单区间（秒）
+    static class OrderIntervals {
+        long[] starts = new long[4];
+        long[] ends = new long[4];
+        long[] orderIds = new long[4];
+        int size;
+
+        void add(long start, long end, long orderId) {
+            if (size == starts.length) {
+                starts = Arrays.copyOf(starts, size * 2);
+                ends = Arrays.copyOf(ends, size * 2);
+                orderIds = Arrays.copyOf(orderIds, size * 2);
+            }
+            starts[size] = start;
+            ends[size] = end;
+            orderIds[size] = orderId;
+            size++;
+        }
+
+        // 多个分片的订单合并后按租期开始时间重新排序
+        void sort() {
+            Integer[] order = new Integer[size];
+            for (int i = 0; i < size; i++) {
+                order[i] = i;
+            }
+            Arrays.sort(order, (a, b) -> starts[a] != starts[b] ? Long.compare(starts[a], starts[b])
+                    : Long.compare(orderIds[a], orderIds[b]));
+            long[] sortedStarts = new long[size];
+            long[] sortedEnds = new long[size];
+            long[] sortedIds = new long[size];
+            for (int i = 0; i < size; i++) {
+                sortedStarts[i] = starts[order[i]];
+                sortedEnds[i] = ends[order[i]];
+                sortedIds[i] = orderIds[order[i]];
+            }
+            starts = sortedStarts;
+            ends = sortedEnds;
+            orderIds = sortedIds;
+        }
+
+        // 租期开始 <= time 的最后一个订单若覆盖 time 即为命中；向前再看几单以兼容少量重叠
+        Long find(long time) {
+            int index = Arrays.binarySearch(starts, 0, size, time);
+            if (index < 0) {
+                index = -index - 2;
+            } else {
+                while (index + 1 < size && starts[index + 1] == time) {
+                    index++;
+                }
+            }
+            for (int i = index; i >= 0 && i > index - 4; i--) {
+                if (time <= ends[i]) {
+                    return orderIds[i];
+                }
+            }
+            return null;
+        }
+    }
+
+    private final JdbcTemplate jdbcTemplate;
+    private final ShardRouter shards;
+    private final ShardedOrderStore orderStore;
+    private final ApplicationEventPublisher publisher;
+    private final RollupService rollupService;
+
+    @Value("${rental.violation-import.batch-size:20000}")
+    private int batchSize;
+
+    @Value("${rental.violation-import.max-details:1000}")
+    private int maxDetails;
+
+    public ViolationImportService(JdbcTemplate jdbcTemplate, ShardRouter shards, ShardedOrderStore orderStore,
+                                  ApplicationEventPublisher publisher, RollupService rollupService) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.shards = shards;
+        this.orderStore = orderStore;
+        this.publisher = publisher;
+        this.rollupService = rollupService;
+    }
+
+    public ViolationImportResult importCsv(InputStream input) throws IOException {
+        long startNanos = System.nanoTime();
+        Map<String, Long> plates = loadPlates();
+        Map<Long, OrderIntervals> intervals = loadIntervals();
+
+        ViolationImportResult result = new ViolationImportResult();
+        List<Violation> batch = new ArrayList<>(batchSize);
+        BufferedReader reader = new BufferedReader(new InputStreamReader(input, StandardCharsets.UTF_8), 1 << 16);
+        String line;
+        long lineNo = 0;
+        while ((line = reader.readLine()) != null) {
+            lineNo++;
+            if (line.isBlank() || (lineNo == 1 && isHeader(line))) {
+                continue;
+            }
+            result.setTotalRows(result.getTotalRows() + 1);
+            String[] fields = split(line);
+            LocalDateTime time = fields.length >= 4 ? parseTime(fields[1]) : null;
+            BigDecimal fine = fields.length >= 4 ? parseAmount(fields[3]) : null;
+            if (time == null || fine == null || fields[0].isEmpty()) {
+                result.setInvalidRows(result.getInvalidRows() + 1);
+                unmatched(result, lineNo, fields.length > 0 ? fields[0] : null, fields.length > 1 ? fields[1] : null,
+                        ViolationImportResult.Reason.INVALID_ROW);
+                continue;
+            }
+            Long vehicleId = plates.get(normalizePlate(fields[0]));
+            if (vehicleId == null) {
+                result.setUnknownPlate(result.getUnknownPlate() + 1);
+                unmatched(result, lineNo, fields[0], fields[1], ViolationImportResult.Reason.UNKNOWN_PLATE);
+                continue;
+            }
+            OrderIntervals orders = intervals.get(vehicleId);
+            Long orderId = orders != null ? orders.find(time.toEpochSecond(ZoneOffset.UTC)) : null;
+            if (orderId == null) {
+                result.setNoOrder(result.getNoOrder() + 1);
+                unmatched(result, lineNo, fields[0], fields[1], ViolationImportResult.Reason.NO_ORDER);
+            } else {
+                result.setMatchedOrders(result.getMatchedOrders() + 1);
+            }
+            Violation violation = new Violation();
+            violation.setVehicleId(vehicleId);
+            violation.setOrderId(orderId);
+            violation.setViolationTime(time);
+            violation.setLocation(fields[2]);
+            violation.setFineAmount(fine);
+            batch.add(violation);
+            if (batch.size() >= batchSize) {
+                result.setImported(result.getImported() + write(batch));
+                batch.clear();
+            }
+        }
+        if (!batch.isEmpty()) {
+            result.setImported(result.getImported() + write(batch));
+        }
+        result.setElapsedMillis((System.nanoTime() - startNanos) / 1_000_000);
+        return result;
+    }
+
+    // 每批按所属订单的分片分组，每组一个事务：批量插入取回主键，再发布变更事件（汇总表增量合并后写入）
+    private int write(List<Violation> batch) {
+        Map<Shard, List<Violation>> groups = new LinkedHashMap<>();
+        for (Violation violation : batch) {
+            groups.computeIfAbsent(shards.forId(violation.getOrderId()), k -> new ArrayList<>()).add(violation);
+        }
+        groups.forEach((shard, group) -> shard.write(tx -> {
+            orderStore.insertViolations(shard, group);
+            return null;
+        }, () -> rollupService.deferred(() -> {
+            for (Violation violation : group) {
+                publisher.publishEvent(new EntityChangeEvent(Violation.class, violation.getVioId(),
+                        EntityChangeEvent.Action.INSERT, violation, null));
+            }
+        })));
+        return batch.size();
+    }
+
+    // ---------------- 索引 ----------------
+
+    private Map<String, Long> loadPlates() {
+        Map<String, Long> plates = new HashMap<>();
+        jdbcTemplate.query("SELECT vehicle_id, plate_no FROM vehicle", rs -> {
+            String plate = rs.getString("plate_no");
+            if (plate != null) {
+                plates.put(normalizePlate(plate), rs.getLong("vehicle_id"));
+            }
+        });
+        return plates;
+    }
+
+    // 订单租期取 [rent_start, max(rent_end, actual_return_time)]：逾期未还期间的违章同样归属该订单
+    private Map<Long, OrderIntervals> loadIntervals() {
+        Map<Long, OrderIntervals> intervals = new HashMap<>();
+        for (Shard shard : shards.all()) {
+            loadIntervals(shard.getJdbcTemplate(), intervals);
+        }
+        if (shards.size() > 1) {
+            intervals.values().forEach(OrderIntervals::sort);
+        }
+        return intervals;
+    }
+
+    private static void loadIntervals(JdbcTemplate source, Map<Long, OrderIntervals> intervals) {
+        source.query("SELECT order_id, vehicle_id, rent_start, rent_end, actual_return_time FROM rental_order"
+                        + " WHERE vehicle_id IS NOT NULL AND rent_start IS NOT NULL ORDER BY vehicle_id, rent_start, order_id",
+                rs -> {
+                    long start = rs.getTimestamp("rent_start").toLocalDateTime().toEpochSecond(ZoneOffset.UTC);
+                    Timestamp rentEnd = rs.getTimestamp("rent_end");
+                    Timestamp actualReturn = rs.getTimestamp("actual_return_time");
+                    long end = Long.MAX_VALUE;
+                    if (rentEnd != null) {
+                        end = rentEnd.toLocalDateTime().toEpochSecond(ZoneOffset.UTC);
+                        if (actualReturn != null) {
+                            end = Math.max(end, actualReturn.toLocalDateTime().toEpochSecond(ZoneOffset.UTC));
+                        }
+                    }
+                    intervals.computeIfAbsent(rs.getLong("vehicle_id"), k -> new OrderIntervals())
+                            .add(start, end, rs.getLong("order_id"));
+                });
+    }
+
+    // ---------------- 解析 ----------------
+
+    private void unmatched(ViolationImportResult result, long lineNo, String plate, String time,
+                           ViolationImportResult.Reason reason) {
+        if (result.getUnmatched().size() >= maxDetails) {
+            return;
+        }
+        ViolationImportResult.UnmatchedRow row = new ViolationImportResult.UnmatchedRow();
+        row.setLine(lineNo);
+        row.setPlateNo(plate);
+        row.setViolationTime(time);
+        row.setReason(reason);
+        result.getUnmatched().add(row);
+    }
+
+    private static boolean isHeader(String line) {
+        String lower = line.toLowerCase();
+        return lower.startsWith("plate") || line.startsWith("车牌");
+    }
+
+    private static String normalizePlate(String plate) {
+        return plate.replace(" ", "").toUpperCase();
+    }
+
+    // 按逗号拆分，支持双引号包裹含逗号的字段
+    static String[] split(String line) {
+        List<String> fields = new ArrayList<>(4);
+        StringBuilder current = new StringBuilder();
+        boolean quoted = false;
+        for (int i = 0; i < line.length(); i++) {
+            char c = line.charAt(i);
+            if (quoted) {
+                if (c == '"') {
+                    if (i + 1 < line.length() && line.charAt(i + 1) == '"') {
+                        current.append('"');
+                        i++;
+                    } else {
+                        quoted = false;
+                    }
+                } else {
+                    current.append(c);
+                }
+            } else if (c == '"') {
+                quoted = true;
+            } else if (c == ',') {
+                fields.add(current.toString().trim());
+                current.setLength(0);
+            } else {
+                current.append(c);
+            }
+        }
+        fields.add(current.toString().trim());
+        return fields.toArray(new String[0]);
+    }
+
+    // yyyy-MM-dd HH:mm:ss 或 yyyy-MM-ddTHH:mm:ss，逐位解析避免格式化器开销
+    static LocalDateTime parseTime(String text) {
+        if (text.length() != 19 || text.charAt(4) != '-' || text.charAt(7) != '-'
+                || (text.charAt(10) != ' ' && text.charAt(10) != 'T') || text.charAt(13) != ':' || text.charAt(16) != ':') {
+            return null;
+        }
+        try {
+            return LocalDateTime.of(digits(text, 0, 4), digits(text, 5, 7), digits(text, 8, 10),
+                    digits(text, 11, 13), digits(text, 14, 16), digits(text, 17, 19));
+        } catch (DateTimeException | NumberFormatException e) {
+            return null;
+        }
+    }
+
+    private static int digits(String text, int from, int to) {
+        int value = 0;
+        for (int i = from; i < to; i++) {
+            char c = text.charAt(i);
+            if (c < '0' || c > '9') {
+                throw new NumberFormatException(text);
+            }
+            value = value * 10 + (c - '0');
+        }
+        return value;
+    }
+
+    private static BigDecimal parseAmount(String text) {
+        try {
+            BigDecimal amount = new BigDecimal(text);
+            return amount.signum() >= 0 ? amount : null;
+        } catch (NumberFormatException e) {
+            return null;
+        }
+    }
+}
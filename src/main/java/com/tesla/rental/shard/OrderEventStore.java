@@ -0,0 +1,227 @@
+package com.tesla.rental.shard;
+
+import com.tesla.rental.entity.RentalOrder;
+import com.tesla.rental.entity.enums.VehicleStatus;
+import com.tesla.rental.event.OrderEvent;
+import com.tesla.rental.service.SettlementService;
+import org.springframework.jdbc.core.RowMapper;
+import org.springframework.stereotype.Component;
+
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+// order_event / order_snapshot 的读写：事件与订单在同一分片（同一事务内追加），按 (order_id, seq) 或 event_id 顺序读取
+@Component
+public class OrderEventStore {
+
+    private static final String EVENT_COLUMNS = "order_id, seq, event_type, " + String.join(", ", ShardedOrderStore.ORDER_COLUMNS)
+            + ", vehicle_status, actor, recorded_at";
+    private static final String INSERT_EVENT = "INSERT INTO order_event (" + EVENT_COLUMNS + ") VALUES ("
+            + String.join(", ", Collections.nCopies(ShardedOrderStore.ORDER_COLUMNS.size() + 6, "?")) + ")";
+    private static final String INSERT_SNAPSHOT = "INSERT INTO order_snapshot (order_id, seq, "
+            + String.join(", ", ShardedOrderStore.ORDER_COLUMNS) + ") VALUES ("
+            + String.join(", ", Collections.nCopies(ShardedOrderStore.ORDER_COLUMNS.size() + 2, "?")) + ")";
+
+    public static final RowMapper<OrderEvent> EVENT_MAPPER = (rs, rowNum) -> {
+        OrderEvent event = new OrderEvent();
+        event.setEventId(rs.getLong("event_id"));
+        event.setOrderId(rs.getLong("order_id"));
+        event.setSeq(rs.getInt("seq"));
+        event.setType(OrderEvent.Type.valueOf(rs.getString("event_type")));
+        if (event.getType() != OrderEvent.Type.DELETED) {
+            event.setChanges(SettlementService.ORDER_MAPPER.mapRow(rs, rowNum));
+        }
+        String vehicleStatus = rs.getString("vehicle_status");
+        event.setVehicleStatus(vehicleStatus != null ? VehicleStatus.from(vehicleStatus) : null);
+        event.setActor(rs.getString("actor"));
+        event.setRecordedAt(rs.getTimestamp("recorded_at").toLocalDateTime());
+        return event;
+    };
+
+    // 快照行：订单投影结果及其版本号
+    public record SnapshotRow(RentalOrder order, int seq) {
+    }
+
+    private static final RowMapper<SnapshotRow> SNAPSHOT_MAPPER = (rs, rowNum) ->
+            new SnapshotRow(SettlementService.ORDER_MAPPER.mapRow(rs, rowNum), rs.getInt("seq"));
+
+    public record Checkpoint(long lastEventId, long orderCount, LocalDateTime takenAt) {
+    }
+
+    // ---------------- 事件 ----------------
+
+    // 各订单当前的最大版本号，没有事件的订单不在结果中。调用方须已锁定这些订单行，保证版本号连续
+    public Map<Long, Integer> lastSeq(Shard shard, Collection<Long> orderIds) {
+        Map<Long, Integer> result = new HashMap<>();
+        List<Long> ids = new ArrayList<>(orderIds);
+        for (int from = 0; from < ids.size(); from += 500) {
+            List<Long> part = ids.subList(from, Math.min(from + 500, ids.size()));
+            shard.getJdbcTemplate().query("SELECT order_id, MAX(seq) AS seq FROM order_event WHERE order_id IN ("
+                            + String.join(",", Collections.nCopies(part.size(), "?")) + ") GROUP BY order_id",
+                    rs -> {
+                        result.put(rs.getLong("order_id"), rs.getInt("seq"));
+                    }, part.toArray());
+        }
+        return result;
+    }
+
+    // 追加事件（seq 已由调用方填好），recordedAt 为空时取当前时间
+    public void append(Shard shard, List<OrderEvent> events) {
+        if (events.isEmpty()) {
+            return;
+        }
+        LocalDateTime now = LocalDateTime.now();
+        List<Object[]> rows = new ArrayList<>(events.size());
+        for (OrderEvent event : events) {
+            if (event.getRecordedAt() == null) {
+                event.setRecordedAt(now);
+            }
+            Object[] values = event.getChanges() != null ? ShardedOrderStore.orderValues(event.getChanges())
+                    : new Object[ShardedOrderStore.ORDER_COLUMNS.size()];
+            Object[] row = new Object[values.length + 6];
+            row[0] = event.getOrderId();
+            row[1] = event.getSeq();
+            row[2] = event.getType().name();
+            System.arraycopy(values, 0, row, 3, values.length);
+            row[values.length + 3] = event.getVehicleStatus() != null ? event.getVehicleStatus().getLabel() : null;
+            row[values.length + 4] = event.getActor();
+            row[values.length + 5] = Timestamp.valueOf(event.getRecordedAt());
+            rows.add(row);
+        }
+        shard.getJdbcTemplate().batchUpdate(INSERT_EVENT, rows);
+    }
+
+    public List<OrderEvent> history(Shard shard, Long orderId) {
+        return shard.getJdbcTemplate().query("SELECT * FROM order_event WHERE order_id = ? ORDER BY seq",
+                EVENT_MAPPER, orderId);
+    }
+
+    // 按 (order_id, seq) 顺序读取 order_id > afterOrderId 的事件，每次只返回完整的订单（沿 idx_order_event_order_seq 范围扫描）
+    public List<OrderEvent> scanByOrder(Shard shard, long afterOrderId, int limit) {
+        List<OrderEvent> events = shard.getJdbcTemplate().query(
+                "SELECT * FROM order_event WHERE order_id > ? ORDER BY order_id, seq LIMIT ?", EVENT_MAPPER, afterOrderId, limit);
+        return completeOrders(shard, events, limit, 0);
+    }
+
+    // 按 (order_id, seq) 顺序读取 event_id > afterEventId 且 order_id > afterOrderId 的事件，每次只返回完整的订单
+    // （快照之后的事件通常很少，沿主键范围读取后排序，内存中只保留一批）
+    public List<OrderEvent> scanTailByOrder(Shard shard, long afterEventId, long afterOrderId, int limit) {
+        List<OrderEvent> events = shard.getJdbcTemplate().query("SELECT * FROM order_event WHERE event_id > ? AND order_id > ? "
+                + "ORDER BY order_id, seq LIMIT ?", EVENT_MAPPER, afterEventId, afterOrderId, limit);
+        return completeOrders(shard, events, limit, afterEventId);
+    }
+
+    // 最后一个订单可能被 LIMIT 截断：去掉它留到下一批；一批只有一个订单时读取其全部事件（event_id > afterEventId 的部分）
+    private List<OrderEvent> completeOrders(Shard shard, List<OrderEvent> events, int limit, long afterEventId) {
+        if (events.size() < limit) {
+            return events;
+        }
+        long lastOrderId = events.get(events.size() - 1).getOrderId();
+        if (events.get(0).getOrderId() == lastOrderId) {
+            return history(shard, lastOrderId).stream().filter(event -> event.getEventId() > afterEventId).toList();
+        }
+        int end = events.size();
+        while (events.get(end - 1).getOrderId() == lastOrderId) {
+            end--;
+        }
+        return new ArrayList<>(events.subList(0, end));
+    }
+
+    // 按 event_id 顺序读取 (afterEventId, maxEventId] 之间的事件
+    public List<OrderEvent> scanById(Shard shard, long afterEventId, Long maxEventId, int limit) {
+        if (maxEventId != null) {
+            return shard.getJdbcTemplate().query("SELECT * FROM order_event WHERE event_id > ? AND event_id <= ? "
+                    + "ORDER BY event_id LIMIT ?", EVENT_MAPPER, afterEventId, maxEventId, limit);
+        }
+        return shard.getJdbcTemplate().query("SELECT * FROM order_event WHERE event_id > ? ORDER BY event_id LIMIT ?",
+                EVENT_MAPPER, afterEventId, limit);
+    }
+
+    // 早于 before 记录的最大 event_id，没有时为 0
+    public long lastEventIdBefore(Shard shard, LocalDateTime before) {
+        Long id = shard.getJdbcTemplate().queryForObject("SELECT MAX(event_id) FROM order_event WHERE recorded_at < ?",
+                Long.class, Timestamp.valueOf(before));
+        return id != null ? id : 0;
+    }
+
+    public long countEvents(Shard shard) {
+        Long count = shard.getJdbcTemplate().queryForObject("SELECT COUNT(*) FROM order_event", Long.class);
+        return count != null ? count : 0;
+    }
+
+    // ---------------- 快照 ----------------
+
+    public Checkpoint checkpoint(Shard shard) {
+        List<Checkpoint> rows = shard.getJdbcTemplate().query(
+                "SELECT last_event_id, order_count, taken_at FROM order_snapshot_checkpoint WHERE id = 1",
+                (rs, rowNum) -> new Checkpoint(rs.getLong("last_event_id"), rs.getLong("order_count"),
+                        rs.getTimestamp("taken_at").toLocalDateTime()));
+        return rows.isEmpty() ? null : rows.get(0);
+    }
+
+    public void saveCheckpoint(Shard shard, Checkpoint checkpoint) {
+        Object[] args = { checkpoint.lastEventId(), checkpoint.orderCount(), Timestamp.valueOf(checkpoint.takenAt()) };
+        int updated = shard.getJdbcTemplate().update(
+                "UPDATE order_snapshot_checkpoint SET last_event_id = ?, order_count = ?, taken_at = ? WHERE id = 1", args);
+        if (updated == 0) {
+            shard.getJdbcTemplate().update(
+                    "INSERT INTO order_snapshot_checkpoint (id, last_event_id, order_count, taken_at) VALUES (1, ?, ?, ?)", args);
+        }
+    }
+
+    public void clearSnapshot(Shard shard) {
+        shard.getJdbcTemplate().update("DELETE FROM order_snapshot_checkpoint");
+        shard.getJdbcTemplate().update("DELETE FROM order_snapshot");
+    }
+
+    // 按 order_id 顺序读取快照
+    public List<SnapshotRow> scanSnapshot(Shard shard, long afterOrderId, int limit) {
+        return shard.getJdbcTemplate().query("SELECT * FROM order_snapshot WHERE order_id > ? ORDER BY order_id LIMIT ?",
+                SNAPSHOT_MAPPER, afterOrderId, limit);
+    }
+
+    public Map<Long, SnapshotRow> findSnapshots(Shard shard, Collection<Long> orderIds) {
+        Map<Long, SnapshotRow> result = new HashMap<>();
+        List<Long> ids = new ArrayList<>(orderIds);
+        for (int from = 0; from < ids.size(); from += 500) {
+            List<Long> part = ids.subList(from, Math.min(from + 500, ids.size()));
+            for (SnapshotRow row : shard.getJdbcTemplate().query("SELECT * FROM order_snapshot WHERE order_id IN ("
+                    + String.join(",", Collections.nCopies(part.size(), "?")) + ")", SNAPSHOT_MAPPER, part.toArray())) {
+                result.put(row.order().getOrderId(), row);
+            }
+        }
+        return result;
+    }
+
+    // 覆盖写入快照行（先删后插）；removed 为已删除订单
+    public void writeSnapshots(Shard shard, Collection<SnapshotRow> rows, Collection<Long> removed) {
+        List<Object[]> deletes = new ArrayList<>();
+        for (SnapshotRow row : rows) {
+            deletes.add(new Object[] { row.order().getOrderId() });
+        }
+        for (Long id : removed) {
+            deletes.add(new Object[] { id });
+        }
+        if (!deletes.isEmpty()) {
+            shard.getJdbcTemplate().batchUpdate("DELETE FROM order_snapshot WHERE order_id = ?", deletes);
+        }
+        List<Object[]> inserts = new ArrayList<>(rows.size());
+        for (SnapshotRow row : rows) {
+            Object[] values = ShardedOrderStore.orderValues(row.order());
+            Object[] insert = new Object[values.length + 2];
+            insert[0] = row.order().getOrderId();
+            insert[1] = row.seq();
+            System.arraycopy(values, 0, insert, 2, values.length);
+            inserts.add(insert);
+        }
+        if (!inserts.isEmpty()) {
+            shard.getJdbcTemplate().batchUpdate(INSERT_SNAPSHOT, inserts);
+        }
+    }
+}
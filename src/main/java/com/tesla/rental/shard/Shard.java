@@ -0,0 +1,57 @@
+package com.tesla.rental.shard;
+
+import lombok.AccessLevel;
+import lombok.Getter;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionCallback;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.sql.DataSource;
+
+// 一个订单分片：rental_order / payment / violation 所在的库及其 JdbcTemplate、事务模板。0 号分片即主库
+@Getter
+public class Shard {
+
+    private final int index;
+    private final String url;
+    private final DataSource dataSource;
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate transactionTemplate;
+    @Getter(AccessLevel.NONE)
+    private final TransactionTemplate primaryTransactionTemplate;
+
+    Shard(int index, String url, DataSource dataSource, PlatformTransactionManager transactionManager,
+          PlatformTransactionManager primaryTransactionManager) {
+        this.index = index;
+        this.url = url;
+        this.dataSource = dataSource;
+        this.jdbcTemplate = new JdbcTemplate(dataSource);
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.primaryTransactionTemplate = new TransactionTemplate(primaryTransactionManager);
+    }
+
+    public boolean isPrimary() {
+        return index == 0;
+    }
+
+    // 在本分片事务内执行写入，再执行 publish（发布变更事件）。主库分片在同一事务内发布，汇总表与业务数据一起提交；
+    // 其余分片与汇总表不在同一个库，提交后才在主库事务中发布，回滚的写入不会计入汇总（两步之间进程退出时由一致性校验修复）
+    public <T> T write(TransactionCallback<T> work, Runnable publish) {
+        if (isPrimary()) {
+            return transactionTemplate.execute(status -> {
+                T result = work.doInTransaction(status);
+                publish.run();
+                return result;
+            });
+        }
+        T result = transactionTemplate.execute(work);
+        primaryTransactionTemplate.executeWithoutResult(status -> publish.run());
+        return result;
+    }
+
+    @Override
+    public String toString() {
+        return "shard " + index;
+    }
+}
@@ -0,0 +1,74 @@
+package com.tesla.rental.shard;
+
+import java.time.Instant;
+
+// 分片主键（雪花算法的 53 位变体）：1 位标记 | 30 位秒（自 2024-01-01 UTC，可用到 2058 年）| 5 位分片号 | 4 位节点号 | 13 位序号。
+// 总长不超过 JavaScript 安全整数，前端按 Number 处理不丢精度；主库自增主键都小于标记位，据此判定属于 0 号分片。
+// 每个分片每个节点每秒最多 8192 个主键，用尽时等到下一秒
+public class ShardIdGenerator {
+
+    public static final int MAX_SHARDS = 1 << 5;
+    public static final int MAX_NODES = 1 << 4;
+
+    private static final long FLAG = 1L << 52;
+    private static final long EPOCH_SECOND = 1704067200L;
+    private static final int SEQUENCE_BITS = 13;
+    private static final int NODE_SHIFT = SEQUENCE_BITS;
+    private static final int SHARD_SHIFT = NODE_SHIFT + 4;
+    private static final int SECOND_SHIFT = SHARD_SHIFT + 5;
+    private static final int MAX_SEQUENCE = (1 << SEQUENCE_BITS) - 1;
+
+    private final int node;
+    private final long[] lastSecond = new long[MAX_SHARDS];
+    private final int[] sequence = new int[MAX_SHARDS];
+
+    public ShardIdGenerator(int node) {
+        if (node < 0 || node >= MAX_NODES) {
+            throw new IllegalArgumentException("Shard node id must be between 0 and " + (MAX_NODES - 1) + ": " + node);
+        }
+        this.node = node;
+    }
+
+    public synchronized long next(int shard) {
+        // 时钟回拨时沿用上一次的秒数，序号继续递增
+        long second = Math.max(currentSecond(), lastSecond[shard]);
+        if (second == lastSecond[shard]) {
+            if (sequence[shard] == MAX_SEQUENCE) {
+                second = awaitNextSecond(lastSecond[shard]);
+                sequence[shard] = 0;
+            } else {
+                sequence[shard]++;
+            }
+        } else {
+            sequence[shard] = 0;
+        }
+        lastSecond[shard] = second;
+        return FLAG | second << SECOND_SHIFT | (long) shard << SHARD_SHIFT | (long) node << NODE_SHIFT | sequence[shard];
+    }
+
+    // 由主键取分片号：空值和主库自增主键归 0 号分片
+    public static int shardOf(Long id) {
+        if (id == null || id < FLAG) {
+            return 0;
+        }
+        return (int) (id >>> SHARD_SHIFT) & (MAX_SHARDS - 1);
+    }
+
+    private static long currentSecond() {
+        return Instant.now().getEpochSecond() - EPOCH_SECOND;
+    }
+
+    private static long awaitNextSecond(long second) {
+        long now = currentSecond();
+        while (now <= second) {
+            try {
+                Thread.sleep(5);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new IllegalStateException("Interrupted while waiting for the next id second", e);
+            }
+            now = currentSecond();
+        }
+        return now;
+    }
+}
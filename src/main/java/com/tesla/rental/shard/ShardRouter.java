@@ -0,0 +1,204 @@
+package com.tesla.rental.shard;
+
+import com.tesla.rental.service.SchemaMigrationService;
+import com.zaxxer.hikari.HikariDataSource;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.Data;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.datasource.DataSourceTransactionManager;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+
+import javax.sql.DataSource;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.function.Function;
+
+// 订单分片路由：rental_order 按取车门店（store_id % 分片数）分库，payment / violation 跟随所属订单放在同一分片，
+// 按主键读写时由主键中的分片号直接定位，跨门店查询并行访问各分片后合并。
+// 0 号分片是主库（客户、车辆、门店、汇总表等仍只在主库）；未配置 rental.sharding.urls 时只有主库，行为与不分片相同
+@Component
+public class ShardRouter {
+
+    private static final Logger log = LoggerFactory.getLogger(ShardRouter.class);
+
+    private final List<Shard> shards = new ArrayList<>();
+    private final List<HikariDataSource> ownedDataSources = new ArrayList<>();
+    private final ShardIdGenerator idGenerator;
+    private final SchemaMigrationService migrationService;
+    private final ExecutorService scatterPool;
+
+    public ShardRouter(DataSource dataSource, PlatformTransactionManager transactionManager,
+                       SchemaMigrationService migrationService,
+                       @Value("${spring.datasource.url:}") String primaryUrl,
+                       @Value("${rental.sharding.urls:}") String urls,
+                       @Value("${rental.sharding.username:${spring.datasource.username:}}") String username,
+                       @Value("${rental.sharding.password:${spring.datasource.password:}}") String password,
+                       @Value("${rental.sharding.pool-size:10}") int poolSize,
+                       @Value("${rental.sharding.node-id:}") String nodeId) {
+        this.migrationService = migrationService;
+        List<String> shardUrls = Arrays.stream(urls.split(",")).map(String::trim).filter(s -> !s.isEmpty()).toList();
+        // 分片主键中带节点号：各实例都用同一个默认值时同一秒内会生成相同主键，启用分片时必须显式配置
+        if (!shardUrls.isEmpty() && nodeId.isBlank()) {
+            throw new IllegalStateException("rental.sharding.node-id must be set (0-" + (ShardIdGenerator.MAX_NODES - 1)
+                    + ", unique per instance) when rental.sharding.urls is configured");
+        }
+        this.idGenerator = new ShardIdGenerator(nodeId.isBlank() ? 0 : Integer.parseInt(nodeId.trim()));
+        shards.add(new Shard(0, mask(primaryUrl), dataSource, transactionManager, transactionManager));
+        for (String url : shardUrls) {
+            if (shards.size() == ShardIdGenerator.MAX_SHARDS) {
+                throw new IllegalStateException("At most " + ShardIdGenerator.MAX_SHARDS + " shards are supported");
+            }
+            HikariDataSource shardDataSource = new HikariDataSource();
+            shardDataSource.setPoolName("shard-" + shards.size());
+            shardDataSource.setJdbcUrl(url);
+            shardDataSource.setUsername(username);
+            shardDataSource.setPassword(password);
+            shardDataSource.setMaximumPoolSize(poolSize);
+            ownedDataSources.add(shardDataSource);
+            shards.add(new Shard(shards.size(), mask(url), shardDataSource, new DataSourceTransactionManager(shardDataSource),
+                    transactionManager));
+        }
+        this.scatterPool = shards.size() > 1 ? Executors.newFixedThreadPool(shards.size(), r -> {
+            Thread thread = new Thread(r, "shard-scatter");
+            thread.setDaemon(true);
+            return thread;
+        }) : null;
+    }
+
+    @Data
+    public static class ShardStatus {
+        private int index;
+        private String url;
+        private long orders;
+        private long payments;
+        private long violations;
+    }
+
+    // 主库的表由 JPA 建表和主库迁移维护；其余分片建表、建索引（db/migration/shard）
+    @PostConstruct
+    public void init() {
+        for (Shard shard : shards) {
+            if (!shard.isPrimary()) {
+                migrationService.migrateShard(shard.getIndex(), shard.getJdbcTemplate());
+            }
+        }
+        if (shards.size() > 1) {
+            log.info("Order sharding: {} shards, stores routed by store_id % {}", shards.size(), shards.size());
+        }
+    }
+
+    @PreDestroy
+    public void close() {
+        if (scatterPool != null) {
+            scatterPool.shutdownNow();
+        }
+        ownedDataSources.forEach(HikariDataSource::close);
+    }
+
+    public int size() {
+        return shards.size();
+    }
+
+    public List<Shard> all() {
+        return shards;
+    }
+
+    public Shard primary() {
+        return shards.get(0);
+    }
+
+    // 新订单所在分片：取车门店为空时放主库
+    public Shard forStore(Long storeId) {
+        if (storeId == null) {
+            return primary();
+        }
+        return shards.get((int) Math.floorMod(storeId, (long) shards.size()));
+    }
+
+    // 订单/支付/违章主键所在分片
+    public Shard forId(Long id) {
+        int index = ShardIdGenerator.shardOf(id);
+        if (index >= shards.size()) {
+            throw new IllegalStateException("Id " + id + " belongs to shard " + index + ", but only " + shards.size()
+                    + " shard(s) are configured");
+        }
+        return shards.get(index);
+    }
+
+    // 按门店查询需要访问的分片：门店所在分片，以及启用分片前的历史数据所在的主库；门店为空时为全部分片
+    public List<Shard> forStoreQuery(Long storeId) {
+        if (storeId == null) {
+            return shards;
+        }
+        Shard shard = forStore(storeId);
+        return shard.isPrimary() ? List.of(shard) : List.of(primary(), shard);
+    }
+
+    // 插入 shard 时使用的主键：主库沿用自增主键（返回 null），其余分片生成带分片号的全局唯一主键
+    public Long nextId(Shard shard) {
+        return shard.isPrimary() ? null : idGenerator.next(shard.getIndex());
+    }
+
+    // 并行在各分片上执行查询，按分片顺序合并结果
+    public <T> List<T> scatter(List<Shard> targets, Function<Shard, List<T>> query) {
+        if (targets.size() == 1 || scatterPool == null) {
+            List<T> result = new ArrayList<>();
+            targets.forEach(shard -> result.addAll(query.apply(shard)));
+            return result;
+        }
+        List<Future<List<T>>> futures = new ArrayList<>();
+        for (Shard shard : targets) {
+            futures.add(scatterPool.submit(() -> query.apply(shard)));
+        }
+        List<T> result = new ArrayList<>();
+        for (Future<List<T>> future : futures) {
+            try {
+                result.addAll(future.get());
+            } catch (ExecutionException e) {
+                if (e.getCause() instanceof RuntimeException runtime) {
+                    throw runtime;
+                }
+                throw new IllegalStateException(e.getCause());
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new IllegalStateException("Interrupted while querying shards", e);
+            }
+        }
+        return result;
+    }
+
+    public <T> List<T> scatter(Function<Shard, List<T>> query) {
+        return scatter(shards, query);
+    }
+
+    // 各分片的数据量（并行 COUNT）
+    public List<ShardStatus> status() {
+        return scatter(shard -> {
+            ShardStatus status = new ShardStatus();
+            status.setIndex(shard.getIndex());
+            status.setUrl(shard.getUrl());
+            status.setOrders(count(shard, "rental_order"));
+            status.setPayments(count(shard, "payment"));
+            status.setViolations(count(shard, "violation"));
+            return List.of(status);
+        });
+    }
+
+    private static long count(Shard shard, String table) {
+        Long count = shard.getJdbcTemplate().queryForObject("SELECT COUNT(*) FROM " + table, Long.class);
+        return count != null ? count : 0;
+    }
+
+    private static String mask(String url) {
+        return url.replaceAll("(?i)(password=)[^&;]*", "$1***");
+    }
+}
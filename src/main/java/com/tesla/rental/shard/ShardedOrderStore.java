@@ -0,0 +1,458 @@
+package com.tesla.rental.shard;
+
+import com.tesla.rental.entity.Payment;
+import com.tesla.rental.entity.RentalOrder;
+import com.tesla.rental.entity.Violation;
+import com.tesla.rental.entity.enums.PaymentType;
+import com.tesla.rental.entity.enums.RentalOrderStatus;
+import com.tesla.rental.event.EntityChangeEvent;
+import com.tesla.rental.service.SettlementService;
+import org.springframework.beans.BeanWrapper;
+import org.springframework.beans.BeanWrapperImpl;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.jdbc.core.RowMapper;
+import org.springframework.stereotype.Component;
+
+import java.beans.PropertyDescriptor;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.Statement;
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.BiConsumer;
+import java.util.function.Function;
+
+// 订单、支付、违章的分片读写（替代对应的 JPA Repository）：新订单写入取车门店所在分片，支付/违章写入所属订单的分片，
+// 按主键读写由主键定位分片，列表查询并行访问各分片后按主键合并。写入后发布 EntityChangeEvent，汇总表等订阅方照常增量维护。
+// rental_order 是订单事件的投影，只由 OrderLifecycleService / OrderProjectionService 在分片事务内通过下方的投影写入方法修改
+@Component
+public class ShardedOrderStore {
+
+    // 一张分片表：表名、主键列、其余列（顺序与 values 一致）以及实体与行之间的转换
+    private record Table<T>(Class<T> type, String name, String idColumn, List<String> columns, RowMapper<T> mapper,
+                            Function<T, Object[]> values, Function<T, Long> id, BiConsumer<T, Long> setId) {
+
+        String insertSql(boolean withId) {
+            List<String> all = new ArrayList<>(columns);
+            if (withId) {
+                all.add(0, idColumn);
+            }
+            return "INSERT INTO " + name + " (" + String.join(", ", all) + ") VALUES ("
+                    + String.join(", ", Collections.nCopies(all.size(), "?")) + ")";
+        }
+
+        String updateSql() {
+            return "UPDATE " + name + " SET " + String.join(" = ?, ", columns) + " = ? WHERE " + idColumn + " = ?";
+        }
+    }
+
+    // 订单的列（不含主键），order_event / order_snapshot 使用相同的列
+    public static final List<String> ORDER_COLUMNS = List.of("rent_start", "rent_end", "actual_pickup_time",
+            "actual_return_time", "pickup_mileage", "return_mileage", "pickup_soc", "return_soc", "total_amount", "status",
+            "customer_id", "vehicle_id", "pickup_store_id", "return_store_id");
+
+    private static final Table<RentalOrder> ORDERS = new Table<>(RentalOrder.class, "rental_order", "order_id",
+            ORDER_COLUMNS, SettlementService.ORDER_MAPPER, ShardedOrderStore::orderValues,
+            RentalOrder::getOrderId, RentalOrder::setOrderId);
+
+    private static final Table<Payment> PAYMENTS = new Table<>(Payment.class, "payment", "pay_id",
+            List.of("amount", "type", "order_id"),
+            (rs, rowNum) -> {
+                Payment payment = new Payment();
+                payment.setPayId(rs.getLong("pay_id"));
+                payment.setAmount(rs.getBigDecimal("amount"));
+                String type = rs.getString("type");
+                payment.setType(type != null ? PaymentType.from(type) : null);
+                payment.setOrderId(rs.getObject("order_id", Long.class));
+                return payment;
+            },
+            payment -> new Object[] { payment.getAmount(), payment.getType() != null ? payment.getType().getLabel() : null,
+                    payment.getOrderId() },
+            Payment::getPayId, Payment::setPayId);
+
+    private static final Table<Violation> VIOLATIONS = new Table<>(Violation.class, "violation", "vio_id",
+            List.of("fine_amount", "location", "vehicle_id", "order_id", "violation_time"),
+            (rs, rowNum) -> {
+                Violation violation = new Violation();
+                violation.setVioId(rs.getLong("vio_id"));
+                violation.setFineAmount(rs.getBigDecimal("fine_amount"));
+                violation.setLocation(rs.getString("location"));
+                violation.setVehicleId(rs.getObject("vehicle_id", Long.class));
+                violation.setOrderId(rs.getObject("order_id", Long.class));
+                Timestamp time = rs.getTimestamp("violation_time");
+                violation.setViolationTime(time != null ? time.toLocalDateTime() : null);
+                return violation;
+            },
+            violation -> new Object[] { violation.getFineAmount(), violation.getLocation(), violation.getVehicleId(),
+                    violation.getOrderId(), toTimestamp(violation.getViolationTime()) },
+            Violation::getVioId, Violation::setVioId);
+
+    private final ShardRouter router;
+    private final ApplicationEventPublisher publisher;
+
+    public ShardedOrderStore(ShardRouter router, ApplicationEventPublisher publisher) {
+        this.router = router;
+        this.publisher = publisher;
+    }
+
+    // ---------------- 订单 ----------------
+
+    // storeId 为空时返回全部订单
+    public List<RentalOrder> findOrders(Long storeId) {
+        if (storeId == null) {
+            return findAll(ORDERS);
+        }
+        List<RentalOrder> orders = router.scatter(router.forStoreQuery(storeId), shard -> shard.getJdbcTemplate().query(
+                "SELECT * FROM rental_order WHERE pickup_store_id = ? ORDER BY order_id", ORDERS.mapper(), storeId));
+        orders.sort(Comparator.comparing(RentalOrder::getOrderId));
+        return orders;
+    }
+
+    public RentalOrder findOrder(Long id) {
+        return find(ORDERS, id);
+    }
+
+    // 客户的订单按计划取车时间、主键倒序取一页（没有取车时间的订单排在最后）：各分片沿 idx_rental_order_customer_time
+    // 从游标处向前扫描至多 limit 条，合并后取前 limit 条。beforeId 为空表示第一页；beforeStart 为空且 beforeId 不为空表示游标已在无取车时间的部分
+    public List<RentalOrder> findCustomerOrders(Long customerId, LocalDateTime beforeStart, Long beforeId, int limit) {
+        List<RentalOrder> orders = router.scatter(shard -> {
+            List<RentalOrder> rows = new ArrayList<>();
+            if (beforeId == null) {
+                rows.addAll(shard.getJdbcTemplate().query("SELECT * FROM rental_order WHERE customer_id = ? AND rent_start IS NOT NULL"
+                        + " ORDER BY rent_start DESC, order_id DESC LIMIT ?", ORDERS.mapper(), customerId, limit));
+            } else if (beforeStart != null) {
+                Timestamp start = toTimestamp(beforeStart);
+                rows.addAll(shard.getJdbcTemplate().query("SELECT * FROM rental_order WHERE customer_id = ?"
+                        + " AND (rent_start < ? OR (rent_start = ? AND order_id < ?))"
+                        + " ORDER BY rent_start DESC, order_id DESC LIMIT ?", ORDERS.mapper(), customerId, start, start, beforeId, limit));
+            }
+            if (rows.size() < limit) {
+                boolean inNullPart = beforeId != null && beforeStart == null;
+                rows.addAll(shard.getJdbcTemplate().query("SELECT * FROM rental_order WHERE customer_id = ? AND rent_start IS NULL"
+                                + (inNullPart ? " AND order_id < ?" : "") + " ORDER BY order_id DESC LIMIT ?", ORDERS.mapper(),
+                        inNullPart ? new Object[] { customerId, beforeId, limit - rows.size() }
+                                : new Object[] { customerId, limit - rows.size() }));
+            }
+            return rows;
+        });
+        orders.sort(Comparator.comparing(RentalOrder::getRentStart, Comparator.nullsFirst(Comparator.<LocalDateTime>naturalOrder()))
+                .thenComparing(RentalOrder::getOrderId).reversed());
+        return orders.size() > limit ? new ArrayList<>(orders.subList(0, limit)) : orders;
+    }
+
+    // 车辆未结束的订单（已支付/在租/待验车），各分片并行读取
+    public List<RentalOrder> findActiveOrdersOfVehicle(Long vehicleId) {
+        return router.scatter(shard -> shard.getJdbcTemplate().query("SELECT * FROM rental_order WHERE vehicle_id = ?"
+                        + " AND status IN (?, ?, ?)", ORDERS.mapper(), vehicleId, RentalOrderStatus.PAID.getLabel(),
+                RentalOrderStatus.RENTED.getLabel(), RentalOrderStatus.PENDING_INSPECTION.getLabel()));
+    }
+
+    // 与 ORDER_COLUMNS 顺序一致的列值
+    public static Object[] orderValues(RentalOrder order) {
+        return new Object[] { toTimestamp(order.getRentStart()), toTimestamp(order.getRentEnd()),
+                toTimestamp(order.getActualPickupTime()), toTimestamp(order.getActualReturnTime()), order.getPickupMileage(),
+                order.getReturnMileage(), order.getPickupSoc(), order.getReturnSoc(), order.getTotalAmount(),
+                order.getStatus() != null ? order.getStatus().getLabel() : null, order.getCustomerId(),
+                order.getVehicleId(), order.getPickupStoreId(), order.getReturnStoreId() };
+    }
+
+    // 订单所在分片；主键为空或不属于任何分片时为 null
+    public Shard shardOfOrder(Long id) {
+        return shardOf(id);
+    }
+
+    // ---------------- 订单投影写入（在调用方的分片事务内执行，变更事件加入 events 由调用方发布） ----------------
+
+    public RentalOrder lockOrder(Shard shard, Long id) {
+        return lock(shard, ORDERS, id);
+    }
+
+    // 锁定一批订单行，返回仍存在的订单
+    public Map<Long, RentalOrder> lockOrders(Shard shard, Collection<Long> ids) {
+        Map<Long, RentalOrder> orders = new HashMap<>();
+        List<Long> all = new ArrayList<>(ids);
+        for (int from = 0; from < all.size(); from += 500) {
+            List<Long> part = all.subList(from, Math.min(from + 500, all.size()));
+            for (RentalOrder order : shard.getJdbcTemplate().query("SELECT * FROM rental_order WHERE order_id IN ("
+                    + String.join(",", Collections.nCopies(part.size(), "?")) + ") FOR UPDATE", ORDERS.mapper(), part.toArray())) {
+                orders.put(order.getOrderId(), order);
+            }
+        }
+        return orders;
+    }
+
+    // 按主键顺序读取 order_id > afterId 的订单（重建投影时与事件逐行比对）
+    public List<RentalOrder> scanOrders(Shard shard, long afterId, int limit) {
+        return shard.getJdbcTemplate().query("SELECT * FROM rental_order WHERE order_id > ? ORDER BY order_id LIMIT ?",
+                ORDERS.mapper(), afterId, limit);
+    }
+
+    // 新订单：order 带主键时按该主键写入（重建投影），否则生成主键并回填
+    public void insertOrder(Shard shard, RentalOrder order, List<EntityChangeEvent> events) {
+        if (order.getOrderId() != null) {
+            Object[] values = orderValues(order);
+            Object[] withId = new Object[values.length + 1];
+            withId[0] = order.getOrderId();
+            System.arraycopy(values, 0, withId, 1, values.length);
+            shard.getJdbcTemplate().update(ORDERS.insertSql(true), withId);
+        } else {
+            insert(shard, ORDERS, order);
+        }
+        events.add(new EntityChangeEvent(RentalOrder.class, order.getOrderId(), EntityChangeEvent.Action.INSERT, order, null));
+    }
+
+    public void updateOrder(Shard shard, RentalOrder order, RentalOrder previous, List<EntityChangeEvent> events) {
+        Object[] values = Arrays.copyOf(orderValues(order), ORDER_COLUMNS.size() + 1);
+        values[values.length - 1] = order.getOrderId();
+        shard.getJdbcTemplate().update(ORDERS.updateSql(), values);
+        events.add(new EntityChangeEvent(RentalOrder.class, order.getOrderId(), EntityChangeEvent.Action.UPDATE, order,
+                state(previous)));
+    }
+
+    public void removeOrder(Shard shard, RentalOrder previous, List<EntityChangeEvent> events) {
+        shard.getJdbcTemplate().update("DELETE FROM rental_order WHERE order_id = ?", previous.getOrderId());
+        events.add(new EntityChangeEvent(RentalOrder.class, previous.getOrderId(), EntityChangeEvent.Action.DELETE,
+                previous, state(previous)));
+    }
+
+    // ---------------- 支付 ----------------
+
+    public List<Payment> findPayments() {
+        return findAll(PAYMENTS);
+    }
+
+    public Payment findPayment(Long id) {
+        return find(PAYMENTS, id);
+    }
+
+    public Payment savePayment(Payment payment) {
+        return save(PAYMENTS, payment, router.forId(payment.getOrderId()));
+    }
+
+    public void deletePayment(Long id) {
+        delete(PAYMENTS, id);
+    }
+
+    // shard 上属于这些订单的支付（沿 idx_payment_order_type）
+    public List<Payment> findPaymentsOfOrders(Shard shard, Collection<Long> orderIds) {
+        return findByOrders(shard, PAYMENTS, orderIds);
+    }
+
+    // 批量插入（调用方负责事务与事件），支付须属于 shard 上的订单
+    public void insertPayments(Shard shard, List<Payment> payments) {
+        insertAll(shard, PAYMENTS, payments);
+    }
+
+    // ---------------- 违章 ----------------
+
+    public List<Violation> findViolations() {
+        return findAll(VIOLATIONS);
+    }
+
+    public Violation findViolation(Long id) {
+        return find(VIOLATIONS, id);
+    }
+
+    // 违章跟随所属订单的分片，未匹配到订单的放主库
+    public Violation saveViolation(Violation violation) {
+        return save(VIOLATIONS, violation, router.forId(violation.getOrderId()));
+    }
+
+    public void deleteViolation(Long id) {
+        delete(VIOLATIONS, id);
+    }
+
+    public void insertViolations(Shard shard, List<Violation> violations) {
+        insertAll(shard, VIOLATIONS, violations);
+    }
+
+    public List<Violation> findViolationsOfOrders(Shard shard, Collection<Long> orderIds) {
+        return findByOrders(shard, VIOLATIONS, orderIds);
+    }
+
+    // ---------------- 通用读写 ----------------
+
+    private <T> List<T> findAll(Table<T> table) {
+        List<T> rows = router.scatter(shard -> shard.getJdbcTemplate().query(
+                "SELECT * FROM " + table.name() + " ORDER BY " + table.idColumn(), table.mapper()));
+        rows.sort(Comparator.comparing(table.id()));
+        return rows;
+    }
+
+    private <T> List<T> findByOrders(Shard shard, Table<T> table, Collection<Long> orderIds) {
+        List<T> rows = new ArrayList<>();
+        List<Long> ids = new ArrayList<>(orderIds);
+        for (int from = 0; from < ids.size(); from += 500) {
+            List<Long> part = ids.subList(from, Math.min(from + 500, ids.size()));
+            rows.addAll(shard.getJdbcTemplate().query("SELECT * FROM " + table.name() + " WHERE order_id IN ("
+                    + String.join(",", Collections.nCopies(part.size(), "?")) + ") ORDER BY " + table.idColumn(), table.mapper(),
+                    part.toArray()));
+        }
+        return rows;
+    }
+
+    private <T> T find(Table<T> table, Long id) {
+        Shard shard = shardOf(id);
+        if (shard == null) {
+            return null;
+        }
+        List<T> rows = shard.getJdbcTemplate().query(
+                "SELECT * FROM " + table.name() + " WHERE " + table.idColumn() + " = ?", table.mapper(), id);
+        return rows.isEmpty() ? null : rows.get(0);
+    }
+
+    // 同 JPA save：有主键且存在时在其所在分片上更新，否则按新增写入 target 分片。
+    // 已有行改挂到另一分片上的订单时抛出 IllegalStateException（不跨库搬移行，需删除后重新创建）
+    private <T> T save(Table<T> table, T entity, Shard target) {
+        Long id = table.id().apply(entity);
+        Shard shard = shardOf(id);
+        if (shard != null) {
+            boolean updated = write(shard, events -> {
+                T previous = lock(shard, table, id);
+                if (previous == null) {
+                    return false;
+                }
+                if (target != shard) {
+                    throw new IllegalStateException(table.name() + " " + id + " is stored on shard " + shard.getIndex()
+                            + " and cannot be moved to an order on shard " + target.getIndex() + "; delete and re-create it instead");
+                }
+                Object[] values = Arrays.copyOf(table.values().apply(entity), table.columns().size() + 1);
+                values[values.length - 1] = id;
+                shard.getJdbcTemplate().update(table.updateSql(), values);
+                events.add(new EntityChangeEvent(table.type(), id, EntityChangeEvent.Action.UPDATE, entity, state(previous)));
+                return true;
+            });
+            if (updated) {
+                return entity;
+            }
+        }
+        return write(target, events -> {
+            insert(target, table, entity);
+            events.add(new EntityChangeEvent(table.type(), table.id().apply(entity), EntityChangeEvent.Action.INSERT,
+                    entity, null));
+            return entity;
+        });
+    }
+
+    private <T> void delete(Table<T> table, Long id) {
+        Shard shard = shardOf(id);
+        if (shard == null) {
+            return;
+        }
+        write(shard, events -> {
+            T previous = lock(shard, table, id);
+            if (previous != null) {
+                shard.getJdbcTemplate().update("DELETE FROM " + table.name() + " WHERE " + table.idColumn() + " = ?", id);
+                events.add(new EntityChangeEvent(table.type(), id, EntityChangeEvent.Action.DELETE, previous, state(previous)));
+            }
+            return null;
+        });
+    }
+
+    // 主键所在分片；主键为空或指向未配置的分片（不可能存在）时为 null
+    private Shard shardOf(Long id) {
+        if (id == null || ShardIdGenerator.shardOf(id) >= router.size()) {
+            return null;
+        }
+        return router.forId(id);
+    }
+
+    private <T> T lock(Shard shard, Table<T> table, Long id) {
+        List<T> rows = shard.getJdbcTemplate().query("SELECT * FROM " + table.name() + " WHERE " + table.idColumn()
+                + " = ? FOR UPDATE", table.mapper(), id);
+        return rows.isEmpty() ? null : rows.get(0);
+    }
+
+    private <T> void insert(Shard shard, Table<T> table, T entity) {
+        Long id = router.nextId(shard);
+        Object[] values = table.values().apply(entity);
+        if (id != null) {
+            Object[] withId = new Object[values.length + 1];
+            withId[0] = id;
+            System.arraycopy(values, 0, withId, 1, values.length);
+            shard.getJdbcTemplate().update(table.insertSql(true), withId);
+            table.setId().accept(entity, id);
+            return;
+        }
+        Long generated = shard.getJdbcTemplate().execute((java.sql.Connection connection) -> {
+            try (PreparedStatement ps = connection.prepareStatement(table.insertSql(false), Statement.RETURN_GENERATED_KEYS)) {
+                for (int i = 0; i < values.length; i++) {
+                    ps.setObject(i + 1, values[i]);
+                }
+                ps.executeUpdate();
+                try (ResultSet keys = ps.getGeneratedKeys()) {
+                    return keys.next() ? keys.getLong(1) : null;
+                }
+            }
+        });
+        table.setId().accept(entity, generated);
+    }
+
+    private <T> void insertAll(Shard shard, Table<T> table, List<T> entities) {
+        if (entities.isEmpty()) {
+            return;
+        }
+        if (!shard.isPrimary()) {
+            List<Object[]> rows = new ArrayList<>(entities.size());
+            for (T entity : entities) {
+                long id = router.nextId(shard);
+                table.setId().accept(entity, id);
+                Object[] values = table.values().apply(entity);
+                Object[] withId = new Object[values.length + 1];
+                withId[0] = id;
+                System.arraycopy(values, 0, withId, 1, values.length);
+                rows.add(withId);
+            }
+            shard.getJdbcTemplate().batchUpdate(table.insertSql(true), rows);
+            return;
+        }
+        shard.getJdbcTemplate().execute((java.sql.Connection connection) -> {
+            try (PreparedStatement ps = connection.prepareStatement(table.insertSql(false), Statement.RETURN_GENERATED_KEYS)) {
+                for (T entity : entities) {
+                    Object[] values = table.values().apply(entity);
+                    for (int i = 0; i < values.length; i++) {
+                        ps.setObject(i + 1, values[i]);
+                    }
+                    ps.addBatch();
+                }
+                ps.executeBatch();
+                try (ResultSet keys = ps.getGeneratedKeys()) {
+                    int i = 0;
+                    while (keys.next() && i < entities.size()) {
+                        table.setId().accept(entities.get(i++), keys.getLong(1));
+                    }
+                }
+            }
+            return null;
+        });
+    }
+
+    private <T> T write(Shard shard, Function<List<EntityChangeEvent>, T> work) {
+        List<EntityChangeEvent> events = new ArrayList<>();
+        return shard.write(status -> work.apply(events), () -> events.forEach(publisher::publishEvent));
+    }
+
+    // 变更前的属性值，键为属性名（与 Hibernate 监听器发布的事件一致）
+    private static Map<String, Object> state(Object entity) {
+        BeanWrapper wrapper = new BeanWrapperImpl(entity);
+        Map<String, Object> state = new HashMap<>();
+        for (PropertyDescriptor descriptor : wrapper.getPropertyDescriptors()) {
+            if (descriptor.getReadMethod() != null && !"class".equals(descriptor.getName())) {
+                state.put(descriptor.getName(), wrapper.getPropertyValue(descriptor.getName()));
+            }
+        }
+        return state;
+    }
+
+    private static Timestamp toTimestamp(LocalDateTime time) {
+        return time != null ? Timestamp.valueOf(time) : null;
+    }
+}
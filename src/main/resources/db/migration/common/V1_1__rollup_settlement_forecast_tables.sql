@@ -0,0 +1,81 @@
+-- ============================================
+-- V1.1: 汇总表、批处理断点、需求预测表及订单/车型/违章新增列
+-- 说明: MySQL 与 H2 通用；列类型与 JPA 建表一致。开发环境（ddl-auto=update）由 JPA 先建好，
+--       此处 CREATE TABLE IF NOT EXISTS 不生效、已存在的列由迁移执行器跳过；
+--       生产环境（ddl-auto=none）由本脚本创建。版本号排在 V2 之前：MySQL 视图引用了 violation.violation_time
+-- ============================================
+
+-- 门店汇总（RollupService 增量维护）
+CREATE TABLE IF NOT EXISTS rpt_store_rollup (
+    store_id BIGINT NOT NULL PRIMARY KEY,
+    total_vehicles BIGINT,
+    available_vehicles BIGINT,
+    rented_vehicles BIGINT,
+    maintenance_vehicles BIGINT,
+    soc_sum FLOAT(53),
+    low_battery_count BIGINT,
+    full_battery_count BIGINT,
+    mileage_sum FLOAT(53),
+    active_rental_count BIGINT
+);
+
+-- 客户汇总
+CREATE TABLE IF NOT EXISTS rpt_customer_rollup (
+    customer_id BIGINT NOT NULL PRIMARY KEY,
+    total_orders BIGINT,
+    pending_orders BIGINT,
+    active_orders BIGINT,
+    completed_orders BIGINT,
+    total_rental_days BIGINT,
+    total_order_amount DECIMAL(38,2),
+    total_paid_amount DECIMAL(38,2),
+    total_deposit DECIMAL(38,2),
+    total_rental_fee DECIMAL(38,2),
+    total_penalty DECIMAL(38,2),
+    violation_count BIGINT,
+    total_fine_amount DECIMAL(38,2),
+    last_rental_date DATETIME(6)
+);
+
+-- 订单支付汇总
+CREATE TABLE IF NOT EXISTS rpt_order_rollup (
+    order_id BIGINT NOT NULL PRIMARY KEY,
+    customer_id BIGINT,
+    vehicle_id BIGINT,
+    order_total_amount DECIMAL(38,2),
+    payment_count BIGINT,
+    total_paid DECIMAL(38,2),
+    deposit_amount DECIMAL(38,2),
+    rental_fee_amount DECIMAL(38,2),
+    penalty_amount DECIMAL(38,2),
+    violation_count BIGINT,
+    fine_amount DECIMAL(38,2)
+);
+
+-- 批处理作业断点（批量结算）
+CREATE TABLE IF NOT EXISTS batch_checkpoint (
+    job_name VARCHAR(255) NOT NULL PRIMARY KEY,
+    last_id BIGINT,
+    processed_count BIGINT,
+    updated_at DATETIME(6)
+);
+
+-- 门店 × 车型 × 周内小时的需求预测
+CREATE TABLE IF NOT EXISTS demand_forecast (
+    store_id BIGINT NOT NULL,
+    model_id BIGINT NOT NULL,
+    hour_of_week INTEGER NOT NULL,
+    level FLOAT(53),
+    current_week BIGINT,
+    current_count BIGINT,
+    updated_at DATETIME(6),
+    PRIMARY KEY (store_id, model_id, hour_of_week)
+);
+
+-- 取还车记录（结算、生命周期命令）、车型日租金（报价）、违章时间（违章导入）
+ALTER TABLE rental_order ADD COLUMN actual_pickup_time DATETIME(6);
+ALTER TABLE rental_order ADD COLUMN actual_return_time DATETIME(6);
+ALTER TABLE rental_order ADD COLUMN pickup_mileage FLOAT(53);
+ALTER TABLE rental_order ADD COLUMN return_mileage FLOAT(53);
+ALTER TABLE car_model ADD COLUMN daily_rate DECIMAL(38,2);
+ALTER TABLE violation ADD COLUMN violation_time DATETIME(6);
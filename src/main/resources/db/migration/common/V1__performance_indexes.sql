@@ -0,0 +1,30 @@
+-- ============================================
+-- V1: 性能索引（来源 docs/sql/3.5.5_indexes.sql）
+-- 说明: MySQL 与 H2 通用；已有索引（含 JPA 建表生成的唯一约束/外键索引）
+--       的前导列已覆盖时由迁移执行器跳过，不重复建索引
+-- ============================================
+
+-- 复合索引（放在前面：其前导列覆盖下方对应的单列索引）
+CREATE INDEX idx_vehicle_store_status ON vehicle (store_id, status);
+CREATE INDEX idx_rental_order_customer_status ON rental_order (customer_id, status);
+CREATE INDEX idx_payment_order_type ON payment (order_id, type);
+CREATE INDEX idx_maintenance_vehicle_date ON maintenance (vehicle_id, maint_date DESC);
+CREATE INDEX idx_sys_user_role_user_role ON sys_user_role (user_id, role_id);
+CREATE INDEX idx_violation_order_amount ON violation (order_id, fine_amount);
+
+-- 唯一索引
+CREATE UNIQUE INDEX idx_customer_phone ON customer (phone);
+CREATE UNIQUE INDEX idx_sys_user_username ON sys_user (username);
+
+-- 单列索引
+CREATE INDEX idx_vehicle_plate_no ON vehicle (plate_no);
+CREATE INDEX idx_vehicle_model_id ON vehicle (model_id);
+CREATE INDEX idx_rental_order_vehicle_id ON rental_order (vehicle_id);
+CREATE INDEX idx_rental_order_customer_id ON rental_order (customer_id);
+CREATE INDEX idx_rental_order_rent_start ON rental_order (rent_start);
+CREATE INDEX idx_rental_order_pickup_store ON rental_order (pickup_store_id);
+CREATE INDEX idx_payment_order_id ON payment (order_id);
+CREATE INDEX idx_maintenance_vehicle_id ON maintenance (vehicle_id);
+CREATE INDEX idx_violation_vehicle_id ON violation (vehicle_id);
+CREATE INDEX idx_audit_log_user_id ON audit_log (user_id);
+CREATE INDEX idx_audit_log_action_time ON audit_log (action_time);
@@ -0,0 +1,16 @@
+-- ============================================
+-- V4: 实体变更日志（多实例部署时各实例轮询此表，使本地缓存失效）
+-- 说明: MySQL 与 H2 通用；change_id 自增，即变更的全局版本号，轮询按其做 keyset 分页；
+--       changed_at 用于按保留时长清理
+-- ============================================
+
+CREATE TABLE IF NOT EXISTS change_log (
+    change_id BIGINT AUTO_INCREMENT PRIMARY KEY,
+    entity VARCHAR(64) NOT NULL,
+    entity_id BIGINT,
+    action VARCHAR(16) NOT NULL,
+    node_id VARCHAR(64) NOT NULL,
+    changed_at DATETIME(6) NOT NULL
+);
+
+CREATE INDEX idx_change_log_changed_at ON change_log (changed_at);
@@ -0,0 +1,16 @@
+-- ============================================
+-- V5: 幂等键（rental.idempotency.store=jdbc 时使用，多实例共享、重启后仍有效）
+-- 说明: MySQL 与 H2 通用；idem_key 为 请求方法+路径+用户+Idempotency-Key 的 SHA-256，
+--       status_code 为空表示首个请求仍在执行；expires_at 用于按 TTL 清理
+-- ============================================
+
+CREATE TABLE IF NOT EXISTS idempotency (
+    idem_key CHAR(64) NOT NULL PRIMARY KEY,
+    request_hash CHAR(64) NOT NULL,
+    status_code INT,
+    content_type VARCHAR(128),
+    body LONGBLOB,
+    expires_at DATETIME(6) NOT NULL
+);
+
+CREATE INDEX idx_idempotency_expires_at ON idempotency (expires_at);
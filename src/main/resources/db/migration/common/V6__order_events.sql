@@ -0,0 +1,60 @@
+-- ============================================
+-- V6: 订单生命周期事件（事件溯源）与投影快照
+-- 说明: MySQL 与 H2 通用；分片库见 db/migration/shard/V2（表结构相同）。
+--       order_event 只追加：每行是一次状态变化，订单列只填本次变化的字段（其余为空），seq 为订单内从 1 起的连续版本号；
+--       rental_order 与车辆状态由事件投影得到。order_snapshot 为某一时刻全部订单的投影结果，
+--       order_snapshot_checkpoint 记录快照已包含的最大 event_id，重建时从快照开始只重放其后的事件
+-- ============================================
+
+CREATE TABLE IF NOT EXISTS order_event (
+    event_id BIGINT AUTO_INCREMENT PRIMARY KEY,
+    order_id BIGINT NOT NULL,
+    seq INT NOT NULL,
+    event_type VARCHAR(32) NOT NULL,
+    rent_start DATETIME(6),
+    rent_end DATETIME(6),
+    actual_pickup_time DATETIME(6),
+    actual_return_time DATETIME(6),
+    pickup_mileage DOUBLE,
+    return_mileage DOUBLE,
+    pickup_soc DOUBLE,
+    return_soc DOUBLE,
+    total_amount DECIMAL(38,2),
+    status VARCHAR(255),
+    customer_id BIGINT,
+    vehicle_id BIGINT,
+    pickup_store_id BIGINT,
+    return_store_id BIGINT,
+    vehicle_status VARCHAR(255),
+    actor VARCHAR(64),
+    recorded_at DATETIME(6) NOT NULL
+);
+
+CREATE UNIQUE INDEX idx_order_event_order_seq ON order_event (order_id, seq);
+CREATE INDEX idx_order_event_recorded_at ON order_event (recorded_at);
+
+CREATE TABLE IF NOT EXISTS order_snapshot (
+    order_id BIGINT NOT NULL PRIMARY KEY,
+    seq INT NOT NULL,
+    rent_start DATETIME(6),
+    rent_end DATETIME(6),
+    actual_pickup_time DATETIME(6),
+    actual_return_time DATETIME(6),
+    pickup_mileage DOUBLE,
+    return_mileage DOUBLE,
+    pickup_soc DOUBLE,
+    return_soc DOUBLE,
+    total_amount DECIMAL(38,2),
+    status VARCHAR(255),
+    customer_id BIGINT,
+    vehicle_id BIGINT,
+    pickup_store_id BIGINT,
+    return_store_id BIGINT
+);
+
+CREATE TABLE IF NOT EXISTS order_snapshot_checkpoint (
+    id INT NOT NULL PRIMARY KEY,
+    last_event_id BIGINT NOT NULL,
+    order_count BIGINT NOT NULL,
+    taken_at DATETIME(6) NOT NULL
+);
@@ -0,0 +1,8 @@
+-- ============================================
+-- V7: 客户时间线的键集分页索引
+-- 说明: MySQL 与 H2 通用；分片库见 db/migration/shard/V3。
+--       GET /api/customers/{id}/timeline 按 (rent_start, order_id) 倒序逐页读取客户的订单，
+--       idx_rental_order_customer_status 的第二列为状态，无法按时间有序扫描，故另建此索引
+-- ============================================
+
+CREATE INDEX idx_rental_order_customer_time ON rental_order (customer_id, rent_start, order_id);
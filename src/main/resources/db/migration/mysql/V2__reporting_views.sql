@@ -0,0 +1,327 @@
+-- ============================================
+-- V2: 业务视图（来源 docs/sql/3.5.4_views.sql）
+-- 说明: 仅 MySQL（DATEDIFF/SUBSTRING_INDEX 为 MySQL 函数）；
+--       状态/类型列按实体当前的存储方式（中文标签）比较，违章时间列为 violation_time
+-- ============================================
+
+-- 视图 1: vw_active_orders - 在租订单详情（已支付、在租中）
+CREATE OR REPLACE VIEW vw_active_orders AS
+SELECT
+    ro.order_id,
+    ro.rent_start,
+    ro.rent_end,
+    ro.pickup_soc,
+    ro.return_soc,
+    ro.total_amount,
+    ro.status AS order_status,
+    CASE ro.status
+        WHEN '已支付' THEN '已支付'
+        WHEN '在租' THEN '在租中'
+        WHEN '已还' THEN '已还车'
+        WHEN '结算' THEN '已结算'
+        ELSE '未知'
+    END AS order_status_desc,
+    DATEDIFF(ro.rent_end, ro.rent_start) AS rental_days,
+    v.vehicle_id,
+    v.plate_no,
+    v.current_soc,
+    v.current_mileage,
+    cm.name AS car_model_name,
+    cm.seat_count,
+    cm.battery_capacity,
+    c.customer_id,
+    c.name AS customer_name,
+    c.phone AS customer_phone,
+    c.id_card,
+    c.driver_license,
+    ps.store_id AS pickup_store_id,
+    ps.name AS pickup_store_name,
+    ps.address AS pickup_store_address,
+    rs.store_id AS return_store_id,
+    rs.name AS return_store_name,
+    rs.address AS return_store_address,
+    CASE
+        WHEN NOW() < ro.rent_start THEN '未开始'
+        WHEN NOW() BETWEEN ro.rent_start AND ro.rent_end THEN '租期中'
+        WHEN NOW() > ro.rent_end THEN '已超期'
+    END AS rental_period_status,
+    DATEDIFF(ro.rent_end, NOW()) AS days_remaining
+FROM
+    rental_order ro
+    INNER JOIN vehicle v ON ro.vehicle_id = v.vehicle_id
+    INNER JOIN car_model cm ON v.model_id = cm.model_id
+    INNER JOIN customer c ON ro.customer_id = c.customer_id
+    INNER JOIN store ps ON ro.pickup_store_id = ps.store_id
+    INNER JOIN store rs ON ro.return_store_id = rs.store_id
+WHERE
+    ro.status IN ('已支付', '在租');
+
+-- 视图 2: vw_store_utilization - 门店车辆利用率
+CREATE OR REPLACE VIEW vw_store_utilization AS
+SELECT
+    s.store_id,
+    s.name AS store_name,
+    s.address AS store_address,
+    COUNT(DISTINCT v.vehicle_id) AS total_vehicles,
+    SUM(CASE WHEN v.status = '在库' THEN 1 ELSE 0 END) AS available_vehicles,
+    SUM(CASE WHEN v.status = '在租' THEN 1 ELSE 0 END) AS rented_vehicles,
+    SUM(CASE WHEN v.status = '维保' THEN 1 ELSE 0 END) AS maintenance_vehicles,
+    ROUND(
+        SUM(CASE WHEN v.status = '在租' THEN 1 ELSE 0 END) * 100.0
+            / NULLIF(COUNT(DISTINCT v.vehicle_id), 0),
+        2
+    ) AS utilization_rate,
+    ROUND(AVG(v.current_soc), 2) AS avg_battery_soc,
+    SUM(CASE WHEN v.current_soc < 20 THEN 1 ELSE 0 END) AS low_battery_count,
+    SUM(CASE WHEN v.current_soc >= 80 THEN 1 ELSE 0 END) AS full_battery_count,
+    ROUND(AVG(v.current_mileage), 2) AS avg_mileage,
+    MAX(v.current_mileage) AS max_mileage,
+    COUNT(DISTINCT CASE WHEN ro.status = '在租' THEN ro.order_id END) AS active_rental_count
+FROM
+    store s
+    LEFT JOIN vehicle v ON s.store_id = v.store_id
+    LEFT JOIN rental_order ro ON v.vehicle_id = ro.vehicle_id AND ro.status = '在租'
+GROUP BY
+    s.store_id,
+    s.name,
+    s.address;
+
+-- 视图 3: vw_customer_value - 客户价值分析
+CREATE OR REPLACE VIEW vw_customer_value AS
+SELECT
+    c.customer_id,
+    c.name AS customer_name,
+    c.phone AS customer_phone,
+    c.id_card,
+    c.driver_license,
+    COUNT(DISTINCT ro.order_id) AS total_orders,
+    SUM(CASE WHEN ro.status = '已支付' THEN 1 ELSE 0 END) AS pending_orders,
+    SUM(CASE WHEN ro.status = '在租' THEN 1 ELSE 0 END) AS active_orders,
+    SUM(CASE WHEN ro.status = '结算' THEN 1 ELSE 0 END) AS completed_orders,
+    SUM(DATEDIFF(ro.rent_end, ro.rent_start)) AS total_rental_days,
+    ROUND(AVG(DATEDIFF(ro.rent_end, ro.rent_start)), 2) AS avg_rental_days,
+    SUM(ro.total_amount) AS total_order_amount,
+    COALESCE(SUM(p.amount), 0) AS total_paid_amount,
+    COALESCE(SUM(CASE WHEN p.type = '押金' THEN p.amount ELSE 0 END), 0) AS total_deposit,
+    COALESCE(SUM(CASE WHEN p.type = '租金' THEN p.amount ELSE 0 END), 0) AS total_rental_fee,
+    COALESCE(SUM(CASE WHEN p.type = '赔偿' THEN p.amount ELSE 0 END), 0) AS total_penalty,
+    COUNT(DISTINCT v.vio_id) AS violation_count,
+    COALESCE(SUM(v.fine_amount), 0) AS total_fine_amount,
+    CASE
+        WHEN SUM(ro.total_amount) >= 20000 THEN 'VIP'
+        WHEN SUM(ro.total_amount) >= 10000 THEN '高价值'
+        WHEN SUM(ro.total_amount) >= 5000 THEN '中价值'
+        WHEN SUM(ro.total_amount) > 0 THEN '普通'
+        ELSE '新客户'
+    END AS customer_level,
+    CASE
+        WHEN COUNT(DISTINCT v.vio_id) = 0 THEN '优秀'
+        WHEN COUNT(DISTINCT v.vio_id) <= 2 THEN '良好'
+        WHEN COUNT(DISTINCT v.vio_id) <= 5 THEN '一般'
+        ELSE '风险'
+    END AS risk_level,
+    MAX(ro.rent_start) AS last_rental_date,
+    DATEDIFF(NOW(), MAX(ro.rent_start)) AS days_since_last_rental
+FROM
+    customer c
+    LEFT JOIN rental_order ro ON c.customer_id = ro.customer_id
+    LEFT JOIN payment p ON ro.order_id = p.order_id
+    LEFT JOIN violation v ON ro.order_id = v.order_id
+GROUP BY
+    c.customer_id,
+    c.name,
+    c.phone,
+    c.id_card,
+    c.driver_license;
+
+-- 视图 4: vw_payment_summary - 订单支付汇总
+CREATE OR REPLACE VIEW vw_payment_summary AS
+SELECT
+    ro.order_id,
+    ro.rent_start,
+    ro.rent_end,
+    ro.total_amount AS order_total_amount,
+    ro.status AS order_status,
+    CASE ro.status
+        WHEN '已支付' THEN '已支付'
+        WHEN '在租' THEN '在租中'
+        WHEN '已还' THEN '已还车'
+        WHEN '结算' THEN '已结算'
+        ELSE '未知'
+    END AS order_status_desc,
+    c.customer_id,
+    c.name AS customer_name,
+    c.phone AS customer_phone,
+    v.vehicle_id,
+    v.plate_no,
+    COUNT(p.pay_id) AS payment_count,
+    COALESCE(SUM(p.amount), 0) AS total_paid,
+    COALESCE(SUM(CASE WHEN p.type = '押金' THEN p.amount ELSE 0 END), 0) AS deposit_amount,
+    COALESCE(SUM(CASE WHEN p.type = '租金' THEN p.amount ELSE 0 END), 0) AS rental_fee_amount,
+    COALESCE(SUM(CASE WHEN p.type = '赔偿' THEN p.amount ELSE 0 END), 0) AS penalty_amount,
+    CASE
+        WHEN COALESCE(SUM(p.amount), 0) = 0 THEN '未支付'
+        WHEN COALESCE(SUM(p.amount), 0) < ro.total_amount THEN '部分支付'
+        WHEN COALESCE(SUM(p.amount), 0) >= ro.total_amount THEN '已付清'
+        ELSE '未知'
+    END AS payment_status,
+    ro.total_amount - COALESCE(SUM(p.amount), 0) AS outstanding_amount,
+    CASE
+        WHEN ro.status = '结算'
+            AND COALESCE(SUM(CASE WHEN p.type = '赔偿' THEN p.amount END), 0) = 0
+        THEN COALESCE(SUM(CASE WHEN p.type = '押金' THEN p.amount END), 0)
+        ELSE 0
+    END AS refundable_deposit
+FROM
+    rental_order ro
+    INNER JOIN customer c ON ro.customer_id = c.customer_id
+    INNER JOIN vehicle v ON ro.vehicle_id = v.vehicle_id
+    LEFT JOIN payment p ON ro.order_id = p.order_id
+GROUP BY
+    ro.order_id,
+    ro.rent_start,
+    ro.rent_end,
+    ro.total_amount,
+    ro.status,
+    c.customer_id,
+    c.name,
+    c.phone,
+    v.vehicle_id,
+    v.plate_no;
+
+-- 视图 5: vw_maintenance_pending - 车辆维保提醒
+CREATE OR REPLACE VIEW vw_maintenance_pending AS
+SELECT
+    v.vehicle_id,
+    v.plate_no,
+    v.current_soc,
+    v.current_mileage,
+    v.status AS vehicle_status,
+    CASE v.status
+        WHEN '在库' THEN '在库'
+        WHEN '在租' THEN '在租'
+        WHEN '维保' THEN '维保中'
+        ELSE '未知'
+    END AS vehicle_status_desc,
+    cm.name AS car_model_name,
+    cm.battery_capacity,
+    s.store_id,
+    s.name AS store_name,
+    s.address AS store_address,
+    MAX(m.maint_date) AS last_maint_date,
+    DATEDIFF(NOW(), MAX(m.maint_date)) AS days_since_last_maint,
+    COUNT(m.maint_id) AS total_maint_count,
+    SUM(CASE WHEN m.type = '保养' THEN 1 ELSE 0 END) AS maintenance_count,
+    SUM(CASE WHEN m.type = '维修' THEN 1 ELSE 0 END) AS repair_count,
+    SUM(CASE WHEN m.type = '其他' THEN 1 ELSE 0 END) AS other_count,
+    CEIL(v.current_mileage / 10000) * 10000 AS next_maint_mileage,
+    CEIL(v.current_mileage / 10000) * 10000 - v.current_mileage AS mileage_to_next_maint,
+    CASE
+        WHEN v.status = '维保' THEN '维保中'
+        WHEN v.current_mileage >= 80000 THEN '高优先级'
+        WHEN v.current_mileage >= 50000
+            OR DATEDIFF(NOW(), MAX(m.maint_date)) > 180 THEN '中优先级'
+        WHEN v.current_mileage >= 20000
+            OR DATEDIFF(NOW(), MAX(m.maint_date)) > 90 THEN '低优先级'
+        ELSE '无需维保'
+    END AS maint_priority,
+    CASE
+        WHEN v.status = '维保' THEN '车辆维保中，请等待完成'
+        WHEN v.current_mileage >= 80000 THEN '里程已超8万公里，建议尽快进行全面检测'
+        WHEN v.current_mileage >= 50000 THEN '里程已超5万公里，建议安排常规保养'
+        WHEN DATEDIFF(NOW(), MAX(m.maint_date)) > 180 THEN '距上次保养已超6个月，建议检查'
+        WHEN CEIL(v.current_mileage / 10000) * 10000 - v.current_mileage < 500 THEN '即将到达保养里程'
+        ELSE '车况良好'
+    END AS maint_suggestion
+FROM
+    vehicle v
+    INNER JOIN car_model cm ON v.model_id = cm.model_id
+    INNER JOIN store s ON v.store_id = s.store_id
+    LEFT JOIN maintenance m ON v.vehicle_id = m.vehicle_id
+GROUP BY
+    v.vehicle_id,
+    v.plate_no,
+    v.current_soc,
+    v.current_mileage,
+    v.status,
+    cm.name,
+    cm.battery_capacity,
+    s.store_id,
+    s.name,
+    s.address;
+
+-- 视图 6: vw_vehicle_details - 车辆详情（车型、品牌、门店、电量与可租状态）
+CREATE OR REPLACE VIEW vw_vehicle_details AS
+SELECT
+    v.vehicle_id,
+    v.plate_no,
+    v.current_soc,
+    v.current_mileage,
+    v.status,
+    CASE v.status
+        WHEN '在库' THEN '在库可租'
+        WHEN '在租' THEN '租赁中'
+        WHEN '维保' THEN '维保中'
+        ELSE '未知'
+    END AS status_desc,
+    cm.model_id,
+    cm.name AS model_name,
+    cm.seat_count,
+    cm.battery_capacity,
+    b.brand_id,
+    b.name AS brand_name,
+    s.store_id,
+    s.name AS store_name,
+    s.address AS store_address,
+    CASE
+        WHEN v.current_soc >= 80 THEN '电量充足'
+        WHEN v.current_soc >= 50 THEN '电量正常'
+        WHEN v.current_soc >= 20 THEN '电量偏低'
+        ELSE '需要充电'
+    END AS battery_status,
+    ROUND(cm.battery_capacity * v.current_soc / 100 * 5, 2) AS estimated_range_km,
+    CASE
+        WHEN v.status != '在库' THEN '不可租'
+        WHEN v.current_soc < 20 THEN '电量不足'
+        WHEN v.current_mileage > 80000 THEN '高里程待检'
+        ELSE '可租用'
+    END AS rental_availability
+FROM
+    vehicle v
+    INNER JOIN car_model cm ON v.model_id = cm.model_id
+    INNER JOIN brand b ON cm.brand_id = b.brand_id
+    INNER JOIN store s ON v.store_id = s.store_id;
+
+-- 视图 7: vw_violation_summary - 违章汇总（violation_date 列沿用原视图的列名）
+CREATE OR REPLACE VIEW vw_violation_summary AS
+SELECT
+    vio.vio_id,
+    vio.fine_amount,
+    vio.location,
+    vio.violation_time AS violation_date,
+    v.vehicle_id,
+    v.plate_no,
+    ro.order_id,
+    ro.rent_start,
+    ro.rent_end,
+    c.customer_id,
+    c.name AS customer_name,
+    c.phone AS customer_phone,
+    CASE
+        WHEN vio.fine_amount >= 2000 THEN '严重违章'
+        WHEN vio.fine_amount >= 500 THEN '较重违章'
+        WHEN vio.fine_amount >= 200 THEN '一般违章'
+        ELSE '轻微违章'
+    END AS violation_severity,
+    SUBSTRING_INDEX(vio.location, '市', 1) AS violation_city,
+    CASE
+        WHEN EXISTS (
+            SELECT 1 FROM payment p WHERE p.order_id = vio.order_id AND p.type = '赔偿'
+        ) THEN '已处理'
+        ELSE '待处理'
+    END AS handling_status
+FROM
+    violation vio
+    INNER JOIN vehicle v ON vio.vehicle_id = v.vehicle_id
+    INNER JOIN rental_order ro ON vio.order_id = ro.order_id
+    INNER JOIN customer c ON ro.customer_id = c.customer_id;
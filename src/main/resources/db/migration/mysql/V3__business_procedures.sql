@@ -0,0 +1,576 @@
+-- ============================================
+-- V3: 业务存储过程（来源 docs/sql/3.5.6_procedures.sql）
+-- 说明: 仅 MySQL。与原脚本的差异：
+--   1. 过程体加标签，LEAVE 才能提前退出
+--   2. 状态/类型按实体当前的存储方式（中文标签）读写；维保类型参数仍为 0/1/2 编码
+--   3. 主键参数改为 BIGINT，与 JPA 建表一致
+--   4. rental_order 无 updated_at 列，结算/信用分改用 actual_return_time
+--   5. COUNT(*) 与普通列混合查询改为聚合取值，兼容 ONLY_FULL_GROUP_BY
+-- 过程直接写表，不产生实体变更事件；Java 侧调用后需自行通知汇总/索引
+-- ============================================
+
+DELIMITER $$
+
+-- 存储过程 1: sp_create_rental_order - 创建租赁订单（校验客户、车辆、门店、租期）
+DROP PROCEDURE IF EXISTS sp_create_rental_order$$
+CREATE PROCEDURE sp_create_rental_order(
+    IN p_customer_id BIGINT,
+    IN p_vehicle_id BIGINT,
+    IN p_rent_start DATETIME,
+    IN p_rent_end DATETIME,
+    IN p_pickup_store_id BIGINT,
+    IN p_return_store_id BIGINT,
+    IN p_total_amount DECIMAL(10,2),
+    OUT p_order_id BIGINT,
+    OUT p_result_code INT,
+    OUT p_result_msg VARCHAR(255)
+)
+sp_create_rental_order: BEGIN
+    DECLARE v_vehicle_status VARCHAR(20);
+    DECLARE v_vehicle_soc DOUBLE;
+    DECLARE v_customer_count INT;
+    DECLARE v_pickup_store_count INT;
+    DECLARE v_return_store_count INT;
+
+    DECLARE EXIT HANDLER FOR SQLEXCEPTION
+    BEGIN
+        ROLLBACK;
+        SET p_result_code = -99;
+        SET p_result_msg = '系统错误：订单创建失败';
+    END;
+
+    START TRANSACTION;
+
+    SET p_order_id = NULL;
+    SET p_result_code = 0;
+    SET p_result_msg = '订单创建成功';
+
+    SELECT COUNT(*) INTO v_customer_count FROM customer WHERE customer_id = p_customer_id;
+    IF v_customer_count = 0 THEN
+        SET p_result_code = -1;
+        SET p_result_msg = '客户不存在';
+        ROLLBACK;
+        LEAVE sp_create_rental_order;
+    END IF;
+
+    -- 锁定车辆行，避免并发下单同一辆车
+    SELECT status, current_soc INTO v_vehicle_status, v_vehicle_soc
+    FROM vehicle WHERE vehicle_id = p_vehicle_id FOR UPDATE;
+    IF v_vehicle_status IS NULL THEN
+        SET p_result_code = -2;
+        SET p_result_msg = '车辆不存在';
+        ROLLBACK;
+        LEAVE sp_create_rental_order;
+    END IF;
+
+    IF v_vehicle_status != '在库' THEN
+        SET p_result_code = -3;
+        SET p_result_msg = CONCAT('车辆不可用，当前状态：', v_vehicle_status);
+        ROLLBACK;
+        LEAVE sp_create_rental_order;
+    END IF;
+
+    IF v_vehicle_soc < 20 THEN
+        SET p_result_code = -6;
+        SET p_result_msg = CONCAT('车辆电量不足：', v_vehicle_soc, '%，无法出租');
+        ROLLBACK;
+        LEAVE sp_create_rental_order;
+    END IF;
+
+    SELECT COUNT(*) INTO v_pickup_store_count FROM store WHERE store_id = p_pickup_store_id;
+    SELECT COUNT(*) INTO v_return_store_count FROM store WHERE store_id = p_return_store_id;
+    IF v_pickup_store_count = 0 OR v_return_store_count = 0 THEN
+        SET p_result_code = -4;
+        SET p_result_msg = '门店不存在';
+        ROLLBACK;
+        LEAVE sp_create_rental_order;
+    END IF;
+
+    IF p_rent_start >= p_rent_end OR p_rent_start < NOW() THEN
+        SET p_result_code = -5;
+        SET p_result_msg = '租期时间无效';
+        ROLLBACK;
+        LEAVE sp_create_rental_order;
+    END IF;
+
+    INSERT INTO rental_order (
+        rent_start, rent_end, pickup_soc, return_soc, total_amount, status,
+        customer_id, vehicle_id, pickup_store_id, return_store_id
+    ) VALUES (
+        p_rent_start, p_rent_end, v_vehicle_soc, NULL, p_total_amount, '已支付',
+        p_customer_id, p_vehicle_id, p_pickup_store_id, p_return_store_id
+    );
+    SET p_order_id = LAST_INSERT_ID();
+
+    COMMIT;
+END$$
+
+-- 存储过程 2: sp_settle_rental_order - 订单结算（逾期费、赔偿、应退押金）
+DROP PROCEDURE IF EXISTS sp_settle_rental_order$$
+CREATE PROCEDURE sp_settle_rental_order(
+    IN p_order_id BIGINT,
+    IN p_return_soc DECIMAL(5,2),
+    IN p_actual_return_time DATETIME,
+    IN p_penalty_amount DECIMAL(10,2),
+    OUT p_final_amount DECIMAL(10,2),
+    OUT p_refund_deposit DECIMAL(10,2),
+    OUT p_result_code INT,
+    OUT p_result_msg VARCHAR(255)
+)
+sp_settle_rental_order: BEGIN
+    DECLARE v_order_status VARCHAR(20);
+    DECLARE v_vehicle_id BIGINT;
+    DECLARE v_total_amount DECIMAL(10,2);
+    DECLARE v_rent_start DATETIME;
+    DECLARE v_rent_end DATETIME;
+    DECLARE v_deposit_amount DECIMAL(10,2);
+    DECLARE v_rental_fee DECIMAL(10,2);
+    DECLARE v_overdue_days INT;
+    DECLARE v_overdue_fee DECIMAL(10,2);
+
+    DECLARE EXIT HANDLER FOR SQLEXCEPTION
+    BEGIN
+        ROLLBACK;
+        SET p_result_code = -99;
+        SET p_result_msg = '系统错误：订单结算失败';
+    END;
+
+    START TRANSACTION;
+
+    SET p_final_amount = 0;
+    SET p_refund_deposit = 0;
+    SET p_result_code = 0;
+    SET p_result_msg = '订单结算成功';
+
+    SELECT status, vehicle_id, total_amount, rent_start, rent_end
+    INTO v_order_status, v_vehicle_id, v_total_amount, v_rent_start, v_rent_end
+    FROM rental_order WHERE order_id = p_order_id FOR UPDATE;
+    IF v_order_status IS NULL THEN
+        SET p_result_code = -1;
+        SET p_result_msg = '订单不存在';
+        ROLLBACK;
+        LEAVE sp_settle_rental_order;
+    END IF;
+
+    IF v_order_status != '在租' THEN
+        SET p_result_code = -2;
+        SET p_result_msg = CONCAT('订单状态不正确，当前状态：', v_order_status);
+        ROLLBACK;
+        LEAVE sp_settle_rental_order;
+    END IF;
+
+    SELECT COALESCE(SUM(amount), 0) INTO v_deposit_amount
+    FROM payment WHERE order_id = p_order_id AND type = '押金';
+    IF v_deposit_amount = 0 THEN
+        SET p_result_code = -3;
+        SET p_result_msg = '未找到押金支付记录';
+        ROLLBACK;
+        LEAVE sp_settle_rental_order;
+    END IF;
+
+    SELECT COALESCE(SUM(amount), 0) INTO v_rental_fee
+    FROM payment WHERE order_id = p_order_id AND type = '租金';
+
+    -- 逾期费 = 日均租金 × 逾期天数 × 1.5
+    SET v_overdue_days = DATEDIFF(p_actual_return_time, v_rent_end);
+    IF v_overdue_days > 0 THEN
+        SET v_overdue_fee = v_total_amount / GREATEST(DATEDIFF(v_rent_end, v_rent_start), 1) * v_overdue_days * 1.5;
+    ELSE
+        SET v_overdue_fee = 0;
+    END IF;
+
+    SET p_final_amount = v_rental_fee + v_overdue_fee + COALESCE(p_penalty_amount, 0);
+    SET p_refund_deposit = GREATEST(v_deposit_amount - v_overdue_fee - COALESCE(p_penalty_amount, 0), 0);
+
+    IF COALESCE(p_penalty_amount, 0) > 0 THEN
+        INSERT INTO payment (amount, type, order_id) VALUES (p_penalty_amount, '赔偿', p_order_id);
+    END IF;
+    IF v_overdue_fee > 0 THEN
+        INSERT INTO payment (amount, type, order_id) VALUES (v_overdue_fee, '租金', p_order_id);
+    END IF;
+
+    UPDATE rental_order
+    SET status = '结算',
+        return_soc = p_return_soc,
+        actual_return_time = p_actual_return_time
+    WHERE order_id = p_order_id;
+
+    UPDATE vehicle
+    SET status = '在库',
+        current_soc = p_return_soc
+    WHERE vehicle_id = v_vehicle_id;
+
+    SET p_result_msg = CONCAT(
+        '订单结算成功。租金:', v_rental_fee,
+        '元, 逾期费:', v_overdue_fee,
+        '元, 赔偿:', COALESCE(p_penalty_amount, 0),
+        '元, 应退押金:', p_refund_deposit, '元'
+    );
+
+    COMMIT;
+END$$
+
+-- 存储过程 3: sp_transfer_vehicle - 车辆门店调拨（写审计日志）
+DROP PROCEDURE IF EXISTS sp_transfer_vehicle$$
+CREATE PROCEDURE sp_transfer_vehicle(
+    IN p_vehicle_id BIGINT,
+    IN p_from_store_id BIGINT,
+    IN p_to_store_id BIGINT,
+    IN p_operator_user_id BIGINT,
+    IN p_reason VARCHAR(255),
+    OUT p_result_code INT,
+    OUT p_result_msg VARCHAR(255)
+)
+sp_transfer_vehicle: BEGIN
+    DECLARE v_current_store_id BIGINT;
+    DECLARE v_vehicle_status VARCHAR(20);
+    DECLARE v_plate_no VARCHAR(255);
+    DECLARE v_to_store_exists INT;
+    DECLARE v_from_store_name VARCHAR(255);
+    DECLARE v_to_store_name VARCHAR(255);
+
+    DECLARE EXIT HANDLER FOR SQLEXCEPTION
+    BEGIN
+        ROLLBACK;
+        SET p_result_code = -99;
+        SET p_result_msg = '系统错误：车辆调拨失败';
+    END;
+
+    START TRANSACTION;
+
+    SET p_result_code = 0;
+    SET p_result_msg = '车辆调拨成功';
+
+    IF p_from_store_id = p_to_store_id THEN
+        SET p_result_code = -5;
+        SET p_result_msg = '源门店和目标门店不能相同';
+        ROLLBACK;
+        LEAVE sp_transfer_vehicle;
+    END IF;
+
+    SELECT store_id, status, plate_no INTO v_current_store_id, v_vehicle_status, v_plate_no
+    FROM vehicle WHERE vehicle_id = p_vehicle_id FOR UPDATE;
+    IF v_current_store_id IS NULL THEN
+        SET p_result_code = -1;
+        SET p_result_msg = '车辆不存在';
+        ROLLBACK;
+        LEAVE sp_transfer_vehicle;
+    END IF;
+
+    IF v_current_store_id != p_from_store_id THEN
+        SET p_result_code = -2;
+        SET p_result_msg = CONCAT('车辆当前不在源门店，实际所在门店ID：', v_current_store_id);
+        ROLLBACK;
+        LEAVE sp_transfer_vehicle;
+    END IF;
+
+    IF v_vehicle_status != '在库' THEN
+        SET p_result_code = -4;
+        SET p_result_msg = CONCAT('车辆状态不允许调拨，当前状态：', v_vehicle_status);
+        ROLLBACK;
+        LEAVE sp_transfer_vehicle;
+    END IF;
+
+    SELECT COUNT(*), MAX(name) INTO v_to_store_exists, v_to_store_name
+    FROM store WHERE store_id = p_to_store_id;
+    IF v_to_store_exists = 0 THEN
+        SET p_result_code = -3;
+        SET p_result_msg = '目标门店不存在';
+        ROLLBACK;
+        LEAVE sp_transfer_vehicle;
+    END IF;
+
+    SELECT MAX(name) INTO v_from_store_name FROM store WHERE store_id = p_from_store_id;
+
+    UPDATE vehicle SET store_id = p_to_store_id WHERE vehicle_id = p_vehicle_id;
+
+    INSERT INTO audit_log (action, action_time, ip_address, user_id)
+    VALUES (
+        CONCAT('车辆调拨 车辆#', p_vehicle_id, ' (', v_plate_no, ') ',
+               '从门店#', p_from_store_id, '(', v_from_store_name, ') ',
+               '调至门店#', p_to_store_id, '(', v_to_store_name, '). ',
+               '原因: ', COALESCE(p_reason, '无')),
+        NOW(),
+        '127.0.0.1',
+        p_operator_user_id
+    );
+
+    SET p_result_msg = CONCAT('车辆 ', v_plate_no, ' 已从 ', v_from_store_name, ' 调拨至 ', v_to_store_name);
+
+    COMMIT;
+END$$
+
+-- 存储过程 4: sp_update_customer_credit - 按违章与逾期计算客户信用分
+DROP PROCEDURE IF EXISTS sp_update_customer_credit$$
+CREATE PROCEDURE sp_update_customer_credit(
+    IN p_customer_id BIGINT,
+    OUT p_old_credit INT,
+    OUT p_new_credit INT,
+    OUT p_deduction_reason VARCHAR(500),
+    OUT p_result_code INT,
+    OUT p_result_msg VARCHAR(255)
+)
+sp_update_customer_credit: BEGIN
+    DECLARE v_customer_exists INT;
+    DECLARE v_current_credit INT;
+    DECLARE v_violation_count INT;
+    DECLARE v_total_fine DECIMAL(10,2);
+    DECLARE v_overdue_days INT;
+    DECLARE v_credit_deduction INT;
+    DECLARE v_reason_parts VARCHAR(500);
+
+    DECLARE EXIT HANDLER FOR SQLEXCEPTION
+    BEGIN
+        ROLLBACK;
+        SET p_result_code = -99;
+        SET p_result_msg = '系统错误：信用分更新失败';
+    END;
+
+    START TRANSACTION;
+
+    SET p_old_credit = 100;
+    SET p_new_credit = 100;
+    SET p_deduction_reason = '';
+    SET p_result_code = 0;
+    SET p_result_msg = '信用分更新成功';
+
+    SELECT COUNT(*) INTO v_customer_exists FROM customer WHERE customer_id = p_customer_id;
+    IF v_customer_exists = 0 THEN
+        SET p_result_code = -1;
+        SET p_result_msg = '客户不存在';
+        ROLLBACK;
+        LEAVE sp_update_customer_credit;
+    END IF;
+
+    -- customer 表无信用分列，以 100 为初始分
+    SET v_current_credit = 100;
+    SET p_old_credit = v_current_credit;
+
+    -- 违章扣分：轻微 5 分，一般 10 分，严重 20 分
+    SELECT COUNT(*),
+           COALESCE(SUM(v.fine_amount), 0),
+           COALESCE(SUM(CASE
+               WHEN v.fine_amount < 200 THEN 5
+               WHEN v.fine_amount <= 500 THEN 10
+               ELSE 20
+           END), 0)
+    INTO v_violation_count, v_total_fine, v_credit_deduction
+    FROM violation v
+    JOIN rental_order ro ON v.order_id = ro.order_id
+    WHERE ro.customer_id = p_customer_id;
+
+    SET v_reason_parts = '';
+    IF v_violation_count > 0 THEN
+        SET v_reason_parts = CONCAT('违章', v_violation_count, '次扣', v_credit_deduction, '分');
+    END IF;
+
+    -- 逾期扣分：每逾期一天扣 2 分（已还车或已结算的订单）
+    SELECT COALESCE(SUM(GREATEST(DATEDIFF(COALESCE(actual_return_time, NOW()), rent_end), 0)), 0)
+    INTO v_overdue_days
+    FROM rental_order
+    WHERE customer_id = p_customer_id AND status IN ('已还', '结算');
+
+    IF v_overdue_days > 0 THEN
+        SET v_credit_deduction = v_credit_deduction + v_overdue_days * 2;
+        IF LENGTH(v_reason_parts) > 0 THEN
+            SET v_reason_parts = CONCAT(v_reason_parts, '; ');
+        END IF;
+        SET v_reason_parts = CONCAT(v_reason_parts, '逾期', v_overdue_days, '天扣', v_overdue_days * 2, '分');
+    END IF;
+
+    SET p_new_credit = GREATEST(v_current_credit - v_credit_deduction, 0);
+    IF v_credit_deduction > 0 THEN
+        SET p_deduction_reason = v_reason_parts;
+    ELSE
+        SET p_deduction_reason = '无扣分';
+    END IF;
+
+    SET p_result_msg = CONCAT(
+        '信用分更新成功。原分数:', p_old_credit,
+        ', 新分数:', p_new_credit,
+        ', 扣分:', v_credit_deduction,
+        ', 原因:', p_deduction_reason
+    );
+
+    COMMIT;
+END$$
+
+-- 存储过程 5: sp_register_maintenance - 维保登记（车辆置为维保，写审计日志）
+DROP PROCEDURE IF EXISTS sp_register_maintenance$$
+CREATE PROCEDURE sp_register_maintenance(
+    IN p_vehicle_id BIGINT,
+    IN p_maint_type INT,
+    IN p_description VARCHAR(255),
+    IN p_operator_user_id BIGINT,
+    OUT p_maint_id BIGINT,
+    OUT p_next_maint_km DECIMAL(10,2),
+    OUT p_result_code INT,
+    OUT p_result_msg VARCHAR(255)
+)
+sp_register_maintenance: BEGIN
+    DECLARE v_vehicle_exists INT;
+    DECLARE v_vehicle_status VARCHAR(20);
+    DECLARE v_current_mileage DOUBLE;
+    DECLARE v_plate_no VARCHAR(255);
+    DECLARE v_maint_type VARCHAR(20);
+
+    DECLARE EXIT HANDLER FOR SQLEXCEPTION
+    BEGIN
+        ROLLBACK;
+        SET p_result_code = -99;
+        SET p_result_msg = '系统错误：维保登记失败';
+    END;
+
+    START TRANSACTION;
+
+    SET p_maint_id = NULL;
+    SET p_next_maint_km = 0;
+    SET p_result_code = 0;
+    SET p_result_msg = '维保登记成功';
+
+    SELECT COUNT(*), MAX(status), MAX(current_mileage), MAX(plate_no)
+    INTO v_vehicle_exists, v_vehicle_status, v_current_mileage, v_plate_no
+    FROM vehicle WHERE vehicle_id = p_vehicle_id;
+    IF v_vehicle_exists = 0 THEN
+        SET p_result_code = -1;
+        SET p_result_msg = '车辆不存在';
+        ROLLBACK;
+        LEAVE sp_register_maintenance;
+    END IF;
+
+    IF v_vehicle_status = '在租' THEN
+        SET p_result_code = -2;
+        SET p_result_msg = '车辆当前在租，无法进行维保';
+        ROLLBACK;
+        LEAVE sp_register_maintenance;
+    END IF;
+
+    SET v_maint_type = CASE p_maint_type
+        WHEN 0 THEN '保养'
+        WHEN 1 THEN '维修'
+        ELSE '其他'
+    END;
+
+    INSERT INTO maintenance (type, maint_date, description, vehicle_id)
+    VALUES (v_maint_type, NOW(), p_description, p_vehicle_id);
+    SET p_maint_id = LAST_INSERT_ID();
+
+    UPDATE vehicle SET status = '维保' WHERE vehicle_id = p_vehicle_id;
+
+    SET p_next_maint_km = CEIL(v_current_mileage / 10000) * 10000;
+
+    INSERT INTO audit_log (action, action_time, ip_address, user_id)
+    VALUES (
+        CONCAT('车辆维保 车辆#', p_vehicle_id, ' (', v_plate_no, ') ',
+               '维保类型:', v_maint_type, '. 描述: ', COALESCE(p_description, '')),
+        NOW(),
+        '127.0.0.1',
+        p_operator_user_id
+    );
+
+    SET p_result_msg = CONCAT(
+        '维保登记成功。维保ID:', p_maint_id,
+        ', 当前里程:', v_current_mileage, 'km',
+        ', 下次保养里程:', p_next_maint_km, 'km'
+    );
+
+    COMMIT;
+END$$
+
+-- 存储过程 6: sp_complete_maintenance - 维保完成（车辆恢复在库）
+DROP PROCEDURE IF EXISTS sp_complete_maintenance$$
+CREATE PROCEDURE sp_complete_maintenance(
+    IN p_vehicle_id BIGINT,
+    IN p_operator_user_id BIGINT,
+    OUT p_result_code INT,
+    OUT p_result_msg VARCHAR(255)
+)
+sp_complete_maintenance: BEGIN
+    DECLARE v_vehicle_status VARCHAR(20);
+    DECLARE v_plate_no VARCHAR(255);
+
+    DECLARE EXIT HANDLER FOR SQLEXCEPTION
+    BEGIN
+        ROLLBACK;
+        SET p_result_code = -99;
+        SET p_result_msg = '系统错误：维保完成操作失败';
+    END;
+
+    START TRANSACTION;
+
+    SET p_result_code = 0;
+    SET p_result_msg = '维保完成，车辆已恢复可用';
+
+    SELECT status, plate_no INTO v_vehicle_status, v_plate_no
+    FROM vehicle WHERE vehicle_id = p_vehicle_id FOR UPDATE;
+    IF v_vehicle_status IS NULL THEN
+        SET p_result_code = -1;
+        SET p_result_msg = '车辆不存在';
+        ROLLBACK;
+        LEAVE sp_complete_maintenance;
+    END IF;
+
+    IF v_vehicle_status != '维保' THEN
+        SET p_result_code = -2;
+        SET p_result_msg = '车辆当前不在维保状态';
+        ROLLBACK;
+        LEAVE sp_complete_maintenance;
+    END IF;
+
+    UPDATE vehicle SET status = '在库' WHERE vehicle_id = p_vehicle_id;
+
+    INSERT INTO audit_log (action, action_time, ip_address, user_id)
+    VALUES (
+        CONCAT('维保完成 车辆#', p_vehicle_id, ' (', v_plate_no, ') 已恢复可用'),
+        NOW(),
+        '127.0.0.1',
+        p_operator_user_id
+    );
+
+    COMMIT;
+END$$
+
+-- 存储过程 7: sp_pay_deposit - 支付押金（车辆置为在租）
+DROP PROCEDURE IF EXISTS sp_pay_deposit$$
+CREATE PROCEDURE sp_pay_deposit(
+    IN p_order_id BIGINT,
+    IN p_deposit_amount DECIMAL(10,2),
+    OUT p_pay_id BIGINT,
+    OUT p_result_code INT,
+    OUT p_result_msg VARCHAR(255)
+)
+sp_pay_deposit: BEGIN
+    DECLARE v_order_status VARCHAR(20);
+    DECLARE v_vehicle_id BIGINT;
+
+    DECLARE EXIT HANDLER FOR SQLEXCEPTION
+    BEGIN
+        ROLLBACK;
+        SET p_result_code = -99;
+        SET p_result_msg = '系统错误：押金支付失败';
+    END;
+
+    START TRANSACTION;
+
+    SET p_pay_id = NULL;
+    SET p_result_code = 0;
+    SET p_result_msg = '押金支付成功';
+
+    SELECT status, vehicle_id INTO v_order_status, v_vehicle_id
+    FROM rental_order WHERE order_id = p_order_id;
+    IF v_order_status IS NULL THEN
+        SET p_result_code = -1;
+        SET p_result_msg = '订单不存在';
+        ROLLBACK;
+        LEAVE sp_pay_deposit;
+    END IF;
+
+    INSERT INTO payment (amount, type, order_id) VALUES (p_deposit_amount, '押金', p_order_id);
+    SET p_pay_id = LAST_INSERT_ID();
+
+    UPDATE vehicle SET status = '在租' WHERE vehicle_id = v_vehicle_id;
+
+    COMMIT;
+END$$
+
+DELIMITER ;
@@ -0,0 +1,56 @@
+-- ============================================
+-- V1: 订单分片的表结构（仅用于 1 号及以后的分片，主库的表由 JPA 建表）
+-- 说明: 列与主库 JPA 建表一致；主键由应用生成（带分片号），不使用自增。
+--       MySQL 与 H2 通用；MySQL 分片库需使用 utf8mb4 字符集（状态/类型存中文标签）
+-- ============================================
+
+CREATE TABLE IF NOT EXISTS rental_order (
+    order_id BIGINT NOT NULL PRIMARY KEY,
+    actual_pickup_time DATETIME(6),
+    actual_return_time DATETIME(6),
+    customer_id BIGINT,
+    pickup_mileage DOUBLE,
+    pickup_soc DOUBLE,
+    pickup_store_id BIGINT,
+    rent_end DATETIME(6),
+    rent_start DATETIME(6),
+    return_mileage DOUBLE,
+    return_soc DOUBLE,
+    return_store_id BIGINT,
+    status VARCHAR(255),
+    total_amount DECIMAL(38,2),
+    vehicle_id BIGINT
+);
+
+CREATE TABLE IF NOT EXISTS payment (
+    pay_id BIGINT NOT NULL PRIMARY KEY,
+    amount DECIMAL(38,2),
+    order_id BIGINT,
+    type VARCHAR(255)
+);
+
+CREATE TABLE IF NOT EXISTS violation (
+    vio_id BIGINT NOT NULL PRIMARY KEY,
+    fine_amount DECIMAL(38,2),
+    location VARCHAR(255),
+    order_id BIGINT,
+    vehicle_id BIGINT,
+    violation_time DATETIME(6)
+);
+
+-- 分片内批处理作业（如批量结算）的断点，与分片数据在同一事务内推进
+CREATE TABLE IF NOT EXISTS batch_checkpoint (
+    job_name VARCHAR(255) NOT NULL PRIMARY KEY,
+    last_id BIGINT,
+    processed_count BIGINT,
+    updated_at DATETIME(6)
+);
+
+-- 与主库 V1 性能索引中这三张表的索引相同
+CREATE INDEX idx_rental_order_customer_status ON rental_order (customer_id, status);
+CREATE INDEX idx_payment_order_type ON payment (order_id, type);
+CREATE INDEX idx_violation_order_amount ON violation (order_id, fine_amount);
+CREATE INDEX idx_rental_order_vehicle_id ON rental_order (vehicle_id);
+CREATE INDEX idx_rental_order_rent_start ON rental_order (rent_start);
+CREATE INDEX idx_rental_order_pickup_store ON rental_order (pickup_store_id);
+CREATE INDEX idx_violation_vehicle_id ON violation (vehicle_id);
@@ -0,0 +1,57 @@
+-- ============================================
+-- V2: 订单生命周期事件与投影快照（分片库）
+-- 说明: 与主库 db/migration/common/V6 相同，见其说明
+-- ============================================
+
+CREATE TABLE IF NOT EXISTS order_event (
+    event_id BIGINT AUTO_INCREMENT PRIMARY KEY,
+    order_id BIGINT NOT NULL,
+    seq INT NOT NULL,
+    event_type VARCHAR(32) NOT NULL,
+    rent_start DATETIME(6),
+    rent_end DATETIME(6),
+    actual_pickup_time DATETIME(6),
+    actual_return_time DATETIME(6),
+    pickup_mileage DOUBLE,
+    return_mileage DOUBLE,
+    pickup_soc DOUBLE,
+    return_soc DOUBLE,
+    total_amount DECIMAL(38,2),
+    status VARCHAR(255),
+    customer_id BIGINT,
+    vehicle_id BIGINT,
+    pickup_store_id BIGINT,
+    return_store_id BIGINT,
+    vehicle_status VARCHAR(255),
+    actor VARCHAR(64),
+    recorded_at DATETIME(6) NOT NULL
+);
+
+CREATE UNIQUE INDEX idx_order_event_order_seq ON order_event (order_id, seq);
+CREATE INDEX idx_order_event_recorded_at ON order_event (recorded_at);
+
+CREATE TABLE IF NOT EXISTS order_snapshot (
+    order_id BIGINT NOT NULL PRIMARY KEY,
+    seq INT NOT NULL,
+    rent_start DATETIME(6),
+    rent_end DATETIME(6),
+    actual_pickup_time DATETIME(6),
+    actual_return_time DATETIME(6),
+    pickup_mileage DOUBLE,
+    return_mileage DOUBLE,
+    pickup_soc DOUBLE,
+    return_soc DOUBLE,
+    total_amount DECIMAL(38,2),
+    status VARCHAR(255),
+    customer_id BIGINT,
+    vehicle_id BIGINT,
+    pickup_store_id BIGINT,
+    return_store_id BIGINT
+);
+
+CREATE TABLE IF NOT EXISTS order_snapshot_checkpoint (
+    id INT NOT NULL PRIMARY KEY,
+    last_event_id BIGINT NOT NULL,
+    order_count BIGINT NOT NULL,
+    taken_at DATETIME(6) NOT NULL
+);
@@ -0,0 +1,6 @@
+-- ============================================
+-- V3: 客户时间线的键集分页索引（分片库）
+-- 说明: 与主库 db/migration/common/V7 相同，见其说明
+-- ============================================
+
+CREATE INDEX idx_rental_order_customer_time ON rental_order (customer_id, rent_start, order_id);
@@ -0,0 +1,203 @@
+package com.tesla.rental;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.tesla.rental.entity.Vehicle;
+import com.tesla.rental.event.EntityChangeEvent;
+import com.tesla.rental.payload.EntityDelta;
+import com.tesla.rental.service.ChangeFeedService;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.web.servlet.mvc.method.annotation.ResponseBodyEmitter;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import java.lang.reflect.Proxy;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.function.BooleanSupplier;
+import java.util.stream.LongStream;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTimeoutPreemptively;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+// 变更流的环形缓冲区与断点续传：不经 HTTP，直接接管 SseEmitter 的输出
+class ChangeFeedServiceTests {
+
+    // 一条 SSE 事件：name 为空表示心跳注释
+    record Event(String name, String id, Object data) {
+    }
+
+    private ChangeFeedService service;
+    private String epoch;
+
+    @BeforeEach
+    void setUp() {
+        // 缓冲区只保留 4 条，每批最多推送 2 条
+        service = new ChangeFeedService(new ObjectMapper(), 4, 2);
+        epoch = (String) service.status().get("epoch");
+    }
+
+    @AfterEach
+    void tearDown() {
+        service.shutdown();
+    }
+
+    private void delete(long vehicleId) {
+        service.onEntityChange(new EntityChangeEvent(Vehicle.class, vehicleId, EntityChangeEvent.Action.DELETE,
+                new Vehicle(), null));
+    }
+
+    // 相当于 MVC 处理返回值时调用 initialize：之前缓存的事件随即送出，之后的事件逐条交给 handler；
+    // gate 不为空时每次发送 changes 前等待放行，模拟不读数据的客户端
+    private static List<Event> capture(SseEmitter emitter, CountDownLatch gate) throws Exception {
+        List<Event> events = new CopyOnWriteArrayList<>();
+        List<Object> parts = new ArrayList<>();
+        Class<?> handlerType = Class.forName(ResponseBodyEmitter.class.getName() + "$Handler");
+        Object handler = Proxy.newProxyInstance(handlerType.getClassLoader(), new Class<?>[] { handlerType },
+                (proxy, method, args) -> {
+                    if (!method.getName().equals("send")) {
+                        return null;
+                    }
+                    List<Object> received = new ArrayList<>();
+                    if (args.length == 2) {
+                        received.add(args[0]);
+                    } else {
+                        for (Object part : (Set<?>) args[0]) {
+                            received.add(((ResponseBodyEmitter.DataWithMediaType) part).getData());
+                        }
+                    }
+                    // 缓存的多条事件可能一次送出：按结尾的空行切分
+                    for (Object part : received) {
+                        parts.add(part);
+                        if (part instanceof String text && text.endsWith("\n\n")) {
+                            Event event = parse(parts);
+                            parts.clear();
+                            if (gate != null && "changes".equals(event.name())) {
+                                gate.await(10, TimeUnit.SECONDS);
+                            }
+                            events.add(event);
+                        }
+                    }
+                    return null;
+                });
+        ReflectionTestUtils.invokeMethod(emitter, "initialize", handler);
+        return events;
+    }
+
+    private static Event parse(List<Object> parts) {
+        String name = null;
+        String id = null;
+        Object data = null;
+        for (Object part : parts) {
+            if (part instanceof String text) {
+                for (String line : text.split("\n")) {
+                    if (line.startsWith("event:")) {
+                        name = line.substring(6);
+                    } else if (line.startsWith("id:")) {
+                        id = line.substring(3);
+                    }
+                }
+            } else {
+                data = part;
+            }
+        }
+        return new Event(name, id, data);
+    }
+
+    @SuppressWarnings("unchecked")
+    private static List<Long> versions(List<Event> events) {
+        return events.stream().filter(event -> "changes".equals(event.name()))
+                .flatMap(event -> ((List<EntityDelta>) event.data()).stream())
+                .map(EntityDelta::getVersion).toList();
+    }
+
+    private static void await(BooleanSupplier condition) throws InterruptedException {
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+        while (!condition.getAsBoolean()) {
+            assertTrue(System.nanoTime() < deadline, "timed out");
+            Thread.sleep(10);
+        }
+    }
+
+    @Test
+    void resumesAfterLastEventId() throws Exception {
+        delete(1);
+        delete(2);
+        delete(3);
+
+        List<Event> resumed = capture(service.subscribe(epoch + "-1", Set.of("vehicle")), null);
+        await(() -> versions(resumed).size() == 2);
+        assertEquals(new Event("resume", epoch + "-1", Map.of("version", 1L)), resumed.get(0));
+        assertEquals(List.of(2L, 3L), versions(resumed));
+        assertEquals(epoch + "-3", resumed.get(1).id());
+
+        // 新的写入继续推送给已连接的订阅方
+        delete(4);
+        await(() -> versions(resumed).size() == 3);
+        assertEquals(List.of(2L, 3L, 4L), versions(resumed));
+
+        // 首次连接从当前位置开始；只订阅订单时不收到车辆增量，但仍可续传
+        List<Event> fresh = capture(service.subscribe(null, Set.of("vehicle")), null);
+        assertEquals(new Event("ready", epoch + "-4", Map.of("version", 4L)), fresh.get(0));
+        List<Event> orders = capture(service.subscribe(epoch + "-2", Set.of("order")), null);
+        delete(5);
+        await(() -> versions(resumed).size() == 4 && versions(fresh).size() == 1);
+        assertEquals("resume", orders.get(0).name());
+        assertEquals(List.of(), versions(orders));
+    }
+
+    @Test
+    void overwrittenOrForeignLastEventIdResets() throws Exception {
+        for (long id = 1; id <= 10; id++) {
+            delete(id);
+        }
+        // 缓冲区只剩 7-10：断点 6 仍可续传，断点 5 已被覆盖
+        List<Event> resumed = capture(service.subscribe(epoch + "-6", Set.of("vehicle")), null);
+        await(() -> versions(resumed).size() == 4);
+        assertEquals("resume", resumed.get(0).name());
+        assertEquals(List.of(7L, 8L, 9L, 10L), versions(resumed));
+
+        List<Event> overwritten = capture(service.subscribe(epoch + "-5", Set.of("vehicle")), null);
+        assertEquals(new Event("reset", epoch + "-10", Map.of("version", 10L)), overwritten.get(0));
+        // 重启前的 ID、未来的版本与无法解析的 ID 同样重置
+        for (String lastEventId : new String[] { "old-3", epoch + "-11", epoch + "-x", "" }) {
+            List<Event> events = capture(service.subscribe(lastEventId, Set.of("vehicle")), null);
+            assertEquals("reset", events.get(0).name(), lastEventId);
+        }
+        assertEquals(List.of(), versions(overwritten));
+    }
+
+    @Test
+    void slowConsumerDoesNotBlockWriters() throws Exception {
+        CountDownLatch gate = new CountDownLatch(1);
+        List<Event> slow = capture(service.subscribe(null, Set.of("vehicle")), gate);
+        List<Event> fast = capture(service.subscribe(null, Set.of("vehicle")), null);
+
+        // 慢订阅方卡在推送第 1 条上，写入方和另一订阅方不受影响
+        delete(1);
+        assertTimeoutPreemptively(Duration.ofSeconds(10), () -> {
+            for (long id = 2; id <= 20; id++) {
+                delete(id);
+                int expected = (int) id;
+                await(() -> versions(fast).size() == expected);
+            }
+        });
+        assertEquals(LongStream.rangeClosed(1, 20).boxed().toList(), versions(fast));
+        assertTrue(fast.stream().noneMatch(event -> "reset".equals(event.name())));
+        assertEquals(List.of(), versions(slow));
+
+        // 恢复读取后已落后超过缓冲区：收到 reset 并跳到最新版本，而不是补发积压的增量
+        gate.countDown();
+        await(() -> slow.stream().anyMatch(event -> "reset".equals(event.name())));
+        assertEquals(List.of(1L), versions(slow));
+        assertEquals(new Event("reset", epoch + "-20", Map.of("version", 20L)), slow.get(slow.size() - 1));
+    }
+}
@@ -0,0 +1,132 @@
+package com.tesla.rental;
+
+import com.tesla.rental.entity.Store;
+import com.tesla.rental.entity.SysRole;
+import com.tesla.rental.entity.SysUser;
+import com.tesla.rental.entity.SysUserRole;
+import com.tesla.rental.repository.StoreRepository;
+import com.tesla.rental.repository.SysRoleRepository;
+import com.tesla.rental.repository.SysUserRepository;
+import com.tesla.rental.repository.SysUserRoleRepository;
+import com.tesla.rental.security.CustomUserDetailsService;
+import com.tesla.rental.service.CollectionVersionService;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.security.core.GrantedAuthority;
+import org.springframework.web.context.request.ServletWebRequest;
+
+import java.util.Set;
+import java.util.function.BooleanSupplier;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+// 同一 JVM 内启动两个应用上下文（模拟两个实例）共用一个 H2 库：一个实例的写入须在有限时间内使另一个实例的本地缓存失效
+class ChangeLogCacheCoherenceTests {
+
+    private static ConfigurableApplicationContext nodeA;
+    private static ConfigurableApplicationContext nodeB;
+
+    @BeforeAll
+    static void start() {
+        nodeA = start("node-a");
+        nodeB = start("node-b");
+    }
+
+    @AfterAll
+    static void stop() {
+        if (nodeB != null) {
+            nodeB.close();
+        }
+        if (nodeA != null) {
+            nodeA.close();
+        }
+    }
+
+    private static ConfigurableApplicationContext start(String nodeId) {
+        return new SpringApplicationBuilder(RentalApplication.class).run(
+                "--server.port=0",
+                "--spring.datasource.url=jdbc:h2:mem:coherence;DB_CLOSE_DELAY=-1;MODE=MySQL",
+                "--spring.datasource.driver-class-name=org.h2.Driver",
+                "--spring.datasource.username=sa",
+                "--spring.datasource.password=",
+                "--spring.jpa.properties.hibernate.dialect=org.hibernate.dialect.H2Dialect",
+                "--rental.change-log.node-id=" + nodeId,
+                "--rental.change-log.poll-interval-ms=100");
+    }
+
+    @Test
+    void storeWriteOnOneNodeInvalidatesListEtagOnTheOther() {
+        CollectionVersionService versions = nodeB.getBean(CollectionVersionService.class);
+        ServletWebRequest request = new ServletWebRequest(new MockHttpServletRequest());
+        String before = versions.etag(Store.class, request);
+
+        Store store = new Store();
+        store.setName("Coherence Store");
+        store.setAddress("Shanghai");
+        nodeA.getBean(StoreRepository.class).save(store);
+
+        await(() -> !versions.etag(Store.class, request).equals(before));
+    }
+
+    @Test
+    void roleChangeOnOneNodeReachesCachedUserOnTheOther() {
+        SysRoleRepository roles = nodeA.getBean(SysRoleRepository.class);
+        SysRole clerk = role(roles, "店员");
+        SysRole admin = role(roles, "管理员");
+        SysUser user = new SysUser();
+        user.setUsername("coherence");
+        user.setPasswordHash("{noop}secret");
+        user = nodeA.getBean(SysUserRepository.class).save(user);
+        SysUserRoleRepository userRoles = nodeA.getBean(SysUserRoleRepository.class);
+        userRoles.save(userRole(user, clerk));
+
+        CustomUserDetailsService userDetails = nodeB.getBean(CustomUserDetailsService.class);
+        await(() -> authorities(userDetails).size() == 1);
+
+        userRoles.save(userRole(user, admin));
+
+        await(() -> authorities(userDetails).size() == 2);
+        assertEquals(Set.of("ROLE_店员", "ROLE_管理员"), authorities(userDetails));
+    }
+
+    private static SysRole role(SysRoleRepository roles, String name) {
+        return roles.findByRoleName(name).orElseGet(() -> {
+            SysRole role = new SysRole();
+            role.setRoleName(name);
+            return roles.save(role);
+        });
+    }
+
+    private static SysUserRole userRole(SysUser user, SysRole role) {
+        SysUserRole userRole = new SysUserRole();
+        userRole.setUserId(user.getUserId());
+        userRole.setRoleId(role.getRoleId());
+        return userRole;
+    }
+
+    private static Set<String> authorities(CustomUserDetailsService userDetails) {
+        return userDetails.loadUserByUsername("coherence").getAuthorities().stream()
+                .map(GrantedAuthority::getAuthority)
+                .collect(Collectors.toSet());
+    }
+
+    // 轮询间隔 100 ms，5 秒内仍未生效视为失败
+    private static void await(BooleanSupplier condition) {
+        long deadline = System.currentTimeMillis() + 5000;
+        while (!condition.getAsBoolean()) {
+            assertTrue(System.currentTimeMillis() < deadline, "remote change was not applied within 5 s");
+            try {
+                Thread.sleep(50);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new IllegalStateException(e);
+            }
+        }
+    }
+}
@@ -0,0 +1,109 @@
+package com.tesla.rental;
+
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.request.MockHttpServletRequestBuilder;
+import org.springframework.test.web.servlet.setup.MockMvcBuilders;
+import org.springframework.web.context.WebApplicationContext;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.content;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.header;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+// 车辆/车型/门店列表的 ETag：未变化时 304，写入提交后 ETag 变化，CBOR 与 ?fields= 是不同的表示
+class CollectionVersionServiceTests {
+
+    private static ConfigurableApplicationContext context;
+    private static MockMvc mvc;
+
+    @BeforeAll
+    static void start() {
+        context = new SpringApplicationBuilder(RentalApplication.class).run(
+                "--server.port=0",
+                "--spring.datasource.url=jdbc:h2:mem:collection-version;DB_CLOSE_DELAY=-1;MODE=MySQL",
+                "--spring.datasource.driver-class-name=org.h2.Driver",
+                "--spring.datasource.username=sa",
+                "--spring.datasource.password=",
+                "--spring.jpa.properties.hibernate.dialect=org.hibernate.dialect.H2Dialect");
+        mvc = MockMvcBuilders.webAppContextSetup((WebApplicationContext) context).build();
+    }
+
+    @AfterAll
+    static void stop() {
+        if (context != null) {
+            context.close();
+        }
+    }
+
+    private static String etag(MockHttpServletRequestBuilder request) throws Exception {
+        MockHttpServletResponse response = mvc.perform(request).andExpect(status().isOk()).andReturn().getResponse();
+        assertTrue(response.getHeaders(HttpHeaders.VARY).contains(HttpHeaders.ACCEPT));
+        return response.getHeader(HttpHeaders.ETAG);
+    }
+
+    @Test
+    void unchangedListReturnsNotModified() throws Exception {
+        for (String path : new String[] { "/api/vehicles", "/api/models", "/api/stores" }) {
+            String etag = etag(get(path));
+            mvc.perform(get(path).header(HttpHeaders.IF_NONE_MATCH, etag))
+                    .andExpect(status().isNotModified())
+                    .andExpect(header().string(HttpHeaders.ETAG, etag))
+                    .andExpect(content().bytes(new byte[0]));
+        }
+    }
+
+    @Test
+    void commitBumpsEtag() throws Exception {
+        String vehicles = etag(get("/api/vehicles"));
+        String models = etag(get("/api/models"));
+        String stores = etag(get("/api/stores"));
+
+        mvc.perform(post("/api/stores").contentType(MediaType.APPLICATION_JSON)
+                .content("{\"name\":\"etag-store\",\"address\":\"test\"}")).andExpect(status().isOk());
+        String storesAfter = etag(get("/api/stores"));
+        assertNotEquals(stores, storesAfter);
+        mvc.perform(get("/api/stores").header(HttpHeaders.IF_NONE_MATCH, stores)).andExpect(status().isOk());
+        // 门店写入不影响车辆、车型列表
+        assertEquals(vehicles, etag(get("/api/vehicles")));
+        assertEquals(models, etag(get("/api/models")));
+
+        // 车辆列表带车型名称：车型写入使两者都变化
+        mvc.perform(post("/api/models").contentType(MediaType.APPLICATION_JSON)
+                .content("{\"name\":\"etag-model\",\"seatCount\":5}")).andExpect(status().isOk());
+        assertNotEquals(models, etag(get("/api/models")));
+        assertNotEquals(vehicles, etag(get("/api/vehicles")));
+        assertEquals(storesAfter, etag(get("/api/stores")));
+    }
+
+    @Test
+    void cborAndFieldsHaveTheirOwnEtags() throws Exception {
+        String json = etag(get("/api/vehicles").accept(MediaType.APPLICATION_JSON));
+        String cbor = etag(get("/api/vehicles").accept(MediaType.APPLICATION_CBOR));
+        String fields = etag(get("/api/vehicles").param("fields", "vehicleId,plateNo"));
+        String otherFields = etag(get("/api/vehicles").param("fields", "vehicleId"));
+        assertNotEquals(json, cbor);
+        assertNotEquals(json, fields);
+        assertNotEquals(fields, otherFields);
+
+        // 缓存的 JSON 表示不能用于 CBOR 或裁剪后的请求
+        mvc.perform(get("/api/vehicles").accept(MediaType.APPLICATION_CBOR).header(HttpHeaders.IF_NONE_MATCH, json))
+                .andExpect(status().isOk())
+                .andExpect(content().contentType(MediaType.APPLICATION_CBOR));
+        mvc.perform(get("/api/vehicles").param("fields", "vehicleId").header(HttpHeaders.IF_NONE_MATCH, json))
+                .andExpect(status().isOk());
+        mvc.perform(get("/api/vehicles").accept(MediaType.APPLICATION_CBOR).header(HttpHeaders.IF_NONE_MATCH, cbor))
+                .andExpect(status().isNotModified());
+    }
+}
@@ -0,0 +1,197 @@
+package com.tesla.rental;
+
+import com.tesla.rental.entity.Payment;
+import com.tesla.rental.entity.RentalOrder;
+import com.tesla.rental.entity.Violation;
+import com.tesla.rental.entity.enums.PaymentType;
+import com.tesla.rental.entity.enums.RentalOrderStatus;
+import com.tesla.rental.payload.CustomerTimeline;
+import com.tesla.rental.payload.TimelineEntry;
+import com.tesla.rental.service.CustomerTimelineService;
+import com.tesla.rental.service.OrderLifecycleService;
+import com.tesla.rental.shard.Shard;
+import com.tesla.rental.shard.ShardRouter;
+import com.tesla.rental.shard.ShardedOrderStore;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.setup.MockMvcBuilders;
+import org.springframework.web.context.WebApplicationContext;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+// 客户时间线的游标：解析与 400、同一取车时间的订单跨页不重不漏、进入没有取车时间的尾部，以及跨分片合并
+class CustomerTimelineServiceTests {
+
+    // 取车时间倒序、同一时间按主键倒序，没有取车时间的排在最后
+    private static final Comparator<RentalOrder> TIMELINE_ORDER = Comparator
+            .comparing(RentalOrder::getRentStart, Comparator.nullsLast(Comparator.<LocalDateTime>reverseOrder()))
+            .thenComparing(RentalOrder::getOrderId, Comparator.reverseOrder());
+
+    private static ConfigurableApplicationContext context;
+    private static ShardRouter router;
+    private static ShardedOrderStore store;
+    private static OrderLifecycleService lifecycle;
+    private static CustomerTimelineService timelines;
+    private static MockMvc mvc;
+
+    @BeforeAll
+    static void start() {
+        context = new SpringApplicationBuilder(RentalApplication.class).run(
+                "--server.port=0",
+                "--spring.datasource.url=jdbc:h2:mem:timeline-primary;DB_CLOSE_DELAY=-1;MODE=MySQL",
+                "--spring.datasource.driver-class-name=org.h2.Driver",
+                "--spring.datasource.username=sa",
+                "--spring.datasource.password=",
+                "--spring.jpa.properties.hibernate.dialect=org.hibernate.dialect.H2Dialect",
+                "--rental.sharding.urls=jdbc:h2:mem:timeline-1;DB_CLOSE_DELAY=-1;MODE=MySQL,"
+                        + "jdbc:h2:mem:timeline-2;DB_CLOSE_DELAY=-1;MODE=MySQL",
+                "--rental.sharding.node-id=3");
+        router = context.getBean(ShardRouter.class);
+        store = context.getBean(ShardedOrderStore.class);
+        lifecycle = context.getBean(OrderLifecycleService.class);
+        timelines = context.getBean(CustomerTimelineService.class);
+        mvc = MockMvcBuilders.webAppContextSetup((WebApplicationContext) context).build();
+    }
+
+    @AfterAll
+    static void stop() {
+        if (context != null) {
+            context.close();
+        }
+    }
+
+    @BeforeEach
+    void clear() {
+        for (Shard shard : router.all()) {
+            shard.getJdbcTemplate().update("DELETE FROM payment");
+            shard.getJdbcTemplate().update("DELETE FROM violation");
+            shard.getJdbcTemplate().update("DELETE FROM order_event");
+            shard.getJdbcTemplate().update("DELETE FROM rental_order");
+        }
+        JdbcTemplate primary = router.primary().getJdbcTemplate();
+        primary.update("DELETE FROM customer WHERE customer_id = 7");
+        primary.update("INSERT INTO customer (customer_id, name, phone) VALUES (7, 'timeline', '13900000007')");
+    }
+
+    private static RentalOrder order(long storeId, long customerId, LocalDateTime rentStart) {
+        RentalOrder order = new RentalOrder();
+        order.setPickupStoreId(storeId);
+        order.setReturnStoreId(storeId);
+        order.setCustomerId(customerId);
+        order.setVehicleId(1L);
+        order.setRentStart(rentStart);
+        order.setRentEnd(rentStart != null ? rentStart.plusDays(1) : null);
+        order.setTotalAmount(new BigDecimal("300.00"));
+        order.setStatus(RentalOrderStatus.PAID);
+        return lifecycle.create(order, null);
+    }
+
+    private static List<Long> orderIds(CustomerTimeline timeline) {
+        return timeline.getEntries().stream().filter(entry -> entry.getType() == TimelineEntry.Type.ORDER)
+                .map(TimelineEntry::getOrderId).toList();
+    }
+
+    @Test
+    void invalidCursorIsRejected() throws Exception {
+        for (String cursor : new String[] { "abc", "5", "_5", "2026-03-01T10:00_x", "2026-13-01T10:00_5", "2026-03-01T10:00_" }) {
+            assertThrows(IllegalArgumentException.class, () -> timelines.timeline(7L, cursor, 10), cursor);
+        }
+        mvc.perform(get("/api/customers/7/timeline").param("cursor", "abc"))
+                .andExpect(status().isBadRequest())
+                .andExpect(jsonPath("$.message").value("Invalid cursor: abc"));
+
+        // 取车时间为空的订单用 "-" 表示；空游标为第一页
+        RentalOrder dated = order(3L, 7L, LocalDateTime.of(2026, 3, 1, 10, 0));
+        RentalOrder undated = order(4L, 7L, null);
+        assertEquals(List.of(dated.getOrderId(), undated.getOrderId()), orderIds(timelines.timeline(7L, "", 10)));
+        assertEquals(List.of(undated.getOrderId()),
+                orderIds(timelines.timeline(7L, "2026-03-01T10:00_" + dated.getOrderId(), 10)));
+        assertEquals(List.of(), orderIds(timelines.timeline(7L, "-_" + undated.getOrderId(), 10)));
+        mvc.perform(get("/api/customers/7/timeline").param("cursor", "-_" + undated.getOrderId()))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.entries").isEmpty());
+    }
+
+    @Test
+    void pagesAcrossTiesIntoNullTailAndAcrossShards() {
+        LocalDateTime start = LocalDateTime.of(2026, 3, 1, 10, 0);
+        List<RentalOrder> created = new ArrayList<>();
+        for (int i = 0; i < 6; i++) {
+            // 每三单取车时间相同，分散在三个分片上（门店 3/4/5）
+            created.add(order(3 + i % 3, 7L, start.plusHours(i / 3)));
+        }
+        created.add(order(4L, 7L, null));
+        created.add(order(5L, 7L, null));
+        created.add(order(3L, 7L, null));
+        order(4L, 8L, start.plusDays(1));
+
+        // 支付与违章随所属订单出现在同一页
+        RentalOrder paid = created.get(4);
+        Payment payment = new Payment();
+        payment.setAmount(new BigDecimal("300.00"));
+        payment.setType(PaymentType.values()[0]);
+        payment.setOrderId(paid.getOrderId());
+        store.savePayment(payment);
+        RentalOrder fined = created.get(6);
+        Violation violation = new Violation();
+        violation.setFineAmount(new BigDecimal("200.00"));
+        violation.setVehicleId(1L);
+        violation.setOrderId(fined.getOrderId());
+        violation.setViolationTime(start.minusDays(1));
+        store.saveViolation(violation);
+
+        List<Long> paged = new ArrayList<>();
+        List<String> cursors = new ArrayList<>();
+        String cursor = null;
+        while (true) {
+            CustomerTimeline page = timelines.timeline(7L, cursor, 2);
+            List<Long> ids = orderIds(page);
+            assertTrue(ids.size() <= 2);
+            paged.addAll(ids);
+            for (TimelineEntry entry : page.getEntries()) {
+                assertTrue(ids.contains(entry.getOrderId()), "entry of an order on another page");
+                if (entry.getType() == TimelineEntry.Type.PAYMENT) {
+                    assertEquals(paid.getRentStart(), entry.getTime());
+                } else if (entry.getType() == TimelineEntry.Type.VIOLATION) {
+                    assertEquals(start.minusDays(1), entry.getTime());
+                }
+            }
+            if (page.getNextCursor() == null) {
+                assertTrue(ids.size() < 2);
+                break;
+            }
+            cursors.add(page.getNextCursor());
+            cursor = page.getNextCursor();
+        }
+
+        List<Long> expected = created.stream().sorted(TIMELINE_ORDER).map(RentalOrder::getOrderId).toList();
+        assertEquals(expected, paged);
+        assertEquals(paged.size(), new HashSet<>(paged).size());
+        // 第二页以同一取车时间的订单结束，第三页从非空取车时间跨入空值尾部
+        assertEquals(List.of(
+                start.plusHours(1) + "_" + expected.get(1),
+                start + "_" + expected.get(3),
+                start + "_" + expected.get(5),
+                "-_" + expected.get(7)), cursors);
+        assertNull(timelines.timeline(7L, cursors.get(cursors.size() - 1), 2).getNextCursor());
+    }
+}
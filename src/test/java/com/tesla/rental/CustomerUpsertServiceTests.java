@@ -0,0 +1,134 @@
+package com.tesla.rental;
+
+import com.tesla.rental.entity.Customer;
+import com.tesla.rental.event.EntityChangeEvent;
+import com.tesla.rental.payload.CustomerUpsertResult;
+import com.tesla.rental.service.CustomerUpsertService;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DataSourceTransactionManager;
+import org.springframework.jdbc.datasource.DriverManagerDataSource;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+class CustomerUpsertServiceTests {
+
+    private JdbcTemplate jdbc;
+    private List<EntityChangeEvent> events;
+    private CustomerUpsertService service;
+
+    @BeforeEach
+    void setUp() {
+        DriverManagerDataSource dataSource = new DriverManagerDataSource(
+                "jdbc:h2:mem:customer-upsert;DB_CLOSE_DELAY=-1;MODE=MySQL", "sa", "");
+        jdbc = new JdbcTemplate(dataSource);
+        jdbc.execute("DROP ALL OBJECTS");
+        jdbc.execute("CREATE TABLE customer (customer_id BIGINT AUTO_INCREMENT PRIMARY KEY, name VARCHAR(10),"
+                + " phone VARCHAR(20) NOT NULL UNIQUE, id_card VARCHAR(18), driver_license VARCHAR(20))");
+        jdbc.update("INSERT INTO customer (customer_id, name, phone, id_card, driver_license)"
+                + " VALUES (1, '张三', '13800000001', '310101199001011234', 'D001')");
+        events = new ArrayList<>();
+        service = new CustomerUpsertService(jdbc, new DataSourceTransactionManager(dataSource),
+                event -> events.add((EntityChangeEvent) event));
+        // 每批 2 行：同一手机号可能落在不同批次
+        ReflectionTestUtils.setField(service, "batchSize", 2);
+    }
+
+    private static Customer customer(String phone, String name, String idCard, String driverLicense) {
+        Customer customer = new Customer();
+        customer.setPhone(phone);
+        customer.setName(name);
+        customer.setIdCard(idCard);
+        customer.setDriverLicense(driverLicense);
+        return customer;
+    }
+
+    private Map<String, Object> row(String phone) {
+        return jdbc.queryForMap("SELECT * FROM customer WHERE phone = ?", phone);
+    }
+
+    private static List<CustomerUpsertResult.Status> statuses(CustomerUpsertResult result) {
+        return result.getRows().stream().map(CustomerUpsertResult.Row::getStatus).toList();
+    }
+
+    @Test
+    void existingPhoneUpdatesOnlyNonNullFields() {
+        // 手机号前后的空白去掉后命中已有客户
+        CustomerUpsertResult result = service.upsert(List.of(customer(" 13800000001 ", "张三丰", null, null)));
+
+        assertEquals(List.of(CustomerUpsertResult.Status.UPDATED), statuses(result));
+        assertEquals(1L, result.getRows().get(0).getCustomerId());
+        Map<String, Object> stored = row("13800000001");
+        assertEquals("张三丰", stored.get("NAME"));
+        assertEquals("310101199001011234", stored.get("ID_CARD"));
+        assertEquals("D001", stored.get("DRIVER_LICENSE"));
+        assertEquals(1, events.size());
+        assertEquals(EntityChangeEvent.Action.UPDATE, events.get(0).getAction());
+        assertEquals("张三", events.get(0).previousValue("name"));
+
+        // 与现有值相同的 upsert 仍记为更新，但不发布事件
+        events.clear();
+        result = service.upsert(List.of(customer("13800000001", "张三丰", "310101199001011234", null)));
+        assertEquals(List.of(CustomerUpsertResult.Status.UPDATED), statuses(result));
+        assertEquals(0, events.size());
+    }
+
+    @Test
+    void repeatedPhonesInOneRequestMergeInOrder() {
+        // 同一手机号出现三次：第 1、2 次在同一批，第 3 次在下一批
+        CustomerUpsertResult result = service.upsert(List.of(
+                customer("13900000002", "李四", null, null),
+                customer("13900000002", null, "320102199202022345", null),
+                customer("13700000003", "王五", null, null),
+                customer("13900000002", "李思", null, "D002")));
+
+        assertEquals(List.of(CustomerUpsertResult.Status.INSERTED, CustomerUpsertResult.Status.UPDATED,
+                CustomerUpsertResult.Status.INSERTED, CustomerUpsertResult.Status.UPDATED), statuses(result));
+        assertEquals(2, result.getInserted());
+        assertEquals(2, result.getUpdated());
+        Long id = result.getRows().get(0).getCustomerId();
+        assertNotNull(id);
+        assertEquals(id, result.getRows().get(1).getCustomerId());
+        assertEquals(id, result.getRows().get(3).getCustomerId());
+        Map<String, Object> stored = row("13900000002");
+        assertEquals(id, ((Number) stored.get("CUSTOMER_ID")).longValue());
+        assertEquals("李思", stored.get("NAME"));
+        assertEquals("320102199202022345", stored.get("ID_CARD"));
+        assertEquals("D002", stored.get("DRIVER_LICENSE"));
+        assertEquals(3, jdbc.queryForObject("SELECT COUNT(*) FROM customer", Integer.class));
+        // 第一批每个手机号一次 INSERT，第二批对已有行一次 UPDATE
+        assertEquals(List.of(EntityChangeEvent.Action.INSERT, EntityChangeEvent.Action.INSERT, EntityChangeEvent.Action.UPDATE),
+                events.stream().map(EntityChangeEvent::getAction).toList());
+    }
+
+    @Test
+    void failingRowIsIsolatedFromTheRestOfItsBatch() {
+        CustomerUpsertResult result = service.upsert(Arrays.asList(
+                customer("13600000004", "赵六", null, null),
+                customer("13600000005", "名字超过了十个字符的长度限制", null, null),
+                customer("", "无手机号", null, null),
+                null,
+                customer("13800000001", null, null, "D101")));
+
+        assertEquals(List.of(CustomerUpsertResult.Status.INSERTED, CustomerUpsertResult.Status.FAILED,
+                CustomerUpsertResult.Status.FAILED, CustomerUpsertResult.Status.FAILED,
+                CustomerUpsertResult.Status.UPDATED), statuses(result));
+        assertEquals(3, result.getFailed());
+        assertNotNull(result.getRows().get(1).getMessage());
+        assertEquals("手机号不能为空", result.getRows().get(2).getMessage());
+        assertNull(result.getRows().get(0).getMessage());
+        assertEquals("赵六", row("13600000004").get("NAME"));
+        assertEquals(0, jdbc.queryForObject("SELECT COUNT(*) FROM customer WHERE phone = '13600000005'", Integer.class));
+        assertEquals("D101", row("13800000001").get("DRIVER_LICENSE"));
+        assertEquals("张三", row("13800000001").get("NAME"));
+    }
+}
@@ -0,0 +1,62 @@
+package com.tesla.rental;
+
+import com.tesla.rental.service.ExportService;
+import com.tesla.rental.service.SchemaMigrationService;
+import com.tesla.rental.shard.ShardRouter;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DataSourceTransactionManager;
+import org.springframework.jdbc.datasource.DriverManagerDataSource;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.mockito.Mockito.mock;
+
+class ExportServiceTests {
+
+    private static final String ORDER_HEADER = "order_id,customer_id,vehicle_id,pickup_store_id,return_store_id,"
+            + "rent_start,rent_end,pickup_soc,return_soc,total_amount,status\n";
+
+    private ExportService service;
+
+    @BeforeEach
+    void setUp() {
+        DriverManagerDataSource dataSource = new DriverManagerDataSource(
+                "jdbc:h2:mem:export;DB_CLOSE_DELAY=-1;MODE=MySQL", "sa", "");
+        JdbcTemplate jdbc = new JdbcTemplate(dataSource);
+        jdbc.execute("DROP ALL OBJECTS");
+        jdbc.execute("CREATE TABLE rental_order (order_id BIGINT PRIMARY KEY, customer_id BIGINT, vehicle_id BIGINT,"
+                + " pickup_store_id BIGINT, return_store_id BIGINT, rent_start TIMESTAMP, rent_end TIMESTAMP,"
+                + " pickup_soc DOUBLE, return_soc DOUBLE, total_amount DECIMAL(10, 2), status VARCHAR(20))");
+        jdbc.update("INSERT INTO rental_order VALUES (1, 7, 3, 1, 1, TIMESTAMP '2026-03-01 10:00:00',"
+                + " TIMESTAMP '2026-03-02 10:00:00', 90, 60, 300.00, 'PAID')");
+        jdbc.update("INSERT INTO rental_order VALUES (2, 8, 4, 2, 2, TIMESTAMP '2026-03-05 10:00:00',"
+                + " TIMESTAMP '2026-03-06 10:00:00', 80, NULL, 450.50, 'PAID')");
+        ShardRouter router = new ShardRouter(dataSource, new DataSourceTransactionManager(dataSource),
+                mock(SchemaMigrationService.class), "jdbc:h2:mem:export", "", "sa", "", 1, "");
+        service = new ExportService(router, 100);
+    }
+
+    private String csv(LocalDateTime from, LocalDateTime to, Long storeId) throws Exception {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        service.exportOrders(from, to, storeId, ExportService.Format.CSV, out);
+        return out.toString(StandardCharsets.UTF_8);
+    }
+
+    @Test
+    void csvHasHeaderAndOneLinePerRow() throws Exception {
+        assertEquals(ORDER_HEADER
+                + "1,7,3,1,1,2026-03-01 10:00:00,2026-03-02 10:00:00,90.0,60.0,300.00,PAID\n"
+                + "2,8,4,2,2,2026-03-05 10:00:00,2026-03-06 10:00:00,80.0,,450.50,PAID\n", csv(null, null, null));
+    }
+
+    @Test
+    void emptyResultStillHasHeader() throws Exception {
+        assertEquals(ORDER_HEADER, csv(LocalDateTime.of(2027, 1, 1, 0, 0), null, null));
+        assertEquals(ORDER_HEADER, csv(null, null, 99L));
+    }
+}
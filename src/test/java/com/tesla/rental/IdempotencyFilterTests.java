@@ -0,0 +1,59 @@
+package com.tesla.rental;
+
+import com.tesla.rental.config.IdempotencyFilter;
+import com.tesla.rental.service.IdempotencyService;
+import jakarta.servlet.ReadListener;
+import jakarta.servlet.ServletInputStream;
+import org.junit.jupiter.api.Test;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class IdempotencyFilterTests {
+
+    @Test
+    void cachedBodyCanBeReadAsynchronously() throws Exception {
+        IdempotencyFilter filter = new IdempotencyFilter(
+                new IdempotencyService(null, true, "memory", 60, 100, 5000, 60000));
+        MockHttpServletRequest request = new MockHttpServletRequest("POST", "/api/orders");
+        request.addHeader(IdempotencyFilter.HEADER, "k");
+        request.setContent("{\"vehicleId\":1}".getBytes(StandardCharsets.UTF_8));
+
+        ByteArrayOutputStream read = new ByteArrayOutputStream();
+        List<String> callbacks = new ArrayList<>();
+        filter.doFilter(request, new MockHttpServletResponse(), (req, res) -> {
+            ServletInputStream in = req.getInputStream();
+            in.setReadListener(new ReadListener() {
+                @Override
+                public void onDataAvailable() throws IOException {
+                    callbacks.add("available");
+                    while (in.isReady() && !in.isFinished()) {
+                        read.write(in.read());
+                    }
+                }
+
+                @Override
+                public void onAllDataRead() {
+                    callbacks.add("done");
+                }
+
+                @Override
+                public void onError(Throwable t) {
+                    callbacks.add("error");
+                }
+            });
+            assertTrue(in.isFinished());
+        });
+
+        assertEquals(List.of("available", "done"), callbacks);
+        assertEquals("{\"vehicleId\":1}", read.toString(StandardCharsets.UTF_8));
+    }
+}
@@ -0,0 +1,63 @@
+package com.tesla.rental;
+
+import com.tesla.rental.service.IdempotencyService;
+import com.tesla.rental.service.IdempotencyService.Outcome;
+import com.tesla.rental.service.IdempotencyService.Result;
+import com.tesla.rental.service.IdempotencyService.StoredResponse;
+import org.junit.jupiter.api.Test;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class IdempotencyServiceTests {
+
+    private static IdempotencyService memoryStore(long waitTimeoutMillis) {
+        return new IdempotencyService(null, true, "memory", 60, 100, waitTimeoutMillis, 60000);
+    }
+
+    @Test
+    void concurrentDuplicatesWaitForFirstAndReplayItsResponse() throws Exception {
+        IdempotencyService service = memoryStore(5000);
+        assertEquals(Outcome.EXECUTE, service.begin("k", "h").outcome());
+
+        ExecutorService pool = Executors.newFixedThreadPool(4);
+        List<Future<Result>> duplicates = new ArrayList<>();
+        for (int i = 0; i < 4; i++) {
+            duplicates.add(pool.submit(() -> service.begin("k", "h")));
+        }
+        Thread.sleep(100);
+        byte[] body = "{\"orderId\":1}".getBytes(StandardCharsets.UTF_8);
+        service.complete("k", new StoredResponse(200, "application/json", body));
+
+        for (Future<Result> duplicate : duplicates) {
+            Result result = duplicate.get(5, TimeUnit.SECONDS);
+            assertEquals(Outcome.REPLAY, result.outcome());
+            assertArrayEquals(body, result.response().body());
+        }
+        pool.shutdown();
+    }
+
+    @Test
+    void differentRequestWithSameKeyIsRejected() {
+        IdempotencyService service = memoryStore(5000);
+        service.begin("k", "h1");
+        assertEquals(Outcome.MISMATCH, service.begin("k", "h2").outcome());
+    }
+
+    @Test
+    void abandonedKeyCanBeRetriedAndSlowFirstRequestTimesOut() {
+        IdempotencyService service = memoryStore(50);
+        service.begin("k", "h");
+        assertEquals(Outcome.IN_PROGRESS, service.begin("k", "h").outcome());
+        service.abandon("k");
+        assertEquals(Outcome.EXECUTE, service.begin("k", "h").outcome());
+    }
+}
@@ -0,0 +1,174 @@
+package com.tesla.rental;
+
+import com.tesla.rental.entity.Maintenance;
+import com.tesla.rental.entity.RentalOrder;
+import com.tesla.rental.entity.Vehicle;
+import com.tesla.rental.entity.enums.MaintenanceType;
+import com.tesla.rental.entity.enums.VehicleStatus;
+import com.tesla.rental.event.EntityChangeEvent;
+import com.tesla.rental.payload.MaintenanceDue;
+import com.tesla.rental.service.MaintenanceScheduleService;
+import com.tesla.rental.service.RollupService;
+import com.tesla.rental.service.SchemaMigrationService;
+import com.tesla.rental.shard.ShardRouter;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DataSourceTransactionManager;
+import org.springframework.jdbc.datasource.DriverManagerDataSource;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.Mockito.mock;
+
+class MaintenanceScheduleServiceTests {
+
+    private JdbcTemplate jdbc;
+    private MaintenanceScheduleService service;
+    private LocalDateTime now;
+
+    @BeforeEach
+    void setUp() {
+        DriverManagerDataSource dataSource = new DriverManagerDataSource(
+                "jdbc:h2:mem:maintenance;DB_CLOSE_DELAY=-1;MODE=MySQL", "sa", "");
+        jdbc = new JdbcTemplate(dataSource);
+        jdbc.execute("DROP ALL OBJECTS");
+        jdbc.execute("CREATE TABLE vehicle (vehicle_id BIGINT PRIMARY KEY, plate_no VARCHAR(20), store_id BIGINT,"
+                + " model_id BIGINT, status VARCHAR(20), current_soc DOUBLE, current_mileage DOUBLE)");
+        jdbc.execute("CREATE TABLE maintenance (maint_id BIGINT AUTO_INCREMENT PRIMARY KEY, type VARCHAR(20),"
+                + " maint_date TIMESTAMP, description VARCHAR(200), vehicle_id BIGINT)");
+        jdbc.execute("CREATE TABLE rental_order (order_id BIGINT AUTO_INCREMENT PRIMARY KEY, vehicle_id BIGINT,"
+                + " pickup_mileage DOUBLE, return_mileage DOUBLE, rent_start TIMESTAMP, actual_pickup_time TIMESTAMP,"
+                + " actual_return_time TIMESTAMP)");
+
+        now = LocalDateTime.now();
+        // 车型 1：车辆 1 本车历史 100 km/天，车辆 6 本车历史 300 km/天，车型平均 4000 km / 20 天 = 200 km/天
+        vehicle(1, 1, VehicleStatus.IN_STOCK, 9000.0);
+        vehicle(2, 1, VehicleStatus.IN_STOCK, 9500.0);
+        vehicle(3, 2, VehicleStatus.IN_STOCK, 9920.0);
+        vehicle(4, 1, VehicleStatus.IN_STOCK, 0.0);
+        vehicle(5, 1, VehicleStatus.MAINTENANCE, 9999.0);
+        vehicle(6, 1, VehicleStatus.IN_STOCK, 3000.0);
+        order(1, 0.0, 1000.0, now.minusDays(30), now.minusDays(20));
+        order(6, 0.0, 3000.0, now.minusDays(20), now.minusDays(10));
+        // 不完整的订单不计入
+        order(2, 0.0, null, now.minusDays(5), now.minusDays(4));
+        // 车辆 4 上次保养在 178 天前，按 180 天周期 2 天后到期，早于里程到期
+        jdbc.update("INSERT INTO maintenance (type, maint_date, vehicle_id) VALUES (?, ?, 4)",
+                MaintenanceType.ROUTINE.getLabel(), now.minusDays(178));
+
+        ShardRouter router = new ShardRouter(dataSource, new DataSourceTransactionManager(dataSource),
+                mock(SchemaMigrationService.class), "jdbc:h2:mem:maintenance", "", "sa", "", 1, "");
+        service = new MaintenanceScheduleService(jdbc, event -> { }, mock(RollupService.class), router, 10000, 180, 80);
+        service.onReady();
+    }
+
+    private void vehicle(long id, long modelId, VehicleStatus status, Double mileage) {
+        jdbc.update("INSERT INTO vehicle VALUES (?, ?, 1, ?, ?, 80.0, ?)", id, "T" + id, modelId, status.getLabel(), mileage);
+    }
+
+    private void order(long vehicleId, Double pickupMileage, Double returnMileage, LocalDateTime start, LocalDateTime end) {
+        jdbc.update("INSERT INTO rental_order (vehicle_id, pickup_mileage, return_mileage, rent_start, actual_return_time)"
+                + " VALUES (?, ?, ?, ?, ?)", vehicleId, pickupMileage, returnMileage, start, end);
+    }
+
+    private void changeVehicle(long id, long modelId, VehicleStatus status, Double mileage, EntityChangeEvent.Action action) {
+        Vehicle vehicle = new Vehicle();
+        vehicle.setVehicleId(id);
+        vehicle.setPlateNo("T" + id);
+        vehicle.setStoreId(1L);
+        vehicle.setModelId(modelId);
+        vehicle.setStatus(status);
+        vehicle.setCurrentMileage(mileage);
+        service.onEntityChange(new EntityChangeEvent(Vehicle.class, id, action, vehicle, Map.of()));
+    }
+
+    private List<Long> queue() {
+        return service.due(100, null).stream().map(MaintenanceDue::getVehicleId).toList();
+    }
+
+    // 到期时间与预期相差不超过一分钟
+    private static void assertDueIn(double days, MaintenanceDue due) {
+        LocalDateTime expected = LocalDateTime.now().plusMinutes((long) (days * 1440));
+        assertTrue(Math.abs(Duration.between(expected, due.getDueDate()).toMinutes()) <= 1,
+                () -> "due " + due.getDueDate() + ", expected about " + expected);
+    }
+
+    @Test
+    void dueDateUsesOwnHistoryThenModelAverageThenDefault() {
+        MaintenanceDue own = service.forVehicle(1L);
+        assertEquals("VEHICLE", own.getRateSource());
+        assertEquals(100.0, own.getKmPerDay());
+        assertEquals(10000.0, own.getNextMaintKm());
+        assertEquals(MaintenanceDue.Reason.MILEAGE, own.getReason());
+        assertDueIn(10, own);
+
+        MaintenanceDue model = service.forVehicle(2L);
+        assertEquals("MODEL", model.getRateSource());
+        assertEquals(200.0, model.getKmPerDay());
+        assertDueIn(2.5, model);
+
+        MaintenanceDue fallback = service.forVehicle(3L);
+        assertEquals("DEFAULT", fallback.getRateSource());
+        assertEquals(80.0, fallback.getKmPerDay());
+        assertDueIn(1, fallback);
+
+        // 里程 0 时下次保养在 10000 km（50 天后），但距上次保养的天数先到
+        MaintenanceDue time = service.forVehicle(4L);
+        assertEquals(10000.0, time.getNextMaintKm());
+        assertEquals(MaintenanceDue.Reason.TIME, time.getReason());
+        assertEquals(1, time.getLastMaintDates().size());
+        assertDueIn(2, time);
+
+        // 维保中的车辆不排程
+        assertNull(service.forVehicle(5L));
+        assertEquals(List.of(3L, 4L, 2L, 1L, 6L), queue());
+        assertEquals(List.of(3L, 4L), service.due(100, 2).stream().map(MaintenanceDue::getVehicleId).toList());
+        assertEquals(List.of(3L), service.due(1, null).stream().map(MaintenanceDue::getVehicleId).toList());
+    }
+
+    @Test
+    void queueOrderFollowsIncrementalUpdates() {
+        // 里程上涨：车辆 6 剩 10 km，排到最前
+        changeVehicle(6, 1, VehicleStatus.IN_STOCK, 9990.0, EntityChangeEvent.Action.UPDATE);
+        assertEquals(List.of(6L, 3L, 4L, 2L, 1L), queue());
+
+        // 车辆 2 有了本车订单历史（10 km/天），改用本车速率，500 km 需 50 天；车型平均变为 4100 / 30 天
+        RentalOrder order = new RentalOrder();
+        order.setVehicleId(2L);
+        order.setPickupMileage(9400.0);
+        order.setReturnMileage(9500.0);
+        order.setRentStart(now.minusDays(12));
+        order.setActualReturnTime(now.minusDays(2));
+        service.onEntityChange(new EntityChangeEvent(RentalOrder.class, 99L, EntityChangeEvent.Action.INSERT, order, null));
+        assertEquals("VEHICLE", service.forVehicle(2L).getRateSource());
+        assertDueIn(50, service.forVehicle(2L));
+        assertEquals(List.of(6L, 3L, 4L, 1L, 2L), queue());
+
+        // 车辆 4 刚做完保养：改按里程到期，10000 km / (4100 / 30) km/天
+        Maintenance maintenance = new Maintenance();
+        maintenance.setVehicleId(4L);
+        maintenance.setType(MaintenanceType.ROUTINE);
+        maintenance.setMaintDate(now);
+        service.onEntityChange(new EntityChangeEvent(Maintenance.class, 100L, EntityChangeEvent.Action.INSERT, maintenance, null));
+        MaintenanceDue four = service.forVehicle(4L);
+        assertEquals(MaintenanceDue.Reason.MILEAGE, four.getReason());
+        assertEquals("MODEL", four.getRateSource());
+        assertDueIn(10000 / (4100 / 30.0), four);
+        assertEquals(List.of(6L, 3L, 1L, 2L, 4L), queue());
+
+        // 进入维保、删除车辆后移出队列；维保结束后重新排入
+        changeVehicle(3, 2, VehicleStatus.MAINTENANCE, 9920.0, EntityChangeEvent.Action.UPDATE);
+        changeVehicle(1, 1, VehicleStatus.IN_STOCK, 9000.0, EntityChangeEvent.Action.DELETE);
+        changeVehicle(5, 1, VehicleStatus.IN_STOCK, 9999.0, EntityChangeEvent.Action.UPDATE);
+        assertEquals(List.of(5L, 6L, 2L, 4L), queue());
+        assertNull(service.forVehicle(1L));
+        assertNull(service.forVehicle(3L));
+    }
+}
@@ -0,0 +1,200 @@
+package com.tesla.rental;
+
+import com.tesla.rental.entity.RentalOrder;
+import com.tesla.rental.entity.enums.RentalOrderStatus;
+import com.tesla.rental.entity.enums.VehicleStatus;
+import com.tesla.rental.payload.BookingResult;
+import com.tesla.rental.service.OrderBookingService;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.http.MediaType;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.setup.MockMvcBuilders;
+import org.springframework.web.context.WebApplicationContext;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+// H2 上没有 sp_create_rental_order：auto 模式走 Java 实现，校验顺序、结果码与消息须与过程一致，结果码按 HTTP 状态返回
+class OrderBookingServiceTests {
+
+    private static final DateTimeFormatter FORMAT = DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm:ss");
+
+    private static ConfigurableApplicationContext context;
+    private static OrderBookingService booking;
+    private static JdbcTemplate jdbc;
+    private static MockMvc mvc;
+
+    @BeforeAll
+    static void start() {
+        context = new SpringApplicationBuilder(RentalApplication.class).run(
+                "--server.port=0",
+                "--spring.datasource.url=jdbc:h2:mem:booking;DB_CLOSE_DELAY=-1;MODE=MySQL",
+                "--spring.datasource.driver-class-name=org.h2.Driver",
+                "--spring.datasource.username=sa",
+                "--spring.datasource.password=",
+                "--spring.jpa.properties.hibernate.dialect=org.hibernate.dialect.H2Dialect");
+        booking = context.getBean(OrderBookingService.class);
+        jdbc = context.getBean(JdbcTemplate.class);
+        mvc = MockMvcBuilders.webAppContextSetup((WebApplicationContext) context).build();
+    }
+
+    @AfterAll
+    static void stop() {
+        if (context != null) {
+            context.close();
+        }
+    }
+
+    @BeforeEach
+    void fixtures() {
+        jdbc.update("DELETE FROM order_event");
+        jdbc.update("DELETE FROM rental_order");
+        jdbc.update("DELETE FROM vehicle WHERE vehicle_id BETWEEN 901 AND 999");
+        jdbc.update("DELETE FROM store WHERE store_id BETWEEN 901 AND 999");
+        jdbc.update("DELETE FROM car_model WHERE model_id = 901");
+        jdbc.update("DELETE FROM customer WHERE customer_id BETWEEN 901 AND 999");
+        jdbc.update("INSERT INTO car_model (model_id, name, seat_count, daily_rate) VALUES (901, 'booking', 5, 299.00)");
+        jdbc.update("INSERT INTO customer (customer_id, name, phone) VALUES (901, 'booking', '13900000901')");
+        jdbc.update("INSERT INTO store (store_id, name, address) VALUES (901, 'booking-1', 'test'), (902, 'booking-2', 'test')");
+        vehicle(901, VehicleStatus.IN_STOCK, 80.0);
+        vehicle(902, VehicleStatus.RENTED, 10.0);
+        vehicle(903, VehicleStatus.IN_STOCK, 15.0);
+        vehicle(904, VehicleStatus.IN_STOCK, 19.5);
+        vehicle(905, VehicleStatus.IN_STOCK, 20.0);
+        vehicle(906, VehicleStatus.IN_STOCK, null);
+    }
+
+    private static void vehicle(long id, VehicleStatus status, Double soc) {
+        jdbc.update("INSERT INTO vehicle (vehicle_id, plate_no, model_id, store_id, status, current_soc, current_mileage)"
+                + " VALUES (?, ?, 901, 901, ?, ?, 0)", id, "BOOK" + id, status.getLabel(), soc);
+    }
+
+    private static RentalOrder request(long customerId, long vehicleId, long pickupStoreId, long returnStoreId,
+                                       LocalDateTime rentStart, LocalDateTime rentEnd) {
+        RentalOrder request = new RentalOrder();
+        request.setCustomerId(customerId);
+        request.setVehicleId(vehicleId);
+        request.setPickupStoreId(pickupStoreId);
+        request.setReturnStoreId(returnStoreId);
+        request.setRentStart(rentStart);
+        request.setRentEnd(rentEnd);
+        request.setTotalAmount(new BigDecimal("300.00"));
+        return request;
+    }
+
+    private static RentalOrder request(long customerId, long vehicleId, long pickupStoreId, long returnStoreId) {
+        LocalDateTime start = LocalDateTime.now().plusDays(1);
+        return request(customerId, vehicleId, pickupStoreId, returnStoreId, start, start.plusDays(2));
+    }
+
+    private static BookingResult book(RentalOrder request) {
+        return booking.book(request, null);
+    }
+
+    private static long orders() {
+        return jdbc.queryForObject("SELECT COUNT(*) FROM rental_order", Long.class);
+    }
+
+    private static String body(long customerId, long vehicleId, long pickupStoreId, long returnStoreId, LocalDateTime start) {
+        return "{\"customerId\":" + customerId + ",\"vehicleId\":" + vehicleId + ",\"pickupStoreId\":" + pickupStoreId
+                + ",\"returnStoreId\":" + returnStoreId + ",\"rentStart\":\"" + start.format(FORMAT)
+                + "\",\"rentEnd\":\"" + start.plusDays(2).format(FORMAT) + "\",\"totalAmount\":300}";
+    }
+
+    @Test
+    void resultCodesMapToHttpStatus() throws Exception {
+        LocalDateTime start = LocalDateTime.now().plusDays(1).withNano(0);
+        mvc.perform(post("/api/orders/book").contentType(MediaType.APPLICATION_JSON).content(body(901, 901, 901, 902, start)))
+                .andExpect(status().isCreated())
+                .andExpect(jsonPath("$.resultCode").value(BookingResult.OK))
+                .andExpect(jsonPath("$.mode").value(OrderBookingService.MODE_JAVA))
+                .andExpect(jsonPath("$.order.orderId").isNumber());
+        mvc.perform(post("/api/orders/book").contentType(MediaType.APPLICATION_JSON).content(body(999, 901, 901, 901, start)))
+                .andExpect(status().isNotFound())
+                .andExpect(jsonPath("$.resultCode").value(BookingResult.CUSTOMER_NOT_FOUND));
+        mvc.perform(post("/api/orders/book").contentType(MediaType.APPLICATION_JSON).content(body(901, 999, 901, 901, start)))
+                .andExpect(status().isNotFound())
+                .andExpect(jsonPath("$.resultCode").value(BookingResult.VEHICLE_NOT_FOUND));
+        mvc.perform(post("/api/orders/book").contentType(MediaType.APPLICATION_JSON).content(body(901, 902, 901, 901, start)))
+                .andExpect(status().isConflict())
+                .andExpect(jsonPath("$.resultCode").value(BookingResult.VEHICLE_UNAVAILABLE));
+        mvc.perform(post("/api/orders/book").contentType(MediaType.APPLICATION_JSON).content(body(901, 903, 901, 901, start)))
+                .andExpect(status().isConflict())
+                .andExpect(jsonPath("$.resultCode").value(BookingResult.LOW_SOC));
+        mvc.perform(post("/api/orders/book").contentType(MediaType.APPLICATION_JSON).content(body(901, 905, 901, 999, start)))
+                .andExpect(status().isNotFound())
+                .andExpect(jsonPath("$.resultCode").value(BookingResult.STORE_NOT_FOUND));
+        mvc.perform(post("/api/orders/book").contentType(MediaType.APPLICATION_JSON)
+                        .content(body(901, 905, 901, 901, start.minusDays(2))))
+                .andExpect(status().isBadRequest())
+                .andExpect(jsonPath("$.resultCode").value(BookingResult.INVALID_PERIOD));
+
+        // 未知模式、H2 上强制走过程：400
+        mvc.perform(post("/api/orders/book").param("mode", "other").contentType(MediaType.APPLICATION_JSON)
+                        .content(body(901, 905, 901, 901, start)))
+                .andExpect(status().isBadRequest());
+        mvc.perform(post("/api/orders/book").param("mode", OrderBookingService.MODE_PROCEDURE)
+                        .contentType(MediaType.APPLICATION_JSON).content(body(901, 905, 901, 901, start)))
+                .andExpect(status().isBadRequest());
+        assertEquals(1, orders());
+    }
+
+    @Test
+    void javaFallbackChecksInProcedureOrder() {
+        assertFalse(booking.isProcedureAvailable());
+        LocalDateTime past = LocalDateTime.now().minusDays(1);
+
+        // 客户先于车辆、门店与租期校验
+        assertEquals(BookingResult.CUSTOMER_NOT_FOUND, book(request(999, 999, 999, 999, past, past)).getResultCode());
+        assertEquals(BookingResult.VEHICLE_NOT_FOUND, book(request(901, 999, 999, 999, past, past)).getResultCode());
+        // 车辆状态先于电量：在租且电量不足时报不可用，消息带当前状态
+        BookingResult rented = book(request(901, 902, 999, 999, past, past));
+        assertEquals(BookingResult.VEHICLE_UNAVAILABLE, rented.getResultCode());
+        assertEquals("车辆不可用，当前状态：" + VehicleStatus.RENTED.getLabel(), rented.getResultMsg());
+        // 电量先于门店；消息中的电量与 MySQL CONCAT 一致（不带多余的小数位）
+        BookingResult lowSoc = book(request(901, 903, 999, 999, past, past));
+        assertEquals(BookingResult.LOW_SOC, lowSoc.getResultCode());
+        assertEquals("车辆电量不足：15%，无法出租", lowSoc.getResultMsg());
+        assertEquals("车辆电量不足：19.5%，无法出租", book(request(901, 904, 901, 901)).getResultMsg());
+        // 门店先于租期；取车、还车门店任一不存在都算
+        assertEquals(BookingResult.STORE_NOT_FOUND, book(request(901, 905, 999, 901, past, past)).getResultCode());
+        assertEquals(BookingResult.STORE_NOT_FOUND, book(request(901, 905, 901, 999, past, past)).getResultCode());
+        // 开始时间已过、结束不晚于开始、缺少时间
+        assertEquals(BookingResult.INVALID_PERIOD, book(request(901, 905, 901, 901, past, past.plusDays(3))).getResultCode());
+        LocalDateTime start = LocalDateTime.now().plusDays(1);
+        assertEquals(BookingResult.INVALID_PERIOD, book(request(901, 905, 901, 901, start, start)).getResultCode());
+        assertEquals(BookingResult.INVALID_PERIOD, book(request(901, 905, 901, 901, start, null)).getResultCode());
+        assertEquals(0, orders());
+
+        // 电量正好 20% 可租；电量为空时过程中的比较不成立，同样放行
+        BookingResult atThreshold = book(request(901, 905, 901, 901));
+        assertEquals(BookingResult.OK, atThreshold.getResultCode());
+        assertEquals("订单创建成功", atThreshold.getResultMsg());
+        assertEquals(OrderBookingService.MODE_JAVA, atThreshold.getMode());
+        assertEquals(BookingResult.OK, book(request(901, 906, 901, 902)).getResultCode());
+
+        // 与过程一样：订单为已支付，取车电量取自车辆，车辆保持在库
+        RentalOrder order = atThreshold.getOrder();
+        assertEquals(RentalOrderStatus.PAID, order.getStatus());
+        assertEquals(RentalOrderStatus.PAID.getLabel(), jdbc.queryForObject(
+                "SELECT status FROM rental_order WHERE order_id = ?", String.class, order.getOrderId()));
+        assertEquals(20.0, jdbc.queryForObject(
+                "SELECT pickup_soc FROM rental_order WHERE order_id = ?", Double.class, order.getOrderId()));
+        assertEquals(VehicleStatus.IN_STOCK.getLabel(), jdbc.queryForObject(
+                "SELECT status FROM vehicle WHERE vehicle_id = 905", String.class));
+        assertEquals(2, orders());
+    }
+}
@@ -0,0 +1,277 @@
+package com.tesla.rental;
+
+import com.tesla.rental.entity.CarModel;
+import com.tesla.rental.entity.RentalOrder;
+import com.tesla.rental.entity.Vehicle;
+import com.tesla.rental.entity.enums.RentalOrderStatus;
+import com.tesla.rental.entity.enums.VehicleStatus;
+import com.tesla.rental.event.OrderEvent;
+import com.tesla.rental.payload.OrderProjectionResult;
+import com.tesla.rental.repository.CarModelRepository;
+import com.tesla.rental.repository.VehicleRepository;
+import com.tesla.rental.service.OrderLifecycleService;
+import com.tesla.rental.service.OrderProjectionService;
+import com.tesla.rental.shard.ShardedOrderStore;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class OrderProjectionTests {
+
+    private static final AtomicInteger PLATES = new AtomicInteger();
+
+    private static ConfigurableApplicationContext context;
+
+    @BeforeAll
+    static void start() {
+        // 每批 2 行：重建与快照的分批读取（含被 LIMIT 截断的订单）都会用到
+        context = new SpringApplicationBuilder(RentalApplication.class).run(
+                "--server.port=0",
+                "--spring.datasource.url=jdbc:h2:mem:projection;DB_CLOSE_DELAY=-1;MODE=MySQL",
+                "--spring.datasource.driver-class-name=org.h2.Driver",
+                "--spring.datasource.username=sa",
+                "--spring.datasource.password=",
+                "--spring.jpa.properties.hibernate.dialect=org.hibernate.dialect.H2Dialect",
+                "--rental.order-events.batch-size=2",
+                "--rental.order-events.snapshot-enabled=false",
+                "--rental.order-events.snapshot-lag-seconds=0");
+    }
+
+    @AfterAll
+    static void stop() {
+        if (context != null) {
+            context.close();
+        }
+    }
+
+    @Test
+    void sparseEventsFoldIntoCurrentState() {
+        RentalOrder created = new RentalOrder();
+        created.setRentStart(LocalDateTime.of(2026, 11, 1, 10, 0));
+        created.setTotalAmount(new BigDecimal("600.00"));
+        created.setStatus(RentalOrderStatus.PAID);
+        created.setVehicleId(7L);
+        RentalOrder state = OrderProjectionService.apply(null, event(OrderEvent.Type.CREATED, created));
+
+        RentalOrder pickup = new RentalOrder();
+        pickup.setPickupMileage(1000.0);
+        pickup.setStatus(RentalOrderStatus.RENTED);
+        RentalOrder afterPickup = OrderProjectionService.apply(state, event(OrderEvent.Type.PICKED_UP, pickup));
+
+        // 事件只带变化的字段，其余字段保持不变；原状态不被修改
+        assertEquals(42L, afterPickup.getOrderId());
+        assertEquals(RentalOrderStatus.RENTED, afterPickup.getStatus());
+        assertEquals(1000.0, afterPickup.getPickupMileage());
+        assertEquals(new BigDecimal("600.00"), afterPickup.getTotalAmount());
+        assertEquals(7L, afterPickup.getVehicleId());
+        assertEquals(RentalOrderStatus.PAID, state.getStatus());
+        assertNull(state.getPickupMileage());
+
+        assertNull(OrderProjectionService.apply(afterPickup, event(OrderEvent.Type.DELETED, null)));
+    }
+
+    @Test
+    void lifecycleCommandsMoveOrderAndVehicle() {
+        OrderLifecycleService lifecycle = context.getBean(OrderLifecycleService.class);
+        VehicleRepository vehicles = context.getBean(VehicleRepository.class);
+        Vehicle vehicle = vehicle();
+        RentalOrder order = lifecycle.create(order(vehicle), null);
+        Long id = order.getOrderId();
+
+        RentalOrder amend = new RentalOrder();
+        amend.setRentEnd(LocalDateTime.of(2026, 1, 4, 10, 0));
+        amend.setTotalAmount(new BigDecimal("300.00"));
+        amend.setStatus(RentalOrderStatus.PAID);
+        order = lifecycle.amend(id, amend);
+        assertEquals(RentalOrderStatus.PAID, order.getStatus());
+        assertEquals(new BigDecimal("300.00"), order.getTotalAmount());
+        // 与当前相同的修改不产生事件
+        lifecycle.amend(id, amend);
+
+        // 未传取车里程/电量时取车辆当前值
+        order = lifecycle.pickup(id, new RentalOrder());
+        assertEquals(RentalOrderStatus.RENTED, order.getStatus());
+        assertEquals(1000.0, order.getPickupMileage());
+        assertEquals(80.0, order.getPickupSoc());
+        assertEquals(VehicleStatus.RENTED, vehicles.findById(vehicle.getVehicleId()).orElseThrow().getStatus());
+
+        RentalOrder apply = new RentalOrder();
+        apply.setReturnStoreId(2L);
+        order = lifecycle.applyReturn(id, apply);
+        assertEquals(RentalOrderStatus.PENDING_INSPECTION, order.getStatus());
+        assertEquals(VehicleStatus.RENTED, vehicles.findById(vehicle.getVehicleId()).orElseThrow().getStatus());
+
+        RentalOrder back = new RentalOrder();
+        back.setReturnMileage(1350.0);
+        back.setReturnSoc(40.0);
+        order = lifecycle.confirmReturn(id, back);
+        assertEquals(RentalOrderStatus.RETURNED, order.getStatus());
+        assertEquals(2L, order.getReturnStoreId());
+        Vehicle returned = vehicles.findById(vehicle.getVehicleId()).orElseThrow();
+        assertEquals(VehicleStatus.IN_STOCK, returned.getStatus());
+        assertEquals(1350.0, returned.getCurrentMileage());
+        assertEquals(40.0, returned.getCurrentSoc());
+        assertEquals(2L, returned.getStoreId());
+
+        assertEquals(List.of(OrderEvent.Type.CREATED, OrderEvent.Type.AMENDED, OrderEvent.Type.PICKED_UP,
+                OrderEvent.Type.RETURN_REQUESTED, OrderEvent.Type.RETURNED), types(lifecycle.history(id)));
+        assertEquals(order, context.getBean(ShardedOrderStore.class).findOrder(id));
+    }
+
+    @Test
+    void illegalStatusChangesAreRejected() {
+        OrderLifecycleService lifecycle = context.getBean(OrderLifecycleService.class);
+        Long id = lifecycle.create(order(vehicle()), null).getOrderId();
+
+        RentalOrder amend = new RentalOrder();
+        amend.setStatus(RentalOrderStatus.SETTLED);
+        assertThrows(IllegalStateException.class, () -> lifecycle.amend(id, amend));
+        assertThrows(IllegalStateException.class, () -> lifecycle.applyReturn(id, new RentalOrder()));
+        assertThrows(IllegalStateException.class, () -> lifecycle.confirmReturn(id, new RentalOrder()));
+        lifecycle.pickup(id, new RentalOrder());
+        assertThrows(IllegalStateException.class, () -> lifecycle.pickup(id, new RentalOrder()));
+
+        // 被拒绝的命令不追加事件，也不改动订单
+        assertEquals(List.of(OrderEvent.Type.CREATED, OrderEvent.Type.PICKED_UP), types(lifecycle.history(id)));
+        assertEquals(RentalOrderStatus.RENTED, context.getBean(ShardedOrderStore.class).findOrder(id).getStatus());
+    }
+
+    @Test
+    void snapshotPlusTailReplaysToSameStateAsFullReplay() throws Exception {
+        OrderLifecycleService lifecycle = context.getBean(OrderLifecycleService.class);
+        OrderProjectionService projection = context.getBean(OrderProjectionService.class);
+        ShardedOrderStore store = context.getBean(ShardedOrderStore.class);
+        List<Long> ids = new ArrayList<>();
+        for (int i = 0; i < 5; i++) {
+            ids.add(lifecycle.create(order(vehicle()), null).getOrderId());
+        }
+        lifecycle.pickup(ids.get(0), new RentalOrder());
+        lifecycle.pickup(ids.get(1), new RentalOrder());
+        Thread.sleep(50);
+        projection.snapshot();
+
+        // 快照之后：还车、修改、删除、新订单
+        RentalOrder back = new RentalOrder();
+        back.setReturnMileage(1100.0);
+        lifecycle.confirmReturn(ids.get(0), back);
+        RentalOrder amend = new RentalOrder();
+        amend.setTotalAmount(new BigDecimal("999.00"));
+        lifecycle.amend(ids.get(2), amend);
+        lifecycle.delete(ids.get(3));
+        ids.add(lifecycle.create(order(vehicle()), null).getOrderId());
+        List<RentalOrder> expected = ids.stream().map(store::findOrder).toList();
+
+        corrupt(ids);
+        OrderProjectionResult fromSnapshot = projection.rebuild(OrderProjectionService.MODE_SNAPSHOT);
+        assertEquals(OrderProjectionService.MODE_SNAPSHOT, fromSnapshot.getMode());
+        assertEquals(expected, ids.stream().map(store::findOrder).toList());
+
+        corrupt(ids);
+        OrderProjectionResult fromEvents = projection.rebuild(OrderProjectionService.MODE_EVENTS);
+        assertEquals(OrderProjectionService.MODE_EVENTS, fromEvents.getMode());
+        assertEquals(expected, ids.stream().map(store::findOrder).toList());
+        assertEquals(fromEvents.getOrders(), fromSnapshot.getOrders());
+        assertEquals(fromEvents.getUpdated(), fromSnapshot.getUpdated());
+        assertEquals(fromEvents.getInserted(), fromSnapshot.getInserted());
+        // 快照之后只重放了少量事件
+        assertTrue(fromSnapshot.getEvents() < fromEvents.getEvents());
+    }
+
+    @Test
+    void rebuildRepairsCorruptedOrdersAndVehicles() {
+        OrderLifecycleService lifecycle = context.getBean(OrderLifecycleService.class);
+        OrderProjectionService projection = context.getBean(OrderProjectionService.class);
+        ShardedOrderStore store = context.getBean(ShardedOrderStore.class);
+        VehicleRepository vehicles = context.getBean(VehicleRepository.class);
+        JdbcTemplate jdbc = context.getBean(JdbcTemplate.class);
+        Vehicle onRent = vehicle();
+        // 没有订单的车辆
+        Vehicle idle = vehicle();
+        Long rented = lifecycle.create(order(onRent), null).getOrderId();
+        lifecycle.pickup(rented, new RentalOrder());
+        Long paid = lifecycle.create(order(vehicle()), null).getOrderId();
+        RentalOrder before = store.findOrder(paid);
+
+        jdbc.update("UPDATE rental_order SET status = ?, total_amount = 1 WHERE order_id = ?",
+                RentalOrderStatus.RETURNED.getLabel(), rented);
+        jdbc.update("DELETE FROM rental_order WHERE order_id = ?", paid);
+        jdbc.update("UPDATE vehicle SET status = ? WHERE vehicle_id = ?", VehicleStatus.IN_STOCK.getLabel(), onRent.getVehicleId());
+        jdbc.update("UPDATE vehicle SET status = ? WHERE vehicle_id = ?", VehicleStatus.RENTED.getLabel(), idle.getVehicleId());
+
+        OrderProjectionResult result = projection.rebuild(OrderProjectionService.MODE_EVENTS);
+        assertTrue(result.getUpdated() >= 1);
+        assertTrue(result.getInserted() >= 1);
+        assertTrue(result.getVehiclesRepaired() >= 2);
+        RentalOrder repaired = store.findOrder(rented);
+        assertEquals(RentalOrderStatus.RENTED, repaired.getStatus());
+        assertEquals(new BigDecimal("200.00"), repaired.getTotalAmount());
+        assertEquals(before, store.findOrder(paid));
+        assertEquals(VehicleStatus.RENTED, vehicles.findById(onRent.getVehicleId()).orElseThrow().getStatus());
+        assertEquals(VehicleStatus.IN_STOCK, vehicles.findById(idle.getVehicleId()).orElseThrow().getStatus());
+
+        // 再次重建没有可修正的内容
+        OrderProjectionResult again = projection.rebuild(OrderProjectionService.MODE_EVENTS);
+        assertEquals(0, again.getUpdated() + again.getInserted() + again.getDeleted() + again.getVehiclesRepaired());
+    }
+
+    // 直接改写 rental_order（绕过事件）：改金额与状态，删掉一行，并插回已删除的订单
+    private static void corrupt(List<Long> ids) {
+        JdbcTemplate jdbc = context.getBean(JdbcTemplate.class);
+        for (Long id : ids) {
+            jdbc.update("UPDATE rental_order SET total_amount = 1, status = ? WHERE order_id = ?",
+                    RentalOrderStatus.SETTLED.getLabel(), id);
+        }
+        jdbc.update("DELETE FROM rental_order WHERE order_id = ?", ids.get(ids.size() - 1));
+        jdbc.update("INSERT INTO rental_order (order_id, status, total_amount) VALUES (?, ?, 1)",
+                ids.get(3), RentalOrderStatus.PAID.getLabel());
+    }
+
+    private static Vehicle vehicle() {
+        CarModel model = new CarModel();
+        model.setName("Model 3");
+        model = context.getBean(CarModelRepository.class).save(model);
+        Vehicle vehicle = new Vehicle();
+        vehicle.setPlateNo("沪A" + PLATES.incrementAndGet());
+        vehicle.setModelId(model.getModelId());
+        vehicle.setStatus(VehicleStatus.IN_STOCK);
+        vehicle.setCurrentMileage(1000.0);
+        vehicle.setCurrentSoc(80.0);
+        vehicle.setStoreId(1L);
+        return context.getBean(VehicleRepository.class).save(vehicle);
+    }
+
+    private static RentalOrder order(Vehicle vehicle) {
+        RentalOrder order = new RentalOrder();
+        order.setRentStart(LocalDateTime.of(2026, 1, 1, 10, 0));
+        order.setRentEnd(LocalDateTime.of(2026, 1, 3, 10, 0));
+        order.setTotalAmount(new BigDecimal("200.00"));
+        order.setStatus(RentalOrderStatus.PAID);
+        order.setVehicleId(vehicle.getVehicleId());
+        order.setPickupStoreId(1L);
+        return order;
+    }
+
+    private static List<OrderEvent.Type> types(List<OrderEvent> events) {
+        return events.stream().map(OrderEvent::getType).toList();
+    }
+
+    private static OrderEvent event(OrderEvent.Type type, RentalOrder changes) {
+        OrderEvent event = OrderEvent.of(type, changes);
+        event.setOrderId(42L);
+        return event;
+    }
+}
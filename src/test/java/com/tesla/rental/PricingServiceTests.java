@@ -0,0 +1,119 @@
+package com.tesla.rental;
+
+import com.tesla.rental.entity.CarModel;
+import com.tesla.rental.event.EntityChangeEvent;
+import com.tesla.rental.event.RemoteChangeEvent;
+import com.tesla.rental.payload.QuoteRequest;
+import com.tesla.rental.payload.QuoteResponse;
+import com.tesla.rental.repository.CarModelRepository;
+import com.tesla.rental.service.PricingService;
+import org.junit.jupiter.api.Test;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DriverManagerDataSource;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class PricingServiceTests {
+
+    private static final LocalDateTime START = LocalDateTime.of(2026, 1, 1, 10, 0);
+
+    private static PricingService pricing(JdbcTemplate jdbc) {
+        CarModel model = new CarModel();
+        model.setModelId(1L);
+        model.setDailyRate(new BigDecimal("100"));
+        CarModelRepository models = mock(CarModelRepository.class);
+        when(models.findAll()).thenReturn(List.of(model));
+        PricingService service = new PricingService(models, jdbc, new BigDecimal("300"), new BigDecimal("200"), "3:5");
+        service.rebuild();
+        return service;
+    }
+
+    private static QuoteRequest request(Long vehicleId, Long modelId, LocalDateTime end) {
+        QuoteRequest request = new QuoteRequest();
+        request.setVehicleId(vehicleId);
+        request.setModelId(modelId);
+        request.setRentStart(START);
+        request.setRentEnd(end);
+        return request;
+    }
+
+    @Test
+    void partialDayIsBilledAsFullDay() {
+        PricingService service = pricing(null);
+        assertEquals(1, service.quote(request(null, 1L, START.plusMinutes(30))).getDays());
+        assertEquals(1, service.quote(request(null, 1L, START.plusDays(1))).getDays());
+        // 多出 1 分钟（不足 1 小时）也计 1 天
+        assertEquals(2, service.quote(request(null, 1L, START.plusDays(1).plusMinutes(1))).getDays());
+        QuoteResponse threeDays = service.quote(request(null, 1L, START.plusDays(2).plusSeconds(1)));
+        assertEquals(3, threeDays.getDays());
+        assertEquals(new BigDecimal("285.00"), threeDays.getTotalAmount());
+    }
+
+    @Test
+    void largeBatchResolvesEveryVehicleModel() {
+        JdbcTemplate jdbc = new JdbcTemplate(new DriverManagerDataSource(
+                "jdbc:h2:mem:pricing;DB_CLOSE_DELAY=-1;MODE=MySQL", "sa", ""));
+        jdbc.execute("CREATE TABLE vehicle (vehicle_id BIGINT PRIMARY KEY, model_id BIGINT)");
+        jdbc.update("INSERT INTO vehicle (vehicle_id, model_id) SELECT X, 1 FROM SYSTEM_RANGE(1, 1200)");
+        PricingService service = pricing(jdbc);
+
+        // 超过一批（500 个）的车辆分批查询车型，结果与顺序不变
+        List<QuoteRequest> requests = new ArrayList<>();
+        for (long id = 1; id <= 1201; id++) {
+            requests.add(request(id, null, START.plusDays(1)));
+        }
+        List<QuoteResponse> quotes = service.quote(requests);
+        assertEquals(1201, quotes.size());
+        for (int i = 0; i < 1200; i++) {
+            assertNull(quotes.get(i).getError());
+            assertEquals(i + 1L, quotes.get(i).getVehicleId());
+            assertEquals(10000L, quotes.get(i).getTotalCents());
+        }
+        assertEquals("Unknown vehicle or model", quotes.get(1200).getError());
+    }
+
+    @Test
+    void modelChangeDuringRebuildTriggersAnotherRebuild() {
+        CarModel model = new CarModel();
+        model.setModelId(1L);
+        model.setDailyRate(new BigDecimal("100"));
+        CarModel repriced = new CarModel();
+        repriced.setModelId(1L);
+        repriced.setDailyRate(new BigDecimal("120"));
+        CarModelRepository models = mock(CarModelRepository.class);
+        PricingService service = new PricingService(models, null, new BigDecimal("300"), new BigDecimal("200"), "3:5");
+        // 第一次重建读取车型时，另一个实例提交了改价（读到的仍是旧值）
+        when(models.findAll()).thenAnswer(invocation -> {
+            service.onRemoteChange(new RemoteChangeEvent(CarModel.class, 1L, EntityChangeEvent.Action.UPDATE));
+            return List.of(model);
+        }).thenReturn(List.of(repriced));
+        service.rebuild();
+
+        assertEquals(12000L, service.quote(request(null, 1L, START.plusDays(1))).getTotalCents());
+        verify(models, times(2)).findAll();
+    }
+
+    @Test
+    void failedRebuildIsRetried() {
+        CarModel model = new CarModel();
+        model.setModelId(1L);
+        model.setDailyRate(new BigDecimal("100"));
+        CarModelRepository models = mock(CarModelRepository.class);
+        when(models.findAll()).thenThrow(new IllegalStateException("database unavailable")).thenReturn(List.of(model));
+        PricingService service = new PricingService(models, null, new BigDecimal("300"), new BigDecimal("200"), "3:5");
+
+        assertThrows(IllegalStateException.class, service::rebuild);
+        assertEquals(10000L, service.quote(request(null, 1L, START.plusDays(1))).getTotalCents());
+    }
+}
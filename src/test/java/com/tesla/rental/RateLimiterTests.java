@@ -0,0 +1,92 @@
+package com.tesla.rental;
+
+import com.tesla.rental.security.RateLimiter;
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class RateLimiterTests {
+
+    @Test
+    void burstUpToCapacityThenRejectsWithRetryAfter() {
+        RateLimiter limiter = new RateLimiter(true, "/api/ai:3:1,/api:100:100", 100);
+        for (int i = 0; i < 3; i++) {
+            assertEquals(RateLimiter.ALLOWED, limiter.tryAcquire("/api/ai/chat", null, "10.0.0.1"));
+        }
+        long wait = limiter.tryAcquire("/api/ai/chat", null, "10.0.0.1");
+        assertTrue(wait > 0 && wait <= TimeUnit.SECONDS.toNanos(1), "wait " + wait);
+        // 其他客户端、其他分组、已登录用户各自计数
+        assertEquals(RateLimiter.ALLOWED, limiter.tryAcquire("/api/ai/chat", null, "10.0.0.2"));
+        assertEquals(RateLimiter.ALLOWED, limiter.tryAcquire("/api/ai/chat", "alice", "10.0.0.1"));
+        assertEquals(RateLimiter.ALLOWED, limiter.tryAcquire("/api/aibrary", null, "10.0.0.1"));
+        // 未匹配任何分组的路径不限流
+        assertEquals(RateLimiter.ALLOWED, limiter.tryAcquire("/index.html", null, "10.0.0.1"));
+    }
+
+    @Test
+    void concurrentRequestsNeverExceedCapacity() throws InterruptedException {
+        RateLimiter limiter = new RateLimiter(true, "/api:100:0.001", 100);
+        AtomicInteger allowed = new AtomicInteger();
+        ExecutorService pool = Executors.newFixedThreadPool(8);
+        for (int i = 0; i < 1000; i++) {
+            pool.execute(() -> {
+                if (limiter.tryAcquire("/api/orders", null, "10.0.0.1") == RateLimiter.ALLOWED) {
+                    allowed.incrementAndGet();
+                }
+            });
+        }
+        pool.shutdown();
+        assertTrue(pool.awaitTermination(10, TimeUnit.SECONDS));
+        assertEquals(100, allowed.get());
+    }
+
+    @Test
+    void clientsBeyondLimitEvictTheLeastRecentlyActiveBucket() {
+        // 容量 1、几乎不补充：桶不会自行补满，达到上限时只能淘汰
+        RateLimiter limiter = new RateLimiter(true, "/api:1:0.001", 2);
+        assertEquals(RateLimiter.ALLOWED, limiter.tryAcquire("/api/orders", null, "10.0.0.1"));
+        assertEquals(RateLimiter.ALLOWED, limiter.tryAcquire("/api/orders", null, "10.0.0.2"));
+
+        // 新客户端淘汰最早活跃的 10.0.0.1，使用自己的桶：不与其他客户端共用
+        assertEquals(RateLimiter.ALLOWED, limiter.tryAcquire("/api/orders", null, "10.0.0.3"));
+        assertTrue(limiter.tryAcquire("/api/orders", null, "10.0.0.3") > 0);
+        assertEquals(RateLimiter.ALLOWED, limiter.tryAcquire("/api/orders", null, "10.0.0.4"));
+        assertTrue(limiter.tryAcquire("/api/orders", null, "10.0.0.4") > 0);
+        assertEquals(2, limiter.clientCount());
+        // 仍被跟踪的客户端保持限流状态
+        assertTrue(limiter.tryAcquire("/api/orders", null, "10.0.0.3") > 0);
+    }
+
+    @Test
+    void refilledBucketsAreReclaimedFirstAndSwept() throws InterruptedException {
+        RateLimiter limiter = new RateLimiter(true, "/api:2:1000", 2);
+        limiter.tryAcquire("/api/orders", null, "10.0.0.1");
+        limiter.tryAcquire("/api/orders", null, "10.0.0.2");
+        Thread.sleep(10);
+        // 已补满的桶与新桶等价，达到上限时先被回收
+        assertEquals(RateLimiter.ALLOWED, limiter.tryAcquire("/api/orders", null, "10.0.0.3"));
+        assertEquals(1, limiter.clientCount());
+
+        Thread.sleep(10);
+        limiter.sweep();
+        assertEquals(0, limiter.clientCount());
+    }
+
+    @Test
+    void invalidConfigurationFailsAtStartup() {
+        for (String routes : new String[] { "/api:10:0", "/api:10:-1", "/api:0:5", "/api:10", "/api:ten:5", "/api:10:NaN",
+                ":10:5" }) {
+            assertThrows(IllegalArgumentException.class, () -> new RateLimiter(true, routes, 100), routes);
+        }
+        assertThrows(IllegalArgumentException.class, () -> new RateLimiter(true, "/api:10:5", 0));
+        assertEquals(RateLimiter.ALLOWED, new RateLimiter(true, "/api/ai:10:0.2, /api:200:50,", 100)
+                .tryAcquire("/api/ai/chat", null, "10.0.0.1"));
+    }
+}
@@ -0,0 +1,107 @@
+package com.tesla.rental;
+
+import com.tesla.rental.entity.enums.VehicleStatus;
+import com.tesla.rental.event.EntityChangeEvent;
+import com.tesla.rental.payload.RebalancePlan;
+import com.tesla.rental.payload.RebalanceRequest;
+import com.tesla.rental.service.DemandForecastService;
+import com.tesla.rental.service.RebalanceService;
+import com.tesla.rental.service.RollupService;
+import org.junit.jupiter.api.Test;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DriverManagerDataSource;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+class RebalanceServiceTests {
+
+    @Test
+    void applySkipsVehicleRentedAfterPlanning() {
+        JdbcTemplate jdbc = new JdbcTemplate(new DriverManagerDataSource(
+                "jdbc:h2:mem:rebalance;DB_CLOSE_DELAY=-1;MODE=MySQL", "sa", ""));
+        jdbc.execute("CREATE TABLE vehicle (vehicle_id BIGINT PRIMARY KEY, plate_no VARCHAR(20), store_id BIGINT,"
+                + " model_id BIGINT, current_soc DOUBLE, current_mileage DOUBLE, status VARCHAR(20))");
+        jdbc.execute("CREATE TABLE audit_log (id BIGINT AUTO_INCREMENT PRIMARY KEY, action VARCHAR(200), action_time TIMESTAMP)");
+        for (long id = 1; id <= 3; id++) {
+            jdbc.update("INSERT INTO vehicle VALUES (?, ?, 1, 1, 80, 1000, ?)", id, "沪A" + id, VehicleStatus.IN_STOCK.getLabel());
+        }
+        Set<Long> rented = Set.of(2L, 3L);
+
+        // 读取库存之后、落库之前（生成预测目标时）车辆 2、3 被租出
+        DemandForecastService forecast = mock(DemandForecastService.class);
+        when(forecast.expectedPickups(any(), any())).thenAnswer(invocation -> {
+            for (Long id : rented) {
+                jdbc.update("UPDATE vehicle SET status = ? WHERE vehicle_id = ?", VehicleStatus.RENTED.getLabel(), id);
+            }
+            DemandForecastService.StoreModelForecast demand = new DemandForecastService.StoreModelForecast();
+            demand.setStoreId(2L);
+            demand.setModelId(1L);
+            demand.setExpected(1.5);
+            return List.of(demand);
+        });
+        RollupService rollups = mock(RollupService.class);
+        doAnswer(invocation -> {
+            invocation.<Runnable>getArgument(0).run();
+            return null;
+        }).when(rollups).deferred(any());
+        List<Object> events = new ArrayList<>();
+        RebalanceService service = new RebalanceService(jdbc, events::add, forecast, rollups);
+
+        RebalanceRequest request = new RebalanceRequest();
+        request.setHorizonHours(4);
+        RebalancePlan plan = service.apply(request);
+
+        // 计划从门店 1 调 2 辆到门店 2，其中已被租出的车辆不移动
+        assertEquals(1, plan.getTransfers().size());
+        List<Long> planned = plan.getTransfers().get(0).getVehicleIds();
+        assertEquals(2, planned.size());
+        long expected = planned.stream().filter(id -> !rented.contains(id)).count();
+        assertTrue(expected < 2);
+        assertEquals(expected, (long) plan.getAppliedVehicles());
+        assertEquals(expected, events.size());
+        for (Long id : planned) {
+            Long store = jdbc.queryForObject("SELECT store_id FROM vehicle WHERE vehicle_id = ?", Long.class, id);
+            assertEquals(rented.contains(id) ? 1L : 2L, store);
+        }
+        for (Object event : events) {
+            assertTrue(!rented.contains(((EntityChangeEvent) event).getId()));
+        }
+    }
+
+    @Test
+    void costWithoutStoreIsRejected() {
+        JdbcTemplate jdbc = new JdbcTemplate(new DriverManagerDataSource(
+                "jdbc:h2:mem:rebalance-costs;DB_CLOSE_DELAY=-1;MODE=MySQL", "sa", ""));
+        jdbc.execute("CREATE TABLE IF NOT EXISTS vehicle (vehicle_id BIGINT PRIMARY KEY, plate_no VARCHAR(20), store_id BIGINT,"
+                + " model_id BIGINT, current_soc DOUBLE, current_mileage DOUBLE, status VARCHAR(20))");
+        RebalanceService service = new RebalanceService(jdbc, event -> { }, mock(DemandForecastService.class),
+                mock(RollupService.class));
+
+        RebalanceRequest.Target target = new RebalanceRequest.Target();
+        target.setStoreId(1L);
+        target.setModelId(1L);
+        target.setTarget(1);
+        RebalanceRequest.Cost cost = new RebalanceRequest.Cost();
+        cost.setToStoreId(2L);
+        cost.setCost(3L);
+        RebalanceRequest request = new RebalanceRequest();
+        request.setTargets(List.of(target));
+        request.setCosts(List.of(cost));
+        assertThrows(IllegalArgumentException.class, () -> service.plan(request));
+
+        // 负费用同样拒绝
+        cost.setFromStoreId(1L);
+        cost.setCost(-1L);
+        assertThrows(IllegalArgumentException.class, () -> service.plan(request));
+    }
+}
@@ -0,0 +1,51 @@
+package com.tesla.rental;
+
+import com.tesla.rental.service.SchemaMigrationService;
+import org.junit.jupiter.api.Test;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DriverManagerDataSource;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CyclicBarrier;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class SchemaMigrationServiceTests {
+
+    @Test
+    void concurrentInstancesApplyEachScriptOnce() throws Exception {
+        DriverManagerDataSource dataSource = new DriverManagerDataSource(
+                "jdbc:h2:mem:migration-lock;DB_CLOSE_DELAY=-1;MODE=MySQL", "sa", "");
+        JdbcTemplate jdbc = new JdbcTemplate(dataSource);
+        int instances = 4;
+        CyclicBarrier barrier = new CyclicBarrier(instances);
+        ExecutorService pool = Executors.newFixedThreadPool(instances);
+        try {
+            List<Future<?>> results = new ArrayList<>();
+            for (int i = 0; i < instances; i++) {
+                // 每个实例各自的服务对象，同时开始迁移同一个库
+                SchemaMigrationService service = new SchemaMigrationService(jdbc, true, true, 30);
+                results.add(pool.submit(() -> {
+                    barrier.await();
+                    service.migrateShard(1, jdbc);
+                    return null;
+                }));
+            }
+            for (Future<?> result : results) {
+                result.get();
+            }
+        } finally {
+            pool.shutdownNow();
+        }
+
+        // 每个脚本只执行并记录一次
+        Integer scripts = jdbc.queryForObject("SELECT COUNT(*) FROM schema_migration", Integer.class);
+        Integer versions = jdbc.queryForObject("SELECT COUNT(DISTINCT version) FROM schema_migration", Integer.class);
+        assertEquals(versions, scripts);
+        assertEquals(3, scripts);
+    }
+}
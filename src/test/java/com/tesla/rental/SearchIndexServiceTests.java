@@ -0,0 +1,100 @@
+package com.tesla.rental;
+
+import com.tesla.rental.entity.Customer;
+import com.tesla.rental.entity.Vehicle;
+import com.tesla.rental.event.EntityChangeEvent;
+import com.tesla.rental.payload.SearchHit;
+import com.tesla.rental.service.SearchIndexService;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DriverManagerDataSource;
+
+import java.util.List;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class SearchIndexServiceTests {
+
+    private SearchIndexService search;
+
+    @BeforeEach
+    void load() {
+        JdbcTemplate jdbc = new JdbcTemplate(new DriverManagerDataSource(
+                "jdbc:h2:mem:search;DB_CLOSE_DELAY=-1;MODE=MySQL", "sa", ""));
+        jdbc.execute("DROP ALL OBJECTS");
+        jdbc.execute("CREATE TABLE customer (customer_id BIGINT PRIMARY KEY, name VARCHAR(50), phone VARCHAR(20))");
+        jdbc.execute("CREATE TABLE vehicle (vehicle_id BIGINT PRIMARY KEY, plate_no VARCHAR(20))");
+        jdbc.execute("CREATE TABLE store (store_id BIGINT PRIMARY KEY, name VARCHAR(50), address VARCHAR(100))");
+        jdbc.update("INSERT INTO customer VALUES (1, '张三', '13800001111'), (2, '李四', '13911112222'),"
+                + " (3, 'Tom Smith', '021-5566')");
+        jdbc.update("INSERT INTO vehicle VALUES (1, '沪A 12345'), (2, '沪A123'), (3, '苏E54321'), (4, 'ABCXBCD')");
+        jdbc.update("INSERT INTO store VALUES (1, '浦东店', '上海浦东世纪大道 100 号'), (2, '虹桥店', '上海闵行申长路 138 号')");
+        search = new SearchIndexService(jdbc);
+        search.onReady();
+    }
+
+    private List<Long> ids(String query, SearchHit.Type... types) {
+        return search.search(query, Set.of(types), 10).getHits().stream().map(SearchHit::getId).toList();
+    }
+
+    @Test
+    void shortQueriesMatchFieldPrefixesOnly() {
+        // 1、2 个字符只匹配字段开头：“沪”不匹配“苏E”，“12”不匹配车牌中间的 12
+        assertEquals(List.of(2L, 1L), ids("沪", SearchHit.Type.VEHICLE));
+        assertEquals(List.of(), ids("12", SearchHit.Type.VEHICLE));
+        assertEquals(List.of(1L, 2L), ids("13", SearchHit.Type.CUSTOMER));
+        assertEquals(List.of(), ids("11", SearchHit.Type.CUSTOMER));
+        // 第二个字段（电话/地址）同样建立前缀
+        assertEquals(List.of(2L, 1L), ids("上海", SearchHit.Type.STORE));
+    }
+
+    @Test
+    void longerQueriesMatchSubstringsIgnoringCaseAndWhitespace() {
+        // 3 个字符及以上做子串匹配；以查询开头的字段排在前面，其次是较短的值
+        assertEquals(List.of(2L, 1L), ids("a12", SearchHit.Type.VEHICLE));
+        assertEquals(List.of(1L), ids("a 1 2 3 4", SearchHit.Type.VEHICLE));
+        assertEquals(List.of(3L), ids("MSMI", SearchHit.Type.CUSTOMER));
+        assertEquals(List.of(1L, 2L), ids("1111", SearchHit.Type.CUSTOMER));
+        assertEquals(List.of(2L), ids("申长路", SearchHit.Type.STORE));
+    }
+
+    @Test
+    void allTrigramsPresentButNotContiguousIsNotAHit() {
+        // ABCXBCD 含 abc 与 bcd 两个切片，但不含子串 abcd：由回表校验过滤
+        assertEquals(List.of(4L), ids("bcd", SearchHit.Type.VEHICLE));
+        assertEquals(List.of(), ids("abcd", SearchHit.Type.VEHICLE));
+        assertEquals(List.of(), ids("不存在的词"));
+    }
+
+    @Test
+    void typeFilterAndLimitApply() {
+        assertEquals(2, ids("上海").size());
+        assertEquals(List.of(), ids("上海", SearchHit.Type.CUSTOMER));
+        assertEquals(1, search.search("沪", Set.of(), 1).getHits().size());
+        assertEquals(0, search.search("沪", Set.of(), 0).getHits().size());
+        assertEquals(0, search.search("  ", Set.of(), 10).getHits().size());
+    }
+
+    @Test
+    void changesReplaceAndRemoveIndexedValues() {
+        Customer renamed = new Customer();
+        renamed.setCustomerId(1L);
+        renamed.setName("王五");
+        renamed.setPhone("13800001111");
+        search.onEntityChange(new EntityChangeEvent(Customer.class, 1L, EntityChangeEvent.Action.UPDATE, renamed, null));
+        assertEquals(List.of(), ids("张", SearchHit.Type.CUSTOMER));
+        assertEquals(List.of(1L), ids("王五", SearchHit.Type.CUSTOMER));
+        assertEquals(List.of(1L), ids("138", SearchHit.Type.CUSTOMER));
+
+        Vehicle added = new Vehicle();
+        added.setVehicleId(5L);
+        added.setPlateNo("浙B88888");
+        search.onEntityChange(new EntityChangeEvent(Vehicle.class, 5L, EntityChangeEvent.Action.INSERT, added, null));
+        assertEquals(List.of(5L), ids("b888", SearchHit.Type.VEHICLE));
+        search.onEntityChange(new EntityChangeEvent(Vehicle.class, 5L, EntityChangeEvent.Action.DELETE, added, null));
+        assertEquals(List.of(), ids("b888", SearchHit.Type.VEHICLE));
+        assertEquals(List.of(), ids("浙", SearchHit.Type.VEHICLE));
+    }
+}
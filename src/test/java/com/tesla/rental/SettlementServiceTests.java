@@ -0,0 +1,97 @@
+package com.tesla.rental;
+
+import com.tesla.rental.entity.RentalOrder;
+import com.tesla.rental.entity.enums.RentalOrderStatus;
+import com.tesla.rental.service.OrderLifecycleService;
+import com.tesla.rental.service.SettlementService;
+import com.tesla.rental.shard.ShardedOrderStore;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class SettlementServiceTests {
+
+    private static ConfigurableApplicationContext context;
+
+    @BeforeAll
+    static void start() {
+        context = new SpringApplicationBuilder(RentalApplication.class).run(
+                "--server.port=0",
+                "--spring.datasource.url=jdbc:h2:mem:settlement;DB_CLOSE_DELAY=-1;MODE=MySQL",
+                "--spring.datasource.driver-class-name=org.h2.Driver",
+                "--spring.datasource.username=sa",
+                "--spring.datasource.password=",
+                "--spring.jpa.properties.hibernate.dialect=org.hibernate.dialect.H2Dialect",
+                "--rental.order-events.snapshot-enabled=false");
+    }
+
+    @AfterAll
+    static void stop() {
+        if (context != null) {
+            context.close();
+        }
+    }
+
+    @Test
+    void orderReturnedBelowWatermarkIsSettledByNextRun() throws Exception {
+        OrderLifecycleService lifecycle = context.getBean(OrderLifecycleService.class);
+        SettlementService settlement = context.getBean(SettlementService.class);
+        ShardedOrderStore store = context.getBean(ShardedOrderStore.class);
+        RentalOrder older = lifecycle.create(order(), null);
+        RentalOrder newer = lifecycle.create(order(), null);
+
+        returnOrder(lifecycle, newer.getOrderId());
+        settlement.runToCompletion();
+        assertEquals(RentalOrderStatus.SETTLED, store.findOrder(newer.getOrderId()).getStatus());
+        // 扫描完毕后断点归零
+        assertEquals(0L, settlement.status().getLastIds().get(0));
+
+        // 主键小于上一轮断点的订单在其后才还车，下一轮仍须结算
+        returnOrder(lifecycle, older.getOrderId());
+        settlement.runToCompletion();
+        assertEquals(RentalOrderStatus.SETTLED, store.findOrder(older.getOrderId()).getStatus());
+    }
+
+    @Test
+    void partialLateDayIsChargedAsFullDay() {
+        SettlementService settlement = context.getBean(SettlementService.class);
+        RentalOrder order = order();
+        order.setOrderId(1L);
+        // 日租金 100，逾期按 1.5 倍
+        order.setActualReturnTime(order.getRentEnd());
+        assertEquals(new BigDecimal("0.00"), settlement.calculate(order, BigDecimal.ZERO).getOverdueFee());
+        order.setActualReturnTime(order.getRentEnd().plusMinutes(59));
+        assertEquals(new BigDecimal("150.00"), settlement.calculate(order, BigDecimal.ZERO).getOverdueFee());
+        order.setActualReturnTime(order.getRentEnd().plusDays(1).plusMinutes(1));
+        assertEquals(new BigDecimal("300.00"), settlement.calculate(order, BigDecimal.ZERO).getOverdueFee());
+    }
+
+    private static RentalOrder order() {
+        RentalOrder order = new RentalOrder();
+        order.setRentStart(LocalDateTime.of(2026, 1, 1, 10, 0));
+        order.setRentEnd(LocalDateTime.of(2026, 1, 3, 10, 0));
+        order.setTotalAmount(new BigDecimal("200.00"));
+        order.setStatus(RentalOrderStatus.PAID);
+        return order;
+    }
+
+    private static void returnOrder(OrderLifecycleService lifecycle, Long id) {
+        RentalOrder pickup = new RentalOrder();
+        pickup.setActualPickupTime(LocalDateTime.of(2026, 1, 1, 10, 0));
+        pickup.setPickupMileage(1000.0);
+        pickup.setPickupSoc(90.0);
+        lifecycle.pickup(id, pickup);
+        RentalOrder back = new RentalOrder();
+        back.setActualReturnTime(LocalDateTime.of(2026, 1, 3, 9, 0));
+        back.setReturnMileage(1200.0);
+        back.setReturnSoc(90.0);
+        lifecycle.confirmReturn(id, back);
+    }
+}
@@ -0,0 +1,304 @@
+package com.tesla.rental;
+
+import com.tesla.rental.entity.Payment;
+import com.tesla.rental.entity.RentalOrder;
+import com.tesla.rental.entity.Violation;
+import com.tesla.rental.entity.enums.PaymentType;
+import com.tesla.rental.entity.enums.RentalOrderStatus;
+import com.tesla.rental.service.OrderLifecycleService;
+import com.tesla.rental.service.SchemaMigrationService;
+import com.tesla.rental.shard.Shard;
+import com.tesla.rental.shard.ShardIdGenerator;
+import com.tesla.rental.shard.ShardRouter;
+import com.tesla.rental.shard.ShardedOrderStore;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.http.MediaType;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.setup.MockMvcBuilders;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.web.context.WebApplicationContext;
+
+import javax.sql.DataSource;
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.Mockito.mock;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.put;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+// 主库加两个 H2 内存分片：门店路由、按主键定位、跨分片合并查询、支付/违章跟随订单，以及跨分片改挂返回 409
+class ShardedOrderStoreTests {
+
+    private static ConfigurableApplicationContext context;
+    private static ShardRouter router;
+    private static ShardedOrderStore store;
+    private static OrderLifecycleService lifecycle;
+
+    @BeforeAll
+    static void start() {
+        context = new SpringApplicationBuilder(RentalApplication.class).run(
+                "--server.port=0",
+                "--spring.datasource.url=jdbc:h2:mem:sharded-primary;DB_CLOSE_DELAY=-1;MODE=MySQL",
+                "--spring.datasource.driver-class-name=org.h2.Driver",
+                "--spring.datasource.username=sa",
+                "--spring.datasource.password=",
+                "--spring.jpa.properties.hibernate.dialect=org.hibernate.dialect.H2Dialect",
+                "--rental.sharding.urls=jdbc:h2:mem:sharded-1;DB_CLOSE_DELAY=-1;MODE=MySQL,"
+                        + "jdbc:h2:mem:sharded-2;DB_CLOSE_DELAY=-1;MODE=MySQL",
+                "--rental.sharding.node-id=3");
+        router = context.getBean(ShardRouter.class);
+        store = context.getBean(ShardedOrderStore.class);
+        lifecycle = context.getBean(OrderLifecycleService.class);
+    }
+
+    @AfterAll
+    static void stop() {
+        if (context != null) {
+            context.close();
+        }
+    }
+
+    @BeforeEach
+    void clear() {
+        for (Shard shard : router.all()) {
+            shard.getJdbcTemplate().update("DELETE FROM payment");
+            shard.getJdbcTemplate().update("DELETE FROM violation");
+            shard.getJdbcTemplate().update("DELETE FROM order_event");
+            shard.getJdbcTemplate().update("DELETE FROM rental_order");
+        }
+    }
+
+    private static RentalOrder order(long storeId, long customerId, LocalDateTime rentStart) {
+        RentalOrder order = new RentalOrder();
+        order.setPickupStoreId(storeId);
+        order.setReturnStoreId(storeId);
+        order.setCustomerId(customerId);
+        order.setVehicleId(1L);
+        order.setRentStart(rentStart);
+        order.setRentEnd(rentStart != null ? rentStart.plusDays(1) : null);
+        order.setTotalAmount(new BigDecimal("300.00"));
+        order.setStatus(RentalOrderStatus.PAID);
+        return lifecycle.create(order, null);
+    }
+
+    private static long count(Shard shard, String table, String idColumn, Long id) {
+        Long count = shard.getJdbcTemplate().queryForObject(
+                "SELECT COUNT(*) FROM " + table + " WHERE " + idColumn + " = ?", Long.class, id);
+        return count != null ? count : 0;
+    }
+
+    @Test
+    void ordersAreRoutedByPickupStore() {
+        assertEquals(3, router.size());
+        assertEquals(0, router.forStore(3L).getIndex());
+        assertEquals(1, router.forStore(4L).getIndex());
+        assertEquals(2, router.forStore(5L).getIndex());
+        assertTrue(router.forStore(null).isPrimary());
+        // 非主库门店的查询还要访问主库上启用分片前的历史订单
+        assertEquals(List.of(router.primary()), router.forStoreQuery(3L));
+        assertEquals(List.of(router.primary(), router.all().get(1)), router.forStoreQuery(4L));
+        assertEquals(router.all(), router.forStoreQuery(null));
+
+        LocalDateTime start = LocalDateTime.of(2026, 3, 1, 10, 0);
+        for (long storeId = 3; storeId <= 5; storeId++) {
+            RentalOrder created = order(storeId, 1L, start);
+            Shard expected = router.forStore(storeId);
+            assertEquals(1, count(expected, "rental_order", "order_id", created.getOrderId()));
+            for (Shard other : router.all()) {
+                if (other != expected) {
+                    assertEquals(0, count(other, "rental_order", "order_id", created.getOrderId()));
+                }
+            }
+        }
+    }
+
+    @Test
+    void idsLocateTheirShard() {
+        LocalDateTime start = LocalDateTime.of(2026, 3, 1, 10, 0);
+        RentalOrder primary = order(3L, 1L, start);
+        RentalOrder first = order(4L, 1L, start);
+        RentalOrder second = order(5L, 1L, start);
+
+        // 主库沿用自增主键，其余分片的主键带分片号
+        assertEquals(0, ShardIdGenerator.shardOf(primary.getOrderId()));
+        assertEquals(1, ShardIdGenerator.shardOf(first.getOrderId()));
+        assertEquals(2, ShardIdGenerator.shardOf(second.getOrderId()));
+        assertTrue(first.getOrderId() <= 9007199254740991L);
+        assertEquals(1, router.forId(first.getOrderId()).getIndex());
+        assertEquals(2, router.forId(second.getOrderId()).getIndex());
+        assertEquals(4L, store.findOrder(first.getOrderId()).getPickupStoreId());
+        assertEquals(5L, store.findOrder(second.getOrderId()).getPickupStoreId());
+        assertEquals(3L, store.findOrder(primary.getOrderId()).getPickupStoreId());
+
+        // 同一分片上连续生成的主键严格递增
+        ShardIdGenerator generator = new ShardIdGenerator(3);
+        long previous = generator.next(2);
+        for (int i = 0; i < 1000; i++) {
+            long id = generator.next(2);
+            assertEquals(2, ShardIdGenerator.shardOf(id));
+            assertTrue(id > previous);
+            previous = id;
+        }
+        // 指向未配置分片的主键不存在
+        assertThrows(IllegalStateException.class, () -> router.forId(new ShardIdGenerator(0).next(7)));
+        assertNull(store.findOrder(new ShardIdGenerator(0).next(7)));
+    }
+
+    @Test
+    void scatterQueriesMergeInIdOrder() {
+        LocalDateTime start = LocalDateTime.of(2026, 3, 1, 10, 0);
+        List<Long> ids = new ArrayList<>();
+        for (long storeId = 3; storeId <= 8; storeId++) {
+            ids.add(order(storeId, 1L, start).getOrderId());
+        }
+        List<Long> all = store.findOrders(null).stream().map(RentalOrder::getOrderId).toList();
+        assertEquals(ids.stream().sorted().toList(), all);
+        // 门店 4 和 7 在同一分片上
+        List<RentalOrder> store4 = store.findOrders(4L);
+        assertEquals(1, store4.size());
+        assertEquals(4L, store4.get(0).getPickupStoreId());
+    }
+
+    @Test
+    void customerOrdersPageAcrossShards() {
+        LocalDateTime start = LocalDateTime.of(2026, 3, 1, 10, 0);
+        List<RentalOrder> created = new ArrayList<>();
+        for (int i = 0; i < 12; i++) {
+            // 每两单取车时间相同，分散在三个分片上；另有两单没有取车时间，以及一单属于其他客户
+            created.add(order(3 + i % 3, 7L, start.plusHours(i / 2)));
+        }
+        created.add(order(4L, 7L, null));
+        created.add(order(5L, 7L, null));
+        order(4L, 8L, start.plusDays(1));
+
+        List<Long> paged = new ArrayList<>();
+        LocalDateTime beforeStart = null;
+        Long beforeId = null;
+        int pages = 0;
+        while (true) {
+            List<RentalOrder> page = store.findCustomerOrders(7L, beforeStart, beforeId, 5);
+            if (page.isEmpty()) {
+                break;
+            }
+            assertTrue(page.size() <= 5);
+            page.forEach(order -> paged.add(order.getOrderId()));
+            RentalOrder last = page.get(page.size() - 1);
+            beforeStart = last.getRentStart();
+            beforeId = last.getOrderId();
+            pages++;
+        }
+        assertEquals(3, pages);
+        // 取车时间倒序、同一时间按主键倒序，没有取车时间的排在最后
+        List<Long> expected = created.stream()
+                .sorted((x, y) -> {
+                    if (x.getRentStart() == null || y.getRentStart() == null) {
+                        return x.getRentStart() == null && y.getRentStart() == null
+                                ? y.getOrderId().compareTo(x.getOrderId())
+                                : x.getRentStart() == null ? 1 : -1;
+                    }
+                    int byStart = y.getRentStart().compareTo(x.getRentStart());
+                    return byStart != 0 ? byStart : y.getOrderId().compareTo(x.getOrderId());
+                })
+                .map(RentalOrder::getOrderId).toList();
+        assertEquals(expected, paged);
+        assertEquals(paged.size(), new HashSet<>(paged).size());
+    }
+
+    @Test
+    void paymentsAndViolationsFollowTheirOrder() {
+        LocalDateTime start = LocalDateTime.of(2026, 3, 1, 10, 0);
+        RentalOrder onShard2 = order(5L, 1L, start);
+        Shard shard2 = router.forId(onShard2.getOrderId());
+
+        Payment payment = new Payment();
+        payment.setAmount(new BigDecimal("300.00"));
+        payment.setType(PaymentType.values()[0]);
+        payment.setOrderId(onShard2.getOrderId());
+        Payment saved = store.savePayment(payment);
+        assertEquals(2, ShardIdGenerator.shardOf(saved.getPayId()));
+        assertEquals(1, count(shard2, "payment", "pay_id", saved.getPayId()));
+        assertEquals(onShard2.getOrderId(), store.findPayment(saved.getPayId()).getOrderId());
+        assertEquals(List.of(saved.getPayId()), store.findPaymentsOfOrders(shard2, List.of(onShard2.getOrderId()))
+                .stream().map(Payment::getPayId).toList());
+
+        Violation violation = new Violation();
+        violation.setFineAmount(new BigDecimal("200.00"));
+        violation.setLocation("bench road");
+        violation.setVehicleId(1L);
+        violation.setOrderId(onShard2.getOrderId());
+        violation.setViolationTime(start.plusHours(2));
+        Violation savedViolation = store.saveViolation(violation);
+        assertEquals(2, ShardIdGenerator.shardOf(savedViolation.getVioId()));
+        assertEquals(1, count(shard2, "violation", "vio_id", savedViolation.getVioId()));
+
+        // 未匹配到订单的违章放主库
+        Violation unmatched = new Violation();
+        unmatched.setFineAmount(new BigDecimal("50.00"));
+        unmatched.setVehicleId(1L);
+        unmatched.setViolationTime(start);
+        Violation savedUnmatched = store.saveViolation(unmatched);
+        assertEquals(0, ShardIdGenerator.shardOf(savedUnmatched.getVioId()));
+        assertEquals(1, count(router.primary(), "violation", "vio_id", savedUnmatched.getVioId()));
+
+        Set<Long> allPayments = new HashSet<>();
+        store.findPayments().forEach(p -> allPayments.add(p.getPayId()));
+        assertEquals(Set.of(saved.getPayId()), allPayments);
+    }
+
+    @Test
+    void crossShardMovesReturnConflict() throws Exception {
+        LocalDateTime start = LocalDateTime.of(2026, 3, 1, 10, 0);
+        RentalOrder onShard1 = order(4L, 1L, start);
+        RentalOrder onShard2 = order(5L, 1L, start);
+        Payment payment = new Payment();
+        payment.setAmount(new BigDecimal("300.00"));
+        payment.setType(PaymentType.values()[0]);
+        payment.setOrderId(onShard1.getOrderId());
+        Payment saved = store.savePayment(payment);
+
+        MockMvc mvc = MockMvcBuilders.webAppContextSetup((WebApplicationContext) context).build();
+        // 支付改挂到另一分片上的订单
+        mvc.perform(put("/api/payments/" + saved.getPayId()).contentType(MediaType.APPLICATION_JSON)
+                        .content("{\"amount\":300.00,\"orderId\":" + onShard2.getOrderId() + "}"))
+                .andExpect(status().isConflict());
+        assertEquals(onShard1.getOrderId(), store.findPayment(saved.getPayId()).getOrderId());
+        // 同一分片上的订单可以改挂
+        RentalOrder sameShard = order(7L, 1L, start);
+        mvc.perform(put("/api/payments/" + saved.getPayId()).contentType(MediaType.APPLICATION_JSON)
+                        .content("{\"amount\":300.00,\"orderId\":" + sameShard.getOrderId() + "}"))
+                .andExpect(status().isOk());
+
+        // 订单的取车门店改到另一分片的门店
+        mvc.perform(put("/api/orders/" + onShard1.getOrderId()).contentType(MediaType.APPLICATION_JSON)
+                        .content("{\"pickupStoreId\":5}"))
+                .andExpect(status().isConflict());
+        assertEquals(4L, store.findOrder(onShard1.getOrderId()).getPickupStoreId());
+        mvc.perform(put("/api/orders/" + onShard1.getOrderId()).contentType(MediaType.APPLICATION_JSON)
+                        .content("{\"pickupStoreId\":7}"))
+                .andExpect(status().isOk());
+    }
+
+    @Test
+    void shardingWithoutNodeIdFailsFast() {
+        IllegalStateException error = assertThrows(IllegalStateException.class, () -> new ShardRouter(
+                mock(DataSource.class), mock(PlatformTransactionManager.class), mock(SchemaMigrationService.class),
+                "jdbc:h2:mem:primary", "jdbc:h2:mem:shard-1", "sa", "", 1, ""));
+        assertTrue(error.getMessage().contains("rental.sharding.node-id"));
+        // 只有主库时不需要节点号
+        new ShardRouter(mock(DataSource.class), mock(PlatformTransactionManager.class), mock(SchemaMigrationService.class),
+                "jdbc:h2:mem:primary", "", "sa", "", 1, "").close();
+    }
+}
@@ -0,0 +1,135 @@
+package com.tesla.rental;
+
+import com.tesla.rental.entity.enums.VehicleStatus;
+import com.tesla.rental.event.EntityChangeEvent;
+import com.tesla.rental.payload.TelemetryReading;
+import com.tesla.rental.service.RollupService;
+import com.tesla.rental.service.TelemetryService;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DataSourceTransactionManager;
+import org.springframework.jdbc.datasource.DriverManagerDataSource;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.mock;
+
+class TelemetryServiceTests {
+
+    private JdbcTemplate jdbc;
+    private List<EntityChangeEvent> events;
+    private AtomicInteger failOnChunk;
+    private TelemetryService service;
+
+    @BeforeEach
+    void setUp() {
+        DriverManagerDataSource dataSource = new DriverManagerDataSource(
+                "jdbc:h2:mem:telemetry;DB_CLOSE_DELAY=-1;MODE=MySQL", "sa", "");
+        jdbc = new JdbcTemplate(dataSource);
+        jdbc.execute("DROP ALL OBJECTS");
+        jdbc.execute("CREATE TABLE vehicle (vehicle_id BIGINT PRIMARY KEY, plate_no VARCHAR(20), store_id BIGINT,"
+                + " model_id BIGINT, status VARCHAR(20), current_soc DOUBLE, current_mileage DOUBLE)");
+        jdbc.update("INSERT INTO vehicle SELECT X, 'T' || X, 1, 1, ?, 80.0, 1000.0 FROM SYSTEM_RANGE(1, 2500)",
+                VehicleStatus.IN_STOCK.getLabel());
+
+        events = new ArrayList<>();
+        // failOnChunk 为第几批（从 1 开始）写入时失败，0 表示不失败
+        failOnChunk = new AtomicInteger();
+        AtomicInteger chunks = new AtomicInteger();
+        RollupService rollups = mock(RollupService.class);
+        doAnswer(invocation -> {
+            if (chunks.incrementAndGet() == failOnChunk.get()) {
+                throw new IllegalStateException("simulated write failure");
+            }
+            invocation.<Runnable>getArgument(0).run();
+            return null;
+        }).when(rollups).deferred(any());
+        service = new TelemetryService(jdbc, new DataSourceTransactionManager(dataSource),
+                event -> events.add((EntityChangeEvent) event), rollups);
+    }
+
+    private static TelemetryReading reading(long vehicleId, Double soc, Double mileage, Long timestamp) {
+        TelemetryReading reading = new TelemetryReading();
+        reading.setVehicleId(vehicleId);
+        reading.setSoc(soc);
+        reading.setMileage(mileage);
+        reading.setTimestamp(timestamp);
+        return reading;
+    }
+
+    private double soc(long vehicleId) {
+        return jdbc.queryForObject("SELECT current_soc FROM vehicle WHERE vehicle_id = ?", Double.class, vehicleId);
+    }
+
+    private double mileage(long vehicleId) {
+        return jdbc.queryForObject("SELECT current_mileage FROM vehicle WHERE vehicle_id = ?", Double.class, vehicleId);
+    }
+
+    @Test
+    void readingsOfOneVehicleAreCoalesced() {
+        int rejected = service.accept(List.of(
+                reading(1, 70.0, null, 1000L),
+                reading(1, 60.0, null, 3000L),
+                // 迟到的旧读数不覆盖较新的值，只补上较新读数缺失的字段
+                reading(1, 90.0, 1020.0, 2000L),
+                reading(2, null, 1500.0, 1000L),
+                reading(3, 120.0, null, 1000L),
+                reading(4, null, null, 1000L)));
+
+        assertEquals(2, rejected);
+        assertEquals(2, service.status().get("pendingVehicles"));
+        assertEquals(4L, service.status().get("received"));
+        service.flush();
+        assertEquals(60.0, soc(1));
+        assertEquals(1020.0, mileage(1));
+        assertEquals(80.0, soc(2));
+        assertEquals(1500.0, mileage(2));
+        assertEquals(2, events.size());
+        assertEquals(0, service.status().get("pendingVehicles"));
+    }
+
+    @Test
+    void flushWritesOnlyChangedVehicles() {
+        service.accept(List.of(reading(1, 80.0, 1000.0, null), reading(2, 50.0, null, null)));
+        service.flush();
+
+        // 车辆 1 的读数与库中相同，不更新也不发布事件
+        assertEquals(1, events.size());
+        assertEquals(2L, events.get(0).getId());
+        assertEquals(80.0, events.get(0).getPrevious().get("currentSoc"));
+        assertEquals(50.0, soc(2));
+        assertEquals(1L, service.status().get("flushedVehicles"));
+    }
+
+    @Test
+    void failedChunkRequeuesAllUnwrittenReadings() {
+        List<TelemetryReading> readings = new ArrayList<>();
+        for (long id = 1; id <= 2500; id++) {
+            readings.add(reading(id, 50.0, null, 1000L));
+        }
+        service.accept(readings);
+        // 2500 辆车分三批写入，第二批失败：第一批已提交，第二、三批放回待写
+        failOnChunk.set(2);
+        assertThrows(IllegalStateException.class, service::flush);
+        assertEquals(1500, service.status().get("pendingVehicles"));
+        assertEquals(1000, jdbc.queryForObject("SELECT COUNT(*) FROM vehicle WHERE current_soc = 50.0", Integer.class));
+
+        // 重试前到达的更新读数与放回的读数合并，取较新的值
+        long requeued = jdbc.queryForObject("SELECT MIN(vehicle_id) FROM vehicle WHERE current_soc = 80.0", Long.class);
+        service.accept(List.of(reading(requeued, 40.0, null, 2000L)));
+        assertEquals(1500, service.status().get("pendingVehicles"));
+
+        service.flush();
+        assertEquals(0, service.status().get("pendingVehicles"));
+        assertEquals(0, jdbc.queryForObject("SELECT COUNT(*) FROM vehicle WHERE current_soc = 80.0", Integer.class));
+        assertEquals(40.0, soc(requeued));
+        assertEquals(2500, events.size());
+    }
+}
@@ -0,0 +1,154 @@
+package com.tesla.rental;
+
+import com.tesla.rental.service.TransferSolver;
+import com.tesla.rental.service.TransferSolver.Edge;
+import com.tesla.rental.service.TransferSolver.Flow;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class TransferSolverTests {
+
+    private static long cost(List<Flow> flows) {
+        return flows.stream().mapToLong(flow -> flow.getUnitCost() * flow.getQuantity()).sum();
+    }
+
+    private static int moved(List<Flow> flows) {
+        return flows.stream().mapToInt(Flow::getQuantity).sum();
+    }
+
+    // 每个门店调出/调入的数量不超过其富余/缺口
+    private static void assertWithinBalance(int[] balance, List<Flow> flows) {
+        int[] net = new int[balance.length];
+        for (Flow flow : flows) {
+            assertTrue(balance[flow.getFrom()] > 0 && balance[flow.getTo()] < 0, flow.toString());
+            net[flow.getFrom()] += flow.getQuantity();
+            net[flow.getTo()] -= flow.getQuantity();
+        }
+        for (int i = 0; i < balance.length; i++) {
+            assertTrue(balance[i] > 0 ? net[i] <= balance[i] : net[i] >= balance[i], "store " + i);
+        }
+    }
+
+    @Test
+    void explicitEdgesAtDefaultCostMatchGreedy() {
+        int[] balance = { 3, -2, 2, -3 };
+        List<Flow> greedy = new TransferSolver().solve(balance, 5, List.of());
+        // 所有 富余 -> 缺口 的门店对都指定为默认费用：走逐次最短路，结果费用应与贪心一致
+        List<Edge> edges = new ArrayList<>();
+        for (int from : new int[] { 0, 2 }) {
+            for (int to : new int[] { 1, 3 }) {
+                edges.add(new Edge(from, to, 5));
+            }
+        }
+        List<Flow> explicit = new TransferSolver().solve(balance, 5, edges);
+
+        assertEquals(5, moved(greedy));
+        assertEquals(5, moved(explicit));
+        assertEquals(25, cost(greedy));
+        assertEquals(cost(greedy), cost(explicit));
+        assertWithinBalance(balance, greedy);
+        assertWithinBalance(balance, explicit);
+    }
+
+    @Test
+    void cheaperExplicitEdgeIsPreferred() {
+        int[] balance = { 2, 2, -2, -2 };
+        List<Flow> flows = new TransferSolver().solve(balance, 10, List.of(new Edge(1, 2, 1)));
+
+        // 1 -> 2 走指定的低价边，0 的富余经中转按默认费用补 3 的缺口
+        assertEquals(List.of(new Flow(1, 2, 2, 1), new Flow(0, 3, 2, 10)), flows);
+        assertEquals(22, cost(flows));
+    }
+
+    @Test
+    void expensiveExplicitEdgeIsAuthoritative() {
+        // 指定费用高于默认值时仍按指定值计费，不能经中转按默认费用绕过
+        int[] balance = { 1, -1 };
+        List<Flow> flows = new TransferSolver().solve(balance, 3, List.of(new Edge(0, 1, 50)));
+        assertEquals(List.of(new Flow(0, 1, 1, 50)), flows);
+        assertEquals(50, cost(flows));
+    }
+
+    @Test
+    void expensiveExplicitEdgeRoutesAroundThePair() {
+        // 0 -> 1 很贵：0 补 2 的缺口，3 补 1 的缺口，全部按默认费用
+        int[] balance = { 1, -1, -1, 1 };
+        List<Flow> flows = new TransferSolver().solve(balance, 3, List.of(new Edge(0, 1, 50)));
+        assertEquals(6, cost(flows));
+        assertTrue(flows.contains(new Flow(0, 2, 1, 3)), flows.toString());
+        assertTrue(flows.contains(new Flow(3, 1, 1, 3)), flows.toString());
+        assertWithinBalance(balance, flows);
+    }
+
+    @Test
+    void sparseEdgesMatchTheDenseCostMatrix() {
+        // 随机实例：只给出部分门店对的费用，与把其余门店对都按默认费用显式列出的结果比较
+        Random random = new Random(42);
+        for (int round = 0; round < 200; round++) {
+            int n = 2 + random.nextInt(30);
+            int[] balance = new int[n];
+            for (int i = 0; i < n; i++) {
+                balance[i] = random.nextInt(9) - 4;
+            }
+            long defaultCost = 1 + random.nextInt(10);
+            List<Edge> sparse = new ArrayList<>();
+            List<Edge> dense = new ArrayList<>();
+            for (int from = 0; from < n; from++) {
+                for (int to = 0; to < n; to++) {
+                    if (balance[from] <= 0 || balance[to] >= 0) {
+                        continue;
+                    }
+                    if (random.nextInt(3) == 0) {
+                        Edge edge = new Edge(from, to, random.nextInt(20));
+                        sparse.add(edge);
+                        dense.add(edge);
+                    } else {
+                        dense.add(new Edge(from, to, defaultCost));
+                    }
+                }
+            }
+            List<Flow> expected = new TransferSolver().solve(balance, defaultCost, dense);
+            List<Flow> actual = new TransferSolver().solve(balance, defaultCost, sparse);
+            String message = "round " + round + " " + Arrays.toString(balance) + " " + sparse;
+            assertEquals(moved(expected), moved(actual), message);
+            assertEquals(cost(expected), cost(actual), message);
+            assertWithinBalance(balance, actual);
+            // 每条调拨的单价与该门店对的实际费用一致
+            for (Flow flow : actual) {
+                long unitCost = defaultCost;
+                for (Edge edge : sparse) {
+                    if (edge.getFrom() == flow.getFrom() && edge.getTo() == flow.getTo()) {
+                        unitCost = edge.getCost();
+                    }
+                }
+                assertEquals(unitCost, flow.getUnitCost(), message + " " + flow);
+            }
+        }
+    }
+
+    @Test
+    void unequalSurplusAndDeficitMoveTheSmallerSide() {
+        int[] moreSurplus = { 5, -2, 1 };
+        List<Flow> greedy = new TransferSolver().solve(moreSurplus, 1, List.of());
+        List<Flow> explicit = new TransferSolver().solve(moreSurplus, 1, List.of(new Edge(2, 1, 1)));
+        assertEquals(2, moved(greedy));
+        assertEquals(2, moved(explicit));
+        assertWithinBalance(moreSurplus, greedy);
+        assertWithinBalance(moreSurplus, explicit);
+
+        int[] moreDeficit = { 1, -4, -3 };
+        List<Flow> short1 = new TransferSolver().solve(moreDeficit, 1, List.of());
+        List<Flow> short2 = new TransferSolver().solve(moreDeficit, 1, List.of(new Edge(0, 2, 1)));
+        assertEquals(1, moved(short1));
+        assertEquals(1, moved(short2));
+        assertWithinBalance(moreDeficit, short1);
+        assertWithinBalance(moreDeficit, short2);
+    }
+}
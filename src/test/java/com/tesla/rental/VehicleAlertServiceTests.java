@@ -0,0 +1,159 @@
+package com.tesla.rental;
+
+import com.tesla.rental.entity.Vehicle;
+import com.tesla.rental.entity.enums.VehicleStatus;
+import com.tesla.rental.event.EntityChangeEvent;
+import com.tesla.rental.event.RemoteChangeEvent;
+import com.tesla.rental.payload.VehicleAlert;
+import com.tesla.rental.service.VehicleAlertService;
+import com.tesla.rental.service.VehicleAlertService.VehicleSnapshot;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DriverManagerDataSource;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.web.servlet.mvc.method.annotation.ResponseBodyEmitter;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class VehicleAlertServiceTests {
+
+    private JdbcTemplate jdbc;
+    private VehicleAlertService service;
+    private List<VehicleAlert> alerts;
+
+    @BeforeEach
+    void setUp() {
+        jdbc = new JdbcTemplate(new DriverManagerDataSource(
+                "jdbc:h2:mem:alerts;DB_CLOSE_DELAY=-1;MODE=MySQL", "sa", ""));
+        jdbc.execute("DROP ALL OBJECTS");
+        jdbc.execute("CREATE TABLE vehicle (vehicle_id BIGINT PRIMARY KEY, plate_no VARCHAR(20), store_id BIGINT,"
+                + " model_id BIGINT, status VARCHAR(20), current_soc DOUBLE, current_mileage DOUBLE)");
+        insert(1, 50.0, 10000.0);
+        insert(2, 15.0, 60000.0);
+        insert(3, 5.0, 52000.0);
+        insert(4, 15.0, 49000.0);
+        insert(5, null, null);
+
+        service = new VehicleAlertService(jdbc, 20, 50000);
+        service.onReady();
+        // 订阅方：记录推送的告警
+        alerts = new CopyOnWriteArrayList<>();
+        @SuppressWarnings("unchecked")
+        List<SseEmitter> emitters = (List<SseEmitter>) ReflectionTestUtils.getField(service, "emitters");
+        emitters.add(new SseEmitter(0L) {
+            @Override
+            public void send(SseEventBuilder builder) {
+                builder.build().stream()
+                        .map(ResponseBodyEmitter.DataWithMediaType::getData)
+                        .filter(VehicleAlert.class::isInstance)
+                        .forEach(data -> alerts.add((VehicleAlert) data));
+            }
+        });
+    }
+
+    private void insert(long id, Double soc, Double mileage) {
+        jdbc.update("INSERT INTO vehicle VALUES (?, ?, 1, 1, ?, ?, ?)", id, "T" + id,
+                VehicleStatus.IN_STOCK.getLabel(), soc, mileage);
+    }
+
+    private void write(long id, Double soc, Double mileage) {
+        Vehicle vehicle = new Vehicle();
+        vehicle.setVehicleId(id);
+        vehicle.setPlateNo("T" + id);
+        vehicle.setStoreId(1L);
+        vehicle.setModelId(1L);
+        vehicle.setStatus(VehicleStatus.IN_STOCK);
+        vehicle.setCurrentSoc(soc);
+        vehicle.setCurrentMileage(mileage);
+        service.onEntityChange(new EntityChangeEvent(Vehicle.class, id, EntityChangeEvent.Action.UPDATE, vehicle, Map.of()));
+    }
+
+    // 推送在独立的单线程中进行：排一个空任务并等待，之前的推送都已完成
+    private List<VehicleAlert> dispatched() throws Exception {
+        ExecutorService dispatcher = (ExecutorService) ReflectionTestUtils.getField(service, "dispatcher");
+        dispatcher.submit(() -> { }).get(5, TimeUnit.SECONDS);
+        return alerts;
+    }
+
+    private static List<Long> ids(List<VehicleSnapshot> snapshots) {
+        return snapshots.stream().map(VehicleSnapshot::getVehicleId).toList();
+    }
+
+    @Test
+    void alertFiresOnlyWhenThresholdIsCrossed() throws Exception {
+        // 在阈值同一侧变化：不告警
+        write(1, 40.0, 12000.0);
+        write(2, 10.0, 61000.0);
+        assertTrue(dispatched().isEmpty());
+
+        // 电量越过 20 向下、里程越过 50000 向上：各一条 TRIGGERED
+        write(1, 19.5, 50001.0);
+        List<VehicleAlert> fired = dispatched();
+        assertEquals(2, fired.size());
+        assertEquals("low-battery", fired.get(0).getRule());
+        assertEquals(VehicleAlert.Type.TRIGGERED, fired.get(0).getType());
+        assertEquals(40.0, fired.get(0).getPreviousValue());
+        assertEquals(19.5, fired.get(0).getValue());
+        assertEquals("high-mileage", fired.get(1).getRule());
+        assertEquals(VehicleAlert.Type.TRIGGERED, fired.get(1).getType());
+    }
+
+    @Test
+    void triggeredAndClearedFireOnce() throws Exception {
+        write(1, 10.0, 10000.0);
+        write(1, 8.0, 10000.0);
+        write(1, 5.0, 10000.0);
+        write(1, 30.0, 10000.0);
+        write(1, 35.0, 10000.0);
+        // 正好等于阈值不算低于：再次越过时才告警
+        write(1, 20.0, 10000.0);
+
+        List<VehicleAlert> fired = dispatched();
+        assertEquals(List.of(VehicleAlert.Type.TRIGGERED, VehicleAlert.Type.CLEARED),
+                fired.stream().map(VehicleAlert::getType).toList());
+        assertEquals(10.0, fired.get(0).getValue());
+        assertEquals(30.0, fired.get(1).getValue());
+    }
+
+    @Test
+    void remoteChangeReadsVehicleFromDatabase() throws Exception {
+        jdbc.update("UPDATE vehicle SET current_soc = 12.0 WHERE vehicle_id = 1");
+        service.onRemoteChange(new RemoteChangeEvent(Vehicle.class, 1L, EntityChangeEvent.Action.UPDATE));
+        service.onRemoteChange(new RemoteChangeEvent(Vehicle.class, 1L, EntityChangeEvent.Action.UPDATE));
+
+        List<VehicleAlert> fired = dispatched();
+        assertEquals(1, fired.size());
+        assertEquals(VehicleAlert.Type.TRIGGERED, fired.get(0).getType());
+        assertEquals(List.of(3L, 1L), ids(service.socBelow(13, 10)));
+    }
+
+    @Test
+    void indexQueriesFollowWrites() {
+        // 电量升序，相同电量按车辆 ID；空值不进索引
+        assertEquals(List.of(3L, 2L, 4L), ids(service.socBelow(20, 10)));
+        assertEquals(List.of(3L, 2L), ids(service.socBelow(20, 2)));
+        assertEquals(List.of(3L), ids(service.socBelow(15, 10)));
+        // 里程降序，严格大于阈值
+        assertEquals(List.of(2L, 3L), ids(service.mileageAbove(50000, 10)));
+        assertEquals(List.of(2L), ids(service.mileageAbove(52000, 10)));
+        assertEquals(List.of(3L, 2L, 4L), ids(service.matching("low-battery", 10)));
+        assertEquals(List.of(2L, 3L), ids(service.matching("high-mileage", 10)));
+
+        // 写入后旧位置被移除，新位置生效
+        write(3, 90.0, 1000.0);
+        write(5, 1.0, 70000.0);
+        service.onEntityChange(new EntityChangeEvent(Vehicle.class, 2L, EntityChangeEvent.Action.DELETE, new Vehicle(), Map.of()));
+        assertEquals(List.of(5L, 4L), ids(service.socBelow(20, 10)));
+        assertEquals(List.of(5L), ids(service.mileageAbove(50000, 10)));
+        assertEquals(List.of(1L, 3L, 4L, 5L), ids(service.socBelow(100, 10)).stream().sorted().toList());
+    }
+}
@@ -0,0 +1,157 @@
+package com.tesla.rental;
+
+import com.tesla.rental.entity.Vehicle;
+import com.tesla.rental.entity.enums.VehicleStatus;
+import com.tesla.rental.event.EntityChangeEvent;
+import com.tesla.rental.payload.VehicleBatchRequest;
+import com.tesla.rental.payload.VehicleBatchResult;
+import com.tesla.rental.service.RollupService;
+import com.tesla.rental.service.VehicleBatchService;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DriverManagerDataSource;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.mock;
+
+class VehicleBatchServiceTests {
+
+    private JdbcTemplate jdbc;
+    private List<EntityChangeEvent> events;
+    private VehicleBatchService service;
+
+    @BeforeEach
+    void setUp() {
+        jdbc = new JdbcTemplate(new DriverManagerDataSource(
+                "jdbc:h2:mem:vehicle-batch;DB_CLOSE_DELAY=-1;MODE=MySQL", "sa", ""));
+        jdbc.execute("DROP ALL OBJECTS");
+        jdbc.execute("CREATE TABLE store (store_id BIGINT PRIMARY KEY)");
+        jdbc.execute("CREATE TABLE vehicle (vehicle_id BIGINT PRIMARY KEY, plate_no VARCHAR(20), store_id BIGINT,"
+                + " model_id BIGINT, current_soc DOUBLE, current_mileage DOUBLE, status VARCHAR(20))");
+        jdbc.execute("CREATE TABLE audit_log (id BIGINT AUTO_INCREMENT PRIMARY KEY, action VARCHAR(255),"
+                + " action_time TIMESTAMP, user_id BIGINT)");
+        jdbc.update("INSERT INTO store VALUES (1), (2)");
+        // 1、2 在库于门店 1；3 在租；4 维修中；5 在库于门店 2
+        vehicle(1, 1, VehicleStatus.IN_STOCK);
+        vehicle(2, 1, VehicleStatus.IN_STOCK);
+        vehicle(3, 1, VehicleStatus.RENTED);
+        vehicle(4, 1, VehicleStatus.MAINTENANCE);
+        vehicle(5, 2, VehicleStatus.IN_STOCK);
+        events = new ArrayList<>();
+        RollupService rollups = mock(RollupService.class);
+        doAnswer(invocation -> {
+            invocation.<Runnable>getArgument(0).run();
+            return null;
+        }).when(rollups).deferred(any());
+        service = new VehicleBatchService(jdbc, event -> events.add((EntityChangeEvent) event), rollups);
+    }
+
+    private void vehicle(long id, long storeId, VehicleStatus status) {
+        jdbc.update("INSERT INTO vehicle VALUES (?, ?, ?, 1, 80, 1000, ?)", id, "沪A" + id, storeId, status.getLabel());
+    }
+
+    private static VehicleBatchRequest request(Long... vehicleIds) {
+        VehicleBatchRequest request = new VehicleBatchRequest();
+        request.setVehicleIds(List.of(vehicleIds));
+        request.setOperatorUserId(7L);
+        return request;
+    }
+
+    private static List<Integer> codes(VehicleBatchResult result) {
+        return result.getItems().stream().map(VehicleBatchResult.Item::getResultCode).toList();
+    }
+
+    private String status(long vehicleId) {
+        return jdbc.queryForObject("SELECT status FROM vehicle WHERE vehicle_id = ?", String.class, vehicleId);
+    }
+
+    @Test
+    void statusChangeReportsPerVehicleCodes() {
+        VehicleBatchRequest request = request(1L, 3L, 4L, 99L, 1L);
+        request.setStatus(VehicleStatus.MAINTENANCE);
+        request.setReason("季度保养");
+        VehicleBatchResult result = service.changeStatus(request);
+
+        // 重复的车辆只处理一次；在租不能手工变更；已在维修为 -5；不存在为 -1
+        assertEquals(List.of(1L, 3L, 4L, 99L),
+                result.getItems().stream().map(VehicleBatchResult.Item::getVehicleId).toList());
+        assertEquals(List.of(0, -4, -5, -1), codes(result));
+        assertEquals(4, result.getTotal());
+        assertEquals(1, result.getSucceeded());
+        assertEquals(3, result.getFailed());
+        assertEquals(VehicleStatus.MAINTENANCE.getLabel(), status(1));
+        assertEquals(VehicleStatus.RENTED.getLabel(), status(3));
+
+        assertEquals(1, events.size());
+        EntityChangeEvent event = events.get(0);
+        assertEquals(1L, event.getId());
+        assertEquals(VehicleStatus.IN_STOCK, event.previousValue("status"));
+        assertEquals(VehicleStatus.MAINTENANCE, event.getEntity(Vehicle.class).getStatus());
+
+        // 每批一条审计记录
+        String audit = jdbc.queryForObject("SELECT action FROM audit_log WHERE id = ?", String.class, result.getAuditLogId());
+        assertTrue(audit.contains("共 4 辆，成功 1 辆，失败 3 辆"), audit);
+        assertTrue(audit.endsWith("原因：季度保养"), audit);
+        assertEquals(7L, jdbc.queryForObject("SELECT user_id FROM audit_log", Long.class));
+    }
+
+    @Test
+    void transferChecksSourceStoreAndStatus() {
+        VehicleBatchRequest request = request(1L, 2L, 3L, 5L);
+        request.setFromStoreId(1L);
+        request.setToStoreId(2L);
+        VehicleBatchResult result = service.transfer(request);
+
+        assertEquals(List.of(0, 0, -4, -2), codes(result));
+        assertEquals(List.of(2L, 2L, 1L, 2L), jdbc.queryForList(
+                "SELECT store_id FROM vehicle WHERE vehicle_id IN (1, 2, 3, 5) ORDER BY vehicle_id", Long.class));
+        assertEquals(List.of(1L, 2L), events.stream().map(EntityChangeEvent::getId).toList());
+        assertEquals(1L, events.get(0).previousValue("storeId"));
+
+        // 未指定源门店时，已在目标门店的车辆为 -5
+        VehicleBatchRequest again = request(5L);
+        again.setToStoreId(2L);
+        assertEquals(List.of(-5), codes(service.transfer(again)));
+    }
+
+    @Test
+    void invalidRequestsAreRejectedBeforeWriting() {
+        VehicleBatchRequest noStatus = request(1L);
+        assertThrows(IllegalArgumentException.class, () -> service.changeStatus(noStatus));
+        VehicleBatchRequest unknownStore = request(1L);
+        unknownStore.setToStoreId(9L);
+        assertThrows(IllegalArgumentException.class, () -> service.transfer(unknownStore));
+        VehicleBatchRequest empty = request();
+        empty.setStatus(VehicleStatus.MAINTENANCE);
+        assertThrows(IllegalArgumentException.class, () -> service.changeStatus(empty));
+        assertEquals(0, jdbc.queryForObject("SELECT COUNT(*) FROM audit_log", Integer.class));
+    }
+
+    @Test
+    void batchesLargerThanOneChunkUpdateEveryVehicle() {
+        jdbc.update("INSERT INTO vehicle SELECT X + 100, CONCAT('苏E', X), 1, 1, 80, 1000, ? FROM SYSTEM_RANGE(1, 2100)",
+                VehicleStatus.IN_STOCK.getLabel());
+        List<Long> ids = new ArrayList<>();
+        for (long id = 101; id <= 2200; id++) {
+            ids.add(id);
+        }
+        VehicleBatchRequest request = new VehicleBatchRequest();
+        request.setVehicleIds(ids);
+        request.setToStoreId(2L);
+        VehicleBatchResult result = service.transfer(request);
+
+        // 按 1000 辆一组锁定与更新，共 3 组
+        assertEquals(2100, result.getSucceeded());
+        assertEquals(2100, events.size());
+        assertEquals(2100, jdbc.queryForObject("SELECT COUNT(*) FROM vehicle WHERE vehicle_id > 100 AND store_id = 2",
+                Integer.class));
+    }
+}
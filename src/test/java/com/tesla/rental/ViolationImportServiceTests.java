@@ -0,0 +1,152 @@
+package com.tesla.rental;
+
+import com.tesla.rental.entity.CarModel;
+import com.tesla.rental.entity.RentalOrder;
+import com.tesla.rental.entity.Vehicle;
+import com.tesla.rental.entity.enums.RentalOrderStatus;
+import com.tesla.rental.entity.enums.VehicleStatus;
+import com.tesla.rental.payload.ViolationImportResult;
+import com.tesla.rental.repository.CarModelRepository;
+import com.tesla.rental.repository.VehicleRepository;
+import com.tesla.rental.service.OrderLifecycleService;
+import com.tesla.rental.service.ViolationImportService;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.dao.DataAccessException;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.io.ByteArrayInputStream;
+import java.io.InputStream;
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+class ViolationImportServiceTests {
+
+    private static final AtomicInteger PLATES = new AtomicInteger();
+
+    private static ConfigurableApplicationContext context;
+
+    @BeforeAll
+    static void start() {
+        // 每批 2 行，便于构造跨批次的导入
+        context = new SpringApplicationBuilder(RentalApplication.class).run(
+                "--server.port=0",
+                "--spring.datasource.url=jdbc:h2:mem:violation-import;DB_CLOSE_DELAY=-1;MODE=MySQL",
+                "--spring.datasource.driver-class-name=org.h2.Driver",
+                "--spring.datasource.username=sa",
+                "--spring.datasource.password=",
+                "--spring.jpa.properties.hibernate.dialect=org.hibernate.dialect.H2Dialect",
+                "--rental.violation-import.batch-size=2");
+    }
+
+    @AfterAll
+    static void stop() {
+        if (context != null) {
+            context.close();
+        }
+    }
+
+    @Test
+    void malformedRowsAreCountedAndSkipped() throws Exception {
+        Vehicle vehicle = vehicle();
+        Long orderId = order(vehicle);
+        String plate = vehicle.getPlateNo();
+        ViolationImportResult result = importCsv(
+                "车牌,违章时间,地点,罚款",
+                plate + ",2026-01-02 09:30:00,\"人民路, 近中山路\",200",
+                "",
+                plate + ",2026-01-02 09:30:00,缺少罚款",
+                plate + ",2026/01/02 09:30:00,人民路,200",
+                plate + ",2026-02-30 09:30:00,人民路,200",
+                plate + ",2026-01-02 09:30:00,人民路,-50",
+                plate + ",2026-01-02 09:30:00,人民路,两百",
+                ",2026-01-02 09:30:00,人民路,200",
+                "沪Z99999,2026-01-02 09:30:00,人民路,200",
+                plate.toLowerCase() + ",2026-01-05T09:30:00,人民路,100");
+
+        // 表头与空行不计入总行数
+        assertEquals(9, result.getTotalRows());
+        assertEquals(6, result.getInvalidRows());
+        assertEquals(1, result.getUnknownPlate());
+        assertEquals(1, result.getNoOrder());
+        assertEquals(1, result.getMatchedOrders());
+        assertEquals(2, result.getImported());
+        assertEquals(List.of(4L, 5L, 6L, 7L, 8L, 9L, 10L, 11L),
+                result.getUnmatched().stream().map(ViolationImportResult.UnmatchedRow::getLine).toList());
+        assertEquals(List.of(ViolationImportResult.Reason.INVALID_ROW, ViolationImportResult.Reason.INVALID_ROW,
+                        ViolationImportResult.Reason.INVALID_ROW, ViolationImportResult.Reason.INVALID_ROW,
+                        ViolationImportResult.Reason.INVALID_ROW, ViolationImportResult.Reason.INVALID_ROW,
+                        ViolationImportResult.Reason.UNKNOWN_PLATE, ViolationImportResult.Reason.NO_ORDER),
+                result.getUnmatched().stream().map(ViolationImportResult.UnmatchedRow::getReason).toList());
+
+        // 匹配到的行关联订单，地点中带引号的逗号保留；租期外的行写入时不关联订单
+        JdbcTemplate jdbc = context.getBean(JdbcTemplate.class);
+        assertEquals("人民路, 近中山路", jdbc.queryForObject(
+                "SELECT location FROM violation WHERE vehicle_id = ? AND order_id = ?", String.class,
+                vehicle.getVehicleId(), orderId));
+        assertNull(jdbc.queryForObject("SELECT order_id FROM violation WHERE vehicle_id = ? AND fine_amount = 100",
+                Long.class, vehicle.getVehicleId()));
+    }
+
+    @Test
+    void failedBatchRollsBackOnlyItselfAndStopsTheImport() {
+        Vehicle vehicle = vehicle();
+        order(vehicle);
+        String plate = vehicle.getPlateNo();
+        String tooLong = "长".repeat(300);
+        // 第 1 批（2 行）正常；第 2 批第 2 行的地点超出列宽，整批失败；之后的行不再处理
+        assertThrows(DataAccessException.class, () -> importCsv(
+                plate + ",2026-01-01 11:00:00,人民路,100",
+                plate + ",2026-01-01 12:00:00,人民路,100",
+                plate + ",2026-01-01 13:00:00,人民路,100",
+                plate + ",2026-01-01 14:00:00," + tooLong + ",100",
+                plate + ",2026-01-01 15:00:00,人民路,100"));
+
+        JdbcTemplate jdbc = context.getBean(JdbcTemplate.class);
+        List<LocalDateTime> written = jdbc.queryForList(
+                "SELECT violation_time FROM violation WHERE vehicle_id = ? ORDER BY violation_time",
+                LocalDateTime.class, vehicle.getVehicleId());
+        assertEquals(List.of(LocalDateTime.of(2026, 1, 1, 11, 0), LocalDateTime.of(2026, 1, 1, 12, 0)), written);
+    }
+
+    private static ViolationImportResult importCsv(String... lines) throws Exception {
+        InputStream input = new ByteArrayInputStream(String.join("\n", lines).getBytes(StandardCharsets.UTF_8));
+        return context.getBean(ViolationImportService.class).importCsv(input);
+    }
+
+    private static Vehicle vehicle() {
+        CarModel model = new CarModel();
+        model.setName("Model Y");
+        model = context.getBean(CarModelRepository.class).save(model);
+        Vehicle vehicle = new Vehicle();
+        vehicle.setPlateNo("苏E" + PLATES.incrementAndGet() + "X");
+        vehicle.setModelId(model.getModelId());
+        vehicle.setStatus(VehicleStatus.IN_STOCK);
+        vehicle.setCurrentMileage(1000.0);
+        vehicle.setCurrentSoc(80.0);
+        vehicle.setStoreId(1L);
+        return context.getBean(VehicleRepository.class).save(vehicle);
+    }
+
+    // 租期 2026-01-01 10:00 至 2026-01-03 10:00
+    private static Long order(Vehicle vehicle) {
+        RentalOrder order = new RentalOrder();
+        order.setRentStart(LocalDateTime.of(2026, 1, 1, 10, 0));
+        order.setRentEnd(LocalDateTime.of(2026, 1, 3, 10, 0));
+        order.setTotalAmount(new BigDecimal("200.00"));
+        order.setStatus(RentalOrderStatus.PAID);
+        order.setVehicleId(vehicle.getVehicleId());
+        order.setPickupStoreId(1L);
+        return context.getBean(OrderLifecycleService.class).create(order, null).getOrderId();
+    }
+}